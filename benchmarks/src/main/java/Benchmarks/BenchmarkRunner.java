@@ -0,0 +1,17 @@
+package Benchmarks;
+
+import java.util.Arrays;
+
+/**
+ * Pokreće JMH mjerenja sa GC profilerom, tako da svaki rezultat sadrži i brzinu alokacije
+ * (gc.alloc.rate.norm = bajtova po operaciji). Ostali argumenti se prosljeđuju JMH-u, npr.
+ * java -jar benchmarks/target/benchmarks.jar MoveBenchmark -p board=full
+ */
+public class BenchmarkRunner {
+    public static void main(String[] args) throws Exception {
+        String[] all = Arrays.copyOf(args, args.length +  2);
+        all[args.length] = "-prof";
+        all[args.length +  1] = "gc";
+        org.openjdk.jmh.Main.main(all);
+    }
+}
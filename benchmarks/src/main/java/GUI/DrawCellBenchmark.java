@@ -0,0 +1,63 @@
+package GUI;
+
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Mjeri GUI.drawCell u sliku van ekrana, bez prozora (java.awt.headless=true).
+ * drawCell kopira pločicu iz keša, a renderCell je crta iznova kao prije keša.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations =  5, time =  1)
+@Measurement(iterations =  5, time =  1)
+@Fork(value =  1, jvmArgsAppend = "-Djava.awt.headless=true")
+@State(Scope.Thread)
+public class DrawCellBenchmark {
+    @Param({"0", "2", "128", "2048"})
+    public int value;
+
+    private BufferedImage image;
+    private Graphics2D graphics;
+    private TileSprites sprites;
+    private int exponent;
+
+    @Setup
+    public void setUp() {
+        image = new BufferedImage(100,  100, BufferedImage.TYPE_INT_RGB);
+        graphics = image.createGraphics();
+        sprites = new TileSprites(100, TileSprites.DEFAULT_COLORS);
+        exponent = value ==  0 ?  0 : Integer.numberOfTrailingZeros(value);
+    }
+
+    @TearDown
+    public void tearDown() {
+        graphics.dispose();
+    }
+
+    @Benchmark
+    public BufferedImage drawCell() {
+        GUI.drawCell(graphics,  0,  0, value);
+        return image;
+    }
+
+    @Benchmark
+    public BufferedImage renderCell() {
+        sprites.render(graphics,  0,  0, exponent);
+        return image;
+    }
+}
@@ -0,0 +1,118 @@
+package GUI;
+
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import Logika.GameRandom;
+import Logika.Leaderboard;
+import Logika.Logika;
+
+/**
+ * Mjeri hladno pokretanje igre kao u GUI-ju, svaki put u novom JVM-u: vrijeme do prve tablice
+ * iscrtane u sliku van ekrana (java.awt.headless=true) i vrijeme do prvog poteza.
+ * Sa leaderboard=sync igra čeka otvaranje rang liste od  100000 igara kao prije,
+ * a sa async se rang lista otvara u pozadini (vidi Logika.openLeaderboardAsync).
+ * Rang lista se pravi u pripremi, pa su klase rang liste tada već učitane.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations =  0)
+@Measurement(iterations =  1)
+@Fork(value =  10, jvmArgsAppend = "-Djava.awt.headless=true")
+@State(Scope.Benchmark)
+public class StartupBenchmark {
+    private static final int GAMES =  100_000;
+
+    @Param({"sync", "async"})
+    public String leaderboard;
+
+    private Path directory;
+    private Path file;
+    private CompletableFuture<Leaderboard> opened;
+    private final int[][] cells = new int[4][4];
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("startup");
+        file = directory.resolve("leaderboard.dat");
+        try (Leaderboard board = Leaderboard.open(file)) {
+            Random random = new Random(42);
+            for (int i =  0; i < GAMES; i++)
+                board.add(new Leaderboard.Entry("p" + random.nextInt(1000), random.nextInt(200_000),  8,  100,  1000,  4));
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        if (opened != null)
+            opened.join().close();
+        try (var files = Files.list(directory)) {
+            for (Path path : (Iterable<Path>) files::iterator)
+                Files.delete(path);
+        }
+        Files.delete(directory);
+    }
+
+    // Kreira i pokreće igru kao GUI.newGame, sa rang listom otvorenom odmah ili u pozadini
+    private Logika newGame() throws IOException {
+        Logika game;
+        if (leaderboard.equals("sync")) {
+            Leaderboard board = Leaderboard.open(file);
+            opened = CompletableFuture.completedFuture(board);
+            game = new Logika(4, new GameRandom(42), board);
+        } else {
+            opened = CompletableFuture.supplyAsync(() -> {
+                try {
+                    return Leaderboard.open(file);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            game = new Logika(4, new GameRandom(42), (Leaderboard) null);
+        }
+        game.startGame();
+        return game;
+    }
+
+    @Benchmark
+    public BufferedImage firstFrame() throws IOException {
+        Logika game = newGame();
+        game.getBoard(cells);
+        BufferedImage image = new BufferedImage(BoardRenderer.WIDTH, BoardRenderer.HEIGHT, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = image.createGraphics();
+        for (int x =  0; x <  4; x++) {
+            for (int y =  0; y <  4; y++)
+                GUI.drawCell(graphics, y * GUI.CELL_SIZE, x * GUI.CELL_SIZE, cells[x][y]);
+        }
+        graphics.dispose();
+        return image;
+    }
+
+    @Benchmark
+    public int firstMove() throws IOException {
+        Logika game = newGame();
+        char[] moves = {'u', 'd', 'l', 'r'};
+        return game.processMove(moves[Integer.numberOfTrailingZeros(game.getLegalMoves())]);
+    }
+}
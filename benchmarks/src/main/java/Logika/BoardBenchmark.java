@@ -0,0 +1,69 @@
+package Logika;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Mjeri dodavanje slučajne pločice i čitanje tablice (kopija, kopija u dato polje, pojedinačne ćelije) na rijetkoj, srednjoj i skoro punoj tablici.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations =  5, time =  1)
+@Measurement(iterations =  5, time =  1)
+@Fork(1)
+@State(Scope.Thread)
+public class BoardBenchmark {
+    @Param({"sparse", "mid", "full"})
+    public String board;
+
+    private long initial;
+    private Logika game;
+    private final int[][] buffer = new int[4][4];
+
+    @Setup
+    public void setUp() {
+        initial = Boards.byName(board);
+        game = new Logika(new Random(42), false);
+        game.setState(initial,  0, true);
+    }
+
+    @Benchmark
+    public long addRandomCell() {
+        game.setState(initial,  0, true);
+        game.addRandomCell();
+        return game.getPackedBoard();
+    }
+
+    @Benchmark
+    public int[][] getBoard() {
+        return game.getBoard();
+    }
+
+    @Benchmark
+    public int[][] getBoardInto() {
+        game.getBoard(buffer);
+        return buffer;
+    }
+
+    @Benchmark
+    public int getCell() {
+        int sum =  0;
+        for (int y =  0; y <  4; y++) {
+            for (int x =  0; x <  4; x++)
+                sum += game.getCell(x, y);
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,49 @@
+package Logika;
+
+/**
+ * Početne tablice za mjerenja: rijetka, srednja i skoro puna.
+ */
+final class Boards {
+    // Tablice su date kao eksponenti po redovima (y), od x =  0 do x =  3
+    static final long SPARSE = pack(
+            0,  0,  0,  0,
+            0,  1,  0,  0,
+            0,  0,  0,  0,
+            2,  0,  0,  1);
+    static final long MID = pack(
+            1,  0,  2,  0,
+            3,  1,  0,  0,
+            4,  3,  2,  1,
+            6,  5,  0,  0);
+    static final long FULL = pack(
+            1,  2,  3,  4,
+            5,  6,  7,  8,
+            2,  0,  4,  5,
+            9,  8,  7,  6);
+
+    private Boards() {
+    }
+
+    /**
+     * Vraća tablicu po imenu: sparse, mid ili full.
+     */
+    static long byName(String name) {
+        switch (name) {
+            case "sparse":
+                return SPARSE;
+            case "mid":
+                return MID;
+            case "full":
+                return FULL;
+            default:
+                throw new IllegalArgumentException("Nepoznata tablica: " + name);
+        }
+    }
+
+    private static long pack(int... exponents) {
+        long board =  0;
+        for (int i =  0; i <  16; i++)
+            board = BitBoard.setExponent(board, i %  4, i /  4, exponents[i]);
+        return board;
+    }
+}
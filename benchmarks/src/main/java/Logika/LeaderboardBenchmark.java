@@ -0,0 +1,87 @@
+package Logika;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Mjeri upite i dodavanje na rang listi sa milion igara, u privremenom direktoriju.
+ * Dodavanje se mjeri iz više niti istovremeno.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations =  5, time =  1)
+@Measurement(iterations =  5, time =  1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class LeaderboardBenchmark {
+    private static final int GAMES =  1_000_000;
+    private static final int MAX_SCORE =  200_000;
+
+    private Path directory;
+    private Leaderboard leaderboard;
+    private final Leaderboard.Entry entry = new Leaderboard.Entry("bench",  1234,  7,  150,  60_000,  4);
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("leaderboard");
+        leaderboard = Leaderboard.open(directory.resolve("leaderboard.dat"));
+        Random random = new Random(42);
+        for (int i =  0; i < GAMES; i++)
+            leaderboard.add(new Leaderboard.Entry("p" + random.nextInt(10_000), random.nextInt(MAX_SCORE),  8,  100,  1000,  4));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        leaderboard.close();
+        try (var files = Files.list(directory)) {
+            for (Path file : (Iterable<Path>) files::iterator)
+                Files.delete(file);
+        }
+        Files.delete(directory);
+    }
+
+    @Benchmark
+    public long rank() {
+        return leaderboard.rank(ThreadLocalRandom.current().nextInt(MAX_SCORE));
+    }
+
+    @Benchmark
+    public int scoreAtPercentile() {
+        return leaderboard.scoreAtPercentile(ThreadLocalRandom.current().nextDouble() *  100);
+    }
+
+    @Benchmark
+    public List<Leaderboard.Entry> top10() {
+        return leaderboard.top(10);
+    }
+
+    @Benchmark
+    public Leaderboard.Entry best() {
+        return leaderboard.best("p" + ThreadLocalRandom.current().nextInt(10_000));
+    }
+
+    @Benchmark
+    @Threads(4)
+    public long add() {
+        return leaderboard.add(entry);
+    }
+}
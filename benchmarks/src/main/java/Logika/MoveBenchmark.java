@@ -0,0 +1,51 @@
+package Logika;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Mjeri Logika.processMove u svakom smjeru na rijetkoj, srednjoj i skoro punoj tablici.
+ * Prije svakog poteza se vraća početno stanje, tako da svaki poziv mjeri isti potez.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations =  5, time =  1)
+@Measurement(iterations =  5, time =  1)
+@Fork(1)
+@State(Scope.Thread)
+public class MoveBenchmark {
+    @Param({"sparse", "mid", "full"})
+    public String board;
+
+    @Param({"u", "d", "l", "r"})
+    public String move;
+
+    private long initial;
+    private char direction;
+    private Logika game;
+
+    @Setup
+    public void setUp() {
+        initial = Boards.byName(board);
+        direction = move.charAt(0);
+        game = new Logika(new Random(42), false);
+    }
+
+    @Benchmark
+    public int processMove() {
+        game.setState(initial,  0, true);
+        return game.processMove(direction);
+    }
+}
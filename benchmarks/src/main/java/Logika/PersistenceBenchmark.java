@@ -0,0 +1,67 @@
+package Logika;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Mjeri čuvanje i učitavanje igre.
+ * Snimci se pišu u datoteku u privremenom direktoriju, pa mjerenje ne dira saves.dat igrača.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations =  5, time =  1)
+@Measurement(iterations =  5, time =  1)
+@Fork(1)
+@State(Scope.Thread)
+public class PersistenceBenchmark {
+    private static final String SLOT = "benchmark";
+
+    private Path directory;
+    private SaveSlots slots;
+    private Logika game;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("persistence");
+        slots = SaveSlots.open(directory.resolve("saves.dat"),  64);
+        game = new Logika(new Random(42), false);
+        game.setState(Boards.MID,  1234, true);
+        game.saveGame(slots, SLOT);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        try (var files = Files.list(directory)) {
+            for (Path path : (Iterable<Path>) files::iterator)
+                Files.delete(path);
+        }
+        Files.delete(directory);
+    }
+
+    @Benchmark
+    public void saveGame() {
+        game.saveGame(slots, SLOT);
+    }
+
+    @Benchmark
+    public long loadGame() throws IOException {
+        game.loadGame(slots, SLOT);
+        return game.getPackedBoard();
+    }
+}
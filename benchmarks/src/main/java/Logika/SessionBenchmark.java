@@ -0,0 +1,54 @@
+package Logika;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Mjeri dugu sesiju igre kao u GUI-ju: potez pa kopija tablice u isto polje.
+ * Igra se ponovo pokreće kada završi. U ustaljenom stanju gc.alloc.rate.norm treba da bude  0 B/op;
+ * sa snapshots=true svaki potez objavljuje jedan GameSnapshot (vidi Logika.setSnapshotsEnabled).
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations =  5, time =  1)
+@Measurement(iterations =  5, time =  1)
+@Fork(1)
+@State(Scope.Thread)
+public class SessionBenchmark {
+    private static final char[] MOVES = {'l', 'u', 'r', 'd'};
+
+    @Param({"false", "true"})
+    public boolean snapshots;
+
+    private Logika game;
+    private final int[][] buffer = new int[4][4];
+    private int next;
+
+    @Setup
+    public void setUp() {
+        game = new Logika(new Random(42), false);
+        game.startGame();
+        game.setSnapshotsEnabled(snapshots);
+    }
+
+    @Benchmark
+    public int[][] moveAndRead() {
+        int status = game.processMove(MOVES[next++ &  3]);
+        if (status !=  0)
+            game.startGame();
+        game.getBoard(buffer);
+        return buffer;
+    }
+}
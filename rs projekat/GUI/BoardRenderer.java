@@ -0,0 +1,478 @@
+package GUI;
+
+import java.awt.Canvas;
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.FontMetrics;
+import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.GraphicsConfiguration;
+import java.awt.Toolkit;
+import java.awt.Transparency;
+import java.awt.image.BufferStrategy;
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
+import java.util.List;
+
+import javax.swing.UIManager;
+
+import Logika.GameSnapshot;
+import Logika.GridBoard;
+import Logika.MoveResult;
+import Metrike.FrameEvent;
+import Metrike.Metrics;
+import Metrike.Startup;
+
+/**
+ * Platno na kojem se tablica crta aktivno, iz posebne niti, kroz BufferStrategy.
+ * GUI nakon svakog poteza objavljuje novo stanje sa publish(), a nit za crtanje
+ * animira klizanje i spajanje pločica brzinom od FPS okvira u sekundi.
+ * Kada se ništa ne mijenja nit miruje, a tokom animacije se crtaju samo  ćelije kroz koje pločice prolaze.
+ * Trajanje svakog okvira se bilježi u Metrics.FRAME i kao JFR događaj FrameEvent.
+ */
+class BoardRenderer extends Canvas implements Runnable {
+    private static final long serialVersionUID =  1L;
+
+    // Broj okvira u sekundi i trajanje faza animacije
+    static final int FPS =  60;
+    private static final long FRAME_NANOS =  1_000_000_000L / FPS;
+    private static final long SLIDE_NANOS =  100_000_000L;
+    private static final long POP_NANOS =  80_000_000L;
+
+    // Položaj i veličina tablice u pikselima i veličina platna;  ćelije se smanjuju da tablica stane
+    private static final int BOARD_X =  50;
+    private static final int BOARD_Y =  50;
+    static final int BOARD_PIXELS =  400;
+    static final int WIDTH =  500;
+    static final int HEIGHT =  505;
+    // Osnovna linija prvog reda skora
+    private static final int SCORE_Y =  475;
+    // Boja preklapanja na kraju igre
+    private static final Color OVERLAY_COLOR = new Color(0,   0,   0,   0.5f);
+
+    // Mjerenje vremena crtanja (-Dgui.frameTime=true ispisuje prosjek svakih FRAME_TIME_WINDOW okvira)
+    private static final boolean FRAME_TIME_LOG = Boolean.getBoolean("gui.frameTime");
+    private static final int FRAME_TIME_WINDOW =  60;
+    // Prikaz mjerenja preko tablice (vidi Metrics) i koliko često se osvježava
+    private static final long METRICS_REFRESH_MILLIS =  500;
+    private static final Font METRICS_FONT = new Font(Font.MONOSPACED, Font.PLAIN,  11);
+    private static final Color METRICS_BACKGROUND = new Color(0,   0,   0,   0.7f);
+    private int frames;
+    private long frameNanos;
+
+    // Stanje koje objavljuje GUI, zaštićeno sa synchronized (this); stanje igre je nepromjenljivo i ne kopira se
+    private GameSnapshot pendingSnapshot;
+    private final MoveResult pendingMove = new MoveResult();
+    private boolean pendingAnimate;
+    private int pendingStatus;
+    private int version;
+    private boolean fullRedraw = true;
+    private boolean showMetrics;
+
+    // Stanje niti za crtanje; verzija  0 je prazno platno prije prvog publish
+    private int renderedVersion =  0;
+    private GameSnapshot snapshot;
+    private int size;
+    // Veličina  ćelije i pomak tablice da bude centrirana
+    private int cellSize;
+    private int boardOffset;
+    private final MoveResult move = new MoveResult();
+    private int score;
+    private int highScore;
+    private int status;
+    // Mjesto završene igre na rang listi, 0 ako nije upisana
+    private long rank;
+    private boolean animating;
+    private long animationStart;
+    // Ćelije koje animacija mijenja, indeks x + size * y
+    private final boolean[] dirty = new boolean[GridBoard.MAX_SIZE * GridBoard.MAX_SIZE];
+    private boolean scoreDirty = true;
+    // Slika skora i vrijednosti od kojih je iscrtana
+    private BufferedImage scoreImage;
+    private int renderedScore = -1;
+    private int renderedHighScore = -1;
+    private int scoreAscent;
+    // Redovi prikaza mjerenja i kada su pročitani
+    private List<String> metricsLines;
+    private long metricsNanos;
+
+    private BufferStrategy strategy;
+    // Da li zadnji bafer zadržava sadržaj između okvira, pa je dovoljno crtati samo promjene
+    private boolean partialRedraw;
+
+    BoardRenderer() {
+        setBackground(UIManager.getColor("Panel.background"));
+        setFocusable(false);
+    }
+
+    /**
+     * Kreira BufferStrategy i pokreće nit za crtanje; poziva se kada je prozor prikazan.
+     */
+    void start() {
+        createBufferStrategy(2);
+        strategy = getBufferStrategy();
+        // Kod zamjene stranica sadržaj zadnjeg bafera nije definisan, pa se crta sve
+        partialRedraw = !strategy.getCapabilities().isPageFlipping();
+        Thread thread = new Thread(this, "board-renderer");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Objavljuje novo stanje igre za crtanje.
+     *
+     * @param snapshot stanje igre (tablica, skor, najviši skor, mjesto na rang listi)
+     * @param move rezultat poteza koji se animira, ili null za prikaz bez animacije
+     * @param status status igre (0 igra traje,  1 pobjeda,  2 kraj)
+     */
+    synchronized void publish(GameSnapshot snapshot, MoveResult move, int status) {
+        pendingSnapshot = snapshot;
+        pendingAnimate = move != null;
+        if (move != null)
+            pendingMove.copyFrom(move);
+        pendingStatus = status;
+        version++;
+        notifyAll();
+    }
+
+    // Prozor je otkriven ili promijenjen, pa se sve crta ponovo
+    @Override
+    public void paint(Graphics g) {
+        redrawAll();
+    }
+
+    @Override
+    public void update(Graphics g) {
+        redrawAll();
+    }
+
+    private synchronized void redrawAll() {
+        fullRedraw = true;
+        notifyAll();
+    }
+
+    /**
+     * Uključuje ili isključuje prikaz mjerenja preko tablice; dok je uključen, svaki okvir se crta cijeli.
+     */
+    synchronized void toggleMetrics() {
+        showMetrics = !showMetrics;
+        metricsLines = null;
+        fullRedraw = true;
+        notifyAll();
+    }
+
+    // Da li je vrijeme da se prikaz mjerenja osvježi
+    private boolean metricsDue() {
+        return showMetrics && (metricsLines == null
+                || System.nanoTime() - metricsNanos >= METRICS_REFRESH_MILLIS *  1_000_000);
+    }
+
+    @Override
+    public void run() {
+        long next = System.nanoTime();
+        while (true) {
+            boolean full;
+            synchronized (this) {
+                // Nit miruje dok nema novog stanja ni animacije
+                while (version == renderedVersion && !animating && !fullRedraw && !metricsDue()) {
+                    try {
+                        wait(showMetrics ? METRICS_REFRESH_MILLIS :  0);
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    next = System.nanoTime();
+                }
+                full = nextFrame();
+            }
+
+            FrameEvent event = Metrics.jfrActive() ? new FrameEvent() : null;
+            if (event != null)
+                event.begin();
+            boolean animated = animating;
+            long start = System.nanoTime();
+            render(start, full);
+            recordFrameTime(System.nanoTime() - start);
+            // Prvi okvir sa objavljenom tablicom (verzija  0 je prazno platno)
+            if (renderedVersion >  0)
+                Startup.mark(Startup.FIRST_FRAME);
+            if (event != null && event.shouldCommit()) {
+                event.full = full;
+                event.animating = animated;
+                event.commit();
+            }
+
+            // Čeka početak sljedećeg okvira; ako kasni, ne pokušava nadoknaditi propuštene
+            next += FRAME_NANOS;
+            long sleep = next - System.nanoTime();
+            if (sleep >  0) {
+                try {
+                    Thread.sleep(sleep /  1_000_000, (int) (sleep %  1_000_000));
+                } catch (InterruptedException e) {
+                    return;
+                }
+            } else {
+                next = System.nanoTime();
+            }
+        }
+    }
+
+    /**
+     * Preuzima objavljeno stanje za sljedeći okvir.
+     * Prije prvog publish nema stanja igre, pa se crta prazno platno.
+     *
+     * @return da li se okvir crta cijeli
+     */
+    synchronized boolean nextFrame() {
+        boolean full = fullRedraw || !partialRedraw || showMetrics;
+        fullRedraw = false;
+        if (metricsDue()) {
+            metricsLines = Metrics.lines();
+            metricsNanos = System.nanoTime();
+        }
+        if (version != renderedVersion) {
+            renderedVersion = version;
+            snapshot = pendingSnapshot;
+            if (snapshot.getSize() != size) {
+                // Nova veličina: pločice se crtaju ponovo u novoj veličini
+                size = snapshot.getSize();
+                cellSize = BOARD_PIXELS / size;
+                boardOffset = (BOARD_PIXELS - cellSize * size) /  2;
+                GUI.sprites.setCellSize(cellSize);
+                Arrays.fill(dirty, false);
+                pendingAnimate = false;
+            }
+            score = snapshot.getScore();
+            highScore = snapshot.getHighScore();
+            status = pendingStatus;
+            rank = snapshot.getRank();
+            if (pendingAnimate) {
+                // Nova animacija prekida prethodnu; ćelije prethodne ostaju označene
+                move.copyFrom(pendingMove);
+                markDirty();
+                animating = true;
+                animationStart = System.nanoTime();
+            } else {
+                animating = false;
+                full = true;
+            }
+        }
+        return full;
+    }
+
+    // Označava  ćelije kroz koje prolaze pločice, spajanja i novu pločicu
+    private void markDirty() {
+        for (int i =  0; i < move.getTileCount(); i++) {
+            int x = move.getFromX(i), y = move.getFromY(i);
+            int tx = move.getToX(i), ty = move.getToY(i);
+            if (x == tx && y == ty)
+                continue;
+            dirty[x + size * y] = true;
+            while (x != tx || y != ty) {
+                x += Integer.signum(tx - x);
+                y += Integer.signum(ty - y);
+                dirty[x + size * y] = true;
+            }
+        }
+        if (move.hasSpawn())
+            dirty[move.getSpawnX() + size * move.getSpawnY()] = true;
+    }
+
+    // Crta jedan okvir; ponavlja ako je sadržaj bafera izgubljen
+    private void render(long now, boolean full) {
+        long elapsed = now - animationStart;
+        boolean finishing = animating && elapsed >= SLIDE_NANOS + POP_NANOS;
+        if (finishing && status !=  0)
+            full = true; // preklapanje za kraj igre se crta preko cijele tablice
+        if (score != renderedScore || highScore != renderedHighScore)
+            scoreDirty = true;
+        do {
+            do {
+                Graphics g = strategy.getDrawGraphics();
+                try {
+                    draw(g, elapsed, full, finishing);
+                } finally {
+                    g.dispose();
+                }
+                // Vraćen sadržaj nije definisan, pa se crta sve ispočetka
+                full = true;
+            } while (strategy.contentsRestored());
+            strategy.show();
+            // Šalje komande odmah, što sprečava kašnjenje na sporim X serverima
+            Toolkit.getDefaultToolkit().sync();
+        } while (strategy.contentsLost());
+
+        scoreDirty = false;
+        if (finishing) {
+            animating = false;
+            Arrays.fill(dirty, false);
+        }
+    }
+
+    // Crta okvir u dati Graphics (bafer BufferStrategy-ja, ili sliku u testu)
+    void draw(Graphics g, long elapsed, boolean full, boolean finishing) {
+        if (full) {
+            g.setColor(getBackground());
+            g.fillRect(0,  0, WIDTH, HEIGHT);
+        }
+        boolean animate = animating && !finishing;
+        // Udio završene faze klizanja i faze pojavljivanja,  0 do  1
+        double slide = animate ? Math.min(1.0, (double) elapsed / SLIDE_NANOS) :  1.0;
+        double pop = animate ? Math.max(0.0, (double) (elapsed - SLIDE_NANOS) / POP_NANOS) :  1.0;
+
+        for (int y =  0; y < size; y++) {
+            for (int x =  0; x < size; x++) {
+                int cell = x + size * y;
+                if (!full && !dirty[cell])
+                    continue;
+                int exponent = snapshot.getExponent(x, y);
+                if (animate && dirty[cell]) {
+                    // Tokom klizanja su označene  ćelije prazne; pločice se crtaju ispod
+                    GUI.sprites.draw(g, screenX(x, y), screenY(x, y),  0);
+                    if (slide <  1.0)
+                        continue;
+                    if (isPopping(x, y)) {
+                        GUI.sprites.draw(g, screenX(x, y), screenY(x, y), exponent, (int) (cellSize * pop));
+                        continue;
+                    }
+                }
+                GUI.sprites.draw(g, screenX(x, y), screenY(x, y), exponent);
+            }
+        }
+
+        if (animate && slide <  1.0) {
+            // Pločice iz označenih  ćelija klize prema cilju
+            double t =  1.0 - (1.0 - slide) * (1.0 - slide);
+            for (int i =  0; i < move.getTileCount(); i++) {
+                int fx = move.getFromX(i), fy = move.getFromY(i);
+                int tx = move.getToX(i), ty = move.getToY(i);
+                if (!dirty[fx + size * fy] && !dirty[tx + size * ty])
+                    continue;
+                int sx = (int) Math.round(screenX(fx, fy) + (screenX(tx, ty) - screenX(fx, fy)) * t);
+                int sy = (int) Math.round(screenY(fx, fy) + (screenY(tx, ty) - screenY(fx, fy)) * t);
+                GUI.sprites.draw(g, sx, sy, move.getExponent(i));
+            }
+        }
+
+        if (full || scoreDirty)
+            drawScore(g, full);
+
+        if (full && status !=  0 && !animate)
+            drawOverlay(g);
+        if (full && metricsLines != null)
+            drawMetrics(g);
+    }
+
+    // Crta redove mjerenja u gornjem dijelu tablice
+    private void drawMetrics(Graphics g) {
+        g.setFont(METRICS_FONT);
+        FontMetrics metrics = g.getFontMetrics();
+        int lineHeight = metrics.getHeight();
+        g.setColor(METRICS_BACKGROUND);
+        g.fillRect(BOARD_X, BOARD_Y, BOARD_PIXELS, lineHeight * metricsLines.size() +  8);
+        g.setColor(Color.WHITE);
+        int y = BOARD_Y +  4 + metrics.getAscent();
+        for (String line : metricsLines) {
+            g.drawString(line, BOARD_X +  6, y);
+            y += lineHeight;
+        }
+    }
+
+    // Da li se  ćelija pojavljuje (nova pločica ili spajanje) u drugoj fazi animacije
+    private boolean isPopping(int x, int y) {
+        if (move.hasSpawn() && move.getSpawnX() == x && move.getSpawnY() == y)
+            return true;
+        for (int i =  0; i < move.getMergeCount(); i++) {
+            if (move.getMergeX(i) == x && move.getMergeY(i) == y)
+                return true;
+        }
+        return false;
+    }
+
+    // Ekranske koordinate  ćelije (x, y); red na ekranu je x, kao u getBoard()
+    private int screenX(int x, int y) {
+        return BOARD_X + boardOffset + y * cellSize;
+    }
+
+    private int screenY(int x, int y) {
+        return BOARD_Y + boardOffset + x * cellSize;
+    }
+
+    /**
+     * Crta skor i najviši skor; slika se iscrtava ponovo samo kada se vrijednosti promijene.
+     */
+    private void drawScore(Graphics g, boolean full) {
+        if (scoreImage == null || score != renderedScore || highScore != renderedHighScore)
+            renderScore(g);
+        int top = SCORE_Y - scoreAscent;
+        if (!full) {
+            g.setColor(getBackground());
+            g.fillRect(0, top, WIDTH, HEIGHT - top);
+        }
+        g.drawImage(scoreImage, BOARD_X, top, null);
+    }
+
+    /**
+     * Iscrtava linije skora i najvišeg skora u providnu sliku scoreImage.
+     */
+    private void renderScore(Graphics g) {
+        String scoreStr = "Score: " + score;
+        String hScore = "High score: " + highScore;
+        FontMetrics metrics = g.getFontMetrics(TileSprites.FONT);
+        scoreAscent = metrics.getAscent();
+        int width = Math.max(metrics.stringWidth(scoreStr), metrics.stringWidth(hScore));
+        // Drugi red je  30 piksela niže
+        int height = scoreAscent +   30 + metrics.getDescent();
+        GraphicsConfiguration gc = ((Graphics2D) g).getDeviceConfiguration();
+        scoreImage = gc.createCompatibleImage(width, height, Transparency.TRANSLUCENT);
+        Graphics sg = scoreImage.createGraphics();
+        sg.setColor(Color.DARK_GRAY);
+        sg.setFont(TileSprites.FONT);
+        sg.drawString(scoreStr,   0, scoreAscent);
+        sg.drawString(hScore,   0, scoreAscent +   30);
+        sg.dispose();
+        renderedScore = score;
+        renderedHighScore = highScore;
+    }
+
+    /**
+     * Crta preklapanje i poruku na kraju igre.
+     */
+    private void drawOverlay(Graphics g) {
+        // Prekriva cijelu tablicu
+        g.setColor(OVERLAY_COLOR);
+        g.fillRect(0,   0, WIDTH, WIDTH);
+        g.setColor(Color.WHITE);
+        g.setFont(TileSprites.FONT);
+        FontMetrics metrics = g.getFontMetrics();
+        // Poruka, konačni skor, mjesto na rang listi (ako je igra upisana) i pitanje za nastavak
+        String prompt = status ==   1 ? "You won!" : "You lost!";
+        g.drawString(prompt,   250 - metrics.stringWidth(prompt) /  2,   175);
+        String fscore = "Final score: " + score;
+        g.drawString(fscore,   250 - metrics.stringWidth(fscore) /  2,   200);
+        int y =   225;
+        if (rank >  0) {
+            String frank = "Rank: #" + rank;
+            g.drawString(frank,   250 - metrics.stringWidth(frank) /  2, y);
+            y +=   25;
+        }
+        prompt = status ==   1 ? "Continue? (y/n)" : "Play again? (y/n)";
+        g.drawString(prompt,   250 - metrics.stringWidth(prompt) /  2, y);
+    }
+
+    /**
+     * Bilježi trajanje jednog okvira u Metrics.FRAME i, ako je ispis uključen, ispisuje prosjek.
+     * @param nanos trajanje crtanja u nanosekundama
+     */
+    private void recordFrameTime(long nanos) {
+        if (Metrics.isEnabled())
+            Metrics.FRAME.record(nanos);
+        if (!FRAME_TIME_LOG)
+            return;
+        frameNanos += nanos;
+        if (++frames == FRAME_TIME_WINDOW) {
+            System.out.printf("Prosječno vrijeme crtanja: %.1f us%n", frameNanos /  1e3 / frames);
+            frames =  0;
+            frameNanos =  0;
+        }
+    }
+}
@@ -1,15 +1,29 @@
 package GUI;
 
-import java.awt.Color;
-import java.awt.Font;
 import java.awt.Graphics;
+import java.awt.event.KeyAdapter;
 import java.awt.event.KeyEvent;
 import java.awt.event.KeyListener;
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.nio.file.Paths;
 
 import javax.swing.JButton;
 import javax.swing.JFrame;
+import javax.swing.SwingUtilities;
 
+import Logika.GameRandom;
+import Logika.GridBoard;
+import Logika.Leaderboard;
 import Logika.Logika;
+import Logika.MoveJournal;
+import Logika.MoveResult;
+import Metrike.Metrics;
+import Metrike.Startup;
+import Simulacija.MovePolicy;
+import Solver.Expectimax;
+import Solver.NTupleNetwork;
+import Solver.Tablebase;
 
 /**
  * Klasa VisualUserInterface predstavlja grafički korisnički interfejs igre  2048.
@@ -24,22 +38,18 @@ public class GUI {
      */
     private static class GameFrame extends JFrame implements KeyListener {
     	
+    	// Platno na kojem se crta tablica
+    	private final BoardRenderer renderer;
     	// za čuvanje igre
     	private JButton saveButton;
         // za učitavanje igre
         private JButton loadButton;
     	
-        @Override
-        public void paint(Graphics g) {
-            // Poziva osnovnu metodu paint i crta  tablicu
-            super.paint(g);
-            draw(g);
-        }
-
         @Override
         public void keyPressed(KeyEvent e) {
-            // Obavlja obradu pritisnutog tastera
-            handleKeypress(e);
+            // Taster se obrađuje na niti logike; ako je red pun, taster se odbacuje
+            int keyCode = e.getKeyCode();
+            loop.submit(() -> handleKeypress(keyCode));
         }
 
         @Override
@@ -56,24 +66,32 @@ public class GUI {
             setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
             setSize(500,  600); 
             setLayout(null); 
-            setVisible(true);
             addKeyListener(this);
             setFocusable(true);
             setFocusTraversalKeysEnabled(false);
             setLocationRelativeTo(null);
 
+            // Platno za tablicu i skor
+            renderer = new BoardRenderer();
+            renderer.setBounds(0,  0, BoardRenderer.WIDTH, BoardRenderer.HEIGHT);
+            add(renderer);
+
             // Kreira i pozicionira dugmadi
             saveButton = new JButton("Save");
             saveButton.setBounds(40,  510,  100,  30);
             saveButton.addActionListener(e -> {
-            	// Čuva igru
-            	game.saveGame();
-            	// Osvježava tablicu igre (iz nekog razloga se ne moze nastaviti igrati ako ne pozovem ovu funkciju
-            	board = game.getBoard();
-                // Resetuje status igre
-                gameStatus =  0;
-                // Ponovo crta igračku tablicu
-                frame.paint(frame.getGraphics());
+            	// Čuva igru na niti logike; upis na disk se obavlja u pozadini.
+            	// Kao taster, klik se odbacuje ako je red pun, pa Swing nit nikada ne čeka
+            	loop.submit(() -> {
+            	    game.saveGameAsync(SAVE_SLOT).whenComplete((result, error) -> {
+            	        if (error != null)
+            	            error.printStackTrace();
+            	    });
+            	    // Resetuje status igre
+            	    gameStatus =  0;
+            	    // Ponovo crta igračku tablicu
+            	    markChanged();
+            	});
                 // Vraća fokus na prozor
                 frame.requestFocus();
             }); 
@@ -82,220 +100,328 @@ public class GUI {
             loadButton = new JButton("Load");
             loadButton.setBounds(160,  510,  100,  30);
             loadButton.addActionListener(e -> {
-            	// Učitava igru
-            	game.loadGame();
-                // Osvježava tablicu igre
-                board = game.getBoard();
-                // Resetuje status igre
-                gameStatus =  0;
-                // Ponovo crta igračku tablicu
-                frame.paint(frame.getGraphics());
+            	// Učitava igru; čitanje je u pozadini, a stanje se postavlja na niti logike.
+            	// Kao taster, klik se odbacuje ako je red pun
+            	loop.submit(() -> game.loadGameAsync(SAVE_SLOT, loop).whenCompleteAsync((loaded, error) -> {
+            	    if (error != null) {
+            	        error.printStackTrace();
+            	        return;
+            	    }
+            	    // Resetuje status igre
+            	    gameStatus =  0;
+            	    // Ponovo crta igračku tablicu
+            	    markChanged();
+            	}, loop));
                 // Vraća fokus na prozor
                 frame.requestFocus();
             }); 
             add(loadButton);
+
+            setVisible(true);
+            // Crtanje počinje kada je prozor prikazan
+            renderer.start();
         }
     }
     
-    // Instanca prozora igre
-    private static GameFrame frame = new GameFrame();
-    // Tablica igre
-    private static int[][] board = new int[4][4];
+    // Instanca prozora igre, kreira se pri prvom pokretanju igre
+    private static GameFrame frame;
+    // Nit logike; sve ispod (igra, status, automatska igra) se koristi samo na njoj
+    private static GameLoop loop;
     // Konstanta za veličinu  ćelije
-    private static final int CELL_SIZE =  100;
+    static final int CELL_SIZE =  100;
     // Instanca klase za logiku
     private static Logika game;
     // Status igre
     private static int gameStatus =  0;
-    
+    // Dnevnik poteza ovog pokretanja, zajednički za sve igre
+    private static MoveJournal journal;
+    // Rang lista, otvara se u pozadini pri pokretanju; do tada je null i igre je dobijaju kada se otvori
+    private static Leaderboard leaderboard;
+    // Automatski igrač, igra dok nema drugih komandi (taster A)
+    private static Expectimax solver;
+    // Tablica optimalnih poteza za igru 3x3 (taster H i automatska igra), otvara se pri prvoj upotrebi
+    private static Tablebase tablebase;
+    private static boolean tablebaseOpened;
+    // Naučena mreža n-torki za igru 4x4 (taster T), učitava se pri prvoj upotrebi
+    private static NTupleNetwork network;
+    private static boolean networkLoaded;
+    // Da li naslov prozora prikazuje savjet; briše se nakon sljedećeg poteza
+    private static boolean hintShown;
+    // Vrijeme razmišljanja automatskog igrača po potezu u milisekundama
+    private static final int AUTO_PLAY_MILLIS =  50;
+    // Keš iscrtanih pločica, koristi ga nit za crtanje
+    static final TileSprites sprites = new TileSprites(CELL_SIZE, TileSprites.DEFAULT_COLORS);
+    // Rezultat posljednjeg poteza, za animaciju
+    private static final MoveResult moveResult = new MoveResult();
+    // Ime snimka za dugmad Save i Load
+    private static final String SAVE_SLOT = "default";
+    // Promjene od posljednjeg objavljivanja: 0 nema,  1 jedan potez (animira se),  2 više promjena
+    private static int unpublished;
+    // Veličina tablice za nove igre
+    private static int boardSize =  4;
+    // Bafer za tablicu savjeta (vidi showHint)
+    private static final long[] grid = new long[GridBoard.words(GridBoard.MAX_SIZE)];
 
     /**
-     * Crta igračku tablicu i skor na ekranu.
-     * @param g objekt Graphics na kojem se crta
+     * Bilježi promjenu stanja koja se objavljuje bez animacije.
      */
-    private static void draw(Graphics g) {
-        int x =  50;
-        int y =  50;
-
-        // Iterira kroz svaku  ćeliju tablice
-        for (int i =  0; i <  4; i++) {
-            for (int j =  0; j <  4; j++) {
-                // Vrijednost  ćelije
-                int value = board[i][j];
-                // Crta  ćeliju
-                drawCell(g, x, y, value);
-                // Pomak za sljedeću  ćeliju
-                x += CELL_SIZE;
-            }
-            // Resetuje x za novi red
-            x =  50;
-            // Pomak za sljedeći red
-            y += CELL_SIZE;
-        }
-        
-        // Skor i najviši skor
-        int score = game.getScore();
-        int highScore = game.getHighScore();
-        g.setColor(Color.DARK_GRAY);
-        g.setFont(new Font("Arial", Font.BOLD,   24));
-        // Formatirani string za skor
-        String scoreStr = "Score: " + score;
-        int strWidth = g.getFontMetrics().stringWidth(scoreStr);
-        // Crta string skora
-        g.drawString(scoreStr,   50,   490);
-        // Formatirani string za najviši skor
-        String hScore = "High score: " + highScore;
-        // Crta string najvišeg skora
-        g.drawString(hScore,   50,   520);
-
-        // Ako je igra završila
-        if (gameStatus !=   0) {
-            // Postavlja boju za preklapanje
-            g.setColor(new Color(0,   0,   0,   0.5f));
-            // Prekriva cijeli prozor
-            g.fillRect(0,   0,   500,   500);
-            g.setColor(Color.WHITE);
-            g.setFont(new Font("Arial", Font.BOLD,   24));
-            // Ako je igra pobijedena
-            if (gameStatus ==   1) {
-                // Poruka za pobijedenu igru
-                String prompt = "You won!";
-                strWidth = g.getFontMetrics().stringWidth(prompt);
-                g.drawString(prompt,   250 - strWidth /  2,   200);
-                
-                //Konačni skor
-                String fscore = "Final score: " + score;
-                strWidth = g.getFontMetrics().stringWidth(fscore);
-                g.drawString(fscore,   250 - strWidth /  2,   225);
-
-                // Pitanje za nastavak igre
-                prompt = "Continue? (y/n)";
-                strWidth = g.getFontMetrics().stringWidth(prompt);
-                g.drawString(prompt,   250 - strWidth /  2,   250);
-            } else {
-                // Poruka za izgubljenu igru
-                String prompt = "You lost!";
-                strWidth = g.getFontMetrics().stringWidth(prompt);
-                g.drawString(prompt,   250 - strWidth /  2,   200);
-                
-                String fscore = "Final score: " + score;
-                strWidth = g.getFontMetrics().stringWidth(fscore);
-                g.drawString(fscore,   250 - strWidth /  2,   225);
+    private static void markChanged() {
+        unpublished =  2;
+    }
 
-                prompt = "Play again? (y/n)";
-                strWidth = g.getFontMetrics().stringWidth(prompt);
-                g.drawString(prompt,   250 - strWidth /  2,   250);
-            }
-        }
+    /**
+     * Objavljuje stanje igre za crtanje ako se promijenilo; poziva se kada se red komandi isprazni.
+     * Jedan potez se animira, a više promjena odjednom se crta kao jedan okvir bez animacije.
+     */
+    private static void publish() {
+        if (unpublished ==  0 || game == null)
+            return;
+        frame.renderer.publish(game.getSnapshot(), unpublished ==  1 ? moveResult : null, gameStatus);
+        unpublished =  0;
     }
 
     /**
      * Crta jednu   ćeliju na igračkoj tablici s datom vrijednošću na određenim koordinatama.
+     * Pločica se uzima iz keša sprites, pa se iscrtava samo pri prvom crtanju te vrijednosti.
      * @param g objekat Graphics na kojem se crta
      * @param x x-koordinata   ćelije
      * @param y y-koordinata   ćelije
      * @param value vrijednost   ćelije koja se treba crtati
      */
-    private static void drawCell(Graphics g, int x, int y, int value) {
-        Color bgColor = Color.LIGHT_GRAY;
-        Color textColor = value >  4 ? Color.WHITE : Color.DARK_GRAY;
-        // Niz boja za   ćelije
-        final int[] colors = {0xeee4da,  0xede0c8,  0xf2b179,  0xf59563,  0xf67c5f,  0xf65e3b,  0xedcf72,  0xedcc61,  0xedc850,  0xedc53f,  0xedc22e};
-
-        // Ako je vrijednost   ćelije veća od nula
-        if (value !=   0) {
-            // Izračunava logaritam vrijednosti
-            int log = (int) (Math.log(value) / Math.log(2));
-            // Postavlja boju pozadine na temelju logaritma
-            bgColor = new Color(colors[log -  1]);
-        }
-
-        g.setColor(bgColor);
-        // Popunjava   ćeliju bojom
-        g.fillRect(x, y, CELL_SIZE, CELL_SIZE);
-        // Postavlja boju okvira
-        g.setColor(Color.DARK_GRAY);
-        // Crta okvir   ćelije
-        g.drawRect(x, y, CELL_SIZE, CELL_SIZE);
-
-        // Ako je vrijednost   ćelije nula, ne crta se ništa više
-        if (value ==   0)
-            return;
-
-        g.setColor(textColor);
-        g.setFont(new Font("Arial", Font.BOLD,   24));
-        String valueStr = String.valueOf(value);
-        int strWidth = g.getFontMetrics().stringWidth(valueStr);
-        // Crta vrijednost   ćelije
-        g.drawString(valueStr, x + CELL_SIZE /   2 - strWidth /   2, y + CELL_SIZE /   2 +  10);
+    static void drawCell(Graphics g, int x, int y, int value) {
+        // Vrijednost je stepen broja  2, pa je eksponent broj nula na kraju
+        sprites.draw(g, x, y, value ==  0 ?  0 : Integer.numberOfTrailingZeros(value));
     }
     
     /**
      * Rukuje sa događajem pritisnutog tastera i procesuje potez prema tome.
      * Ako je igra završila, postavlja pitanje korisniku o ponovnom pokretanju ili nastavku igre.
      *
-     * @param e događaj pritisnutog tastera koji pokreće poziv metode
+     * @param keyCode kod pritisnutog tastera
      */
-    private static void handleKeypress(KeyEvent e) {
+    private static void handleKeypress(int keyCode) {
+    	
+    	// Z poništava, a X ponavlja potez, i nakon završene igre
+    	// M prikazuje ili sakriva mjerenja, a E ih upisuje u datoteku, u svakom stanju igre
+    	if (keyCode == KeyEvent.VK_M) {
+    	    frame.renderer.toggleMetrics();
+    	    return;
+    	}
+    	if (keyCode == KeyEvent.VK_E) {
+    	    exportMetrics();
+    	    return;
+    	}
+
+    	if (keyCode == KeyEvent.VK_Z || keyCode == KeyEvent.VK_X) {
+    	    boolean changed = keyCode == KeyEvent.VK_Z ? game.undo() : game.redo();
+    	    if (changed) {
+    	        gameStatus =  0;
+    	        markChanged();
+    	    }
+    	    return;
+    	}
     	
     	// Ako je igra pobijedena
     	if (gameStatus ==   1) {
             // Nastavlja igru
-            continuee(e);
+            continuee(keyCode);
             return;
         }
     	
     	// Ako je igra završila
     	else if (gameStatus !=   0) {
             // Postavlja pitanje o ponovnom pokretanju igre
-            restartPrompt(e);
+            restartPrompt(keyCode);
             return;
         }
-        // Status poteza
-        int status = -1;
         // Odigraj potez na osnovu pritisnute strelice
-        switch (e.getKeyCode()) {
+        switch (keyCode) {
             case KeyEvent.VK_LEFT:
                 // Procesuje pokret lijevo
-                status = game.processMove('u');
+                applyMove('u');
                 break;
             case KeyEvent.VK_RIGHT:
                 // Procesuje pokret desno
-                status = game.processMove('d');
+                applyMove('d');
                 break;
             case KeyEvent.VK_UP:
                 // Procesuje pokret gore
-                status = game.processMove('l');
+                applyMove('l');
                 break;
             case KeyEvent.VK_DOWN:
                 // Procesuje pokret dole
-                status = game.processMove('r');
+                applyMove('r');
+                break;
+            case KeyEvent.VK_A:
+                // Uključuje ili isključuje automatsku igru
+                toggleAutoPlay();
+                break;
+            case KeyEvent.VK_T:
+                // Uključuje ili isključuje automatsku igru mreže n-torki
+                toggleNetworkPlay();
+                break;
+            case KeyEvent.VK_H:
+                // Prikazuje optimalni potez na tablici 3x3
+                showHint();
                 break;
             default:
                 break;
         }
-        // Ako nije validan status, ne radi ništa
-        if (status == -1)
+    }
+
+    /**
+     * Odigrava potez, osvježava tablicu i postavlja status igre ako je igra završila.
+     *
+     * @param move smjer pokreta ('u', 'd', 'l' ili 'r')
+     */
+    private static void applyMove(char move) {
+        // Taster koji ne mijenja tablicu se ignoriše; ako nijedan smjer ne mijenja tablicu, igra je završena
+        if (!game.isLegal(move)) {
+            if (game.getLegalMoves() ==  0) {
+                gameStatus =  2;
+                markChanged();
+                loop.setBackground(null);
+            }
             return;
-        //Osvježava tablicu nakon svakog poteza
-        board = game.getBoard();
-        frame.repaint();
+        }
+        if (hintShown) {
+            hintShown = false;
+            SwingUtilities.invokeLater(() -> frame.setTitle("2048"));
+        }
+        int status = game.processMove(move, moveResult);
+        Startup.mark(Startup.FIRST_MOVE);
+        if (status !=   0)
+            gameStatus = status;
+        // Potez se animira ako je jedini od posljednjeg objavljivanja
+        if (moveResult.isChanged())
+            unpublished = unpublished ==  0 ?  1 :  2;
         if (status ==   0)
             return;
-        gameStatus = status;
+        // Automatska igra se zaustavlja kada igra završi
+        loop.setBackground(null);
+    }
+
+    /**
+     * Upisuje izvještaj mjerenja (vidi Metrics) u radni direktorij.
+     */
+    private static void exportMetrics() {
+        try {
+            System.out.println("Mjerenja upisana u " + Metrics.export(Paths.get("")).toAbsolutePath());
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Vraća tablicu optimalnih poteza ako je igra 3x3 i tablica je generisana, inače null.
+     */
+    private static Tablebase tablebase() {
+        if (game.getSize() != Tablebase.SIZE)
+            return null;
+        if (!tablebaseOpened) {
+            tablebaseOpened = true;
+            tablebase = Tablebase.openDefault();
+        }
+        return tablebase;
+    }
+
+    /**
+     * Prikazuje u naslovu prozora optimalni potez iz tablice (samo za tablicu 3x3) i očekivani skor do kraja igre.
+     */
+    private static void showHint() {
+        Tablebase table = tablebase();
+        if (table == null)
+            return;
+        char move = table.bestMove(game);
+        if (move == Expectimax.NO_MOVE)
+            return;
+        game.getGrid(grid);
+        // Strelica tastera koji igra ovaj potez (vidi handleKeypress)
+        String arrow = move == 'u' ? "←" : move == 'd' ? "→" : move == 'l' ? "↑" : "↓";
+        String title = String.format("2048 - savjet: %s (očekivano još %.0f)", arrow, table.value(grid[0]));
+        hintShown = true;
+        SwingUtilities.invokeLater(() -> frame.setTitle(title));
+    }
+
+    /**
+     * Uključuje ili isključuje automatsku igru u kojoj potez bira expectimax igrač,
+     * a na tablici 3x3 tablica optimalnih poteza.
+     */
+    private static void toggleAutoPlay() {
+        // Automatski igrač radi sa tablicom 4x4, a sa 3x3 ako je tablica optimalnih poteza generisana
+        if (game.getSize() !=  4 && tablebase() == null)
+            return;
+        if (solver == null)
+            solver = new Expectimax();
+        if (loop.hasBackground())
+            loop.setBackground(null);
+        else
+            loop.setBackground(GUI::autoPlayMove);
+    }
+
+    /**
+     * Odigrava jedan potez automatskog igrača; nit logike ga ponavlja dok nema drugih komandi.
+     */
+    private static void autoPlayMove() {
+        if (gameStatus !=   0 || (game.getSize() !=  4 && tablebase() == null)) {
+            loop.setBackground(null);
+            return;
+        }
+        char move = game.getSize() ==  4 ? solver.bestMoveTimed(game, AUTO_PLAY_MILLIS) : tablebase.bestMove(game);
+        if (move == Expectimax.NO_MOVE) {
+            loop.setBackground(null);
+            return;
+        }
+        applyMove(move);
+    }
+
+    /**
+     * Uključuje ili isključuje automatsku igru u kojoj potez bira naučena mreža n-torki (samo tablica 4x4).
+     */
+    private static void toggleNetworkPlay() {
+        if (game.getSize() !=  4)
+            return;
+        if (!networkLoaded) {
+            networkLoaded = true;
+            network = NTupleNetwork.loadDefault();
+        }
+        if (network == null)
+            return;
+        if (loop.hasBackground())
+            loop.setBackground(null);
+        else
+            loop.setBackground(GUI::networkPlayMove);
+    }
+
+    /**
+     * Odigrava jedan potez mreže n-torki. Procjena traje mikrosekunde, pa se nakon poteza
+     * čeka kao što razmišlja expectimax igrač, da bi se igra mogla pratiti.
+     */
+    private static void networkPlayMove() {
+        char move = gameStatus ==   0 ? network.bestMove(game) : Expectimax.NO_MOVE;
+        if (move == Expectimax.NO_MOVE) {
+            loop.setBackground(null);
+            return;
+        }
+        applyMove(move);
+        try {
+            Thread.sleep(AUTO_PLAY_MILLIS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
     }
 
     /**
      * Postavlja pitanje korisniku o ponovnom pokretanju igre ili izlasku iz aplikacije na temelju pritisnutog tastera.
      * Ako je pritisnut taster 'Y', igra se ponovno pokreće. Ako je pritisnut taster 'N', aplikacija se izlazi.
-     * @param e KeyEvent koji je pokrenuo poziv metode
+     * @param keyCode kod pritisnutog tastera
      */
     //Ovo je ako je igrač izgubio igru
-    private static void restartPrompt(KeyEvent e) {
-        switch (e.getKeyCode()) {
+    private static void restartPrompt(int keyCode) {
+        switch (keyCode) {
             case KeyEvent.VK_Y:
                 // Pokreće igru
-                startGame();
+                newGame();
                 break;
             case KeyEvent.VK_N:
                 // Izlazi iz aplikacije
@@ -307,13 +433,11 @@ public class GUI {
     }
     
     //Ovo je ako je igrač pobijedio
-    private static void continuee(KeyEvent e) {
-        switch (e.getKeyCode()) {
+    private static void continuee(int keyCode) {
+        switch (keyCode) {
             case KeyEvent.VK_Y:
-            	board = game.getBoard();
                 gameStatus =   0;
-                frame.paint(frame.getGraphics());
-                frame.requestFocus();
+                markChanged();
                 
             case KeyEvent.VK_N:
                 // Izlazi iz aplikacije
@@ -326,33 +450,131 @@ public class GUI {
 
     
     /**
-     * Inicijalizira igračku tablicu na sve nule.
+     * Kreira grafički interfejs; prozor i tablica se prikazuju pri pokretanju igre (startGame).
      */
     public GUI() {
-        // Iterira kroz svaki red i kolonu tablice
-        for (int i =   0; i <   4; i++) {
-            for (int j =   0; j <   4; j++)
-                // Postavlja svaku   ćeliju na nulu
-                board[i][j] =   0;
-        }
     }
 
     /**
-     * Pokreće igru tako što stvara novu instancu klase Game, pokreće igru, dobiva tablicu igre, postavlja status igre na nulu, crta grafiku i traži fokus.
+     * Pokreće igru na tablici 4x4.
      */
     public static void startGame() {
-        // Stvara novu instancu klase Game
-        game = new Logika();
+        startGame(4);
+    }
+
+    /**
+     * Pokreće igru: pri prvom pozivu kreira prozor i nit logike, a zatim na niti logike započinje novu igru.
+     * Rang lista i snimci se pri prvom pozivu otvaraju u pozadini, pa se prozor prikazuje i igra
+     * prima poteze bez čekanja diska; najviši skor sa rang liste se prikazuje kada se ona otvori.
+     *
+     * @param size veličina tablice, od GridBoard.MIN_SIZE do GridBoard.MAX_SIZE
+     */
+    public static void startGame(int size) {
+        GridBoard.checkSize(size);
+        boardSize = size;
+        // Kreira prozor i nit logike pri prvom pokretanju
+        if (frame == null) {
+            loop = new GameLoop(GUI::publish);
+            // Nova igra je prva komanda u redu, pa igra postoji prije nastavaka otvaranja datoteka i komandi dugmadi
+            loop.execute(GUI::newGame);
+            Logika.openLeaderboardAsync().whenCompleteAsync((opened, error) -> {
+                if (error != null) {
+                    error.printStackTrace();
+                    return;
+                }
+                Startup.mark(Startup.LEADERBOARD);
+                leaderboard = opened;
+                if (game != null)
+                    game.setLeaderboard(opened);
+                markChanged();
+            }, loop);
+            Logika.openSavesAsync().whenComplete((result, error) -> {
+                if (error != null)
+                    error.printStackTrace();
+                else
+                    Startup.mark(Startup.SAVES);
+            });
+            // Swing komponente se kreiraju na Swing niti; ona radi dok se otvaraju datoteke
+            try {
+                SwingUtilities.invokeAndWait(() -> frame = new GameFrame());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (InvocationTargetException e) {
+                throw new IllegalStateException(e.getCause());
+            }
+            loop.start();
+        } else {
+            loop.execute(GUI::newGame);
+        }
+    }
+
+    /**
+     * Otvara prozor u kojem automatski igrač istovremeno igra mnogo igara (vidi SpectatorGrid).
+     * Razmak pauzira i nastavlja igre.
+     *
+     * @param games broj igara
+     * @param size veličina tablice, od GridBoard.MIN_SIZE do GridBoard.MAX_SIZE
+     * @param policy strategija automatskog igrača; na tablici koja nije 4x4 samo MovePolicy.RANDOM
+     * @param threads broj pozadinskih niti koje igraju
+     * @param seed početna vrijednost generatora
+     */
+    public static void startSpectator(int games, int size, MovePolicy policy, int threads, long seed) {
+        GridBoard.checkSize(size);
+        if (threads <  1)
+            throw new IllegalArgumentException("Broj niti mora biti najmanje 1");
+        // Strategije osim slučajne čitaju tablicu spakovanu u jedan long
+        if (size !=  4 && policy != MovePolicy.RANDOM)
+            throw new IllegalArgumentException("Na tablici " + size + "x" + size + " radi samo strategija random");
+        SpectatorGrid grid = new SpectatorGrid(games, size, seed);
+        SwingUtilities.invokeLater(() -> {
+            JFrame window = new JFrame("2048 - " + games + " igara");
+            window.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
+            window.add(grid);
+            window.addKeyListener(new KeyAdapter() {
+                @Override
+                public void keyPressed(KeyEvent e) {
+                    if (e.getKeyCode() == KeyEvent.VK_SPACE)
+                        grid.togglePause();
+                }
+            });
+            window.setResizable(false);
+            window.pack();
+            window.setLocationRelativeTo(null);
+            window.setVisible(true);
+            // Crtanje i igre počinju kada je prozor prikazan
+            grid.start(policy, threads);
+        });
+    }
+
+    /**
+     * Stvara novu instancu klase Logika, pokreće igru, postavlja status igre na nulu i crta tablicu.
+     * Poziva se na niti logike.
+     */
+    private static void newGame() {
+        // Stvara novu instancu klase Game; rang lista je null dok se ne otvori u pozadini
+        game = new Logika(boardSize, new GameRandom(), leaderboard);
+        // Bilježi sve igre 4x4 u dnevnik poteza
+        if (boardSize ==  4) {
+            if (journal == null) {
+                try {
+                    journal = MoveJournal.openSession();
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+            }
+            game.setJournal(journal);
+        }
         // Pokreće igru
         game.startGame();
-        // Dobija tablicu igre
-        board = game.getBoard();
+        // Stanje se objavljuje nakon svake promjene, pa ga nit za crtanje čita bez kopiranja
+        game.setSnapshotsEnabled(true);
         // Resetuje status igre
         gameStatus =   0;
         // Ponovo crta  tablicu
-        frame.paint(frame.getGraphics());
+        markChanged();
         // Traži fokus na prozoru
-        frame.requestFocus();
+        SwingUtilities.invokeLater(frame::requestFocus);
     }
 }
 
@@ -0,0 +1,101 @@
+package GUI;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executor;
+
+/**
+ * Nit logike igre: izvršava komande (pritisnute tastere, čuvanje, učitavanje) redom,
+ * tako da se igra nikada ne obrađuje na Swing niti.
+ * Komande čekaju u ograničenom redu; kada je red pun, nove komande sa tastature se odbacuju,
+ * pa automatsko ponavljanje tastera ne može zagušiti igru.
+ * Nakon što se red isprazni poziva se onIdle (npr. objavljivanje stanja za crtanje),
+ * pa niz brzih poteza proizvodi jedno objavljivanje.
+ */
+class GameLoop implements Runnable, Executor {
+    // Najveći broj komandi koje čekaju
+    static final int CAPACITY =  16;
+
+    private final BlockingQueue<Runnable> queue = new ArrayBlockingQueue<>(CAPACITY);
+    private final Runnable onIdle;
+    // Zadatak koji se ponavlja dok nema komandi (automatska igra), ili null
+    private volatile Runnable background;
+    private Thread thread;
+
+    /**
+     * @param onIdle poziva se na niti logike svaki put kada se red isprazni
+     */
+    GameLoop(Runnable onIdle) {
+        this.onIdle = onIdle;
+    }
+
+    /**
+     * Pokreće nit logike.
+     */
+    void start() {
+        thread = new Thread(this, "game-logic");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Dodaje komandu u red bez čekanja.
+     *
+     * @return false ako je red pun i komanda je odbačena
+     */
+    boolean submit(Runnable command) {
+        return queue.offer(command);
+    }
+
+    /**
+     * Dodaje komandu u red i čeka mjesto ako je red pun; komanda se nikada ne odbacuje.
+     * Koristi se za nastavke asinhronih operacija koje se moraju izvršiti na niti logike.
+     */
+    @Override
+    public void execute(Runnable command) {
+        if (Thread.currentThread() == thread) {
+            // Nit logike ne smije čekati sama sebe
+            if (!queue.offer(command))
+                command.run();
+            return;
+        }
+        try {
+            queue.put(command);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Postavlja zadatak koji se izvršava dok nema komandi, ili null za zaustavljanje.
+     * Poziva se sa niti logike.
+     */
+    void setBackground(Runnable background) {
+        this.background = background;
+    }
+
+    boolean hasBackground() {
+        return background != null;
+    }
+
+    @Override
+    public void run() {
+        while (true) {
+            try {
+                Runnable task = background;
+                Runnable command = task == null ? queue.take() : queue.poll();
+                if (command != null)
+                    command.run();
+                else
+                    task.run();
+                if (queue.isEmpty())
+                    onIdle.run();
+            } catch (InterruptedException e) {
+                return;
+            } catch (RuntimeException e) {
+                // Greška u jednoj komandi ne zaustavlja igru
+                e.printStackTrace();
+            }
+        }
+    }
+}
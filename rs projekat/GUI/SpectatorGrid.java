@@ -0,0 +1,291 @@
+package GUI;
+
+import java.awt.Canvas;
+import java.awt.Color;
+import java.awt.Dimension;
+import java.awt.Font;
+import java.awt.Graphics;
+import java.awt.Toolkit;
+import java.awt.image.BufferStrategy;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.swing.UIManager;
+
+import Logika.GameSnapshot;
+import Logika.Leaderboard;
+import Logika.Logika;
+import Logika.SplitMixRandom;
+import Simulacija.MovePolicy;
+
+/**
+ * Prikaz mnogo igara automatskih igrača odjednom (npr.  64 do  256), za praćenje strategija.
+ * Igre igraju pozadinske niti punom brzinom, a svaka igra nakon svakog poteza objavljuje stanje
+ * (vidi Logika.setSnapshotsEnabled). Nit za crtanje najviše FPS puta u sekundi čita posljednja
+ * stanja bez zaključavanja i crta umanjene tablice kopiranjem pločica iz keša (TileSprites),
+ * i to samo  ćelije koje su se promijenile od prethodnog okvira.
+ * Završena igra ostaje prikazana FINISHED_MILLIS, pa počinje nova.
+ */
+class SpectatorGrid extends Canvas implements Runnable {
+    private static final long serialVersionUID =  1L;
+
+    // Najveći broj okvira u sekundi
+    static final int FPS =  30;
+    private static final long FRAME_NANOS =  1_000_000_000L / FPS;
+    // Koliko dugo se završena igra prikazuje prije nove igre
+    private static final long FINISHED_MILLIS =  1000;
+    // Ciljna širina svih tablica i granice veličine jedne tablice u pikselima
+    private static final int MAX_PIXELS =  960;
+    private static final int MIN_BOARD_PIXELS =  32;
+    private static final int MAX_BOARD_PIXELS =  200;
+    private static final int GAP =  6;
+    // Visina reda sa brojačima iznad tablica i koliko često se brojači osvježavaju
+    private static final int HEADER =  24;
+    private static final long HEADER_REFRESH_NANOS =  500_000_000L;
+    private static final Font HEADER_FONT = new Font(Font.MONOSPACED, Font.PLAIN,  12);
+    private static final Color FINISHED_COLOR = new Color(0,   0,   0,   0.5f);
+
+    // Igre; test ih igra direktno, bez pozadinskih niti
+    final Logika[] games;
+    private final SplitMixRandom[] randoms;
+    private final long seed;
+    // Redni broj sljedeće igre; igra n koristi niz generatora n (vidi SplitMixRandom.streamState)
+    private final AtomicLong nextGame = new AtomicLong();
+    private final int size;
+    private final int columns;
+    private final int cellSize;
+    private final int boardPixels;
+    private final TileSprites sprites;
+
+    // Brojači pozadinskih niti
+    private final LongAdder moves = new LongAdder();
+    private final LongAdder finished = new LongAdder();
+    private final LongAdder scores = new LongAdder();
+    private volatile boolean paused;
+    // Prozor je otkriven ili promijenjen, pa se sve crta ponovo
+    private volatile boolean fullRedraw = true;
+
+    // Stanje niti za crtanje: stanja iscrtana u prethodnom okviru i red sa brojačima
+    private final GameSnapshot[] drawn;
+    private BufferStrategy strategy;
+    private boolean partialRedraw;
+    private String header = "";
+    private long headerNanos;
+    private long headerMoves;
+    private int headerFrames;
+    private int frames;
+
+    /**
+     * @param count broj igara
+     * @param size veličina tablice, od GridBoard.MIN_SIZE do GridBoard.MAX_SIZE
+     * @param seed početna vrijednost generatora; svaka igra izvodi svoju iz nje
+     */
+    SpectatorGrid(int count, int size, long seed) {
+        if (count <  1)
+            throw new IllegalArgumentException("Broj igara mora biti najmanje 1");
+        this.size = size;
+        this.seed = seed;
+        games = new Logika[count];
+        randoms = new SplitMixRandom[count];
+        drawn = new GameSnapshot[count];
+        for (int i =  0; i < count; i++) {
+            randoms[i] = new SplitMixRandom(seed);
+            games[i] = new Logika(size, randoms[i], (Leaderboard) null);
+            newGame(i);
+            games[i].setSnapshotsEnabled(true);
+        }
+        columns = (int) Math.ceil(Math.sqrt(count));
+        int rows = (count + columns -  1) / columns;
+        int target = Math.max(MIN_BOARD_PIXELS, Math.min(MAX_BOARD_PIXELS, MAX_PIXELS / columns - GAP));
+        cellSize = Math.max(2, target / size);
+        boardPixels = cellSize * size;
+        sprites = new TileSprites(cellSize, TileSprites.DEFAULT_COLORS);
+        setPreferredSize(new Dimension(GAP + columns * (boardPixels + GAP), HEADER + rows * (boardPixels + GAP)));
+        setBackground(UIManager.getColor("Panel.background"));
+        setFocusable(false);
+    }
+
+    // Počinje sljedeću igru na mjestu i
+    void newGame(int i) {
+        randoms[i].setState(SplitMixRandom.streamState(seed, nextGame.getAndIncrement()));
+        games[i].startGame();
+    }
+
+    /**
+     * Pauzira ili nastavlja sve igre; crtanje se nastavlja.
+     */
+    void togglePause() {
+        paused = !paused;
+    }
+
+    /**
+     * Pokreće nit za crtanje i pozadinske niti koje igraju; poziva se kada je prozor prikazan.
+     *
+     * @param policy strategija automatskog igrača; poziva se iz više niti, pa ne smije imati stanje
+     * @param threads broj niti koje igraju; igre se dijele među njima
+     */
+    void start(MovePolicy policy, int threads) {
+        createBufferStrategy(2);
+        strategy = getBufferStrategy();
+        // Kod zamjene stranica sadržaj zadnjeg bafera nije definisan, pa se crta sve
+        partialRedraw = !strategy.getCapabilities().isPageFlipping();
+        Thread renderer = new Thread(this, "spectator-renderer");
+        renderer.setDaemon(true);
+        renderer.start();
+        for (int t =  0; t < threads; t++) {
+            int first = t;
+            Thread player = new Thread(() -> play(first, threads, policy), "spectator-player-" + t);
+            player.setDaemon(true);
+            // Crtanje i tasteri imaju prednost pred igrama
+            player.setPriority(Thread.MIN_PRIORITY);
+            player.start();
+        }
+    }
+
+    // Petlja jedne pozadinske niti: naizmjenično igra po jedan potez u svakoj od svojih igara
+    private void play(int first, int step, MovePolicy policy) {
+        SplitMixRandom policyRandom = new SplitMixRandom(SplitMixRandom.streamState(~seed, first));
+        // Vrijeme (System.nanoTime) kada završena igra ustupa mjesto novoj, ili  0 dok igra traje
+        long[] restart = new long[games.length];
+        while (true) {
+            if (paused) {
+                sleep(FRAME_NANOS);
+                continue;
+            }
+            boolean played = false;
+            for (int i = first; i < games.length; i += step) {
+                if (restart[i] !=  0) {
+                    if (System.nanoTime() - restart[i] <  0)
+                        continue;
+                    restart[i] =  0;
+                    newGame(i);
+                }
+                Logika game = games[i];
+                int status = game.processMove(policy.chooseMove(game, policyRandom));
+                moves.increment();
+                played = true;
+                if (status !=  0) {
+                    finished.increment();
+                    scores.add(game.getScore());
+                    restart[i] = System.nanoTime() + FINISHED_MILLIS *  1_000_000;
+                }
+            }
+            // Sve igre ove niti čekaju novu igru
+            if (!played)
+                sleep(FRAME_NANOS);
+        }
+    }
+
+    private static void sleep(long nanos) {
+        try {
+            Thread.sleep(nanos /  1_000_000, (int) (nanos %  1_000_000));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // Prozor je otkriven ili promijenjen, pa se sve crta ponovo
+    @Override
+    public void paint(Graphics g) {
+        fullRedraw = true;
+    }
+
+    @Override
+    public void update(Graphics g) {
+        fullRedraw = true;
+    }
+
+    @Override
+    public void run() {
+        long next = System.nanoTime();
+        while (true) {
+            boolean full = fullRedraw || !partialRedraw;
+            fullRedraw = false;
+            render(full);
+            frames++;
+
+            // Čeka početak sljedećeg okvira; ako kasni, ne pokušava nadoknaditi propuštene
+            next += FRAME_NANOS;
+            long sleep = next - System.nanoTime();
+            if (sleep >  0)
+                sleep(sleep);
+            else
+                next = System.nanoTime();
+        }
+    }
+
+    // Crta jedan okvir; ponavlja ako je sadržaj bafera izgubljen
+    private void render(boolean full) {
+        do {
+            do {
+                Graphics g = strategy.getDrawGraphics();
+                try {
+                    draw(g, full);
+                } finally {
+                    g.dispose();
+                }
+                // Vraćen sadržaj nije definisan, pa se crta sve ispočetka
+                full = true;
+            } while (strategy.contentsRestored());
+            strategy.show();
+            Toolkit.getDefaultToolkit().sync();
+        } while (strategy.contentsLost());
+    }
+
+    // Crta okvir u dati Graphics (bafer BufferStrategy-ja, ili sliku u testu); bez full samo promjene
+    void draw(Graphics g, boolean full) {
+        if (full) {
+            g.setColor(getBackground());
+            g.fillRect(0,  0, getWidth(), getHeight());
+        }
+        drawHeader(g, full);
+        for (int i =  0; i < games.length; i++) {
+            GameSnapshot snapshot = games[i].getSnapshot();
+            GameSnapshot previous = full ? null : drawn[i];
+            if (snapshot == previous)
+                continue;
+            // Preklapanje završene igre prekriva sve  ćelije
+            if (previous != null && previous.getLegalMoves() ==  0)
+                previous = null;
+            int left = GAP + (i % columns) * (boardPixels + GAP);
+            int top = HEADER + (i / columns) * (boardPixels + GAP);
+            for (int y =  0; y < size; y++) {
+                for (int x =  0; x < size; x++) {
+                    int exponent = snapshot.getExponent(x, y);
+                    // Red na ekranu je x, kao u glavnom prozoru
+                    if (previous == null || previous.getExponent(x, y) != exponent)
+                        sprites.draw(g, left + y * cellSize, top + x * cellSize, exponent);
+                }
+            }
+            if (snapshot.getLegalMoves() ==  0) {
+                g.setColor(FINISHED_COLOR);
+                g.fillRect(left, top, boardPixels +  1, boardPixels +  1);
+            }
+            drawn[i] = snapshot;
+        }
+    }
+
+    // Red sa brojem igara, završenih igara, prosječnim skorom i brzinom poteza i crtanja
+    private void drawHeader(Graphics g, boolean full) {
+        long now = System.nanoTime();
+        if (!full && now - headerNanos < HEADER_REFRESH_NANOS)
+            return;
+        if (now - headerNanos >= HEADER_REFRESH_NANOS) {
+            long total = moves.sum();
+            double seconds = (now - headerNanos) /  1e9;
+            long done = finished.sum();
+            header = String.format("igara %d  završeno %d  prosječan skor %.0f  poteza/s %.0f  okvira/s %.1f%s",
+                    games.length, done, done ==  0 ?  0 : (double) scores.sum() / done,
+                    headerNanos ==  0 ?  0 : (total - headerMoves) / seconds,
+                    headerNanos ==  0 ?  0 : (frames - headerFrames) / seconds, paused ? "  (pauza, razmak nastavlja)" : "");
+            headerNanos = now;
+            headerMoves = total;
+            headerFrames = frames;
+        }
+        g.setColor(getBackground());
+        g.fillRect(0,  0, getWidth(), HEADER);
+        g.setColor(Color.DARK_GRAY);
+        g.setFont(HEADER_FONT);
+        g.drawString(header, GAP, HEADER -  8);
+    }
+}
@@ -0,0 +1,135 @@
+package GUI;
+
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.FontMetrics;
+import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.GraphicsConfiguration;
+import java.awt.image.BufferedImage;
+
+import Logika.BitBoard;
+
+/**
+ * Keš unaprijed iscrtanih pločica.
+ * Svaka vrijednost pločice (po eksponentu,  0 je prazna  ćelija) se iscrta samo jednom u sliku
+ * kompatibilnu sa ekranom, a pri crtanju tablice se slika samo kopira.
+ * Keš se briše kada se promijeni veličina  ćelije, boje ili ekran (GraphicsConfiguration).
+ */
+class TileSprites {
+    // Podrazumijevane boje pločica od  2 do  2048; veće pločice koriste boju OVERFLOW_COLOR
+    static final int[] DEFAULT_COLORS = {0xeee4da,  0xede0c8,  0xf2b179,  0xf59563,  0xf67c5f,  0xf65e3b,  0xedcf72,  0xedcc61,  0xedc850,  0xedc53f,  0xedc22e};
+    static final int OVERFLOW_COLOR =  0x3c3a32;
+    static final Font FONT = new Font("Arial", Font.BOLD,  24);
+    // Veličina  ćelije za koju je FONT predviđen
+    static final int DEFAULT_CELL_SIZE =  100;
+
+    private final BufferedImage[] sprites = new BufferedImage[BitBoard.MAX_EXPONENT +  1];
+    private int cellSize;
+    private int[] colors;
+    // Ekran za koji su slike napravljene
+    private GraphicsConfiguration config;
+
+    /**
+     * @param cellSize veličina  ćelije u pikselima
+     * @param colors boje pozadine pločica od  2 naviše
+     */
+    TileSprites(int cellSize, int[] colors) {
+        this.cellSize = cellSize;
+        this.colors = colors.clone();
+    }
+
+    /**
+     * Mijenja veličinu  ćelije i briše keš ako se promijenila.
+     */
+    void setCellSize(int cellSize) {
+        if (this.cellSize != cellSize) {
+            this.cellSize = cellSize;
+            invalidate();
+        }
+    }
+
+    /**
+     * Mijenja boje pločica (temu) i briše keš.
+     */
+    void setColors(int[] colors) {
+        this.colors = colors.clone();
+        invalidate();
+    }
+
+    /**
+     * Briše sve iscrtane pločice; iscrtaće se ponovo pri sljedećem crtanju.
+     */
+    void invalidate() {
+        for (int i =  0; i < sprites.length; i++)
+            sprites[i] = null;
+    }
+
+    /**
+     * Kopira pločicu sa datim eksponentom na date koordinate, i iscrtava je ako nije u kešu.
+     */
+    void draw(Graphics g, int x, int y, int exponent) {
+        g.drawImage(sprite(g, exponent), x, y, null);
+    }
+
+    /**
+     * Kopira pločicu umanjenu na datu veličinu, centriranu u  ćeliji na datim koordinatama.
+     */
+    void draw(Graphics g, int x, int y, int exponent, int size) {
+        int offset = (cellSize - size) /  2;
+        g.drawImage(sprite(g, exponent), x + offset, y + offset, size +  1, size +  1, null);
+    }
+
+    // Vraća pločicu iz keša, i iscrtava je ako je nema
+    private BufferedImage sprite(Graphics g, int exponent) {
+        GraphicsConfiguration gc = g instanceof Graphics2D ? ((Graphics2D) g).getDeviceConfiguration() : null;
+        if (gc != config) {
+            config = gc;
+            invalidate();
+        }
+        BufferedImage sprite = sprites[exponent];
+        if (sprite == null) {
+            // Okvir se crta preko  ćelije, pa je slika veća za jedan piksel
+            sprite = gc != null ? gc.createCompatibleImage(cellSize +  1, cellSize +  1)
+                    : new BufferedImage(cellSize +  1, cellSize +  1, BufferedImage.TYPE_INT_RGB);
+            Graphics sg = sprite.createGraphics();
+            render(sg,  0,  0, exponent);
+            sg.dispose();
+            sprites[exponent] = sprite;
+        }
+        return sprite;
+    }
+
+    /**
+     * Crta pločicu bez keša.
+     */
+    void render(Graphics g, int x, int y, int exponent) {
+        Color bgColor = exponent ==  0 ? Color.LIGHT_GRAY
+                : new Color(exponent <= colors.length ? colors[exponent -  1] : OVERFLOW_COLOR);
+        g.setColor(bgColor);
+        // Popunjava  ćeliju bojom
+        g.fillRect(x, y, cellSize, cellSize);
+        // Crta okvir  ćelije
+        g.setColor(Color.DARK_GRAY);
+        g.drawRect(x, y, cellSize, cellSize);
+
+        // Ako je  ćelija prazna, ne crta se ništa više
+        if (exponent ==  0)
+            return;
+
+        g.setColor(exponent >  2 ? Color.WHITE : Color.DARK_GRAY);
+        String valueStr = String.valueOf(1 << exponent);
+        // Font se smanjuje sa  ćelijom, i dodatno dok broj ne stane u  ćeliju
+        Font font = cellSize == DEFAULT_CELL_SIZE ? FONT : FONT.deriveFont(FONT.getSize2D() * cellSize / DEFAULT_CELL_SIZE);
+        FontMetrics metrics = g.getFontMetrics(font);
+        while (metrics.stringWidth(valueStr) > cellSize *  9 /  10 && font.getSize2D() >  6) {
+            font = font.deriveFont(font.getSize2D() -  1);
+            metrics = g.getFontMetrics(font);
+        }
+        g.setFont(font);
+        int strWidth = metrics.stringWidth(valueStr);
+        // Crta vrijednost  ćelije, vertikalno centrirano kao ranije (+10 piksela za font od 24)
+        g.drawString(valueStr, x + cellSize /  2 - strWidth /  2,
+                y + cellSize /  2 + Math.round(10 * font.getSize2D() / FONT.getSize2D()));
+    }
+}
@@ -1,8 +1,15 @@
 package Konzola;
 
+import java.io.IOException;
+import java.nio.file.Paths;
 import java.util.Scanner;
 
 import Logika.Logika;
+import Logika.MoveJournal;
+import Metrike.Metrics;
+import Solver.Expectimax;
+import Solver.NTupleNetwork;
+import Solver.Tablebase;
 
 /**
  * Ova klasa predstavlja konzolni korisnički interfejs za igru
@@ -10,18 +17,24 @@ import Logika.Logika;
  * a korisnik može unijeti pokrete za premještanje pločica.
  */
 public class CUI {
+    // Dubina pretrage automatskog igrača za komandu 'a'
+    private static final int AUTO_PLAY_DEPTH =  3;
+
     /**
      * Metoda printBoard ispravlja igračku tablicu na konzolu.
      * Za svaku   ćeliju na tablici ispisuje vrijednost   ćelije, a zatim prelazi u novi red.
+     * Tablica se slaže u jedan tekst, jer je svaki poziv System.out sinhronizovan i prazni izlaz.
      *
      * @param board dvodimenzionalno polje cijelih brojeva koje predstavlja igračku tablicu
      */
     private static void printBoard(int[][] board) {
-        for (int y =   0; y <   4; y++) {
-            for (int x =   0; x <   4; x++)
-                System.out.print(board[x][y] + " "); // Ispisuje vrijednost   ćelije i razmake
-            System.out.println(); // Prelazi u novi red
+        StringBuilder text = new StringBuilder(board.length * board.length *  6); // Cijela tablica se ispisuje jednim pozivom
+        for (int y =   0; y < board.length; y++) {
+            for (int x =   0; x < board.length; x++)
+                text.append(board[x][y]).append(' '); // Dodaje vrijednost   ćelije i razmak
+            text.append(System.lineSeparator()); // Prelazi u novi red
         }
+        System.out.print(text);
     }
 
     /**
@@ -33,13 +46,45 @@ public class CUI {
      * Ako je igra završila (korisnik pobijedio ili izgubio), ispisuje se konačni skor i postavlja se pitanje o nastavku igre.
      * Ako korisnik želi nastaviti, igra se nastavlja.
      * Ako korisnik odluči izaći, zatvara se Scanner i metoda se završava.
+     * Unos 'a' prepušta potez automatskom igraču (expectimax), 't' naučenoj mreži n-torki (vidi TDLearner),
+     * 'z' poništava, a 'x' ponavlja potez.
+     * Unos 's' ispisuje mjerenja (vidi Metrics), a 'e' ih upisuje u datoteku.
+     * Za igru iz skripte, bez pitanja i sa baferisanim izlazom, vidi ScriptedCUI.
      */
     public static void startGame() {
-        Logika game = new Logika(); // Stvara novu instancu klase Logika
+        startGame(4);
+    }
+
+    /**
+     * Pokreće igru na tablici date veličine (vidi startGame()).
+     * Dnevnik poteza se koristi samo na tablici 4x4, a automatski igrač na 4x4 i na 3x3
+     * (iz tablice optimalnih poteza, vidi Tablebase).
+     *
+     * @param size veličina tablice, od GridBoard.MIN_SIZE do GridBoard.MAX_SIZE
+     */
+    public static void startGame(int size) {
+        MoveJournal journal = null; // Dnevnik poteza za sve igre u ovom pokretanju
+        if (size ==  4) {
+            try {
+                journal = MoveJournal.openSession();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+        Logika game = new Logika(size); // Stvara novu instancu klase Logika
+        if (journal != null)
+            game.setJournal(journal); // Bilježi igru u dnevnik poteza
         game.startGame(); // Pokreće igru
+        Expectimax solver = null; // Automatski igrač, kreira se pri prvoj komandi 'a'
+        Tablebase tablebase = null; // Tablica optimalnih poteza za tablicu 3x3, otvara se pri prvoj komandi 'a'
+        boolean tablebaseOpened = false;
+        NTupleNetwork network = null; // Mreža n-torki, učitava se pri prvoj komandi 't'
+        boolean networkLoaded = false;
+        int[][] board = new int[size][size]; // Polje u koje se kopira tablica nakon svakog poteza
+
         Scanner scanner = new Scanner(System.in); // Stvara Scanner za čitanje korisničkih ulaznih podataka
         while (true) { // Petlja koja se izvršava dok igra nije završila
-            int[][] board = game.getBoard(); // Dohvaća trenutno stanje igračke tablice
+            game.getBoard(board); // Dohvaća trenutno stanje igračke tablice
             printBoard(board); // Ispisuje igračku tablicu na konzolu
 
             char input; // Promenljiva za pohranu korisničkog ulaza
@@ -47,21 +92,81 @@ public class CUI {
             while (true) { // Petlja koja se izvršava dok korisnik ne unese važeći pokret
                 try {
                     input = scanner.nextLine().charAt(0); // Čita prvu karakteristiku unesenog teksta
+                    if (input == 'z' || input == 'x') { // Poništava ('z') ili ponavlja ('x') potez
+                        boolean changed = input == 'z' ? game.undo() : game.redo();
+                        if (!changed)
+                            System.out.println(input == 'z' ? "Nema poteza za poništavanje" : "Nema poteza za ponavljanje");
+                        status =  0;
+                        break; // Ispisuje tablicu i čeka sljedeći unos
+                    }
+                    if (input == 's') { // Ispisuje mjerenja
+                        System.out.print(Metrics.snapshot());
+                        continue;
+                    }
+                    if (input == 'e') { // Upisuje mjerenja u datoteku
+                        try {
+                            System.out.println("Mjerenja upisana u " + Metrics.export(Paths.get("")).toAbsolutePath());
+                        } catch (IOException e) {
+                            e.printStackTrace();
+                        }
+                        continue;
+                    }
+                    if (input == 'a') { // Automatski igrač bira potez
+                        if (size == Tablebase.SIZE) { // Na tablici 3x3 potez se čita iz tablice optimalnih poteza
+                            if (!tablebaseOpened) {
+                                tablebaseOpened = true;
+                                tablebase = Tablebase.openDefault();
+                            }
+                            if (tablebase == null)
+                                continue;
+                            input = tablebase.bestMove(game);
+                        } else if (size !=  4) {
+                            System.out.println("Automatski igrač podržava samo tablice 4x4 i 3x3");
+                            continue;
+                        } else {
+                            if (solver == null)
+                                solver = new Expectimax();
+                            input = solver.bestMove(game, AUTO_PLAY_DEPTH);
+                        }
+                        System.out.println("Potez: " + input);
+                    }
+                    if (input == 't') { // Potez bira mreža n-torki
+                        if (size !=  4) {
+                            System.out.println("Mreža n-torki podržava samo tablicu 4x4");
+                            continue;
+                        }
+                        if (!networkLoaded) {
+                            networkLoaded = true;
+                            network = NTupleNetwork.loadDefault();
+                        }
+                        if (network == null)
+                            continue;
+                        input = network.bestMove(game);
+                        System.out.println("Potez: " + input);
+                    }
                     try {
+                        if (!game.isLegal(input)) { // Pokret koji ne mijenja tablicu se ne procesira
+                            if (game.getLegalMoves() ==  0) { // Nijedan pokret nije moguć, igra je završena
+                                status =  2;
+                                break;
+                            }
+                            System.out.println("Pokret ne mijenja tablicu");
+                            continue;
+                        }
                         status = game.processMove(input); // Procesira pokret korisnika
                         break; // Ako je pokret uspješno procesiran, izlazi iz petlje
                     } catch (IllegalArgumentException e) {
                         System.out.println(e.getMessage()); // Ako je pokret nevažeći, ispisuje se poruka o greški
                     }
                 } catch (StringIndexOutOfBoundsException e) {
-                    System.out.println("Nevažeći unos. Molimo unesite pokret (u/l/d/r)"); // Ako je unos prazan, ispisuje se poruka o greški
+                    System.out.println("Nevažeći unos. Molimo unesite pokret (u/l/d/r), 'a' za automatski potez, 't' za potez mreže n-torki, 'z' za poništavanje, 'x' za ponavljanje, 's' za mjerenja ili 'e' za upis mjerenja"); // Ako je unos prazan, ispisuje se poruka o greški
                 }
             }
 
             if (status ==   0) // Ako je igra nastavljena bez promjene stanja (nema novih pločica)
                 continue; // Nastavlja petlju bez ispisivanja nove tablice
 
-            board = game.getBoard(); // Dohvaća ažurirano stanje igračke tablice
+            game.getBoard(board); // Dohvaća ažurirano stanje igračke tablice
             printBoard(board); // Ispisuje ažuriranu igračku tablicu na konzolu
             
             if (status ==   1) { // Ako je igra završila s pobijedom
@@ -70,6 +175,8 @@ public class CUI {
                 System.out.println("Izgubili ste!"); // Ispisuje poruku o porazu
             }
             System.out.println("Konačni skor: " + game.getScore()); // Ispisuje konačni skor
+            if (game.getRank() >  0) // Ako je igra upisana na rang listu
+                System.out.println("Mjesto na rang listi: " + game.getRank());
             System.out.println("Nastaviti? (y/n)"); // Postavlja pitanje o nastavku igre
             while (true) { // Petlja koja se izvršava dok korisnik ne unese važeći odgovor
                 try {
@@ -80,7 +187,9 @@ public class CUI {
                 }
             }
             if (input == 'y') { // Ako korisnik želi nastaviti igru
-                game = new Logika(); // Stvara novu instancu klase Logika
+                game = new Logika(size); // Stvara novu instancu klase Logika
+                if (journal != null)
+                    game.setJournal(journal); // Bilježi igru u dnevnik poteza
                 game.startGame(); // Pokreće igru
             } else { // Ako korisnik odluči izaći
                 scanner.close(); // Zatvara Scanner
@@ -0,0 +1,230 @@
+package Konzola;
+
+import java.io.BufferedWriter;
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+
+import Logika.GridBoard;
+import Logika.Leaderboard;
+import Logika.Logika;
+import Logika.SplitMixRandom;
+
+/**
+ * Konzolna igra bez interakcije: pokreti se čitaju iz datoteke ili standardnog ulaza, npr. snimljeni
+ * niz poteza za regresione testove. Ulaz se čita u velikim blokovima bajtova, tablica se ispisuje
+ * samo svakih N poteza, a sav izlaz ide kroz jedan bafer koji se prazni na kraju.
+ *
+ * Skripta sadrži znakove 'u', 'd', 'l', 'r' (pokreti), 'z' (poništavanje), 'x' (ponavljanje)
+ * i 'n' (nova igra); razmaci i novi redovi se preskaču, a '#' je komentar do kraja reda.
+ * Pokret koji ne mijenja tablicu se preskače i broji. Kada igra završi, ispisuje se red
+ * "game ..." i počinje nova igra sa istim generatorom, pa je ishod određen skriptom i seed-om.
+ *
+ * Na kraju se ispisuje red "summary ..." sa poljima oblika ime=vrijednost, uključujući
+ * posljednju tablicu. Izlazni kodovi su EXIT_OK, EXIT_INVALID_SCRIPT i EXIT_IO_ERROR.
+ * Igre se ne upisuju na rang listu.
+ */
+public class ScriptedCUI {
+    public static final int EXIT_OK =  0;
+    public static final int EXIT_INVALID_SCRIPT =  1;
+    public static final int EXIT_IO_ERROR =  2;
+
+    private static final int BUFFER_SIZE =  1 <<  16;
+
+    private final int size;
+    private final long seed;
+    private final int printEvery;
+    private final Logika game;
+    private final Writer out;
+    private final int[][] board;
+
+    private long read; // Pročitani pokreti (bez komentara i razmaka)
+    private long played; // Pokreti koji su promijenili tablicu
+    private long ignored; // Pokreti koji nisu promijenili tablicu
+    private int games; // Završene igre
+    private int status; // Status posljednjeg poteza (vidi Logika.processMove)
+
+    /**
+     * @param size veličina tablice, od GridBoard.MIN_SIZE do GridBoard.MAX_SIZE
+     * @param seed seed generatora novih pločica (vidi SplitMixRandom)
+     * @param printEvery tablica se ispisuje nakon svakih printEvery odigranih poteza;  0 znači nikada
+     * @param out izlaz; prazni se tek na kraju run()
+     */
+    public ScriptedCUI(int size, long seed, int printEvery, Writer out) {
+        if (printEvery <  0)
+            throw new IllegalArgumentException("Nevažeći interval ispisa: " + printEvery);
+        this.size = size;
+        this.seed = seed;
+        this.printEvery = printEvery;
+        this.game = new Logika(size, new SplitMixRandom(seed), (Leaderboard) null);
+        this.out = out;
+        this.board = new int[size][size];
+    }
+
+    /**
+     * Izvršava cijelu skriptu i ispisuje rezultat.
+     *
+     * @param in ulaz sa skriptom; ne zatvara se
+     * @return izlazni kod
+     */
+    public int run(InputStream in) throws IOException {
+        long start = System.nanoTime();
+        game.startGame();
+        byte[] buffer = new byte[BUFFER_SIZE];
+        long line =  1;
+        int column =  0;
+        boolean comment = false;
+        int exitCode = EXIT_OK;
+        String error = null;
+
+        read:
+        for (int n; (n = in.read(buffer)) >  0; ) {
+            for (int i =  0; i < n; i++) {
+                byte c = buffer[i];
+                column++;
+                if (c == '\n') {
+                    line++;
+                    column =  0;
+                    comment = false;
+                    continue;
+                }
+                if (comment || c == ' ' || c == '\t' || c == '\r' || c == ',')
+                    continue;
+                if (c == '#') {
+                    comment = true;
+                    continue;
+                }
+                if (!command((char) c)) {
+                    exitCode = EXIT_INVALID_SCRIPT;
+                    error = "line=" + line + " column=" + column + " char=" + (c >= 0x21 && c < 0x7f ? String.valueOf((char) c) : String.format("0x%02x", c &  0xff));
+                    break read;
+                }
+            }
+        }
+
+        if (error != null)
+            out.write("error " + error + "\n");
+        summary((System.nanoTime() - start) /  1e9);
+        out.flush();
+        return exitCode;
+    }
+
+    // Izvršava jednu komandu iz skripte; vraća false za nepoznat znak
+    private boolean command(char c) throws IOException {
+        switch (c) {
+            case 'u':
+            case 'd':
+            case 'l':
+            case 'r':
+                read++;
+                if (!game.isLegal(c)) { // Pokret koji ne mijenja tablicu se ne procesira
+                    ignored++;
+                    return true;
+                }
+                status = game.processMove(c);
+                played++;
+                if (printEvery >  0 && played % printEvery ==  0)
+                    printBoard();
+                if (status !=  0)
+                    endGame();
+                return true;
+            case 'z':
+                game.undo();
+                status =  0;
+                return true;
+            case 'x':
+                game.redo();
+                status =  0;
+                return true;
+            case 'n':
+                game.startGame();
+                status =  0;
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    // Ispisuje rezultat završene igre i počinje novu
+    private void endGame() throws IOException {
+        games++;
+        out.write("game " + games + " status=" + (status ==  1 ? "won" : "lost") + " score=" + game.getScore()
+                + " max=" + maxTile() + "\n");
+        game.startGame();
+    }
+
+    private int maxTile() {
+        long[] grid = new long[GridBoard.words(size)];
+        game.getGrid(grid);
+        int exponent = GridBoard.maxExponent(grid);
+        return exponent ==  0 ?  0 :  1 << exponent;
+    }
+
+    // Ispisuje tablicu kao CUI, red po red
+    private void printBoard() throws IOException {
+        game.getBoard(board);
+        StringBuilder text = new StringBuilder(size * size *  6);
+        text.append("board ").append(played).append('\n');
+        for (int y =  0; y < size; y++) {
+            for (int x =  0; x < size; x++)
+                text.append(board[x][y]).append(' ');
+            text.append('\n');
+        }
+        out.write(text.toString());
+    }
+
+    private void summary(double seconds) throws IOException {
+        game.getBoard(board);
+        StringBuilder text = new StringBuilder();
+        text.append("summary size=").append(size)
+                .append(" seed=").append(seed)
+                .append(" moves=").append(read)
+                .append(" played=").append(played)
+                .append(" ignored=").append(ignored)
+                .append(" games=").append(games)
+                .append(" score=").append(game.getScore())
+                .append(" max=").append(maxTile())
+                .append(" status=").append(game.getLegalMoves() ==  0 ? "lost" : "running")
+                .append(" seconds=").append(String.format("%.3f", seconds))
+                .append(" board=");
+        // Tablica red po red, ćelije odvojene zarezom
+        for (int y =  0; y < size; y++) {
+            for (int x =  0; x < size; x++) {
+                if (x >  0 || y >  0)
+                    text.append(',');
+                text.append(board[x][y]);
+            }
+        }
+        out.write(text.append('\n').toString());
+    }
+
+    /**
+     * Pokreće skriptu iz datoteke ili sa standardnog ulaza ("-") i ispisuje na standardni izlaz
+     * kroz bafer, bez automatskog pražnjenja.
+     *
+     * @param script putanja skripte ili "-" za standardni ulaz
+     * @return izlazni kod
+     */
+    public static int run(String script, int size, long seed, int printEvery) {
+        Writer out = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(FileDescriptor.out),
+                StandardCharsets.UTF_8), BUFFER_SIZE);
+        ScriptedCUI cui = new ScriptedCUI(size, seed, printEvery, out);
+        try (InputStream in = script.equals("-") ? System.in : Files.newInputStream(Paths.get(script))) {
+            return cui.run(in);
+        } catch (IOException e) {
+            e.printStackTrace();
+            try {
+                out.flush();
+            } catch (IOException ignored) {
+                // Izlaz je već nedostupan
+            }
+            return EXIT_IO_ERROR;
+        }
+    }
+}
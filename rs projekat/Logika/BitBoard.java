@@ -0,0 +1,294 @@
+package Logika;
+
+/**
+ * Pomoćna klasa koja predstavlja igračku tablicu 4x4 kao jedan 64-bitni broj.
+ * Svaka ćelija zauzima 4 bita i čuva eksponent vrijednosti (0 za praznu ćeliju, 1 za 2, 2 za 4, ...).
+ * Ćelija (x, y) se nalazi na bitovima 4 * (x + 4 * y), tj. svaki red y zauzima 16 bitova.
+ * Pomjeranje redova se radi preko unaprijed izračunatih tabela sa 65536 unosa,
+ * a pomjeranje kolona preko transponovanja tablice.
+ */
+public final class BitBoard {
+    // Smjerovi pokreta
+    public static final int UP =  0;
+    public static final int DOWN =  1;
+    public static final int LEFT =  2;
+    public static final int RIGHT =  3;
+
+    // Zastavica: spajanjem je nastala pločica 8
+    public static final int FLAG_REACHED_8 =  1;
+    // Zastavica: spajanjem je nastala pločica 2048
+    public static final int FLAG_REACHED_2048 =  2;
+
+    // Najveći eksponent koji stane u 4 bita (32768); dvije takve pločice se ne spajaju,
+    // a igra (Logika) završava kada se ova pločica pojavi, na tablici svake veličine
+    public static final int MAX_EXPONENT =  15;
+
+    // Maska najnižeg bita svake ćelije
+    private static final long NIBBLE_LSB =  0x1111111111111111L;
+
+    // Red nakon pomjeranja ulijevo (prema x =  0) i udesno (prema x =  3)
+    private static final char[] ROW_LEFT = new char[65536];
+    private static final char[] ROW_RIGHT = new char[65536];
+    // Skor i zastavice pokreta za svaki red, spakovani kao (skor << 2) | zastavice
+    private static final int[] ROW_LEFT_INFO = new int[65536];
+    private static final int[] ROW_RIGHT_INFO = new int[65536];
+    // Smjerovi u kojima se red mijenja: bit (1 << LEFT) i/ili bit (1 << RIGHT)
+    private static final byte[] ROW_MOVES = new byte[65536];
+
+    static {
+        int[] cells = new int[4];
+        for (int row =  0; row <  65536; row++) {
+            // Lijevo
+            for (int k =  0; k <  4; k++)
+                cells[k] = (row >>> (4 * k)) &  0xF;
+            int info = slide(cells);
+            ROW_LEFT[row] = (char) pack(cells);
+            ROW_LEFT_INFO[row] = info;
+
+            // Desno je isto što i lijevo na obrnutom redu
+            for (int k =  0; k <  4; k++)
+                cells[3 - k] = (row >>> (4 * k)) &  0xF;
+            info = slide(cells);
+            int right =  0;
+            for (int k =  0; k <  4; k++)
+                right |= cells[3 - k] << (4 * k);
+            ROW_RIGHT[row] = (char) right;
+            ROW_RIGHT_INFO[row] = info;
+
+            ROW_MOVES[row] = (byte) ((ROW_LEFT[row] != row ?  1 << LEFT :  0) | (right != row ?  1 << RIGHT :  0));
+        }
+    }
+
+    private BitBoard() {
+    }
+
+    // Pomjera red ulijevo na mjestu i vraća (skor << 2) | zastavice
+    private static int slide(int[] cells) {
+        int[] out = new int[4];
+        int n =  0, moveScore =  0, flags =  0;
+        boolean lastMerged = false;
+        for (int k =  0; k <  4; k++) {
+            int e = cells[k];
+            if (e ==  0)
+                continue;
+            // Spaja se samo sa prethodnom pločicom koja još nije spojena u ovom potezu
+            if (n >  0 && out[n -  1] == e && !lastMerged && e < MAX_EXPONENT) {
+                out[n -  1] = e +  1;
+                moveScore +=  1 << (e +  1);
+                if (e +  1 ==  3)
+                    flags |= FLAG_REACHED_8;
+                if (e +  1 ==  11)
+                    flags |= FLAG_REACHED_2048;
+                lastMerged = true;
+            } else {
+                out[n++] = e;
+                lastMerged = false;
+            }
+        }
+        System.arraycopy(out,  0, cells,  0,  4);
+        return (moveScore <<  2) | flags;
+    }
+
+    private static int pack(int[] cells) {
+        return cells[0] | (cells[1] <<  4) | (cells[2] <<  8) | (cells[3] <<  12);
+    }
+
+    /**
+     * Pretvara karakter pokreta u smjer.
+     *
+     * @param move smjer pokreta ('u' za gore, 'd' za dolje, 'l' za lijevo, 'r' za desno)
+     * @return jedan od UP, DOWN, LEFT, RIGHT
+     * @throws IllegalArgumentException ako je pokret nevažeći
+     */
+    public static int direction(char move) {
+        switch (move) {
+            case 'u':
+                return UP;
+            case 'd':
+                return DOWN;
+            case 'l':
+                return LEFT;
+            case 'r':
+                return RIGHT;
+            default:
+                throw new IllegalArgumentException("Nevažeći pokret");
+        }
+    }
+
+    /**
+     * Transponuje tablicu, tj. zamjenjuje ćelije (x, y) i (y, x).
+     *
+     * @param board spakovana tablica
+     * @return transponovana tablica
+     */
+    public static long transpose(long board) {
+        long a1 = board &  0xF0F00F0FF0F00F0FL;
+        long a2 = board &  0x0000F0F00000F0F0L;
+        long a3 = board &  0x0F0F00000F0F0000L;
+        long a = a1 | (a2 <<  12) | (a3 >>>  12);
+        long b1 = a &  0xFF00FF0000FF00FFL;
+        long b2 = a &  0x00FF00FF00000000L;
+        long b3 = a &  0x00000000FF00FF00L;
+        return b1 | (b2 >>>  24) | (b3 <<  24);
+    }
+
+    /**
+     * Vraća tablicu nakon pokreta u datom smjeru, bez dodavanja nove pločice.
+     *
+     * @param board spakovana tablica
+     * @param dir smjer pokreta
+     * @return tablica nakon pokreta
+     */
+    public static long move(long board, int dir) {
+        switch (dir) {
+            case LEFT:
+                return moveRows(board, ROW_LEFT);
+            case RIGHT:
+                return moveRows(board, ROW_RIGHT);
+            case UP:
+                return transpose(moveRows(transpose(board), ROW_LEFT));
+            case DOWN:
+                return transpose(moveRows(transpose(board), ROW_RIGHT));
+            default:
+                throw new IllegalArgumentException("Nevažeći pokret");
+        }
+    }
+
+    /**
+     * Vraća skor i zastavice pokreta u datom smjeru, spakovane kao (skor << 2) | zastavice.
+     *
+     * @param board spakovana tablica
+     * @param dir smjer pokreta
+     * @return (skor << 2) | zastavice
+     */
+    public static int moveInfo(long board, int dir) {
+        switch (dir) {
+            case LEFT:
+                return rowsInfo(board, ROW_LEFT_INFO);
+            case RIGHT:
+                return rowsInfo(board, ROW_RIGHT_INFO);
+            case UP:
+                return rowsInfo(transpose(board), ROW_LEFT_INFO);
+            case DOWN:
+                return rowsInfo(transpose(board), ROW_RIGHT_INFO);
+            default:
+                throw new IllegalArgumentException("Nevažeći pokret");
+        }
+    }
+
+    /**
+     * Vraća masku smjerova u kojima pokret mijenja tablicu: bit (1 << dir) za svaki takav smjer.
+     * Računa se iz unaprijed izračunate tabele za redove i kolone, bez pomjeranja tablice;
+     * maska  0 znači da je igra završena.
+     *
+     * @param board spakovana tablica
+     * @return maska legalnih smjerova
+     */
+    public static int legalMoves(long board) {
+        int rows = rowMoves(board);
+        // Redovi transponovane tablice su kolone: lijevo je gore, a desno dolje
+        int columns = rowMoves(transpose(board));
+        return rows | (columns >>> (LEFT - UP));
+    }
+
+    private static int rowMoves(long board) {
+        return ROW_MOVES[(int) board &  0xFFFF]
+                | ROW_MOVES[(int) (board >>>  16) &  0xFFFF]
+                | ROW_MOVES[(int) (board >>>  32) &  0xFFFF]
+                | ROW_MOVES[(int) (board >>>  48) &  0xFFFF];
+    }
+
+    private static long moveRows(long board, char[] table) {
+        return (long) table[(int) board &  0xFFFF]
+                | (long) table[(int) (board >>>  16) &  0xFFFF] <<  16
+                | (long) table[(int) (board >>>  32) &  0xFFFF] <<  32
+                | (long) table[(int) (board >>>  48) &  0xFFFF] <<  48;
+    }
+
+    private static int rowsInfo(long board, int[] table) {
+        int a = table[(int) board &  0xFFFF];
+        int b = table[(int) (board >>>  16) &  0xFFFF];
+        int c = table[(int) (board >>>  32) &  0xFFFF];
+        int d = table[(int) (board >>>  48) &  0xFFFF];
+        // Skorovi se sabiraju, zastavice se kombinuju; zbir zastavica bi prešao u bitove skora
+        return (((a >>>  2) + (b >>>  2) + (c >>>  2) + (d >>>  2)) <<  2) | ((a | b | c | d) &  3);
+    }
+
+    // Red (16 bitova) nakon pomjeranja ulijevo i njegov skor i zastavice, za klasu GridBoard
+    static int rowLeft(int row) {
+        return ROW_LEFT[row];
+    }
+
+    static int rowLeftInfo(int row) {
+        return ROW_LEFT_INFO[row];
+    }
+
+    /**
+     * Vraća eksponent ćelije (x, y).
+     */
+    public static int getExponent(long board, int x, int y) {
+        return (int) (board >>> (4 * (x +  4 * y))) &  0xF;
+    }
+
+    /**
+     * Vraća tablicu sa postavljenim eksponentom ćelije (x, y).
+     */
+    public static long setExponent(long board, int x, int y, int exponent) {
+        int shift =  4 * (x +  4 * y);
+        return (board & ~(0xFL << shift)) | ((long) exponent << shift);
+    }
+
+    /**
+     * Vraća masku u kojoj je postavljen najniži bit svake prazne ćelije.
+     */
+    public static long emptyMask(long board) {
+        long x = board | (board >>>  2);
+        x |= x >>>  1;
+        return ~x & NIBBLE_LSB;
+    }
+
+    /**
+     * Vraća poziciju k-tog postavljenog bita maske (k od  0), binarnom pretragom po broju bitova.
+     * Zajedno sa emptyMask daje k-tu praznu ćeliju bez prolaska kroz tablicu:
+     * ćelija je pozicija podijeljena sa  4.
+     */
+    public static int selectBit(long mask, int k) {
+        int shift =  0;
+        for (int width =  32; width >  0; width >>>=  1) {
+            int low = Long.bitCount((mask >>> shift) & ((1L << width) -  1));
+            if (k >= low) {
+                k -= low;
+                shift += width;
+            }
+        }
+        return shift;
+    }
+
+    /**
+     * Vraća broj praznih ćelija.
+     */
+    public static int countEmpty(long board) {
+        return Long.bitCount(emptyMask(board));
+    }
+
+    /**
+     * Vraća najveći eksponent na tablici.
+     */
+    public static int maxExponent(long board) {
+        int max =  0;
+        for (; board !=  0; board >>>=  4)
+            max = Math.max(max, (int) board &  0xF);
+        return max;
+    }
+
+    /**
+     * Provjerava da li postoji prazna ćelija ili par susjednih ćelija sa istom vrijednošću.
+     */
+    public static boolean hasMoves(long board) {
+        if (emptyMask(board) !=  0)
+            return true;
+        // Na punoj tablici se red mijenja pomjeranjem samo ako ima dva susjedna jednaka eksponenta
+        return moveRows(board, ROW_LEFT) != board
+                || moveRows(transpose(board), ROW_LEFT) != transpose(board);
+    }
+}
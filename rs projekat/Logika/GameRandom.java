@@ -0,0 +1,62 @@
+package Logika;
+
+import java.util.Random;
+
+/**
+ * Generator slučajnih brojeva koji daje isti niz kao java.util.Random sa istim seed-om,
+ * ali čije se unutrašnje stanje može pročitati i vratiti.
+ * Tako se stanje generatora može sačuvati zajedno sa igrom i igra nastaviti identično.
+ * Nije sinhronizovan; koristi ga samo jedna igra.
+ */
+public class GameRandom extends Random implements StatefulRandom {
+    private static final long serialVersionUID =  1L;
+
+    private static final long MULTIPLIER =  0x5DEECE66DL;
+    private static final long ADDEND =  0xBL;
+    private static final long MASK = (1L <<  48) -  1;
+
+    // 48-bitno stanje linearnog kongruentnog generatora (isto kao u java.util.Random)
+    private long state;
+
+    /**
+     * Kreira generator sa slučajnim seed-om.
+     */
+    public GameRandom() {
+        this(System.nanoTime() ^  0x9E3779B97F4A7C15L);
+    }
+
+    /**
+     * Kreira generator sa datim seed-om.
+     */
+    public GameRandom(long seed) {
+        super(seed);
+    }
+
+    @Override
+    public void setSeed(long seed) {
+        // Poziva se i iz konstruktora klase Random
+        state = (seed ^ MULTIPLIER) & MASK;
+    }
+
+    @Override
+    protected int next(int bits) {
+        state = (state * MULTIPLIER + ADDEND) & MASK;
+        return (int) (state >>> (48 - bits));
+    }
+
+    /**
+     * Vraća trenutno 48-bitno stanje generatora.
+     */
+    @Override
+    public long getState() {
+        return state;
+    }
+
+    /**
+     * Vraća generator u stanje dobijeno sa getState().
+     */
+    @Override
+    public void setState(long state) {
+        this.state = state & MASK;
+    }
+}
@@ -0,0 +1,122 @@
+package Logika;
+
+/**
+ * Nepromjenljivo stanje igre u jednom trenutku: tablica, skor, najviši skor, legalni potezi,
+ * broj poteza i mjesto na rang listi. Logika ga objavljuje nakon svake promjene kroz volatile
+ * referencu (vidi Logika.setSnapshotsEnabled), pa ga druge niti (crtanje, čuvanje, posmatrači
+ * na serveru) čitaju bez zaključavanja i bez kopiranja, uvijek kao cjelinu, dok igra nastavlja.
+ *
+ * Tablica do 4x4 je jedan long (raspored kao u GridBoard), a veća tablica je niz long-ova
+ * koji niko ne mijenja nakon kreiranja.
+ */
+public final class GameSnapshot {
+    private final long version;
+    private final int size;
+    // Prva riječ tablice i ostale riječi, ili null ako tablica stane u jednu riječ
+    private final long first;
+    private final long[] words;
+    private final int score;
+    private final int highScore;
+    private final int legalMoves;
+    private final int moves;
+    private final long rank;
+    private final boolean hasReached8;
+
+    GameSnapshot(long version, int size, long[] board, int score, int highScore, int legalMoves, int moves, long rank,
+            boolean hasReached8) {
+        this.version = version;
+        this.size = size;
+        this.first = board[0];
+        this.words = board.length >  1 ? board.clone() : null;
+        this.score = score;
+        this.highScore = highScore;
+        this.legalMoves = legalMoves;
+        this.moves = moves;
+        this.rank = rank;
+        this.hasReached8 = hasReached8;
+    }
+
+    /**
+     * Vraća redni broj objave; svaka nova objava iste igre ima veći broj.
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * Vraća eksponent pločice na poziciji (x, y), ili  0 za praznu   ćeliju.
+     */
+    public int getExponent(int x, int y) {
+        if (words != null)
+            return GridBoard.getExponent(words, size, x, y);
+        return (int) (first >>> (4 * (x + size * y))) &  0xF;
+    }
+
+    /**
+     * Vraća vrijednost pločice na poziciji (x, y) kao Logika.getCell, ili  0 za praznu   ćeliju.
+     */
+    public int getCell(int x, int y) {
+        int exponent = getExponent(x, y);
+        return exponent ==  0 ?  0 :  1 << exponent;
+    }
+
+    /**
+     * Vraća tablicu 4x4 spakovanu u jedan long (vidi BitBoard).
+     *
+     * @throws IllegalStateException ako tablica nije 4x4
+     */
+    public long getPackedBoard() {
+        if (size !=  4)
+            throw new IllegalStateException("Tablica " + size + "x" + size + " se ne može spakovati u jedan long");
+        return first;
+    }
+
+    /**
+     * Kopira tablicu spakovanu kao niz long-ova (vidi GridBoard) u dst.
+     *
+     * @param dst niz dužine najmanje GridBoard.words(getSize())
+     */
+    public void getGrid(long[] dst) {
+        if (words == null)
+            dst[0] = first;
+        else
+            System.arraycopy(words,  0, dst,  0, words.length);
+    }
+
+    public int getScore() {
+        return score;
+    }
+
+    public int getHighScore() {
+        return highScore;
+    }
+
+    /**
+     * Vraća masku legalnih smjerova kao Logika.getLegalMoves; maska  0 znači da je igra završena.
+     */
+    public int getLegalMoves() {
+        return legalMoves;
+    }
+
+    /**
+     * Vraća broj poteza od početka igre ili učitavanja snimka.
+     */
+    public int getMoves() {
+        return moves;
+    }
+
+    /**
+     * Vraća mjesto završene igre na rang listi, ili  0 ako igra nije upisana.
+     */
+    public long getRank() {
+        return rank;
+    }
+
+    public boolean hasReached8() {
+        return hasReached8;
+    }
+}
@@ -0,0 +1,253 @@
+package Logika;
+
+/**
+ * Pomoćna klasa za igračku tablicu veličine NxN (od MIN_SIZE do MAX_SIZE) spakovanu u niz long-ova.
+ * Svaka ćelija zauzima 4 bita i čuva eksponent vrijednosti, kao kod klase BitBoard.
+ * Ćelija (x, y) ima indeks i = x + size * y i nalazi se na bitovima 4 * (i % 16) broja i / 16,
+ * pa je tablica 4x4 jedan long sa istim rasporedom kao u klasi BitBoard i pomjera se njenim tabelama.
+ * Kod drugih veličina se svaka linija izdvoji u jedan long (najviše  16 ćelija); linije do  4 ćelije
+ * se pomjeraju preko tabela klase BitBoard, a duže prolaze samo kroz neprazne ćelije.
+ */
+public final class GridBoard {
+    // Najmanja i najveća veličina tablice
+    public static final int MIN_SIZE =  3;
+    public static final int MAX_SIZE =  16;
+
+    private GridBoard() {
+    }
+
+    /**
+     * Provjerava veličinu tablice.
+     *
+     * @throws IllegalArgumentException ako veličina nije od MIN_SIZE do MAX_SIZE
+     */
+    public static void checkSize(int size) {
+        if (size < MIN_SIZE || size > MAX_SIZE)
+            throw new IllegalArgumentException("Veličina tablice mora biti od " + MIN_SIZE + " do " + MAX_SIZE);
+    }
+
+    /**
+     * Vraća broj long-ova potrebnih za tablicu date veličine.
+     */
+    public static int words(int size) {
+        return (size * size +  15) /  16;
+    }
+
+    /**
+     * Vraća eksponent ćelije (x, y).
+     */
+    public static int getExponent(long[] grid, int size, int x, int y) {
+        int i = x + size * y;
+        return (int) (grid[i >>>  4] >>> ((i &  15) <<  2)) &  0xF;
+    }
+
+    /**
+     * Postavlja eksponent ćelije (x, y).
+     */
+    public static void setExponent(long[] grid, int size, int x, int y, int exponent) {
+        int i = x + size * y;
+        int shift = (i &  15) <<  2;
+        grid[i >>>  4] = (grid[i >>>  4] & ~(0xFL << shift)) | ((long) exponent << shift);
+    }
+
+    /**
+     * Upisuje u dst tablicu nakon pokreta u datom smjeru (vidi BitBoard), bez dodavanja nove pločice.
+     *
+     * @param grid tablica
+     * @param size veličina tablice
+     * @param dir smjer pokreta
+     * @param dst niz iste dužine u koji se upisuje rezultat (ne smije biti grid)
+     * @return (skor << 2) | zastavice, kao BitBoard.moveInfo
+     */
+    public static int move(long[] grid, int size, int dir, long[] dst) {
+        if (size ==  4) {
+            dst[0] = BitBoard.move(grid[0], dir);
+            return BitBoard.moveInfo(grid[0], dir);
+        }
+        if (dir < BitBoard.UP || dir > BitBoard.RIGHT)
+            throw new IllegalArgumentException("Nevažeći pokret");
+        int moveScore =  0, flags =  0;
+        for (int line =  0; line < size; line++) {
+            // Linija u redoslijedu prema ivici prema kojoj se pomjera: nibl k je k-ta ćelija
+            long in =  0;
+            for (int k =  0; k < size; k++)
+                in |= (long) getExponent(grid, size, cellX(dir, size, line, k), cellY(dir, size, line, k)) << (4 * k);
+
+            long out;
+            if (size <=  4) {
+                int row = (int) in;
+                out = BitBoard.rowLeft(row);
+                int info = BitBoard.rowLeftInfo(row);
+                moveScore += info >>>  2;
+                flags |= info &  3;
+            } else {
+                out =  0;
+                int n =  0;
+                int last =  0;
+                boolean lastMerged = false;
+                // Prolazi samo kroz neprazne ćelije
+                while (in !=  0) {
+                    int shift = Long.numberOfTrailingZeros(in) & ~3;
+                    int e = (int) (in >>> shift) &  0xF;
+                    in &= ~(0xFL << shift);
+                    // Spaja se samo sa prethodnom pločicom koja još nije spojena u ovom potezu
+                    if (n >  0 && last == e && !lastMerged && e < BitBoard.MAX_EXPONENT) {
+                        out += 1L << (4 * (n -  1)); // eksponent prethodne pločice +  1
+                        moveScore +=  1 << (e +  1);
+                        if (e +  1 ==  3)
+                            flags |= BitBoard.FLAG_REACHED_8;
+                        if (e +  1 ==  11)
+                            flags |= BitBoard.FLAG_REACHED_2048;
+                        lastMerged = true;
+                    } else {
+                        out |= (long) e << (4 * n++);
+                        last = e;
+                        lastMerged = false;
+                    }
+                }
+            }
+
+            for (int k =  0; k < size; k++)
+                setExponent(dst, size, cellX(dir, size, line, k), cellY(dir, size, line, k), (int) (out >>> (4 * k)) &  0xF);
+        }
+        return (moveScore <<  2) | flags;
+    }
+
+    // Koordinate k-te ćelije linije u redoslijedu prema ivici prema kojoj se pomjera
+    static int cellX(int dir, int size, int line, int k) {
+        switch (dir) {
+            case BitBoard.LEFT:
+                return k;
+            case BitBoard.RIGHT:
+                return size -  1 - k;
+            default:
+                return line;
+        }
+    }
+
+    static int cellY(int dir, int size, int line, int k) {
+        switch (dir) {
+            case BitBoard.UP:
+                return k;
+            case BitBoard.DOWN:
+                return size -  1 - k;
+            default:
+                return line;
+        }
+    }
+
+    /**
+     * Vraća broj praznih ćelija.
+     */
+    public static int countEmpty(long[] grid, int size) {
+        if (size ==  4)
+            return BitBoard.countEmpty(grid[0]);
+        // Nibli iza posljednje ćelije su uvijek  0, pa se broje samo neprazne ćelije
+        int occupied =  0;
+        for (long word : grid)
+            occupied +=  16 - Long.bitCount(BitBoard.emptyMask(word));
+        return size * size - occupied;
+    }
+
+    /**
+     * Vraća masku praznih ćelija u datom long-u tablice (vidi BitBoard.emptyMask);
+     * nibli iza posljednje ćelije se ne računaju kao prazni.
+     */
+    public static long emptyMask(long[] grid, int size, int word) {
+        long mask = BitBoard.emptyMask(grid[word]);
+        int cells = size * size -  16 * word;
+        if (cells <  16)
+            mask &= (1L << (4 * cells)) -  1;
+        return mask;
+    }
+
+    /**
+     * Vraća indeks (x + size * y) k-te prazne ćelije, brojeći od  0 redom indeksa.
+     * Prolazi samo kroz long-ove tablice, ne kroz ćelije.
+     *
+     * @param k redni broj prazne ćelije, manji od countEmpty(grid, size)
+     */
+    public static int emptyCell(long[] grid, int size, int k) {
+        for (int word =  0; ; word++) {
+            long mask = emptyMask(grid, size, word);
+            int count = Long.bitCount(mask);
+            if (k < count)
+                return  16 * word + (BitBoard.selectBit(mask, k) >>>  2);
+            k -= count;
+        }
+    }
+
+    /**
+     * Vraća najveći eksponent na tablici.
+     */
+    public static int maxExponent(long[] grid) {
+        int max =  0;
+        for (long word : grid)
+            max = Math.max(max, BitBoard.maxExponent(word));
+        return max;
+    }
+
+    /**
+     * Vraća masku smjerova u kojima pokret mijenja tablicu, kao BitBoard.legalMoves.
+     * Za veličinu  4 koristi tabele klase BitBoard, a inače jednom prolazi kroz svaki red i kolonu.
+     */
+    public static int legalMoves(long[] grid, int size) {
+        if (size ==  4)
+            return BitBoard.legalMoves(grid[0]);
+        int legal =  0;
+        for (int line =  0; line < size && legal !=  0xF; line++) {
+            // Red line (ćelije x + size * line) i kolona line (ćelije line + size * y)
+            legal |= lineMoves(grid, size, line * size,  1) << BitBoard.LEFT;
+            legal |= lineMoves(grid, size, line, size) << BitBoard.UP;
+        }
+        return legal;
+    }
+
+    // Da li se linija mijenja pomjeranjem prema početku (bit  0) i prema kraju (bit  1);
+    // linija počinje indeksom first, a susjedne ćelije su udaljene step indeksa
+    private static int lineMoves(long[] grid, int size, int first, int step) {
+        int moves =  0;
+        int last =  0;
+        boolean seenEmpty = false, seenTile = false;
+        for (int k =  0, i = first; k < size; k++, i += step) {
+            int e = (int) (grid[i >>>  4] >>> ((i &  15) <<  2)) &  0xF;
+            if (e ==  0) {
+                seenEmpty = true;
+                // Pločica prije prazne ćelije se pomjera prema kraju
+                if (seenTile)
+                    moves |=  2;
+            } else {
+                // Pločica iza prazne ćelije se pomjera prema početku
+                if (seenEmpty)
+                    moves |=  1;
+                // Dvije susjedne jednake pločice (ne računajući prazne ćelije) se spajaju u oba smjera
+                if (e == last && e < BitBoard.MAX_EXPONENT)
+                    return  3;
+                last = e;
+                seenTile = true;
+            }
+        }
+        return moves;
+    }
+
+    /**
+     * Provjerava da li postoji prazna ćelija ili par susjednih ćelija sa istom vrijednošću.
+     */
+    public static boolean hasMoves(long[] grid, int size) {
+        if (size ==  4)
+            return BitBoard.hasMoves(grid[0]);
+        if (countEmpty(grid, size) >  0)
+            return true;
+        for (int y =  0; y < size; y++) {
+            for (int x =  0; x < size; x++) {
+                int e = getExponent(grid, size, x, y);
+                if (e == BitBoard.MAX_EXPONENT)
+                    continue;
+                if ((x +  1 < size && getExponent(grid, size, x +  1, y) == e)
+                        || (y +  1 < size && getExponent(grid, size, x, y +  1) == e))
+                    return true;
+            }
+        }
+        return false;
+    }
+}
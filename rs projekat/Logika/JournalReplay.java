@@ -0,0 +1,276 @@
+package Logika;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Ponavlja igre iz dnevnika poteza (vidi MoveJournal).
+ * Pri otvaranju se datoteka jednom pročita i zapamte pozicije početaka igara i ključnih kadrova,
+ * pa se stanje nakon poteza k rekonstruiše od najbližeg ranijeg ključnog kadra.
+ * Datoteka se čita sekvencijalno kroz veliki direktni bafer, pa veličina nije ograničena memorijom.
+ */
+public class JournalReplay implements Closeable {
+    // Pokreti u redoslijedu smjerova iz klase BitBoard
+    private static final char[] MOVES = {'u', 'd', 'l', 'r'};
+    private static final int BUFFER_SIZE =  1 <<  20;
+
+    private final FileChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+    // Pozicija u datoteci prvog bajta u baferu
+    private long bufferStart;
+
+    // Za svaku igru: pozicija zapisa TAG_GAME ili TAG_RESUME kojim počinje
+    private long[] gamePositions = new long[16];
+    private int games;
+    // Za svaki ključni kadar: igra, broj poteza i pozicija zapisa (na oznaci)
+    private int[] keyframeGames = new int[16];
+    private int[] keyframeMoves = new int[16];
+    private long[] keyframePositions = new long[16];
+    private int keyframes;
+
+    /**
+     * Otvara dnevnik i indeksira igre i ključne kadrove.
+     */
+    public JournalReplay(Path file) throws IOException {
+        channel = FileChannel.open(file, StandardOpenOption.READ);
+        seek(0);
+        int magic = readInt();
+        int version = readInt();
+        if (magic != MoveJournal.MAGIC || version < MoveJournal.MIN_VERSION || version > MoveJournal.VERSION)
+            throw new IOException("Nevažeći format dnevnika poteza");
+        readInt(); // interval ključnih kadrova
+        index();
+    }
+
+    private void index() throws IOException {
+        while (hasRemaining()) {
+            long position = position();
+            byte tag = readByte();
+            if (tag == MoveJournal.TAG_GAME || tag == MoveJournal.TAG_RESUME) {
+                skip((tag == MoveJournal.TAG_GAME ? MoveJournal.GAME_SIZE : MoveJournal.RESUME_SIZE) -  1);
+                if (games == gamePositions.length)
+                    gamePositions = Arrays.copyOf(gamePositions, games *  2);
+                gamePositions[games] = position;
+                games++;
+            } else if (tag == MoveJournal.TAG_KEYFRAME) {
+                int move = readInt();
+                skip(MoveJournal.KEYFRAME_SIZE -  5);
+                if (keyframes == keyframeGames.length) {
+                    keyframeGames = Arrays.copyOf(keyframeGames, keyframes *  2);
+                    keyframeMoves = Arrays.copyOf(keyframeMoves, keyframes *  2);
+                    keyframePositions = Arrays.copyOf(keyframePositions, keyframes *  2);
+                }
+                keyframeGames[keyframes] = games -  1;
+                keyframeMoves[keyframes] = move;
+                keyframePositions[keyframes] = position;
+                keyframes++;
+            } else if (tag == MoveJournal.TAG_REWIND && games >  0) {
+                // Poništavanje ili ponavljanje poteza ostaje u istoj igri
+                skip(MoveJournal.REWIND_SIZE -  1);
+            } else if (tag < MoveJournal.TAG_MOVE || tag > MoveJournal.TAG_MOVE +  3 || games ==  0) {
+                throw new IOException("Nevažeći zapis na poziciji " + position);
+            }
+        }
+    }
+
+    /**
+     * Vraća broj igara u dnevniku.
+     */
+    public int getGameCount() {
+        return games;
+    }
+
+    /**
+     * Vraća stanje igre nakon datog broja poteza (0 je stanje nakon prve pločice).
+     * Ako igra ima manje poteza, vraća stanje nakon posljednjeg poteza.
+     *
+     * @param game redni broj igre u dnevniku
+     * @param move broj poteza
+     * @return nova igra (bez upisa na disk) u traženom stanju
+     */
+    public Logika stateAt(int game, int move) throws IOException {
+        if (game <  0 || game >= games)
+            throw new IllegalArgumentException("Nepostojeća igra: " + game);
+        GameRandom random = new GameRandom();
+        Logika logika = new Logika(random, false);
+
+        // Najbliži ključni kadar ove igre sa brojem poteza <= move
+        int best = -1;
+        int lo =  0, hi = keyframes -  1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>>  1;
+            if (keyframeGames[mid] < game || (keyframeGames[mid] == game && keyframeMoves[mid] <= move)) {
+                best = mid;
+                lo = mid +  1;
+            } else {
+                hi = mid -  1;
+            }
+        }
+
+        int done;
+        if (best >=  0 && keyframeGames[best] == game) {
+            seek(keyframePositions[best] +  1);
+            done = readInt();
+            long board = readLong();
+            int score = readInt();
+            boolean hasReached8 = readByte() !=  0;
+            random.setState(readLong());
+            logika.setState(board, score, hasReached8);
+        } else {
+            beginGame(game, logika, random);
+            done =  0;
+        }
+        replay(logika, random, move - done, null);
+        return logika;
+    }
+
+    // Postavlja stanje s početka igre i pozicionira čitanje na njen prvi potez
+    private void beginGame(int game, Logika logika, GameRandom random) throws IOException {
+        seek(gamePositions[game]);
+        if (readByte() == MoveJournal.TAG_GAME) {
+            random.setState(readLong());
+            logika.startGame();
+        } else {
+            long board = readLong();
+            int score = readInt();
+            boolean hasReached8 = readByte() !=  0;
+            random.setState(readLong());
+            logika.setState(board, score, hasReached8);
+        }
+    }
+
+    // Ponavlja do count poteza od trenutne pozicije, do kraja igre; vraća broj ponovljenih poteza.
+    // Poništeni i ponovljeni potezi vraćaju igru u zapisano stanje i ne broje se kao potezi.
+    // Ako je mismatches zadat, provjerava ključne kadrove i broji razlike.
+    private int replay(Logika logika, GameRandom random, int count, int[] mismatches) throws IOException {
+        int done =  0;
+        while (done < count && hasRemaining()) {
+            byte tag = readByte();
+            if (tag == MoveJournal.TAG_GAME || tag == MoveJournal.TAG_RESUME)
+                break;
+            if (tag == MoveJournal.TAG_KEYFRAME) {
+                readInt();
+                long board = readLong();
+                int score = readInt();
+                boolean hasReached8 = readByte() !=  0;
+                readLong();
+                if (mismatches != null && (board != logika.getPackedBoard() || score != logika.getScore()
+                        || hasReached8 != logika.hasReached8()))
+                    mismatches[0]++;
+                continue;
+            }
+            if (tag == MoveJournal.TAG_REWIND) {
+                long board = readLong();
+                int score = readInt();
+                boolean hasReached8 = readByte() !=  0;
+                random.setState(readLong());
+                logika.setState(board, score, hasReached8);
+                continue;
+            }
+            logika.processMove(MOVES[tag - MoveJournal.TAG_MOVE]);
+            done++;
+        }
+        return done;
+    }
+
+    /**
+     * Ponavlja sve igre od početka i provjerava ključne kadrove.
+     *
+     * @return {broj poteza, broj ključnih kadrova koji se ne slažu}
+     */
+    public long[] replayAll() throws IOException {
+        int[] mismatches = new int[1];
+        long moves =  0;
+        GameRandom random = new GameRandom();
+        Logika logika = new Logika(random, false);
+        for (int game =  0; game < games; game++) {
+            beginGame(game, logika, random);
+            moves += replay(logika, random, Integer.MAX_VALUE, mismatches);
+        }
+        return new long[] {moves, mismatches[0]};
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    // Sekvencijalno čitanje kroz bafer
+
+    private void seek(long position) throws IOException {
+        bufferStart = position;
+        buffer.clear();
+        channel.read(buffer, position);
+        buffer.flip();
+    }
+
+    private long position() {
+        return bufferStart + buffer.position();
+    }
+
+    private boolean hasRemaining() throws IOException {
+        if (!buffer.hasRemaining())
+            seek(position());
+        return buffer.hasRemaining();
+    }
+
+    private void fill(int size) throws IOException {
+        if (buffer.remaining() < size) {
+            seek(position());
+            if (buffer.remaining() < size)
+                throw new IOException("Nepotpun zapis na kraju dnevnika");
+        }
+    }
+
+    private byte readByte() throws IOException {
+        fill(1);
+        return buffer.get();
+    }
+
+    private int readInt() throws IOException {
+        fill(4);
+        return buffer.getInt();
+    }
+
+    private long readLong() throws IOException {
+        fill(8);
+        return buffer.getLong();
+    }
+
+    private void skip(int size) throws IOException {
+        fill(size);
+        buffer.position(buffer.position() + size);
+    }
+
+    /**
+     * Bez dodatnih argumenata ponavlja sve igre i ispisuje brzinu; sa argumentima igra i potez
+     * ispisuje tablicu u tom trenutku.
+     * Argumenti: datoteka [igra potez]
+     */
+    public static void main(String[] args) throws IOException {
+        try (JournalReplay replay = new JournalReplay(Paths.get(args[0]))) {
+            if (args.length >=  3) {
+                Logika logika = replay.stateAt(Integer.parseInt(args[1]), Integer.parseInt(args[2]));
+                for (int y =  0; y <  4; y++) {
+                    for (int x =  0; x <  4; x++)
+                        System.out.print(logika.getCell(x, y) + " ");
+                    System.out.println();
+                }
+                System.out.println("Skor: " + logika.getScore());
+                return;
+            }
+            long start = System.nanoTime();
+            long[] result = replay.replayAll();
+            double seconds = (System.nanoTime() - start) /  1e9;
+            System.out.printf("Igara: %d, poteza: %d, poteza/s: %.0f, neslaganja ključnih kadrova: %d%n",
+                    replay.getGameCount(), result[0], result[0] / seconds, result[1]);
+        }
+    }
+}
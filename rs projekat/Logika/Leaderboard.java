@@ -0,0 +1,681 @@
+package Logika;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import Metrike.Metrics;
+import Metrike.PersistenceEvent;
+
+/**
+ * Rang lista završenih igara u datoteci mapiranoj u memoriju.
+ *
+ * Igre se dodaju na kraj dnevnika zapisa fiksne veličine. Mjesto zapisa se rezerviše atomskim
+ * brojačem, pa igre koje se istovremeno završavaju ne čekaju jedna drugu; zapis postaje vidljiv
+ * kada se na kraju upiše zastavica COMMITTED.
+ *
+ * Upiti (mjesto, percentil, najboljih k) koriste indeks u nivoima: sortirane nizove ključeva
+ * (skor, redni broj zapisa), gdje je svaki niz bar dva puta veći od sljedećeg, pa ih ima O(log n).
+ * Upis ne uzima bravu ni ne sortira: upit čita ključeve još neindeksiranih zapisa (oko TAIL_LIMIT)
+ * iz dnevnika i sortira ih, a pozadinska nit svakih TAIL_LIMIT igara prenosi te ključeve u indeks
+ * i spaja nizove slične veličine.
+ * Pri zatvaranju se indeks spaja u jedan niz i upisuje, zajedno sa najboljim ključem svakog igrača,
+ * u datoteku &lt;ime&gt;.idx, koja se pri sljedećem otvaranju učitava u jednom prolazu; dnevnik se tada
+ * čita samo iza zapisa koje indeks pokriva. Indeks se ne mapira, jer se mapirana datoteka
+ * na Windowsu ne može zamijeniti novim indeksom pri zatvaranju.
+ *
+ * Zaglavlje datoteke ( 64 bajta): magični broj, verzija, veličina zapisa.
+ * Zapis ( 32 bajta):
+ * <pre>
+ *   0  int    skor
+ *   4  int    broj poteza
+ *   8  int    trajanje igre u milisekundama
+ *  12  byte   najveći eksponent na tablici
+ *  13  byte   veličina tablice
+ *  14  byte   dužina oznake igrača u bajtima
+ *  15  byte   zastavica COMMITTED, upisuje se posljednja
+ *  16  byte[16] oznaka igrača (UTF-8)
+ * </pre>
+ */
+public class Leaderboard implements Closeable {
+    static final int MAGIC =  0x4c423438; // "LB48"
+    static final int VERSION =  1;
+    static final int HEADER_SIZE =  64;
+    static final int RECORD_SIZE =  32;
+    public static final int MAX_PLAYER_BYTES =  16;
+    private static final int COMMITTED_OFFSET =  15;
+    private static final int PLAYER_OFFSET =  16;
+    private static final byte COMMITTED =  1;
+    // Zapisi se mapiraju u segmentima od 2^18 zapisa (8 MB); datoteka raste segment po segment
+    private static final int SEGMENT_SHIFT =  18;
+    private static final int SEGMENT_RECORDS =  1 << SEGMENT_SHIFT;
+    private static final int MAX_SEGMENTS =  1 <<  13;
+    // Broj neindeksiranih zapisa nakon kojeg se pokreće indeksiranje
+    private static final int TAIL_LIMIT =  1024;
+    // Zaglavlje datoteke indeksa: magični broj, verzija, broj pokrivenih zapisa, broj ključeva, broj igrača;
+    // iza zaglavlja su sortirani ključevi, pa najbolji ključ svakog igrača
+    private static final int INDEX_MAGIC =  0x4c424958; // "LBIX"
+    private static final int INDEX_VERSION =  2;
+    private static final int INDEX_HEADER_SIZE =  32;
+    private static final int INDEX_WRITE_BUFFER =  1 <<  16;
+
+    /**
+     * Jedna završena igra.
+     */
+    public static final class Entry {
+        private final String player;
+        private final int score;
+        private final int maxExponent;
+        private final int moves;
+        private final int durationMillis;
+        private final int size;
+
+        /**
+         * @param player oznaka igrača (najviše MAX_PLAYER_BYTES bajta u UTF-8)
+         * @param score konačni skor
+         * @param maxExponent najveći eksponent na tablici
+         * @param moves broj odigranih poteza
+         * @param durationMillis trajanje igre u milisekundama
+         * @param size veličina tablice
+         * @throws IllegalArgumentException ako je oznaka igrača preduga ili je neka vrijednost van opsega
+         */
+        public Entry(String player, int score, int maxExponent, int moves, int durationMillis, int size) {
+            if (player.getBytes(StandardCharsets.UTF_8).length > MAX_PLAYER_BYTES)
+                throw new IllegalArgumentException("Oznaka igrača može imati najviše " + MAX_PLAYER_BYTES + " bajta");
+            if (score <  0 || moves <  0 || durationMillis <  0 || maxExponent <  0 || maxExponent > BitBoard.MAX_EXPONENT)
+                throw new IllegalArgumentException("Nevažeći rezultat igre");
+            GridBoard.checkSize(size);
+            this.player = player;
+            this.score = score;
+            this.maxExponent = maxExponent;
+            this.moves = moves;
+            this.durationMillis = durationMillis;
+            this.size = size;
+        }
+
+        public String getPlayer() {
+            return player;
+        }
+
+        public int getScore() {
+            return score;
+        }
+
+        /**
+         * Vraća najveću pločicu (npr.  2048), ili  0 ako nije poznata.
+         */
+        public int getMaxTile() {
+            return maxExponent ==  0 ?  0 :  1 << maxExponent;
+        }
+
+        public int getMoves() {
+            return moves;
+        }
+
+        public int getDurationMillis() {
+            return durationMillis;
+        }
+
+        public int getSize() {
+            return size;
+        }
+
+        @Override
+        public String toString() {
+            return player + " " + score + " (" + getMaxTile() + ", " + moves + " poteza, "
+                    + durationMillis /  1000 + " s, " + size + "x" + size + ")";
+        }
+    }
+
+    // Indeks: sortirani nizovi ključeva, od najdužeg ka najkraćem, i broj zapisa dnevnika koje pokrivaju
+    private static final class Index {
+        final LongBuffer[] runs;
+        final long covered;
+
+        Index(LongBuffer[] runs, long covered) {
+            this.runs = runs;
+            this.covered = covered;
+        }
+    }
+
+    // Ključevi i broj pokrivenih zapisa iz datoteke indeksa, i najbolji ključ svakog igrača
+    private static final class StoredIndex {
+        final LongBuffer keys;
+        final long covered;
+        final LongBuffer bests;
+
+        StoredIndex(LongBuffer keys, long covered, LongBuffer bests) {
+            this.keys = keys;
+            this.covered = covered;
+            this.bests = bests;
+        }
+    }
+
+    private final Path file;
+    private final FileChannel channel;
+    private final AtomicReferenceArray<MappedByteBuffer> segments = new AtomicReferenceArray<>(MAX_SEGMENTS);
+    // Sljedeće slobodno mjesto u dnevniku
+    private final AtomicLong next;
+    // Mijenja ga samo nit indeksa (ili zatvaranje); završeni zapisi iza index.covered nisu u indeksu
+    private volatile Index index;
+    // Najbolji ključ svakog igrača
+    private final ConcurrentHashMap<String, Long> best = new ConcurrentHashMap<>();
+    private final AtomicInteger highScore = new AtomicInteger();
+    private final AtomicBoolean scheduled = new AtomicBoolean();
+    private volatile boolean closed;
+    private final ExecutorService indexer = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "leaderboard-index");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private Leaderboard(Path file, FileChannel channel, long records) throws IOException {
+        this.file = file;
+        this.channel = channel;
+        for (int s =  0; (long) s * SEGMENT_RECORDS < records; s++)
+            segments.set(s, map(s));
+
+        // Indeks i najbolji rezultati igrača iz datoteke indeksa; dnevnik se čita samo iza pokrivenih zapisa
+        StoredIndex stored = readIndex(records);
+        List<LongBuffer> runs = new ArrayList<>();
+        long start =  0;
+        if (stored != null && matches(stored, records)) {
+            if (stored.keys.limit() >  0) {
+                runs.add(stored.keys);
+                highScore.set(score(stored.keys.get(stored.keys.limit() -  1)));
+            }
+            for (int i =  0; i < stored.bests.limit(); i++)
+                best.put(player(slot(stored.bests.get(i))), stored.bests.get(i));
+            start = stored.covered;
+        }
+
+        // Zapisi čiji upis nije završen (npr. zbog pada programa) se preskaču
+        long[] keys = new long[1024];
+        int n =  0;
+        long last = start -  1;
+        for (long slot = start; slot < records; slot++) {
+            if (!isCommitted(slot))
+                continue;
+            long key = key(slot);
+            last = slot;
+            best.merge(player(slot), key, Math::max);
+            highScore.accumulateAndGet(score(key), Math::max);
+            if (n == keys.length)
+                keys = Arrays.copyOf(keys, n *  2);
+            keys[n++] = key;
+        }
+        next = new AtomicLong(last +  1);
+        Arrays.sort(keys,  0, n);
+        if (n >  0)
+            runs.add(LongBuffer.wrap(keys,  0, n).slice());
+        index = new Index(runs.toArray(new LongBuffer[0]), next.get());
+    }
+
+    /**
+     * Otvara rang listu ili kreira praznu.
+     *
+     * @param file datoteka rang liste; indeks se čuva pored nje sa nastavkom .idx
+     * @throws IOException ako datoteka nije rang lista ili je već otvorena u drugom programu
+     */
+    public static Leaderboard open(Path file) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        try {
+            // Brojač mjesta je u memoriji, pa datoteku može koristiti samo jedan program
+            if (channel.tryLock() == null)
+                throw new IOException("Rang listu " + file + " koristi drugi program");
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            if (channel.size() ==  0) {
+                header.putInt(MAGIC).putInt(VERSION).putInt(RECORD_SIZE).rewind();
+                channel.write(header,  0);
+                Files.deleteIfExists(indexFile(file));
+                return new Leaderboard(file, channel,  0);
+            }
+            channel.read(header,  0);
+            if (header.getInt(0) != MAGIC || header.getInt(4) != VERSION || header.getInt(8) != RECORD_SIZE)
+                throw new IOException("Nevažeći format datoteke rang liste");
+            long records = Math.max(0, (channel.size() - HEADER_SIZE) / RECORD_SIZE);
+            if (records > (long) MAX_SEGMENTS * SEGMENT_RECORDS)
+                throw new IOException("Nevažeći format datoteke rang liste");
+            return new Leaderboard(file, channel, records);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    private static Path indexFile(Path file) {
+        return file.resolveSibling(file.getFileName() + ".idx");
+    }
+
+    // Mapira segment; mapiranje proširuje datoteku nulama, tj. praznim zapisima
+    private MappedByteBuffer map(int segment) throws IOException {
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE,
+                HEADER_SIZE + (long) segment * SEGMENT_RECORDS * RECORD_SIZE, (long) SEGMENT_RECORDS * RECORD_SIZE);
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+        return buffer;
+    }
+
+    // Vraća segment, i mapira ga ako još nije; samo prva igra u novom segmentu uzima bravu
+    private MappedByteBuffer segment(int segment) {
+        MappedByteBuffer buffer = segments.get(segment);
+        if (buffer != null)
+            return buffer;
+        synchronized (segments) {
+            buffer = segments.get(segment);
+            if (buffer == null) {
+                try {
+                    buffer = map(segment);
+                } catch (IOException e) {
+                    throw new IllegalStateException("Rang lista se ne može proširiti", e);
+                }
+                segments.set(segment, buffer);
+            }
+            return buffer;
+        }
+    }
+
+    private static int offset(long slot) {
+        return (int) (slot & (SEGMENT_RECORDS -  1)) * RECORD_SIZE;
+    }
+
+    /**
+     * Dodaje završenu igru; može se pozivati iz više niti istovremeno.
+     *
+     * @return redni broj zapisa
+     * @throws IllegalStateException ako je rang lista zatvorena ili puna
+     */
+    public long add(Entry entry) {
+        if (closed)
+            throw new IllegalStateException("Rang lista je zatvorena");
+        PersistenceEvent event = Metrics.jfrActive() ? new PersistenceEvent() : null;
+        if (event != null)
+            event.begin();
+        long start = Metrics.start();
+        long slot = next.getAndIncrement();
+        if (slot >= (long) MAX_SEGMENTS * SEGMENT_RECORDS)
+            throw new IllegalStateException("Rang lista je puna");
+        MappedByteBuffer buffer = segment((int) (slot >>> SEGMENT_SHIFT));
+        int base = offset(slot);
+        byte[] player = entry.player.getBytes(StandardCharsets.UTF_8);
+        buffer.putInt(base, entry.score);
+        buffer.putInt(base +  4, entry.moves);
+        buffer.putInt(base +  8, entry.durationMillis);
+        buffer.put(base +  12, (byte) entry.maxExponent);
+        buffer.put(base +  13, (byte) entry.size);
+        buffer.put(base +  14, (byte) player.length);
+        for (int i =  0; i < player.length; i++)
+            buffer.put(base + PLAYER_OFFSET + i, player[i]);
+
+        // Zapis mora biti upisan prije zastavice koju čitaoci provjeravaju
+        VarHandle.releaseFence();
+        buffer.put(base + COMMITTED_OFFSET, COMMITTED);
+        best.merge(entry.player, key(entry.score, slot), Math::max);
+        highScore.accumulateAndGet(entry.score, Math::max);
+        if (slot +  1 - index.covered >= TAIL_LIMIT && scheduled.compareAndSet(false, true))
+            indexer.execute(this::index);
+        Metrics.record(Metrics.LEADERBOARD, start);
+        Metrics.addBytesWritten(RECORD_SIZE);
+        if (event != null && event.shouldCommit()) {
+            event.operation = "leaderboard";
+            event.bytes = RECORD_SIZE;
+            event.commit();
+        }
+        return slot;
+    }
+
+    private boolean isCommitted(long slot) {
+        boolean committed = segment((int) (slot >>> SEGMENT_SHIFT)).get(offset(slot) + COMMITTED_OFFSET) == COMMITTED;
+        VarHandle.acquireFence();
+        return committed;
+    }
+
+    // Ključ je skor u gornjih  32 bita i obrnut redni broj u donjih, pa je među jednakim skorovima
+    // veći ključ ranija igra
+    private static long key(int score, long slot) {
+        return (long) score <<  32 | (0xffffffffL - slot);
+    }
+
+    private long key(long slot) {
+        return key(segment((int) (slot >>> SEGMENT_SHIFT)).getInt(offset(slot)), slot);
+    }
+
+    private static int score(long key) {
+        return (int) (key >>>  32);
+    }
+
+    private static long slot(long key) {
+        return 0xffffffffL - (key & 0xffffffffL);
+    }
+
+    private String player(long slot) {
+        MappedByteBuffer buffer = segment((int) (slot >>> SEGMENT_SHIFT));
+        int base = offset(slot);
+        byte[] player = new byte[Math.min(buffer.get(base +  14) &  0xff, MAX_PLAYER_BYTES)];
+        for (int i =  0; i < player.length; i++)
+            player[i] = buffer.get(base + PLAYER_OFFSET + i);
+        return new String(player, StandardCharsets.UTF_8);
+    }
+
+    private Entry read(long slot) {
+        MappedByteBuffer buffer = segment((int) (slot >>> SEGMENT_SHIFT));
+        int base = offset(slot);
+        return new Entry(player(slot), buffer.getInt(base), buffer.get(base +  12), buffer.getInt(base +  4),
+                buffer.getInt(base +  8), buffer.get(base +  13));
+    }
+
+    /**
+     * Prenosi ključeve završenih zapisa iza indeksa u novi niz i spaja nizove dok je svaki bar
+     * dva puta veći od sljedećeg. Radi samo u niti indeksa (ili pri zatvaranju), pa upis ne čeka.
+     */
+    private void index() {
+        scheduled.set(false);
+        Index current = index;
+        long covered = current.covered;
+        // Indeksira se samo niz završenih upisa; nedovršeni upis se uzima u sljedećem prolazu
+        long end = Math.min(next.get(), (long) MAX_SEGMENTS * SEGMENT_RECORDS);
+        while (covered < end && isCommitted(covered))
+            covered++;
+        if (covered == current.covered)
+            return;
+        long[] keys = new long[(int) (covered - current.covered)];
+        for (int i =  0; i < keys.length; i++)
+            keys[i] = key(current.covered + i);
+        Arrays.sort(keys);
+        List<LongBuffer> runs = new ArrayList<>(Arrays.asList(current.runs));
+        runs.add(LongBuffer.wrap(keys));
+        while (runs.size() >=  2) {
+            LongBuffer last = runs.get(runs.size() -  1);
+            LongBuffer previous = runs.get(runs.size() -  2);
+            if (previous.limit() >  2L * last.limit())
+                break;
+            runs.remove(runs.size() -  1);
+            runs.set(runs.size() -  1, merge(previous, last));
+        }
+        index = new Index(runs.toArray(new LongBuffer[0]), covered);
+    }
+
+    private static LongBuffer merge(LongBuffer a, LongBuffer b) {
+        long[] merged = new long[a.limit() + b.limit()];
+        int i =  0, j =  0, k =  0;
+        while (i < a.limit() && j < b.limit())
+            merged[k++] = a.get(i) <= b.get(j) ? a.get(i++) : b.get(j++);
+        while (i < a.limit())
+            merged[k++] = a.get(i++);
+        while (j < b.limit())
+            merged[k++] = b.get(j++);
+        return LongBuffer.wrap(merged);
+    }
+
+    // Nizovi indeksa i sortirani ključevi završenih zapisa iza indeksa, kao jedan pogled za upit.
+    // Neindeksiranih zapisa je oko TAIL_LIMIT, pa se čitaju iz dnevnika i sortiraju pri svakom upitu;
+    // zapis koji se još upisuje se preskače, a igra je vidljiva čim add vrati
+    private LongBuffer[] view() {
+        Index current = index;
+        long end = Math.min(next.get(), (long) MAX_SEGMENTS * SEGMENT_RECORDS);
+        if (end <= current.covered)
+            return current.runs;
+        long[] keys = new long[(int) Math.min(end - current.covered, Integer.MAX_VALUE -  8)];
+        int n =  0;
+        for (long slot = current.covered; slot < end && n < keys.length; slot++) {
+            if (isCommitted(slot))
+                keys[n++] = key(slot);
+        }
+        if (n ==  0)
+            return current.runs;
+        Arrays.sort(keys,  0, n);
+        LongBuffer[] runs = Arrays.copyOf(current.runs, current.runs.length +  1);
+        runs[current.runs.length] = LongBuffer.wrap(keys,  0, n).slice();
+        return runs;
+    }
+
+    // Broj ključeva manjih od key
+    private static long countLess(LongBuffer[] runs, long key) {
+        long count =  0;
+        for (LongBuffer run : runs) {
+            int low =  0, high = run.limit();
+            while (low < high) {
+                int mid = (low + high) >>>  1;
+                if (run.get(mid) < key)
+                    low = mid +  1;
+                else
+                    high = mid;
+            }
+            count += low;
+        }
+        return count;
+    }
+
+    private static long total(LongBuffer[] runs) {
+        long count =  0;
+        for (LongBuffer run : runs)
+            count += run.limit();
+        return count;
+    }
+
+    /**
+     * Vraća broj igara na rang listi.
+     */
+    public long size() {
+        return total(view());
+    }
+
+    /**
+     * Vraća najviši skor na rang listi, ili  0 ako je prazna.
+     */
+    public int getHighScore() {
+        return highScore.get();
+    }
+
+    /**
+     * Vraća mjesto koje bi igra sa datim skorom zauzela: jedan više od broja igara sa većim skorom.
+     */
+    public long rank(int score) {
+        LongBuffer[] runs = view();
+        return total(runs) - countLess(runs, (long) score +  1 <<  32) +  1;
+    }
+
+    /**
+     * Vraća procenat igara sa manjim skorom od datog (0 do  100).
+     */
+    public double percentile(int score) {
+        LongBuffer[] runs = view();
+        long total = total(runs);
+        return total ==  0 ?  0 :  100.0 * countLess(runs, (long) score <<  32) / total;
+    }
+
+    /**
+     * Vraća skor na datom percentilu, tj. skor koji ima p posto igara sortiranih od najmanjeg
+     * skora (npr.  50 za medijan,  99 za skor bolji od  99% igara).
+     *
+     * @param p percentil od  0 do  100
+     * @return skor, ili  0 ako je rang lista prazna
+     * @throws IllegalArgumentException ako p nije između  0 i  100
+     */
+    public int scoreAtPercentile(double p) {
+        if (!(p >=  0 && p <=  100))
+            throw new IllegalArgumentException("Percentil mora biti između 0 i 100");
+        LongBuffer[] runs = view();
+        long total = total(runs);
+        if (total ==  0)
+            return  0;
+        // Indeks traženog skora u rastućem redoslijedu
+        long target = Math.min(total -  1, (long) (p /  100 * total));
+        // Binarna pretraga po skoru: najmanji skor s sa više od target igara do s uključujući
+        int low =  0, high = highScore.get();
+        while (low < high) {
+            int mid = (int) (((long) low + high) >>>  1);
+            if (countLess(runs, (long) mid +  1 <<  32) > target)
+                high = mid;
+            else
+                low = mid +  1;
+        }
+        return low;
+    }
+
+    /**
+     * Vraća najboljih k igara, od najboljeg skora; među jednakim skorovima ranija igra je bolja.
+     */
+    public List<Entry> top(int k) {
+        LongBuffer[] runs = view();
+        // Najboljih k je među posljednjih k ključeva svakog niza
+        long[] candidates = new long[(int) Math.min(total(runs), (long) k * runs.length)];
+        int n =  0;
+        for (LongBuffer run : runs) {
+            for (int i = run.limit() -  1; i >= Math.max(0, run.limit() - k); i--)
+                candidates[n++] = run.get(i);
+        }
+        Arrays.sort(candidates,  0, n);
+        List<Entry> top = new ArrayList<>(Math.min(k, n));
+        for (int i = n -  1; i >= Math.max(0, n - k); i--)
+            top.add(read(slot(candidates[i])));
+        return top;
+    }
+
+    /**
+     * Vraća najbolju igru datog igrača, ili null ako igrač nema igara.
+     */
+    public Entry best(String player) {
+        Long key = best.get(player);
+        return key == null ? null : read(slot(key));
+    }
+
+    /**
+     * Zaustavlja indeksiranje, upisuje indeks u datoteku .idx i zatvara rang listu.
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed)
+            return;
+        closed = true;
+        indexer.shutdown();
+        try {
+            indexer.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        index();
+        writeIndex();
+        for (int s =  0; s < MAX_SEGMENTS && segments.get(s) != null; s++)
+            segments.get(s).force();
+        channel.close();
+    }
+
+    // Upisuje indeks kao jedan sortiran niz, i najbolji ključ svakog igrača, u privremenu datoteku, pa je preimenuje
+    private void writeIndex() throws IOException {
+        Index current = index;
+        LongBuffer all = LongBuffer.allocate(0);
+        for (LongBuffer run : current.runs)
+            all = merge(all, run);
+        long[] bests = new long[best.size()];
+        int players =  0;
+        for (long key : best.values()) {
+            if (players == bests.length)
+                bests = Arrays.copyOf(bests, players *  2 +  1);
+            bests[players++] = key;
+        }
+        Path target = indexFile(file);
+        Path temp = target.resolveSibling(target.getFileName() + ".tmp");
+        try (FileChannel out = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buffer = ByteBuffer.allocate(INDEX_WRITE_BUFFER).order(ByteOrder.LITTLE_ENDIAN);
+            buffer.putInt(INDEX_MAGIC).putInt(INDEX_VERSION).putLong(current.covered).putLong(all.limit())
+                    .putLong(players);
+            buffer.position(INDEX_HEADER_SIZE);
+            for (int i =  0; i < all.limit() + players; i++) {
+                if (!buffer.hasRemaining())
+                    write(out, buffer);
+                buffer.putLong(i < all.limit() ? all.get(i) : bests[i - all.limit()]);
+            }
+            write(out, buffer);
+        }
+        Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    private static void write(FileChannel out, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining())
+            out.write(buffer);
+        buffer.clear();
+    }
+
+    /**
+     * Učitava datoteku indeksa u memoriju, u blokovima od INDEX_WRITE_BUFFER bajta.
+     *
+     * @return ključevi i najbolji ključevi igrača, ili null ako datoteka ne postoji ili je nevažeća
+     */
+    private StoredIndex readIndex(long records) throws IOException {
+        Path indexFile = indexFile(file);
+        if (!Files.exists(indexFile))
+            return null;
+        try (FileChannel in = FileChannel.open(indexFile, StandardOpenOption.READ)) {
+            if (in.size() < INDEX_HEADER_SIZE)
+                return null;
+            ByteBuffer header = ByteBuffer.allocate(INDEX_HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            in.read(header,  0);
+            long covered = header.getLong(8);
+            long keys = header.getLong(16);
+            long players = header.getLong(24);
+            if (header.getInt(0) != INDEX_MAGIC || header.getInt(4) != INDEX_VERSION || covered > records
+                    || keys <  0 || keys > covered || players <  0 || players > records
+                    || (keys + players) *  8 > Integer.MAX_VALUE
+                    || in.size() != INDEX_HEADER_SIZE + (keys + players) *  8)
+                return null;
+            long[] all = new long[(int) (keys + players)];
+            ByteBuffer buffer = ByteBuffer.allocate(INDEX_WRITE_BUFFER).order(ByteOrder.LITTLE_ENDIAN);
+            int n =  0;
+            while (n < all.length) {
+                buffer.clear().limit((int) Math.min(buffer.capacity(), (all.length - n) *  8L));
+                while (buffer.hasRemaining()) {
+                    if (in.read(buffer, INDEX_HEADER_SIZE + n *  8L + buffer.position()) <  0)
+                        return null;
+                }
+                buffer.flip();
+                int count = buffer.remaining() /  8;
+                buffer.asLongBuffer().get(all, n, count);
+                n += count;
+            }
+            return new StoredIndex(LongBuffer.wrap(all,  0, (int) keys).slice(), covered,
+                    LongBuffer.wrap(all, (int) keys, (int) players).slice());
+        }
+    }
+
+    // Provjerava da li datoteka indeksa odgovara dnevniku: uzorak ključeva i svi najbolji ključevi igrača
+    private boolean matches(StoredIndex stored, long records) {
+        for (int i =  0; i < stored.keys.limit(); i += Math.max(1, stored.keys.limit() /  64)) {
+            if (!matches(stored.keys.get(i), records))
+                return false;
+        }
+        for (int i =  0; i < stored.bests.limit(); i++) {
+            if (!matches(stored.bests.get(i), records))
+                return false;
+        }
+        return true;
+    }
+
+    private boolean matches(long key, long records) {
+        long slot = slot(key);
+        return slot < records && isCommitted(slot) && key(slot) == key;
+    }
+}
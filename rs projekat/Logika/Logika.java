@@ -1,19 +1,37 @@
 package Logika;
 
-import java.io.FileInputStream;
-import java.io.FileOutputStream;
+import java.io.EOFException;
 import java.io.IOException;
 import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
 import java.io.Serializable;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
 import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+
+import Metrike.Metrics;
+import Metrike.MoveEvent;
+import Metrike.SpawnEvent;
 
 /**
  * Ova klasa predstavlja logiku igre za   2048
+ * Igra nije sinhronizovana i koristi je jedna nit (npr. nit logike u GUI-ju); druge niti
+ * čitaju stanje kroz nepromjenljivi GameSnapshot (vidi setSnapshotsEnabled i getSnapshot).
  */
 public class Logika {
     /**
      * Predstavlja   ćeliju na igračkoj tablici 
+     * Koristi se samo za čitanje starih snimaka (game_state.ser)
      */
     private static class GameCell implements Serializable {
         private static final long serialVersionUID =  1L; // Dodaje serialVersionUID kako bi se izbegle InvalidClassExceptions
@@ -56,199 +74,634 @@ public class Logika {
         }
     }
 
-    // Igračka tablica
-    public GameCell[][] board = new GameCell[4][4];
+    // Veličina tablice (vidi GridBoard)
+    private int size;
+    // Igračka tablica spakovana u niz long-ova (vidi GridBoard), po 4 bita eksponenta za svaku ćeliju;
+    // tablica 4x4 je jedan long sa rasporedom iz klase BitBoard
+    private long[] board;
+    // Niz iste dužine u koji potez upisuje novu tablicu; nakon poteza sadrži prethodnu tablicu
+    private long[] moved;
+    // Pozicija i eksponent nove pločice iz posljednjeg poteza, ili spawnX = -1
+    private int spawnX = -1;
+    private int spawnY;
+    private int spawnExponent;
+    // Maska smjerova koji mijenjaju trenutnu tablicu (vidi BitBoard.legalMoves);
+    // računa se samo kada se tablica promijeni, a  0 je i kada tablica ima pločicu 32768 (vidi legalMoves())
+    private int legalMoves;
     // Generator slučajnih brojeva
-    private Random random = new Random();
+    private final Random random;
+    // Isti generator ako mu se stanje može pročitati (vidi StatefulRandom), inače null
+    private final StatefulRandom gameRandom;
+    // Dnevnik poteza, ako je uključen
+    private MoveJournal journal;
+    // Izvoz poteza za učenje strategija, ako je uključen
+    private TrajectoryWriter.Recorder trajectory;
+    // Broj stanja koja se pamte za poništavanje poteza
+    private static final int UNDO_CAPACITY =  64;
+    // Istorija stanja za poništavanje i ponavljanje poteza
+    private UndoHistory history;
+    // Rang lista završenih igara (vidi leaderboard()), ili null ako igra ne čuva rezultate
+    private Leaderboard leaderboard;
+    // Oznaka igrača na rang listi
+    private String player = defaultPlayer();
+    // Broj poteza i početak igre (System.nanoTime) od startGame ili učitavanja snimka
+    private int moves;
+    private long startNanos = System.nanoTime();
+    // Da li je završena igra upisana na rang listu, i njeno mjesto (0 ako nije upisana)
+    private boolean recorded;
+    private long rank;
     // Da li je dostignut broj  8
     private boolean hasReached8 = false;
     // Trenutni skor
     private int score =  0;
-    // Najviši skor
-    private int highScore = loadHighScore();
+    // Najviši skor ove igre i učitanih snimaka; getHighScore uzima i rang listu
+    private int highScore;
+    // Posljednje objavljeno stanje za druge niti (vidi setSnapshotsEnabled), ili null ako je objavljivanje isključeno
+    private volatile GameSnapshot snapshot;
+    private boolean snapshotsEnabled;
+    private long snapshotVersion;
+    // Pretplatnici na objavljena stanja; lista se kopira samo pri pretplati, pa je čitanje bez zaključavanja
+    private final CopyOnWriteArrayList<Consumer<GameSnapshot>> snapshotListeners = new CopyOnWriteArrayList<>();
 
-    // Ažurira najviši skor
-    public void saveHighScore(int highScore) {
-        try {
-            FileOutputStream fileOut = new FileOutputStream("highscore.ser");
-            ObjectOutputStream out = new ObjectOutputStream(fileOut);
-            out.writeInt(highScore);
-            out.close();
-            fileOut.close();
-        } catch (IOException i) {
-            i.printStackTrace();
+    /**
+     * Kreira igru sa slučajnim generatorom koja upisuje završene igre na rang listu.
+     * Stanje generatora se čuva u snimcima, pa se učitana igra nastavlja istim nizom pločica.
+     */
+    public Logika() {
+        this(new GameRandom(), true);
+    }
+
+    /**
+     * Kreira igru sa tablicom date veličine i slučajnim generatorom, koja upisuje završene igre na rang listu.
+     *
+     * @param size veličina tablice, od GridBoard.MIN_SIZE do GridBoard.MAX_SIZE
+     * @throws IllegalArgumentException ako veličina nije podržana
+     */
+    public Logika(int size) {
+        this(size, new GameRandom(), true);
+    }
+
+    /**
+     * Kreira igru sa datim generatorom slučajnih brojeva.
+     * Simulacije koriste persistent = false kako igre ne bi upisivale rang listu na disk.
+     * Ako generator implementira StatefulRandom (GameRandom, SplitMixRandom), njegovo stanje
+     * se čuva u istoriji poteza i snimcima, a igra sa istim seed-om je ista.
+     *
+     * @param random generator slučajnih brojeva za nove pločice
+     * @param persistent da li se završene igre upisuju na rang listu na disku
+     */
+    public Logika(Random random, boolean persistent) {
+        this(4, random, persistent);
+    }
+
+    /**
+     * Kreira igru sa tablicom date veličine i datim generatorom slučajnih brojeva.
+     *
+     * @param size veličina tablice, od GridBoard.MIN_SIZE do GridBoard.MAX_SIZE
+     * @param random generator slučajnih brojeva za nove pločice
+     * @param persistent da li se završene igre upisuju na rang listu na disku
+     * @throws IllegalArgumentException ako veličina nije podržana
+     */
+    public Logika(int size, Random random, boolean persistent) {
+        this(size, random, persistent ? leaderboard() : null);
+    }
+
+    /**
+     * Kreira igru koja završene igre upisuje na datu rang listu umjesto na leaderboard.dat,
+     * npr. za igre servera.
+     *
+     * @param size veličina tablice, od GridBoard.MIN_SIZE do GridBoard.MAX_SIZE
+     * @param random generator slučajnih brojeva za nove pločice
+     * @param leaderboard rang lista ili null ako se rezultati ne čuvaju
+     * @throws IllegalArgumentException ako veličina nije podržana
+     */
+    public Logika(int size, Random random, Leaderboard leaderboard) {
+        resize(size);
+        this.random = random;
+        this.gameRandom = random instanceof StatefulRandom ? (StatefulRandom) random : null;
+        this.leaderboard = leaderboard;
+    }
+
+    // Postavlja veličinu tablice i pravi praznu tablicu i istoriju te veličine
+    private void resize(int size) {
+        GridBoard.checkSize(size);
+        this.size = size;
+        int words = GridBoard.words(size);
+        board = new long[words];
+        moved = new long[words];
+        history = new UndoHistory(UNDO_CAPACITY, words);
+    }
+
+    /**
+     * Vraća veličinu tablice (broj ćelija u redu).
+     */
+    public int getSize() {
+        return size;
+    }
+
+    // Datoteka snimaka, ime podrazumijevanog snimka i broj mjesta u novoj datoteci
+    private static final String SAVE_FILE = "saves.dat";
+    private static final String DEFAULT_SLOT = "default";
+    private static final int SAVE_SLOT_CAPACITY =  4096;
+    // Stara datoteka snimka (Java serijalizacija), čita se samo radi prenosa
+    private static final String LEGACY_SAVE_FILE = "game_state.ser";
+    // Zajednička datoteka snimaka, otvara se pri prvom čuvanju ili učitavanju
+    private static SaveSlots saveSlots;
+
+    private static synchronized SaveSlots saveSlots() throws IOException {
+        if (saveSlots == null)
+            saveSlots = SaveSlots.open(Paths.get(SAVE_FILE), SAVE_SLOT_CAPACITY);
+        return saveSlots;
+    }
+
+    // Zajednička pozadinska nit za asinhrono čuvanje i učitavanje snimaka, kreira se pri prvoj upotrebi
+    private static ExecutorService saveExecutor;
+
+    private static synchronized ExecutorService saveExecutor() {
+        if (saveExecutor == null) {
+            saveExecutor = Executors.newSingleThreadExecutor(r -> {
+                Thread t = new Thread(r, "save-io");
+                t.setDaemon(true);
+                return t;
+            });
         }
+        return saveExecutor;
     }
-    
-    // Učitava najviši skor
-    public int loadHighScore() {
-        int highScore =  0;
-        try {
-            FileInputStream fileIn = new FileInputStream("highscore.ser");
-            ObjectInputStream in = new ObjectInputStream(fileIn);
-            highScore = in.readInt();
-            in.close();
-            fileIn.close();
-        } catch (IOException i) {
-            i.printStackTrace();
-        } /*catch (ClassNotFoundException c) {
-            System.out.println("Najviši skor nije pronađen");
-            c.printStackTrace();
-        }*/
-        return highScore;
-    }
-
-    // Vraća najviši skor
-    public int getHighScore() { return highScore;}
-    
-
-    // Dodaje slučajnu   ćeliju na igračku tablicu
-    private void addRandomCell() {
-        boolean hasEmptyCell = false;
-        for (int y =  0; y <  4; y++) {
-            for (int x =  0; x <  4 && !hasEmptyCell; x++) {
-                if (board[x][y].getValue() ==  0) {
-                    hasEmptyCell = true;
-                    break;
+
+    // Rang lista i stara datoteka najvišeg skora (jedan int), koja se jednom prenosi na rang listu
+    private static final String LEADERBOARD_FILE = "leaderboard.dat";
+    private static final String LEGACY_HIGH_SCORE_FILE = "highscore.ser";
+    // Zajednička rang lista, otvara se pri kreiranju prve igre koja čuva rezultate
+    private static Leaderboard sharedLeaderboard;
+
+    // Vraća zajedničku rang listu, ili null ako se ne može otvoriti
+    private static synchronized Leaderboard leaderboard() {
+        if (sharedLeaderboard == null) {
+            Leaderboard opened;
+            try {
+                opened = Leaderboard.open(Paths.get(LEADERBOARD_FILE));
+            } catch (IOException e) {
+                e.printStackTrace();
+                return null;
+            }
+            migrateHighScore(opened);
+            // Pri gašenju programa se indeks rang liste upisuje na disk
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                try {
+                    opened.close();
+                } catch (IOException e) {
+                    e.printStackTrace();
                 }
+            }, "leaderboard-close"));
+            sharedLeaderboard = opened;
+        }
+        return sharedLeaderboard;
+    }
+
+    /**
+     * Otvara zajedničku rang listu (leaderboard.dat) u pozadinskoj niti za snimke, tako da prozor
+     * i prva igra ne čekaju disk; igra kreirana bez rang liste je dobija sa setLeaderboard.
+     *
+     * @return završava se rang listom, ili sa null ako se ne može otvoriti
+     */
+    public static CompletableFuture<Leaderboard> openLeaderboardAsync() {
+        return CompletableFuture.supplyAsync(Logika::leaderboard, saveExecutor());
+    }
+
+    /**
+     * Otvara datoteku snimaka u pozadinskoj niti za snimke, da prvo čuvanje ili učitavanje ne čeka
+     * otvaranje. Snimci se i inače otvaraju pri prvoj upotrebi, pa je ovo samo ranije otvaranje.
+     *
+     * @return završava se kada je datoteka otvorena, ili sa greškom ako otvaranje nije uspjelo
+     */
+    public static CompletableFuture<Void> openSavesAsync() {
+        return CompletableFuture.runAsync(() -> {
+            try {
+                saveSlots();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }, saveExecutor());
+    }
+
+    /**
+     * Postavlja rang listu na koju se upisuju završene igre, npr. kada se otvori u pozadini
+     * (vidi openLeaderboardAsync). Igra koja je već završena upisuje se odmah.
+     *
+     * @param leaderboard rang lista ili null ako se rezultati ne čuvaju
+     */
+    public void setLeaderboard(Leaderboard leaderboard) {
+        this.leaderboard = leaderboard;
+        if (legalMoves ==  0 && moves >  0)
+            recordGame();
+        // Najviši skor i mjesto zavise od rang liste
+        publish();
+    }
+
+    /**
+     * Uključuje ili isključuje objavljivanje stanja: kada je uključeno, nakon svake promjene
+     * (potez, poništavanje, nova igra, učitavanje) igra kreira novi GameSnapshot i objavljuje ga
+     * kroz volatile referencu, a zatim ga predaje pretplatnicima. Isključeno je podrazumijevano,
+     * pa simulacije i pretraga ne alociraju ništa po potezu. Poziva se na niti koja koristi igru.
+     */
+    public void setSnapshotsEnabled(boolean enabled) {
+        snapshotsEnabled = enabled;
+        if (enabled)
+            publish();
+        else
+            snapshot = null;
+    }
+
+    /**
+     * Vraća posljednje objavljeno stanje; može se pozivati iz bilo koje niti, bez zaključavanja.
+     *
+     * @return stanje ili null ako objavljivanje nije uključeno
+     */
+    public GameSnapshot getSnapshot() {
+        return snapshot;
+    }
+
+    /**
+     * Dodaje pretplatnika kojem se predaje svako objavljeno stanje; može se pozivati iz bilo koje niti.
+     * Pretplatnik se poziva na niti koja igra, odmah nakon objave, pa ne smije čekati
+     * (sporiji posao, npr. upis na disk, predaje drugoj niti).
+     */
+    public void addSnapshotListener(Consumer<GameSnapshot> listener) {
+        snapshotListeners.add(listener);
+    }
+
+    public void removeSnapshotListener(Consumer<GameSnapshot> listener) {
+        snapshotListeners.remove(listener);
+    }
+
+    // Objavljuje trenutno stanje ako je objavljivanje uključeno
+    private void publish() {
+        if (!snapshotsEnabled)
+            return;
+        GameSnapshot published = new GameSnapshot(++snapshotVersion, size, board, score, getHighScore(), legalMoves, moves,
+                rank, hasReached8);
+        snapshot = published;
+        for (Consumer<GameSnapshot> listener : snapshotListeners)
+            listener.accept(published);
+    }
+
+    /**
+     * Prenosi stari highscore.ser na rang listu kao igru bez poteza i trajanja,
+     * i preimenuje staru datoteku, tako da se prenos radi samo jednom.
+     */
+    private static void migrateHighScore(Leaderboard leaderboard) {
+        Path legacy = Paths.get(LEGACY_HIGH_SCORE_FILE);
+        if (!Files.exists(legacy))
+            return;
+        try {
+            int highScore;
+            try (ObjectInputStream in = new ObjectInputStream(Files.newInputStream(legacy))) {
+                highScore = in.readInt();
             }
+            if (highScore >  0)
+                leaderboard.add(new Leaderboard.Entry(defaultPlayer(), highScore,  0,  0,  0,  4));
+            Files.move(legacy, legacy.resolveSibling(LEGACY_HIGH_SCORE_FILE + ".migrated"), StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    // Podrazumijevana oznaka igrača: korisničko ime, skraćeno na Leaderboard.MAX_PLAYER_BYTES bajta
+    private static String defaultPlayer() {
+        String name = System.getProperty("user.name", "");
+        while (name.getBytes(StandardCharsets.UTF_8).length > Leaderboard.MAX_PLAYER_BYTES)
+            name = name.substring(0, name.length() -  1);
+        return name;
+    }
+
+    /**
+     * Vraća rang listu na koju se upisuju završene igre, ili null ako igra ne čuva rezultate.
+     */
+    public Leaderboard getLeaderboard() {
+        return leaderboard;
+    }
+
+    /**
+     * Postavlja oznaku igrača pod kojom se igra upisuje na rang listu (podrazumijevano korisničko ime).
+     *
+     * @param player oznaka igrača (najviše Leaderboard.MAX_PLAYER_BYTES bajta u UTF-8)
+     * @throws IllegalArgumentException ako je oznaka preduga
+     */
+    public void setPlayer(String player) {
+        if (player.getBytes(StandardCharsets.UTF_8).length > Leaderboard.MAX_PLAYER_BYTES)
+            throw new IllegalArgumentException("Oznaka igrača može imati najviše " + Leaderboard.MAX_PLAYER_BYTES + " bajta");
+        this.player = player;
+    }
+
+    public String getPlayer() {
+        return player;
+    }
+
+    // Vraća najviši skor: veći od najvišeg skora na rang listi i skorova ove igre
+    public int getHighScore() {
+        return leaderboard == null ? highScore : Math.max(highScore, leaderboard.getHighScore());
+    }
+
+    /**
+     * Vraća mjesto završene igre na rang listi ( 1 je najbolje), ili  0 ako igra nije upisana.
+     * Igra se upisuje jednom: kada dostigne pločicu 2048 ili kada ostane bez legalnih poteza.
+     * Igre sa jednakim skorom dijele mjesto.
+     */
+    public long getRank() {
+        return rank;
+    }
+
+    // Upisuje pobjedu ili završenu igru na rang listu, jednom po igri
+    private void recordGame() {
+        if (leaderboard == null || recorded)
+            return;
+        recorded = true;
+        int millis = (int) Math.min(Integer.MAX_VALUE, (System.nanoTime() - startNanos) /  1_000_000);
+        try {
+            leaderboard.add(new Leaderboard.Entry(player, score, GridBoard.maxExponent(board), moves, millis, size));
+            rank = leaderboard.rank(score);
+        } catch (IllegalStateException e) {
+            e.printStackTrace();
         }
-        if (!hasEmptyCell)
+    }
+
+    // Počinje mjerenje poteza i trajanja nove ili učitane igre
+    private void resetStats() {
+        moves =  0;
+        startNanos = System.nanoTime();
+        recorded = false;
+        rank =  0;
+    }
+
+    // Dodaje slučajnu   ćeliju na igračku tablicu.
+    // Prazna ćelija se bira direktno kao k-ta postavljena pozicija maske praznih ćelija
+    // (vidi GridBoard.emptyCell), pa je trajanje isto i na skoro punoj tablici.
+    void addRandomCell() {
+        SpawnEvent event = Metrics.jfrActive() ? new SpawnEvent() : null;
+        if (event != null)
+            event.begin();
+        long start = Metrics.start();
+        spawnX = -1;
+        int empty = GridBoard.countEmpty(board, size);
+        if (empty ==  0)
             return;
         
-        int x, y, value;
+        int value;
         if (hasReached8) {
             int r = random.nextInt(100);
             if (r >=  90)
-               value =  4;
-            else
                value =  2;
+            else
+               value =  1;
         }
         else
-            value =  2;
-        do {
-            x = random.nextInt(4);
-            y = random.nextInt(4);
-        } while (board[x][y].getValue() !=  0);
-        board[x][y].setValue(value);
+            value =  1;
+        // value je eksponent: 1 za pločicu 2, 2 za pločicu 4
+        int cell = GridBoard.emptyCell(board, size, random.nextInt(empty));
+        int x = cell % size;
+        int y = cell / size;
+        GridBoard.setExponent(board, size, x, y, value);
+        spawnX = x;
+        spawnY = y;
+        spawnExponent = value;
+        Metrics.record(Metrics.SPAWN, start);
+        if (event != null && event.shouldCommit()) {
+            event.emptyCells = empty;
+            event.exponent = value;
+            event.commit();
+        }
+    }
+
+    /**
+     * Uključuje dnevnik poteza; od sljedećeg startGame() se bilježe početak igre i svi potezi.
+     *
+     * @param journal dnevnik ili null za isključivanje
+     * @throws IllegalStateException ako se stanje generatora ne može pročitati (nije GameRandom)
+     *         ili tablica nije 4x4
+     */
+    public void setJournal(MoveJournal journal) {
+        // Dnevnik se ponavlja sa generatorom GameRandom
+        if (journal != null && !(random instanceof GameRandom))
+            throw new IllegalStateException("Dnevnik poteza zahtijeva GameRandom");
+        if (journal != null && size !=  4)
+            throw new IllegalStateException("Dnevnik poteza podržava samo tablicu 4x4");
+        this.journal = journal;
     }
 
-    // Provjerava da li je dati broj unutar granica igračke tablice
-    private static boolean isInBounds(int a) {
-        return a >=  0 && a <  16;
+    /**
+     * Uključuje izvoz poteza (vidi TrajectoryWriter); od sljedećeg startGame() se svaki potez
+     * koji mijenja tablicu predaje recorder-u sa tablicom prije poteza, skorom poteza i novom pločicom.
+     *
+     * @param trajectory recorder ove igre ili null za isključivanje
+     * @throws IllegalStateException ako veličina tablice nije veličina izvoza
+     */
+    public void setTrajectory(TrajectoryWriter.Recorder trajectory) {
+        if (trajectory != null && trajectory.getSize() != size)
+            throw new IllegalStateException("Izvoz poteza je za tablicu " + trajectory.getSize() + "x" + trajectory.getSize());
+        this.trajectory = trajectory;
     }
 
-    // Provjerava da li su dati koordinati unutar granica igračke tablice
-    private static boolean isInBounds(int x, int y) {
-        return x >=  0 && x <  4 && y >=  0 && y <  4;
+    // Da li se potezi bilježe; dnevnik čuva tablicu kao jedan long, pa nakon učitavanja
+    // snimka druge veličine bilježenje prestaje
+    private boolean journaled() {
+        return journal != null && size ==  4;
     }
 
-    // Inicijalizira igračku tablicu stvaranjem novih objekata GameCell za svaku   ćeliju i dodavanjem slučajne   ćelije
+    // Inicijalizira praznu igračku tablicu, resetuje skor i dodaje slučajnu   ćeliju
     public void startGame() {
-        for (int y =  0; y <  4; y++) {
-            for (int x =  0; x <  4; x++)
-                board[x][y] = new GameCell();
-        }
+        Arrays.fill(board,  0);
+        score =  0;
+        hasReached8 = false;
+        resetStats();
+        if (journaled())
+            journal.startGame(gameRandom.getState());
+        if (trajectory != null)
+            trajectory.startGame();
         addRandomCell();
+        legalMoves = legalMoves();
+        history.reset(board, score, hasReached8, rngState());
+        publish();
+    }
+
+    // Vraća stanje generatora ili  0 ako se ne može pročitati
+    private long rngState() {
+        return gameRandom != null ? gameRandom.getState() :  0;
+    }
+
+    /**
+     * Poništava posljednji potez (najviše  63 poteza unazad), uključujući novu pločicu i skor.
+     * Generator se vraća u staro stanje, pa isti potez ponovo daje istu pločicu.
+     * Pretraga i simulacije ovako mogu vratiti potez bez kopiranja cijele igre.
+     *
+     * @return false ako nema poteza za poništavanje
+     */
+    public boolean undo() {
+        if (!history.undo())
+            return false;
+        restoreFromHistory();
+        return true;
+    }
+
+    /**
+     * Ponovo odigrava posljednji poništeni potez.
+     *
+     * @return false ako nema poništenog poteza
+     */
+    public boolean redo() {
+        if (!history.redo())
+            return false;
+        restoreFromHistory();
+        return true;
+    }
+
+    /**
+     * Vraća da li postoji potez koji se može poništiti.
+     */
+    public boolean canUndo() {
+        return history.canUndo();
+    }
+
+    /**
+     * Vraća da li postoji poništeni potez koji se može ponoviti.
+     */
+    public boolean canRedo() {
+        return history.canRedo();
+    }
+
+    private void restoreFromHistory() {
+        history.board(board);
+        legalMoves = legalMoves();
+        score = history.score();
+        hasReached8 = history.hasReached8();
+        if (gameRandom != null)
+            gameRandom.setState(history.rngState());
+        // Igra vraćena iz kraja više nema mjesto na rang listi; upisana je samo jednom,
+        // pa ponovljeni kraj dobija mjesto svog skora
+        if (legalMoves !=  0)
+            rank =  0;
+        else if (recorded && leaderboard != null)
+            rank = leaderboard.rank(score);
+        if (journaled())
+            journal.rewind(board[0], score, hasReached8, gameRandom.getState());
+        publish();
     }
 
  // Obradu pokreta u igri provodi pomicanjem pločica u navedenom smjeru i spajanjem susjednih pločica s istom vrijednošću.
+	// Redovi se pomjeraju preko tabela iz klase BitBoard (vidi GridBoard), pa potez ne alocira memoriju.
 	//  
 	//@param move smjer pokreta ('u' za gore, 'd' za dolje, 'l' za lijevo, 'r' za desno)
 	//@return cijeli broj koji predstavlja rezultat pokreta:  0 ako igra nastavlja,  1 ako igrač pobjeđuje,  2 ako je igra završila
+	//        (i kada je nastala pločica 32768, najveća koju ćelija može sadržati)
 	//@throws IllegalArgumentException ako je pokret nevažeći
+	// Trajanje poteza se bilježi u Metrics.MOVE i kao JFR događaj MoveEvent
     public int processMove(char move) {
-        // Definisanje promjenljivih za pravac i pomak
-        int dir, mx, my;
-        
-        // Određivanje pravca i pomaka na osnovu unijetog karaktera
-        switch (move) {
-            case 'u': // gore
-                dir =   1; mx =   0; my = -1;
-                break;
-            case 'd': // dole
-                dir = -1; mx =   0; my =   1;
-                break;
-            case 'l': // lijevo
-                dir =   1; mx = -1; my =   0;
-                break;
-            case 'r': // desno
-                dir = -1; mx =   1; my =   0;
-                break;
-            default: // nevažeći pokret
-                throw new IllegalArgumentException("Nevažeći pokret");
+        MoveEvent event = Metrics.jfrActive() ? new MoveEvent() : null;
+        if (event != null)
+            event.begin();
+        long start = Metrics.start();
+        // Određivanje pravca na osnovu unijetog karaktera
+        int dir = BitBoard.direction(move);
+        int scoreBefore = score;
+        int status = applyMove(dir);
+        // Pamti se samo potez koji je promijenio tablicu (moved sada sadrži tablicu prije poteza)
+        if (!Arrays.equals(board, moved)) {
+            history.push(board, score, hasReached8, rngState());
+            // Izvoz se isključuje ako je učitan snimak druge veličine
+            if (trajectory != null && trajectory.getSize() == size)
+                trajectory.record(moved, dir, score - scoreBefore, spawnX <  0 ? -1 : spawnX + size * spawnY, spawnExponent, status);
+            publish();
         }
-        
-        // Inicijalizacija promjenljivih za skor poteza, spajanje ćelija
-        int moveScore =   0;
-        boolean[][] hasMerged = new boolean[4][4];
-        for (int i =   0; i <   4; i++) {
-            for (int j =   0; j <   4; j++) {
-                hasMerged[i][j] = false;
-            }
+        if (journaled())
+            journal.recordMove(dir, board[0], score, hasReached8, gameRandom.getState());
+        Metrics.record(Metrics.MOVE, start);
+        if (event != null && event.shouldCommit()) {
+            event.direction = move;
+            event.size = size;
+            event.score = score;
+            event.status = status;
+            event.commit();
         }
-        boolean reached2048 = false, hasChanged = false;
+        return status;
+    }
 
+    /**
+     * Odigrava potez kao processMove(char) i u result upisuje kretanje pločica,
+     * spajanja i novu pločicu, npr. za animaciju poteza.
+     *
+     * @param move smjer pokreta ('u', 'd', 'l' ili 'r')
+     * @param result objekat u koji se upisuje rezultat; može se koristiti za svaki potez iznova
+     * @return isto kao processMove(char)
+     */
+    public int processMove(char move, MoveResult result) {
+        result.compute(board, size, BitBoard.direction(move));
+        int status = processMove(move);
+        result.finish(!Arrays.equals(board, moved), status, spawnX, spawnY, spawnExponent);
+        return status;
+    }
+
+    // Odigrava potez u datom smjeru (vidi BitBoard) i vraća status kao processMove
+    private int applyMove(int dir) {
         // Procesiranje poteza
-        for (int i = (dir ==   1) ?  0 :  15; isInBounds(i); i += dir) {
-            int x = i %  4, y = i /  4;
-            if (board[x][y].getValue() ==   0)
-                continue;
-            int nx = x + mx, ny = y + my;
-            while (isInBounds(nx, ny) && board[nx][ny].getValue() ==   0) {
-                nx += mx;
-                ny += my;
-            }
-            // Spajanje ćelija
-            if (isInBounds(nx, ny) && board[nx][ny].getValue() == board[x][y].getValue() && !hasMerged[nx][ny]) {
-                board[nx][ny].setValue(board[nx][ny].getValue() <<  1);
-                board[x][y].setValue(0);
-                moveScore += board[nx][ny].getValue();
-                if (board[nx][ny].getValue() ==   8)
-                    hasReached8 = true;
-                hasMerged[nx][ny] = true;
-                if (board[nx][ny].getValue() ==   2048)
-                    reached2048 = true;
-                hasChanged = true;
-            } else {
-                nx -= mx; ny -= my;
-                if (nx != x || ny != y) {
-                    board[nx][ny].setValue(board[x][y].getValue());
-                    board[x][y].setValue(0);
-                    hasChanged = true;
-                }
-            }
-        }
+        int info = GridBoard.move(board, size, dir, moved);
+        boolean hasChanged = !Arrays.equals(board, moved);
+        // Nova tablica postaje trenutna, a prethodna ostaje u moved
+        long[] before = board;
+        board = moved;
+        moved = before;
+        spawnX = -1;
+        if ((info & BitBoard.FLAG_REACHED_8) !=  0)
+            hasReached8 = true;
 
         // Ažuriranje skora
-        score += moveScore;
-        if (score > highScore) {
-            saveHighScore(score);
+        score += info >>>  2;
+        if (score > highScore)
+            highScore = score;
+        if (hasChanged) {
+            moves++;
+            if ((info & BitBoard.FLAG_REACHED_2048) ==  0)
+                addRandomCell();
+            // Spajanje u pločicu 32768 dodaje bar toliko skoru poteza, pa se tek tada traži najveća pločica
+            legalMoves = (info >>>  2) >=  1 << BitBoard.MAX_EXPONENT ? legalMoves() : GridBoard.legalMoves(board, size);
+            // Igra bez legalnih poteza je završena i upisuje se na rang listu; pobjeda (pločica 2048)
+            // se upisuje odmah, jer igrač poslije nje obično ne nastavlja (recorded sprječava drugi upis)
+            if (legalMoves ==  0 || (info & BitBoard.FLAG_REACHED_2048) !=  0)
+                recordGame();
         }
-        if (reached2048)
+        if ((info & BitBoard.FLAG_REACHED_2048) !=  0)
             return  1;
-        if (hasChanged)
-            addRandomCell();
-        // Provjera da li ima slobodnih ćelija ili mogućih poteza
-        for (int i =   0; i <   4; i++) {
-            for (int j =   0; j <   4; j++)
-                if (board[i][j].getValue() ==   0)
-                    return  0;
-        }
-        for (int i =   0; i <   4; i++) {
-            for (int j =   0; j <   3; j++)
-                if (board[i][j].getValue() == board[i][j +  1].getValue())
-                    return  0;
-        }
-        for (int i =   0; i <   3; i++) {
-            for (int j =   0; j <   4; j++)
-                if (board[i][j].getValue() == board[i +  1][j].getValue())
-                    return  0;
-        }
-        // Ako nema slobodnih ćelija ni mogućih poteza, igra je završena
-        return  2;
+        // Ako nijedan smjer ne mijenja tablicu, igra je završena
+        return legalMoves ==  0 ?  2 :  0;
+    }
+
+    // Maska legalnih smjerova trenutne tablice. Pločica 32768 (BitBoard.MAX_EXPONENT) je najveća koja
+    // stane u  4 bita ćelije i ne spaja se dalje, pa igra sa njom završava na svakoj veličini tablice
+    private int legalMoves() {
+        if (GridBoard.maxExponent(board) >= BitBoard.MAX_EXPONENT)
+            return  0;
+        return GridBoard.legalMoves(board, size);
+    }
+
+    /**
+     * Vraća masku smjerova u kojima potez mijenja tablicu: bit (1 << dir) za svaki smjer
+     * iz klase BitBoard. Maska se računa samo kada se tablica promijeni, pa je poziv jeftin;
+     * maska  0 znači da je igra završena: nijedan potez ne mijenja tablicu, ili je na tablici
+     * pločica 32768 (BitBoard.MAX_EXPONENT), najveća koju tablica može prikazati.
+     *
+     * @return maska legalnih smjerova
+     */
+    public int getLegalMoves() {
+        return legalMoves;
     }
 
+    /**
+     * Vraća da li potez mijenja tablicu; potez koji je ne mijenja se ne mora slati u processMove.
+     *
+     * @param move smjer pokreta ('u', 'd', 'l' ili 'r')
+     * @throws IllegalArgumentException ako je pokret nevažeći
+     */
+    public boolean isLegal(char move) {
+        return (legalMoves & (1 << BitBoard.direction(move))) !=  0;
+    }
 	
 	/**
 	* Vraća trenutni skor igre.
@@ -256,61 +709,291 @@ public class Logika {
 	* @return trenutni skor igre
 	*/
 	public int getScore() {
-	   if (score > highScore) {
-	       saveHighScore(score);
-	   }
 	   return score;
 	}
 	
+	/**
+	* Vraća igračku tablicu 4x4 spakovanu u jedan long (vidi BitBoard).
+	*
+	* @return spakovana igračka tablica
+	* @throws IllegalStateException ako tablica nije 4x4
+	*/
+	public long getPackedBoard() {
+	   requirePacked();
+	   return board[0];
+	}
+	
+	/**
+	* Kopira tablicu spakovanu kao niz long-ova (vidi GridBoard) u dst, bez alokacije.
+	*
+	* @param dst niz dužine najmanje GridBoard.words(getSize())
+	*/
+	public void getGrid(long[] dst) {
+	   System.arraycopy(board,  0, dst,  0, board.length);
+	}
+	
+	// Spakovana tablica u jednom long-u postoji samo za veličinu  4
+	private void requirePacked() {
+	   if (size !=  4)
+	       throw new IllegalStateException("Tablica " + size + "x" + size + " se ne može spakovati u jedan long");
+	}
+	
+	/**
+	* Postavlja stanje igre: spakovanu tablicu, skor i zastavicu pločice  8.
+	*
+	* @param board spakovana igračka tablica (vidi BitBoard)
+	* @param score skor
+	* @param hasReached8 da li je dostignuta pločica  8
+	* @throws IllegalStateException ako tablica nije 4x4
+	*/
+	public void setState(long board, int score, boolean hasReached8) {
+	   requirePacked();
+	   this.board[0] = board;
+	   legalMoves = legalMoves();
+	   this.score = score;
+	   this.hasReached8 = hasReached8;
+	   history.reset(this.board, score, hasReached8, rngState());
+	   if (journaled())
+	       journal.resumeGame(board, score, hasReached8, gameRandom.getState());
+	   publish();
+	}
+	
+	/**
+	* Vraća da li je dostignuta pločica  8, nakon čega se mogu pojaviti i pločice  4.
+	*
+	* @return true ako je dostignuta pločica  8
+	*/
+	public boolean hasReached8() {
+	   return hasReached8;
+	}
+	
 	/**
 	* Vraća  2D polje cijelih brojeva koje predstavlja trenutno stanje igračke tablice.
 	* Svaki element u polju predstavlja vrijednost odgovarajuće pločice na tablici.
 	* @return  2D polje cijelih brojeva koje predstavlja trenutno stanje igračke tablice
 	*/
 	public int[][] getBoard() {
-	   int[][] ret = new int[4][4];
-	   for (int y =   0; y <   4; y++) {
-	       for (int x =   0; x <   4; x++)
-	           ret[x][y] = board[x][y].getValue();
-	   }
+	   int[][] ret = new int[size][size];
+	   getBoard(ret);
 	   return ret;
 	}
 	
 	/**
-	* Čuva trenutno stanje igre na disk koristeći serijalizaciju Java.
+	* Kopira vrijednosti pločica u dato polje, bez alokacije.
+	* Element dst[x][y] dobija vrijednost ćelije (x, y), isto kao kod getBoard().
+	*
+	* @param dst polje dimenzija najmanje getSize() x getSize() u koje se upisuje tablica
+	*/
+	public void getBoard(int[][] dst) {
+	   for (int y =   0; y < size; y++) {
+	       for (int x =   0; x < size; x++)
+	           dst[x][y] = getCell(x, y);
+	   }
+	}
+	
+	/**
+	* Vraća vrijednost jedne ćelije (0 za praznu ćeliju).
+	*
+	* @param x x-koordinata ćelije
+	* @param y y-koordinata ćelije
+	* @return vrijednost ćelije
+	*/
+	public int getCell(int x, int y) {
+	   int exponent = GridBoard.getExponent(board, size, x, y);
+	   return exponent ==  0 ?  0 :  1 << exponent;
+	}
+	
+	/**
+	* Vraća eksponent jedne ćelije (0 za praznu ćeliju,  1 za  2,  2 za  4, ...).
+	*
+	* @param x x-koordinata ćelije
+	* @param y y-koordinata ćelije
+	* @return eksponent ćelije
+	*/
+	public int getExponent(int x, int y) {
+	   return GridBoard.getExponent(board, size, x, y);
+	}
+	
+	/**
+	* Čuva trenutno stanje igre u podrazumijevani snimak.
 	*/
 	public void saveGame() {
-	   try (ObjectOutputStream out = new ObjectOutputStream(new FileOutputStream("game_state.ser"))) {
-	       out.writeObject(board);
-	       out.writeInt(score);
+	   saveGame(DEFAULT_SLOT);
+	}
+	
+	/**
+	* Čuva veličinu i tablicu, skor, najviši skor, zastavicu pločice  8 i stanje generatora u snimak sa datim imenom.
+	*
+	* @param name ime snimka (najviše  32 bajta u UTF-8)
+	*/
+	public void saveGame(String name) {
+	   try {
+	       saveSlots().write(name, snapshot());
 	   } catch (IOException e) {
 	       e.printStackTrace();
 	   }
 	}
 	
+	/**
+	* Čuva igru kao saveGame(String), ali upisuje na disk u pozadinskoj niti.
+	* Stanje se uzima odmah, pa se igra može nastaviti prije nego što upis završi.
+	*
+	* @param name ime snimka (najviše  32 bajta u UTF-8)
+	* @return završava se kada je snimak upisan, ili sa greškom ako upis nije uspio
+	*/
+	public CompletableFuture<Void> saveGameAsync(String name) {
+	   SaveSlots.Record record = snapshot();
+	   return CompletableFuture.runAsync(() -> {
+	       try {
+	           saveSlots().write(name, record);
+	       } catch (IOException e) {
+	           throw new UncheckedIOException(e);
+	       }
+	   }, saveExecutor());
+	}
+	
+	/**
+	* Čuva igru u snimak sa datim imenom u datoj datoteci snimaka umjesto u saves.dat,
+	* npr. pod ključem sesije servera.
+	*
+	* @param slots datoteka snimaka
+	* @param name ime snimka (najviše  32 bajta u UTF-8)
+	* @throws IllegalStateException ako su sva mjesta u datoteci zauzeta
+	*/
+	public void saveGame(SaveSlots slots, String name) {
+	   slots.write(name, snapshot());
+	}
+	
+	// Trenutno stanje igre kao zapis snimka
+	private SaveSlots.Record snapshot() {
+	   boolean hasRngState = gameRandom != null;
+	   long rngState = hasRngState ? gameRandom.getState() :  0;
+	   return new SaveSlots.Record(size, board.clone(), score, getHighScore(), hasReached8, hasRngState, rngState);
+	}
+	
     /**
-     * Učitava stanje igre s diska koristeći serijalizaciju Java.
+     * Učitava podrazumijevani snimak.
+     * Ako on ne postoji, jednom se prenosi stari game_state.ser (Java serijalizacija), ako postoji.
      */
     public void loadGame() {
-        try (ObjectInputStream inputStream = new ObjectInputStream(new FileInputStream("game_state.ser"))) {
+        loadGame(DEFAULT_SLOT);
+    }
+
+    /**
+     * Učitava snimak sa datim imenom u ovu igru; veličina tablice se mijenja na veličinu iz snimka.
+     *
+     * @param name ime snimka
+     * @return true ako je snimak pronađen i učitan
+     */
+    public boolean loadGame(String name) {
+        try {
+            return apply(readSave(name));
+        } catch (IOException e) {
+            e.printStackTrace();
+            return false;
+        }
+    }
+
+    /**
+     * Učitava snimak sa datim imenom iz date datoteke snimaka (vidi saveGame(SaveSlots, String)).
+     *
+     * @param slots datoteka snimaka
+     * @param name ime snimka
+     * @return true ako je snimak pronađen i učitan
+     * @throws IOException ako je snimak oštećen
+     */
+    public boolean loadGame(SaveSlots slots, String name) throws IOException {
+        return apply(slots.read(name));
+    }
+
+    /**
+     * Učitava snimak kao loadGame(String), ali čita sa diska u pozadinskoj niti.
+     * Igra nije sinhronizovana, pa se učitano stanje postavlja na datom izvršiocu,
+     * koji mora biti nit na kojoj se igra inače koristi.
+     *
+     * @param name ime snimka
+     * @param applyExecutor izvršilac na kojem se učitano stanje postavlja u igru
+     * @return true ako je snimak pronađen i učitan; završava se sa greškom ako čitanje nije uspjelo
+     */
+    public CompletableFuture<Boolean> loadGameAsync(String name, Executor applyExecutor) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return readSave(name);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }, saveExecutor()).thenApplyAsync(this::apply, applyExecutor);
+    }
+
+    // Čita snimak; podrazumijevani snimak se prenosi iz stare datoteke ako ne postoji
+    private SaveSlots.Record readSave(String name) throws IOException {
+        SaveSlots.Record record = saveSlots().read(name);
+        if (record == null && name.equals(DEFAULT_SLOT))
+            record = migrateLegacySave();
+        return record;
+    }
+
+    // Postavlja stanje iz snimka; vraća false ako snimka nema
+    private boolean apply(SaveSlots.Record record) {
+        if (record == null)
+            return false;
+        if (record.size != size)
+            resize(record.size);
+        System.arraycopy(record.board,  0, board,  0, board.length);
+        legalMoves = legalMoves();
+        score = record.score;
+        hasReached8 = record.hasReached8;
+        highScore = Math.max(highScore, record.highScore);
+        resetStats();
+        if (record.hasRngState && gameRandom != null)
+            gameRandom.setState(record.rngState);
+        history.reset(board, score, hasReached8, rngState());
+        if (journaled())
+            journal.resumeGame(board[0], score, hasReached8, gameRandom.getState());
+        publish();
+        return true;
+    }
+
+    /**
+     * Čita stari game_state.ser, upisuje ga u podrazumijevani snimak i preimenuje staru datoteku,
+     * tako da se prenos radi samo jednom.
+     *
+     * @return preneseni snimak ili null ako stara datoteka ne postoji
+     */
+    private SaveSlots.Record migrateLegacySave() throws IOException {
+        Path legacy = Paths.get(LEGACY_SAVE_FILE);
+        if (!Files.exists(legacy))
+            return null;
+        try (ObjectInputStream inputStream = new ObjectInputStream(Files.newInputStream(legacy))) {
             // Čita polje tablice
             Object loadedObject = inputStream.readObject();
-            if (loadedObject instanceof GameCell[][]) {
-                GameCell[][] loadedBoard = (GameCell[][]) loadedObject;
-                // Čita skor
-                if (inputStream.available() >  0) {
-                    score = inputStream.readInt();
-                } else {
-                    // Rukovodi se slučajem gdje skor nije dostupan
-                }
-                board = loadedBoard;
-            } else {
+            if (!(loadedObject instanceof GameCell[][]))
                 throw new IOException("Nevažeći format datoteke stanja igre");
+            GameCell[][] loadedBoard = (GameCell[][]) loadedObject;
+            // Stari format ne mora sadržati skor
+            int loadedScore =  0;
+            try {
+                loadedScore = inputStream.readInt();
+            } catch (EOFException e) {
+                // Rukovodi se slučajem gdje skor nije dostupan
             }
-        } catch (IOException | ClassNotFoundException e) {
-            e.printStackTrace(); 
+            long packed =  0;
+            for (int y =  0; y <  4; y++) {
+                for (int x =  0; x <  4; x++) {
+                    int exponent = loadedBoard[x][y].value;
+                    if (exponent <  0 || exponent > BitBoard.MAX_EXPONENT)
+                        throw new IOException("Nevažeći format datoteke stanja igre");
+                    packed = BitBoard.setExponent(packed, x, y, exponent);
+                }
+            }
+            // Stari format ne čuva zastavicu pločice  8; ona je postavljena ako postoji pločica  8 ili veća
+            SaveSlots.Record record = new SaveSlots.Record(4, new long[] {packed}, loadedScore, loadedScore,
+                    BitBoard.maxExponent(packed) >=  3, false,  0);
+            saveSlots().write(DEFAULT_SLOT, record);
+            Files.move(legacy, legacy.resolveSibling(LEGACY_SAVE_FILE + ".migrated"), StandardCopyOption.REPLACE_EXISTING);
+            return record;
+        } catch (ClassNotFoundException e) {
+            throw new IOException("Nevažeći format datoteke stanja igre", e);
         }
     }
 }
-
-
@@ -0,0 +1,228 @@
+package Logika;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import Metrike.Metrics;
+import Metrike.PersistenceEvent;
+
+/**
+ * Dnevnik poteza u koji se samo dodaje: početno stanje generatora svake igre,
+ * svaki pokret iz processMove i povremeni ključni kadar sa cijelim stanjem igre.
+ * Zapisi se skupljaju u direktnom baferu i upisuju kroz FileChannel u grupama,
+ * pa potez samo upisuje jedan bajt u memoriju. Grupa se upisuje nakon FLUSH_RECORDS zapisa,
+ * a pozadinska nit upisuje i manju grupu FLUSH_MILLIS nakon prethodnog upisa, pa pad programa
+ * (i kill -9, kada se ne poziva close) gubi najviše posljednju sekundu poteza.
+ * Iz dnevnika se igra može ponoviti potez po potez (vidi JournalReplay),
+ * a ključni kadrovi omogućavaju skok na potez k bez ponavljanja od početka.
+ *
+ * Format (little-endian): zaglavlje MAGIC, VERSION, interval ključnih kadrova (int),
+ * zatim zapisi koji počinju oznakom:
+ * <pre>
+ * TAG_GAME       long stanje generatora prije prve pločice
+ * TAG_RESUME     long tablica, int skor, byte pločica 8, long stanje generatora (igra nastavljena iz snimka)
+ * TAG_MOVE + dir (jedan bajt, dir je smjer iz klase BitBoard)
+ * TAG_KEYFRAME   int broj poteza, long tablica, int skor, byte pločica 8, long stanje generatora
+ * TAG_REWIND     long tablica, int skor, byte pločica 8, long stanje generatora (poništen ili ponovljen potez
+ *                u istoj igri; broj poteza se nastavlja)
+ * </pre>
+ */
+public class MoveJournal implements Closeable {
+    static final int MAGIC =  0x4A323034; // "J204"
+    // Verzija  2: nova pločica se bira kao k-ta prazna ćelija, pa se igre iz verzije  1 ne mogu ponoviti;
+    // verzija  3 dodaje TAG_REWIND, pa se dnevnici verzije  2 i dalje mogu ponoviti
+    static final int VERSION =  3;
+    static final int MIN_VERSION =  2;
+    static final int HEADER_SIZE =  12;
+
+    static final byte TAG_GAME =  1;
+    static final byte TAG_KEYFRAME =  2;
+    static final byte TAG_RESUME =  3;
+    static final byte TAG_REWIND =  4;
+    static final byte TAG_MOVE =  0x10;
+
+    static final int GAME_SIZE =  1 +  8;
+    static final int KEYFRAME_SIZE =  1 +  4 +  8 +  4 +  1 +  8;
+    static final int RESUME_SIZE =  1 +  8 +  4 +  1 +  8;
+    static final int REWIND_SIZE = RESUME_SIZE;
+
+    // Podrazumijevani interval ključnih kadrova i veličina bafera
+    public static final int DEFAULT_KEYFRAME_INTERVAL =  256;
+    private static final int DEFAULT_BUFFER_SIZE =  64 *  1024;
+    // Broj zapisa nakon kojeg se grupa upisuje odmah i najduže vrijeme između dva upisa
+    static final int FLUSH_RECORDS =  1024;
+    static final long FLUSH_MILLIS =  1000;
+
+    // Zajednička pozadinska nit koja povremeno upisuje bafere svih otvorenih dnevnika
+    private static ScheduledExecutorService flusher;
+
+    private static synchronized ScheduledExecutorService flusher() {
+        if (flusher == null) {
+            flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread t = new Thread(r, "journal-flush");
+                t.setDaemon(true);
+                return t;
+            });
+        }
+        return flusher;
+    }
+
+    private final FileChannel channel;
+    private final ByteBuffer buffer;
+    private final int keyframeInterval;
+    // Broj poteza u trenutnoj igri
+    private int moves;
+    // Broj zapisa u baferu od posljednjeg upisa
+    private int pending;
+    private final ScheduledFuture<?> periodicFlush;
+    private boolean closed;
+
+    /**
+     * Otvara novi dnevnik za ovo pokretanje programa u direktoriju journals
+     * i zatvara ga pri gašenju programa.
+     */
+    public static MoveJournal openSession() throws IOException {
+        Path dir = Paths.get("journals");
+        Files.createDirectories(dir);
+        MoveJournal journal = new MoveJournal(dir.resolve("session-" + System.currentTimeMillis() + ".journal"),
+                DEFAULT_KEYFRAME_INTERVAL);
+        Runtime.getRuntime().addShutdownHook(new Thread(journal::close, "journal-close"));
+        return journal;
+    }
+
+    /**
+     * Kreira novi dnevnik (postojeća datoteka se briše).
+     *
+     * @param file datoteka dnevnika
+     * @param keyframeInterval broj poteza između dva ključna kadra
+     */
+    public MoveJournal(Path file, int keyframeInterval) throws IOException {
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+        this.buffer = ByteBuffer.allocateDirect(DEFAULT_BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        this.keyframeInterval = keyframeInterval;
+        buffer.putInt(MAGIC).putInt(VERSION).putInt(keyframeInterval);
+        periodicFlush = flusher().scheduleWithFixedDelay(this::flush, FLUSH_MILLIS, FLUSH_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Bilježi početak nove igre sa stanjem generatora prije prve pločice.
+     */
+    synchronized void startGame(long rngState) {
+        if (closed)
+            return;
+        moves =  0;
+        ensure(GAME_SIZE);
+        buffer.put(TAG_GAME).putLong(rngState);
+        recorded();
+    }
+
+    /**
+     * Bilježi početak igre iz datog stanja, npr. nakon učitavanja snimka.
+     */
+    synchronized void resumeGame(long board, int score, boolean hasReached8, long rngState) {
+        if (closed)
+            return;
+        moves =  0;
+        ensure(RESUME_SIZE);
+        buffer.put(TAG_RESUME).putLong(board).putInt(score).put((byte) (hasReached8 ?  1 :  0)).putLong(rngState);
+        recorded();
+    }
+
+    /**
+     * Bilježi povratak trenutne igre u dato stanje nakon poništavanja ili ponavljanja poteza.
+     * Igra se nastavlja, pa se broj poteza i ključni kadrovi ne vraćaju na početak.
+     */
+    synchronized void rewind(long board, int score, boolean hasReached8, long rngState) {
+        if (closed)
+            return;
+        ensure(REWIND_SIZE);
+        buffer.put(TAG_REWIND).putLong(board).putInt(score).put((byte) (hasReached8 ?  1 :  0)).putLong(rngState);
+        recorded();
+    }
+
+    /**
+     * Bilježi pokret i, svakih keyframeInterval poteza, stanje igre nakon njega.
+     */
+    synchronized void recordMove(int dir, long board, int score, boolean hasReached8, long rngState) {
+        if (closed)
+            return;
+        ensure(1 + KEYFRAME_SIZE);
+        buffer.put((byte) (TAG_MOVE + dir));
+        if (++moves % keyframeInterval ==  0) {
+            buffer.put(TAG_KEYFRAME).putInt(moves).putLong(board).putInt(score)
+                    .put((byte) (hasReached8 ?  1 :  0)).putLong(rngState);
+        }
+        recorded();
+    }
+
+    // Upisuje grupu kada se skupi FLUSH_RECORDS zapisa
+    private void recorded() {
+        if (++pending >= FLUSH_RECORDS)
+            flush();
+    }
+
+    // Prazni bafer na disk kada u njemu nema mjesta za sljedeći zapis
+    private void ensure(int size) {
+        if (buffer.remaining() < size)
+            flush();
+    }
+
+    /**
+     * Upisuje sve zapise iz bafera u datoteku; poziva se i iz pozadinske niti svakih FLUSH_MILLIS.
+     */
+    public synchronized void flush() {
+        if (closed || buffer.position() ==  0)
+            return;
+        pending =  0;
+        PersistenceEvent event = Metrics.jfrActive() ? new PersistenceEvent() : null;
+        if (event != null)
+            event.begin();
+        long start = Metrics.start();
+        buffer.flip();
+        int bytes = buffer.remaining();
+        try {
+            while (buffer.hasRemaining())
+                channel.write(buffer);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        bytes -= buffer.remaining();
+        buffer.clear();
+        Metrics.record(Metrics.JOURNAL, start);
+        Metrics.addBytesWritten(bytes);
+        if (event != null && event.shouldCommit()) {
+            event.operation = "journal";
+            event.bytes = bytes;
+            event.commit();
+        }
+    }
+
+    /**
+     * Upisuje preostale zapise i zatvara datoteku.
+     */
+    @Override
+    public synchronized void close() {
+        if (closed)
+            return;
+        periodicFlush.cancel(false);
+        flush();
+        closed = true;
+        try {
+            channel.close();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+}
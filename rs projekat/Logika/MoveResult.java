@@ -0,0 +1,197 @@
+package Logika;
+
+/**
+ * Detaljan rezultat jednog poteza za prikaz: odakle je i gdje je otišla svaka pločica,
+ * koje su se pločice spojile i gdje se pojavila nova pločica.
+ * Objekat se puni pozivom Logika.processMove(char, MoveResult) i može se koristiti
+ * za svaki potez iznova, pa potez ne alocira memoriju.
+ * Koordinate su iste kao kod Logika.getCell(x, y).
+ */
+public final class MoveResult {
+    // Najveći broj pločica na tablici
+    public static final int MAX_TILES = GridBoard.MAX_SIZE * GridBoard.MAX_SIZE;
+
+    // Pločice prije poteza: početna i krajnja pozicija i eksponent
+    private final int[] fromX = new int[MAX_TILES];
+    private final int[] fromY = new int[MAX_TILES];
+    private final int[] toX = new int[MAX_TILES];
+    private final int[] toY = new int[MAX_TILES];
+    private final int[] exponents = new int[MAX_TILES];
+    private int tiles;
+
+    // Spajanja: pozicija i eksponent nove pločice
+    private final int[] mergeX = new int[MAX_TILES /  2];
+    private final int[] mergeY = new int[MAX_TILES /  2];
+    private final int[] mergeExponents = new int[MAX_TILES /  2];
+    private int merges;
+
+    // Nova pločica, ili spawnX = -1 ako je nema
+    private int spawnX = -1;
+    private int spawnY;
+    private int spawnExponent;
+
+    private boolean changed;
+    private int status;
+
+    /**
+     * Izračunava kretanje pločica za potez u datom smjeru (vidi BitBoard), istim pravilima kao GridBoard.move.
+     */
+    void compute(long[] grid, int size, int dir) {
+        tiles =  0;
+        merges =  0;
+        spawnX = -1;
+        for (int line =  0; line < size; line++) {
+            // Pozicija u liniji na koju je stala posljednja pločica i njen eksponent
+            int target = -1;
+            int lastExponent =  0;
+            boolean lastMerged = false;
+            for (int k =  0; k < size; k++) {
+                int x = GridBoard.cellX(dir, size, line, k);
+                int y = GridBoard.cellY(dir, size, line, k);
+                int e = GridBoard.getExponent(grid, size, x, y);
+                if (e ==  0)
+                    continue;
+                if (target >=  0 && lastExponent == e && !lastMerged && e < BitBoard.MAX_EXPONENT) {
+                    lastMerged = true;
+                    mergeX[merges] = GridBoard.cellX(dir, size, line, target);
+                    mergeY[merges] = GridBoard.cellY(dir, size, line, target);
+                    mergeExponents[merges] = e +  1;
+                    merges++;
+                } else {
+                    target++;
+                    lastExponent = e;
+                    lastMerged = false;
+                }
+                fromX[tiles] = x;
+                fromY[tiles] = y;
+                toX[tiles] = GridBoard.cellX(dir, size, line, target);
+                toY[tiles] = GridBoard.cellY(dir, size, line, target);
+                exponents[tiles] = e;
+                tiles++;
+            }
+        }
+    }
+
+    /**
+     * Dopunjava rezultat nakon poteza.
+     *
+     * @param changed da li je potez promijenio tablicu
+     * @param status rezultat processMove
+     * @param spawnX x-koordinata nove pločice ili -1 ako je nema
+     * @param spawnY y-koordinata nove pločice
+     * @param spawnExponent eksponent nove pločice
+     */
+    void finish(boolean changed, int status, int spawnX, int spawnY, int spawnExponent) {
+        this.changed = changed;
+        this.status = status;
+        this.spawnX = spawnX;
+        this.spawnY = spawnY;
+        this.spawnExponent = spawnExponent;
+    }
+
+    /**
+     * Kopira drugi rezultat u ovaj.
+     */
+    public void copyFrom(MoveResult other) {
+        System.arraycopy(other.fromX,  0, fromX,  0, other.tiles);
+        System.arraycopy(other.fromY,  0, fromY,  0, other.tiles);
+        System.arraycopy(other.toX,  0, toX,  0, other.tiles);
+        System.arraycopy(other.toY,  0, toY,  0, other.tiles);
+        System.arraycopy(other.exponents,  0, exponents,  0, other.tiles);
+        tiles = other.tiles;
+        System.arraycopy(other.mergeX,  0, mergeX,  0, other.merges);
+        System.arraycopy(other.mergeY,  0, mergeY,  0, other.merges);
+        System.arraycopy(other.mergeExponents,  0, mergeExponents,  0, other.merges);
+        merges = other.merges;
+        spawnX = other.spawnX;
+        spawnY = other.spawnY;
+        spawnExponent = other.spawnExponent;
+        changed = other.changed;
+        status = other.status;
+    }
+
+    /**
+     * Vraća broj pločica na tablici prije poteza.
+     */
+    public int getTileCount() {
+        return tiles;
+    }
+
+    public int getFromX(int tile) {
+        return fromX[tile];
+    }
+
+    public int getFromY(int tile) {
+        return fromY[tile];
+    }
+
+    public int getToX(int tile) {
+        return toX[tile];
+    }
+
+    public int getToY(int tile) {
+        return toY[tile];
+    }
+
+    /**
+     * Vraća eksponent pločice prije poteza (prije spajanja).
+     */
+    public int getExponent(int tile) {
+        return exponents[tile];
+    }
+
+    /**
+     * Vraća broj spajanja u potezu.
+     */
+    public int getMergeCount() {
+        return merges;
+    }
+
+    public int getMergeX(int merge) {
+        return mergeX[merge];
+    }
+
+    public int getMergeY(int merge) {
+        return mergeY[merge];
+    }
+
+    /**
+     * Vraća eksponent pločice nastale spajanjem.
+     */
+    public int getMergeExponent(int merge) {
+        return mergeExponents[merge];
+    }
+
+    /**
+     * Vraća true ako se pojavila nova pločica.
+     */
+    public boolean hasSpawn() {
+        return spawnX >=  0;
+    }
+
+    public int getSpawnX() {
+        return spawnX;
+    }
+
+    public int getSpawnY() {
+        return spawnY;
+    }
+
+    public int getSpawnExponent() {
+        return spawnExponent;
+    }
+
+    /**
+     * Vraća true ako je potez promijenio tablicu.
+     */
+    public boolean isChanged() {
+        return changed;
+    }
+
+    /**
+     * Vraća rezultat processMove (0, 1 ili  2).
+     */
+    public int getStatus() {
+        return status;
+    }
+}
@@ -0,0 +1,346 @@
+package Logika;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+import Metrike.Metrics;
+import Metrike.PersistenceEvent;
+
+/**
+ * Datoteka sa mnogo imenovanih snimaka igre, mapirana u memoriju.
+ * Svaki snimak je zapis fiksne veličine od  192 bajta, a mjesto zapisa se nalazi heširanjem imena
+ * (otvoreno adresiranje), pa su čuvanje i učitavanje O(1) bez obzira na broj snimaka.
+ *
+ * Zaglavlje datoteke ( 64 bajta): magični broj, verzija, broj mjesta.
+ * Zapis ( 192 bajta):
+ * <pre>
+ *   0  short  verzija zapisa
+ *   2  byte   zastavice (FLAG_USED, FLAG_REACHED_8, FLAG_RNG)
+ *   3  byte   dužina imena u bajtima
+ *   4  byte[32] ime (UTF-8)
+ *  36  int    skor
+ *  40  int    najviši skor
+ *  44  long   stanje generatora slučajnih brojeva (vidi GameRandom)
+ *  52  byte   veličina tablice
+ *  56  long[16] tablica (vidi GridBoard); koristi se prvih GridBoard.words(veličina)
+ * 184  int    CRC32 bajtova  0..183
+ * </pre>
+ * Datoteka verzije  1 (zapisi od  64 bajta, samo tablica 4x4) se pri otvaranju jednom prevodi u verziju  2.
+ * Obrisano mjesto (delete) se ponovo koristi za nove snimke.
+ * Igra koristi datoteku saves.dat; druga datoteka (npr. za sesije servera) se otvara sa open
+ * i koristi preko Logika.saveGame(SaveSlots, String) i Logika.loadGame(SaveSlots, String).
+ */
+public class SaveSlots {
+    static final int MAGIC =  0x32303438; // "2048"
+    static final int VERSION =  2;
+    static final int HEADER_SIZE =  64;
+    static final int RECORD_SIZE =  192;
+    private static final int BOARD_OFFSET =  56;
+    private static final int CRC_OFFSET =  184;
+    // Veličina zapisa u datoteci verzije  1
+    private static final int V1_RECORD_SIZE =  64;
+    static final int MAX_NAME_BYTES =  32;
+    // Najveći broj mjesta; mapirana datoteka mora biti manja od  2 GB
+    static final int MAX_CAPACITY =  1 <<  23;
+
+    static final int FLAG_USED =  1;
+    static final int FLAG_REACHED_8 =  2;
+    static final int FLAG_RNG =  4;
+
+    /**
+     * Sadržaj jednog snimka.
+     */
+    static class Record {
+        final int size;
+        final long[] board;
+        final int score;
+        final int highScore;
+        final boolean hasReached8;
+        final boolean hasRngState;
+        final long rngState;
+
+        Record(int size, long[] board, int score, int highScore, boolean hasReached8, boolean hasRngState, long rngState) {
+            this.size = size;
+            this.board = board;
+            this.score = score;
+            this.highScore = highScore;
+            this.hasReached8 = hasReached8;
+            this.hasRngState = hasRngState;
+            this.rngState = rngState;
+        }
+    }
+
+    // Mapirana datoteka, ili bafer u memoriji dok se datoteka verzije  1 prevodi (vidi upgrade)
+    private final ByteBuffer buffer;
+    private final int capacity;
+    private final CRC32 crc = new CRC32();
+    private final byte[] nameBuffer = new byte[MAX_NAME_BYTES];
+
+    private SaveSlots(ByteBuffer buffer, int capacity) {
+        this.buffer = buffer;
+        this.capacity = capacity;
+    }
+
+    /**
+     * Otvara datoteku snimaka ili je kreira sa datim brojem mjesta.
+     *
+     * @param file datoteka snimaka
+     * @param capacity broj mjesta za novu datoteku, zaokružuje se naviše na stepen broja  2
+     * @throws IllegalArgumentException ako je capacity veći od MAX_CAPACITY
+     */
+    public static SaveSlots open(Path file, int capacity) throws IOException {
+        int slots;
+        ByteBuffer old;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE)) {
+            if (channel.size() ==  0) {
+                if (capacity > MAX_CAPACITY)
+                    throw new IllegalArgumentException("Broj mjesta može biti najviše " + MAX_CAPACITY);
+                slots = capacity <=  1 ?  1 : Integer.highestOneBit(capacity -  1) <<  1;
+                ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+                header.putInt(MAGIC).putInt(VERSION).putInt(slots).rewind();
+                channel.write(header,  0);
+                // Mapiranje proširuje datoteku nulama, tj. praznim zapisima
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE,  0,
+                        HEADER_SIZE + (long) slots * RECORD_SIZE);
+                buffer.order(ByteOrder.LITTLE_ENDIAN);
+                return new SaveSlots(buffer, slots);
+            }
+
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            channel.read(header,  0);
+            slots = header.getInt(8);
+            boolean v1 = header.getInt(0) == MAGIC && header.getInt(4) ==  1 && Integer.bitCount(slots) ==  1
+                    && slots <= MAX_CAPACITY
+                    && channel.size() >= HEADER_SIZE + (long) slots * V1_RECORD_SIZE;
+            if (!v1) {
+                if (header.getInt(0) != MAGIC || header.getInt(4) != VERSION || Integer.bitCount(slots) !=  1
+                        || channel.size() < HEADER_SIZE + (long) slots * RECORD_SIZE)
+                    throw new IOException("Nevažeći format datoteke snimaka");
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE,  0,
+                        HEADER_SIZE + (long) slots * RECORD_SIZE);
+                buffer.order(ByteOrder.LITTLE_ENDIAN);
+                return new SaveSlots(buffer, slots);
+            }
+            old = ByteBuffer.allocate(slots * V1_RECORD_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            while (old.hasRemaining() && channel.read(old, HEADER_SIZE + old.position()) >  0)
+                ;
+        }
+        // Stara datoteka je zatvorena prije zamjene: otvorena ili mapirana datoteka se na Windowsu ne može zamijeniti
+        return upgrade(file, old, slots);
+    }
+
+    /**
+     * Prevodi datoteku verzije  1 u verziju  2: ispravni snimci se upisuju u novu datoteku
+     * sa istim brojem mjesta, koja zatim zamjenjuje staru.
+     * Nova datoteka se slaže u memoriji i upisuje u privremenu datoteku, koja se zatvara prije zamjene.
+     *
+     * @param old zapisi datoteke verzije  1, bez zaglavlja
+     */
+    private static SaveSlots upgrade(Path file, ByteBuffer old, int slots) throws IOException {
+        ByteBuffer content = ByteBuffer.allocate(HEADER_SIZE + slots * RECORD_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        content.putInt(MAGIC).putInt(VERSION).putInt(slots).rewind();
+        SaveSlots upgraded = new SaveSlots(content, slots);
+        CRC32 crc = new CRC32();
+        for (int slot =  0; slot < slots; slot++) {
+            int base = slot * V1_RECORD_SIZE;
+            int flags = old.get(base +  2);
+            if ((flags & FLAG_USED) ==  0)
+                continue;
+            crc.reset();
+            crc.update(old.array(), base,  60);
+            if (old.getShort(base) !=  1 || old.getInt(base +  60) != (int) crc.getValue())
+                continue; // oštećen snimak se ne prenosi
+            String name = new String(old.array(), base +  4, old.get(base +  3), StandardCharsets.UTF_8);
+            upgraded.write(name, new Record(4, new long[] {old.getLong(base +  36)}, old.getInt(base +  44),
+                    old.getInt(base +  48), (flags & FLAG_REACHED_8) !=  0, (flags & FLAG_RNG) !=  0,
+                    old.getLong(base +  52)));
+        }
+
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            while (content.hasRemaining())
+                channel.write(content);
+            channel.force(true);
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+        return open(file, slots);
+    }
+
+    /**
+     * Čuva snimak pod datim imenom, preko postojećeg snimka sa istim imenom.
+     *
+     * @throws IllegalArgumentException ako je ime duže od  32 bajta
+     * @throws IllegalStateException ako su sva mjesta zauzeta
+     */
+    synchronized void write(String name, Record record) {
+        PersistenceEvent event = Metrics.jfrActive() ? new PersistenceEvent() : null;
+        if (event != null)
+            event.begin();
+        long start = Metrics.start();
+        int length = encodeName(name);
+        int slot = find(length, true);
+        if (slot <  0)
+            throw new IllegalStateException("Nema slobodnih mjesta za snimke");
+
+        int base = offset(slot);
+        int flags = FLAG_USED | (record.hasReached8 ? FLAG_REACHED_8 :  0) | (record.hasRngState ? FLAG_RNG :  0);
+        buffer.putShort(base, (short) VERSION);
+        buffer.put(base +  2, (byte) flags);
+        buffer.put(base +  3, (byte) length);
+        for (int i =  0; i < MAX_NAME_BYTES; i++)
+            buffer.put(base +  4 + i, i < length ? nameBuffer[i] :  0);
+        buffer.putInt(base +  36, record.score);
+        buffer.putInt(base +  40, record.highScore);
+        buffer.putLong(base +  44, record.rngState);
+        buffer.put(base +  52, (byte) record.size);
+        for (int i =  0; i < GridBoard.words(GridBoard.MAX_SIZE); i++)
+            buffer.putLong(base + BOARD_OFFSET +  8 * i, i < record.board.length ? record.board[i] :  0);
+        buffer.putInt(base + CRC_OFFSET, checksum(base));
+        force(slot);
+        Metrics.record(Metrics.SAVE, start);
+        Metrics.addBytesWritten(RECORD_SIZE);
+        if (event != null && event.shouldCommit()) {
+            event.operation = "save";
+            event.bytes = RECORD_SIZE;
+            event.commit();
+        }
+    }
+
+    /**
+     * Učitava snimak sa datim imenom.
+     *
+     * @return snimak ili null ako ne postoji
+     * @throws IOException ako snimak ne prolazi provjeru CRC32
+     */
+    synchronized Record read(String name) throws IOException {
+        PersistenceEvent event = Metrics.jfrActive() ? new PersistenceEvent() : null;
+        if (event != null)
+            event.begin();
+        long start = Metrics.start();
+        int slot = find(encodeName(name), false);
+        if (slot <  0)
+            return null;
+        int base = offset(slot);
+        int size = buffer.get(base +  52);
+        if (buffer.getShort(base) != VERSION || buffer.getInt(base + CRC_OFFSET) != checksum(base)
+                || size < GridBoard.MIN_SIZE || size > GridBoard.MAX_SIZE)
+            throw new IOException("Oštećen snimak: " + name);
+        int flags = buffer.get(base +  2);
+        long[] board = new long[GridBoard.words(size)];
+        for (int i =  0; i < board.length; i++)
+            board[i] = buffer.getLong(base + BOARD_OFFSET +  8 * i);
+        Record record = new Record(size, board, buffer.getInt(base +  36), buffer.getInt(base +  40),
+                (flags & FLAG_REACHED_8) !=  0, (flags & FLAG_RNG) !=  0, buffer.getLong(base +  44));
+        Metrics.record(Metrics.LOAD, start);
+        if (event != null && event.shouldCommit()) {
+            event.operation = "load";
+            event.bytes = RECORD_SIZE;
+            event.commit();
+        }
+        return record;
+    }
+
+    /**
+     * Briše snimak sa datim imenom i oslobađa njegovo mjesto.
+     * Zapisi iza njega u istom nizu probanja se pomjeraju unazad, pa pretraga ostalih imena
+     * i dalje staje na prvom praznom mjestu, bez oznaka obrisanih zapisa.
+     *
+     * @return false ako snimak ne postoji
+     * @throws IllegalArgumentException ako je ime duže od  32 bajta
+     */
+    public synchronized boolean delete(String name) {
+        int hole = find(encodeName(name), false);
+        if (hole <  0)
+            return false;
+        int mask = capacity -  1;
+        for (int slot = (hole +  1) & mask; slot != hole && (buffer.get(offset(slot) +  2) & FLAG_USED) !=  0;
+                slot = (slot +  1) & mask) {
+            // Zapis se pomjera na prazno mjesto samo ako ono nije prije njegovog početnog mjesta u nizu
+            int home = home(offset(slot));
+            if (((slot - home) & mask) < ((slot - hole) & mask))
+                continue;
+            for (int i =  0; i < RECORD_SIZE; i++)
+                buffer.put(offset(hole) + i, buffer.get(offset(slot) + i));
+            force(hole);
+            hole = slot;
+        }
+        for (int i =  0; i < RECORD_SIZE; i++)
+            buffer.put(offset(hole) + i, (byte)  0);
+        force(hole);
+        return true;
+    }
+
+    private void force(int slot) {
+        if (buffer instanceof MappedByteBuffer)
+            ((MappedByteBuffer) buffer).force(offset(slot), RECORD_SIZE);
+    }
+
+    // Početno mjesto zapisa na datom offsetu, po heš vrijednosti njegovog imena (kao u find)
+    private int home(int base) {
+        int length = buffer.get(base +  3);
+        for (int i =  0; i < length; i++)
+            nameBuffer[i] = buffer.get(base +  4 + i);
+        return hash(length) & (capacity -  1);
+    }
+
+    private int hash(int length) {
+        int hash =  0;
+        for (int i =  0; i < length; i++)
+            hash =  31 * hash + nameBuffer[i];
+        return hash ^ hash >>>  16;
+    }
+
+    // Traži zapis sa imenom iz nameBuffer; ako ga nema, vraća prvo prazno mjesto (kada je forWrite) ili  -1
+    private int find(int length, boolean forWrite) {
+        int hash = hash(length);
+        for (int probe =  0; probe < capacity; probe++) {
+            int slot = (hash + probe) & (capacity -  1);
+            int base = offset(slot);
+            if ((buffer.get(base +  2) & FLAG_USED) ==  0)
+                return forWrite ? slot : -1;
+            if (nameEquals(base, length))
+                return slot;
+        }
+        return -1;
+    }
+
+    private boolean nameEquals(int base, int length) {
+        if (buffer.get(base +  3) != length)
+            return false;
+        for (int i =  0; i < length; i++) {
+            if (buffer.get(base +  4 + i) != nameBuffer[i])
+                return false;
+        }
+        return true;
+    }
+
+    private int encodeName(String name) {
+        byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length ==  0 || bytes.length > MAX_NAME_BYTES)
+            throw new IllegalArgumentException("Ime snimka mora imati od  1 do " + MAX_NAME_BYTES + " bajta");
+        System.arraycopy(bytes,  0, nameBuffer,  0, bytes.length);
+        return bytes.length;
+    }
+
+    private int checksum(int base) {
+        crc.reset();
+        for (int i =  0; i < CRC_OFFSET; i++)
+            crc.update(buffer.get(base + i));
+        return (int) crc.getValue();
+    }
+
+    private static int offset(int slot) {
+        return HEADER_SIZE + slot * RECORD_SIZE;
+    }
+}
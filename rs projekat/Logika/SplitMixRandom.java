@@ -0,0 +1,66 @@
+package Logika;
+
+import java.util.Random;
+
+/**
+ * Brz generator slučajnih brojeva zasnovan na brojaču (SplitMix64): stanje je brojač koji se
+ * pri svakom broju poveća za konstantu, a broj se dobija miješanjem bitova brojača.
+ * Stanje je jedan long, pa se kao kod GameRandom može sačuvati i vratiti.
+ * Početno stanje niza n se računa direktno iz seed-a (vidi streamState), pa simulacija
+ * može dati svakoj igri njen niz i dobiti iste rezultate bez obzira na broj niti.
+ * Nije sinhronizovan; koristi ga samo jedna igra.
+ */
+public class SplitMixRandom extends Random implements StatefulRandom {
+    private static final long serialVersionUID =  1L;
+
+    private static final long GAMMA =  0x9E3779B97F4A7C15L;
+
+    // Brojač; sljedeći broj je mix(state + GAMMA)
+    private long state;
+
+    /**
+     * Kreira generator sa datim seed-om (početnim stanjem).
+     */
+    public SplitMixRandom(long seed) {
+        super(seed);
+    }
+
+    /**
+     * Vraća početno stanje nezavisnog niza sa datim rednim brojem izvedenog iz seed-a.
+     */
+    public static long streamState(long seed, long stream) {
+        return mix(seed + GAMMA * (stream +  1));
+    }
+
+    @Override
+    public void setSeed(long seed) {
+        // Poziva se i iz konstruktora klase Random
+        state = seed;
+    }
+
+    @Override
+    protected int next(int bits) {
+        return (int) (nextLong() >>> (64 - bits));
+    }
+
+    @Override
+    public long nextLong() {
+        return mix(state += GAMMA);
+    }
+
+    @Override
+    public long getState() {
+        return state;
+    }
+
+    @Override
+    public void setState(long state) {
+        this.state = state;
+    }
+
+    private static long mix(long z) {
+        z = (z ^ (z >>>  30)) *  0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>>  27)) *  0x94D049BB133111EBL;
+        return z ^ (z >>>  31);
+    }
+}
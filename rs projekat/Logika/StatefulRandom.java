@@ -0,0 +1,18 @@
+package Logika;
+
+/**
+ * Generator slučajnih brojeva čije se unutrašnje stanje može pročitati i vratiti.
+ * Logika čuva to stanje u istoriji poteza i snimcima, pa poništen ili učitan potez
+ * ponovo daje iste nove pločice.
+ */
+public interface StatefulRandom {
+    /**
+     * Vraća trenutno stanje generatora.
+     */
+    long getState();
+
+    /**
+     * Vraća generator u stanje dobijeno sa getState().
+     */
+    void setState(long state);
+}
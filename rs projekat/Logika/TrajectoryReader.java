@@ -0,0 +1,308 @@
+package Logika;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * Čita datoteku poteza koju piše TrajectoryWriter. Pri otvaranju se čita samo indeks blokova,
+ * a Cursor mapira u memoriju jedan po jedan blok i raspakuje njegove kolone u svoje nizove,
+ * pa veličina datoteke nije ograničena heap-om. Različite niti mogu istovremeno čitati
+ * različite blokove, svaka svojim kursorom (vidi cursor(int, int)).
+ */
+public class TrajectoryReader implements Closeable {
+    // Pokreti u redoslijedu smjerova iz klase BitBoard
+    private static final char[] MOVES = {'u', 'd', 'l', 'r'};
+
+    private final FileChannel channel;
+    private final int size;
+    private final int boardBytes;
+    private final long[] offsets;
+    private final int[] lengths;
+    private final long steps;
+
+    /**
+     * Otvara datoteku i čita indeks blokova.
+     *
+     * @throws IOException ako datoteka nije ispravna ili nije zatvorena (nema indeksa)
+     */
+    public TrajectoryReader(Path file) throws IOException {
+        channel = FileChannel.open(file, StandardOpenOption.READ);
+        try {
+            long fileSize = channel.size();
+            ByteBuffer header = read(0, TrajectoryWriter.HEADER_SIZE);
+            if (fileSize < TrajectoryWriter.HEADER_SIZE + TrajectoryWriter.TRAILER_SIZE
+                    || header.getInt() != TrajectoryWriter.MAGIC || header.getInt() != TrajectoryWriter.VERSION)
+                throw new IOException("Nevažeći format datoteke poteza: " + file);
+            size = header.getInt();
+            GridBoard.checkSize(size);
+            boardBytes = (size * size +  1) /  2;
+
+            ByteBuffer trailer = read(fileSize - TrajectoryWriter.TRAILER_SIZE, TrajectoryWriter.TRAILER_SIZE);
+            long indexOffset = trailer.getLong();
+            int blocks = trailer.getInt();
+            steps = trailer.getLong();
+            if (trailer.getInt() != TrajectoryWriter.MAGIC
+                    || indexOffset + (long) blocks * TrajectoryWriter.INDEX_ENTRY_SIZE + TrajectoryWriter.TRAILER_SIZE != fileSize)
+                throw new IOException("Datoteka poteza nije zatvorena ili je oštećena: " + file);
+
+            ByteBuffer index = read(indexOffset, blocks * TrajectoryWriter.INDEX_ENTRY_SIZE);
+            offsets = new long[blocks];
+            lengths = new int[blocks];
+            long counted =  0;
+            for (int b =  0; b < blocks; b++) {
+                offsets[b] = index.getLong();
+                long entry = index.getLong();
+                lengths[b] = (int) (entry >>>  32);
+                counted += (int) entry;
+            }
+            if (counted != steps)
+                throw new IOException("Indeks datoteke poteza je oštećen: " + file);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    private ByteBuffer read(long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length).order(ByteOrder.LITTLE_ENDIAN);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) <  0)
+                throw new IOException("Neočekivan kraj datoteke poteza");
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    /**
+     * Vraća veličinu tablice igara u datoteci.
+     */
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * Vraća ukupan broj poteza.
+     */
+    public long getStepCount() {
+        return steps;
+    }
+
+    /**
+     * Vraća broj blokova.
+     */
+    public int getBlockCount() {
+        return offsets.length;
+    }
+
+    /**
+     * Vraća kursor kroz sve poteze.
+     */
+    public Cursor cursor() {
+        return cursor(0, offsets.length);
+    }
+
+    /**
+     * Vraća kursor kroz blokove od from do to (bez to), npr. za paralelno čitanje po nitima.
+     */
+    public Cursor cursor(int from, int to) {
+        if (from <  0 || to > offsets.length || from > to)
+            throw new IllegalArgumentException("Nevažeći opseg blokova: " + from + " - " + to);
+        return new Cursor(from, to);
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    /**
+     * Prolazi kroz poteze redom; nije sinhronizovan. Nakon next() getteri vraćaju trenutni potez.
+     * Potezi jedne igre su redom, ali potezi različitih igara mogu biti izmiješani (vidi getGame).
+     */
+    public final class Cursor {
+        private final int end;
+        private int block;
+        private final byte[][] columns = new byte[TrajectoryWriter.COLUMNS][];
+        private final Inflater inflater = new Inflater();
+        // Broj poteza u bloku i pozicija u kolonama
+        private int blockSteps;
+        private int step = -1;
+        // Pozicija sljedećeg varint-a u svakoj koloni
+        private final int[] positions = new int[TrajectoryWriter.COLUMNS];
+
+        private long game;
+        private int move;
+        private int reward;
+        private int spawn;
+
+        private Cursor(int from, int to) {
+            this.block = from;
+            this.end = to;
+            for (int c =  0; c < columns.length; c++)
+                columns[c] = new byte[0];
+        }
+
+        /**
+         * Prelazi na sljedeći potez.
+         *
+         * @return false ako nema više poteza
+         */
+        public boolean next() throws IOException {
+            while (step +  1 >= blockSteps) {
+                if (block == end) {
+                    inflater.end();
+                    return false;
+                }
+                load(block++);
+            }
+            step++;
+            move = columns[TrajectoryWriter.COLUMN_MOVE][step];
+            reward = (int) varint(TrajectoryWriter.COLUMN_REWARD);
+            spawn = (int) varint(TrajectoryWriter.COLUMN_SPAWN);
+            long delta = varint(TrajectoryWriter.COLUMN_GAME);
+            game += (delta >>>  1) ^ -(delta &  1);
+            return true;
+        }
+
+        // Mapira blok i raspakuje sve kolone
+        private void load(int b) throws IOException {
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, offsets[b], lengths[b]);
+            mapped.order(ByteOrder.LITTLE_ENDIAN);
+            blockSteps = mapped.getInt();
+            int position = TrajectoryWriter.BLOCK_HEADER_SIZE;
+            for (int c =  0; c < TrajectoryWriter.COLUMNS; c++) {
+                int raw = mapped.getInt(4 + c *  8);
+                int compressed = mapped.getInt(8 + c *  8);
+                if (columns[c].length < raw)
+                    columns[c] = new byte[Math.max(raw, columns[c].length *  2)];
+                inflater.reset();
+                inflater.setInput(mapped.slice(position, compressed));
+                try {
+                    int done =  0;
+                    while (done < raw && !inflater.finished()) {
+                        int n = inflater.inflate(columns[c], done, raw - done);
+                        if (n ==  0 && (inflater.needsInput() || inflater.needsDictionary()))
+                            break;
+                        done += n;
+                    }
+                    if (done != raw)
+                        throw new IOException("Oštećen blok " + b + " datoteke poteza");
+                } catch (DataFormatException e) {
+                    throw new IOException("Oštećen blok " + b + " datoteke poteza", e);
+                }
+                position += compressed;
+            }
+            step = -1;
+            Arrays.fill(positions,  0);
+            game =  0;
+        }
+
+        private long varint(int column) {
+            byte[] bytes = columns[column];
+            int position = positions[column];
+            long value =  0;
+            for (int shift =  0; ; shift +=  7) {
+                byte b = bytes[position++];
+                value |= (long) (b &  0x7F) << shift;
+                if (b >=  0)
+                    break;
+            }
+            positions[column] = position;
+            return value;
+        }
+
+        /**
+         * Vraća redni broj igre trenutnog poteza.
+         */
+        public long getGame() {
+            return game;
+        }
+
+        /**
+         * Vraća da li je ovo prvi potez igre.
+         */
+        public boolean isGameStart() {
+            return (move &  0x10) !=  0;
+        }
+
+        /**
+         * Upisuje u dst tablicu prije poteza, spakovanu kao u GridBoard.
+         *
+         * @param dst niz dužine najmanje GridBoard.words(getSize())
+         */
+        public void getBoard(long[] dst) {
+            Arrays.fill(dst,  0, GridBoard.words(size),  0);
+            byte[] boards = columns[TrajectoryWriter.COLUMN_BOARD];
+            int start = step * boardBytes;
+            for (int i =  0; i < boardBytes; i++)
+                dst[i >>>  3] |= (boards[start + i] &  0xFFL) << ((i &  7) <<  3);
+        }
+
+        /**
+         * Vraća tablicu 4x4 prije poteza kao jedan long (vidi BitBoard).
+         *
+         * @throws IllegalStateException ako tablica nije 4x4
+         */
+        public long getPackedBoard() {
+            if (size !=  4)
+                throw new IllegalStateException("Tablica nije 4x4");
+            byte[] boards = columns[TrajectoryWriter.COLUMN_BOARD];
+            int start = step *  8;
+            long board =  0;
+            for (int i =  0; i <  8; i++)
+                board |= (boards[start + i] &  0xFFL) << (i <<  3);
+            return board;
+        }
+
+        /**
+         * Vraća smjer poteza (vidi BitBoard).
+         */
+        public int getDirection() {
+            return move &  3;
+        }
+
+        /**
+         * Vraća potez kao znak ('u', 'd', 'l' ili 'r').
+         */
+        public char getMove() {
+            return MOVES[move &  3];
+        }
+
+        /**
+         * Vraća status nakon poteza kao processMove:  0 igra traje,  1 dostignuta pločica  2048,  2 kraj igre.
+         */
+        public int getStatus() {
+            return (move >>>  2) &  3;
+        }
+
+        /**
+         * Vraća skor poteza.
+         */
+        public int getReward() {
+            return reward;
+        }
+
+        /**
+         * Vraća indeks nove pločice (x + size * y) ili -1 ako je nema.
+         */
+        public int getSpawnCell() {
+            return spawn ==  0 ? -1 : (spawn -  1) >>>  1;
+        }
+
+        /**
+         * Vraća eksponent nove pločice ili  0 ako je nema.
+         */
+        public int getSpawnExponent() {
+            return spawn ==  0 ?  0 : ((spawn -  1) &  1) +  1;
+        }
+    }
+}
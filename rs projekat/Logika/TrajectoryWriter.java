@@ -0,0 +1,375 @@
+package Logika;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.zip.Deflater;
+
+import Metrike.Metrics;
+
+/**
+ * Izvoz poteza igara (tablica, pokret, skor poteza, nova pločica) za učenje strategija,
+ * u kolonskom binarnom formatu koji čita TrajectoryReader.
+ *
+ * Svaka igra (nit) piše kroz svoj Recorder, koji poteze slaže u blok kolona u memoriji.
+ * Pun blok se bez zaključavanja predaje niti za upis (ConcurrentLinkedQueue), koja svaku kolonu
+ * komprimuje i dodaje blok na kraj datoteke; ispražnjeni blokovi se vraćaju recorder-ima.
+ * Ako upis zaostaje za MAX_PENDING blokova, recorder čeka, pa memorija ostaje ograničena.
+ *
+ * Format (little-endian): zaglavlje MAGIC, VERSION, veličina tablice (int, int, int, int),
+ * zatim blokovi, indeks blokova i na kraju TRAILER_SIZE bajtova: pozicija indeksa (long),
+ * broj blokova (int), broj poteza (long) i MAGIC (int). Blok počinje brojem poteza (int) i
+ * za svaku kolonu dužinom prije i poslije kompresije (int, int), a zatim slijede komprimovane kolone:
+ * <pre>
+ * COLUMN_BOARD   tablica prije poteza, (size * size + 1) / 2 bajtova sa po dvije ćelije (nibl kao u GridBoard)
+ * COLUMN_MOVE    bajt: smjer (bitovi 0-1), status kao processMove (bitovi 2-3), početak igre (bit 4)
+ * COLUMN_REWARD  varint: skor poteza
+ * COLUMN_SPAWN   varint:  0 bez nove pločice, inače 1 + (ćelija * 2 + eksponent - 1)
+ * COLUMN_GAME    varint: zigzag razlika rednog broja igre od prethodnog poteza u bloku
+ * </pre>
+ * Indeks za svaki blok čuva poziciju (long), dužinu (int) i broj poteza (int).
+ */
+public class TrajectoryWriter implements Closeable {
+    static final int MAGIC =  0x544A5231; // "TJR1"
+    static final int VERSION =  1;
+    static final int HEADER_SIZE =  16;
+    static final int TRAILER_SIZE =  24;
+    static final int INDEX_ENTRY_SIZE =  16;
+
+    static final int COLUMN_BOARD =  0;
+    static final int COLUMN_MOVE =  1;
+    static final int COLUMN_REWARD =  2;
+    static final int COLUMN_SPAWN =  3;
+    static final int COLUMN_GAME =  4;
+    static final int COLUMNS =  5;
+    static final int BLOCK_HEADER_SIZE =  4 + COLUMNS *  8;
+
+    // Broj poteza u bloku
+    public static final int BLOCK_STEPS =  1 <<  16;
+    // Najveći broj punih blokova koji čekaju na upis
+    private static final int MAX_PENDING =  16;
+
+    private final FileChannel channel;
+    private final int size;
+    private final int boardBytes;
+    private final Thread writer;
+    private final ConcurrentLinkedQueue<Block> full = new ConcurrentLinkedQueue<>();
+    private final ConcurrentLinkedQueue<Block> free = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger pending = new AtomicInteger();
+    private final AtomicLong nextGame = new AtomicLong();
+    private volatile boolean closing;
+    private volatile IOException failure;
+
+    // Koristi samo nit za upis
+    private long position = HEADER_SIZE;
+    private long steps;
+    private long[] index = new long[64];
+    private int blocks;
+    private final Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+    private byte[] compressed = new byte[1024];
+    private ByteBuffer out = ByteBuffer.allocateDirect(1 <<  20).order(ByteOrder.LITTLE_ENDIAN);
+
+    /**
+     * Kreira novu datoteku (postojeća se briše) i pokreće nit za upis.
+     *
+     * @param file datoteka
+     * @param size veličina tablice svih igara u datoteci
+     */
+    public TrajectoryWriter(Path file, int size) throws IOException {
+        GridBoard.checkSize(size);
+        this.size = size;
+        this.boardBytes = (size * size +  1) /  2;
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        header.putInt(MAGIC).putInt(VERSION).putInt(size).putInt(0).flip();
+        channel.write(header,  0);
+        writer = new Thread(this::writeLoop, "trajectory-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * Vraća veličinu tablice igara u datoteci.
+     */
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * Kreira recorder za jednu nit; poteze iz processMove mu predaje Logika (vidi Logika.setTrajectory).
+     */
+    public Recorder recorder() {
+        return new Recorder();
+    }
+
+    /**
+     * Bilježi poteze jedne niti u blok i predaje pune blokove niti za upis. Nije sinhronizovan.
+     */
+    public final class Recorder {
+        private Block block;
+        private long game = -1;
+        private boolean gameStart;
+
+        private Recorder() {
+        }
+
+        /**
+         * Vraća veličinu tablice izvoza.
+         */
+        public int getSize() {
+            return size;
+        }
+
+        /**
+         * Počinje novu igru sa sljedećim slobodnim rednim brojem; poziva ga Logika.startGame.
+         */
+        public void startGame() {
+            startGame(nextGame.getAndIncrement());
+        }
+
+        /**
+         * Počinje novu igru sa datim rednim brojem (npr. indeks igre u simulaciji);
+         * poziv prije prvog poteza zamjenjuje broj iz startGame().
+         */
+        public void startGame(long game) {
+            this.game = game;
+            gameStart = true;
+        }
+
+        /**
+         * Bilježi potez koji je promijenio tablicu.
+         *
+         * @param board tablica prije poteza
+         * @param dir smjer iz klase BitBoard
+         * @param reward skor poteza
+         * @param spawnCell indeks nove pločice (x + size * y) ili -1 ako je nema
+         * @param spawnExponent eksponent nove pločice
+         * @param status status kao processMove
+         */
+        public void record(long[] board, int dir, int reward, int spawnCell, int spawnExponent, int status) {
+            if (game <  0)
+                throw new IllegalStateException("Igra nije započeta (startGame)");
+            if (block == null)
+                block = take();
+            block.add(board, dir | (status <<  2) | (gameStart ?  0x10 :  0), reward,
+                    spawnCell <  0 ?  0 :  1 + spawnCell *  2 + spawnExponent -  1, game);
+            gameStart = false;
+            if (block.steps == BLOCK_STEPS)
+                flush();
+        }
+
+        /**
+         * Predaje započeti blok na upis; poziva se kada nit završi sa igrama.
+         */
+        public void flush() {
+            if (block != null && block.steps >  0)
+                hand(block);
+            block = null;
+        }
+    }
+
+    // Uzima prazan blok; čeka ako upis zaostaje
+    private Block take() {
+        while (pending.get() >= MAX_PENDING && failure == null)
+            LockSupport.parkNanos(100_000);
+        if (failure != null)
+            throw new IllegalStateException("Upis poteza nije uspio", failure);
+        Block block = free.poll();
+        return block != null ? block : new Block(boardBytes);
+    }
+
+    // Predaje pun blok niti za upis
+    private void hand(Block block) {
+        if (closing)
+            throw new IllegalStateException("Izvoz poteza je zatvoren");
+        pending.incrementAndGet();
+        full.add(block);
+        LockSupport.unpark(writer);
+    }
+
+    private void writeLoop() {
+        while (true) {
+            Block block = full.poll();
+            if (block == null) {
+                if (closing && full.isEmpty())
+                    return;
+                LockSupport.park(this);
+                continue;
+            }
+            try {
+                if (failure == null)
+                    write(block);
+            } catch (IOException e) {
+                failure = e;
+            }
+            block.clear();
+            free.add(block);
+            pending.decrementAndGet();
+        }
+    }
+
+    // Komprimuje kolone bloka i dodaje blok na kraj datoteke
+    private void write(Block block) throws IOException {
+        out.clear();
+        out.putInt(block.steps);
+        out.position(BLOCK_HEADER_SIZE);
+        for (int c =  0; c < COLUMNS; c++) {
+            Column column = block.columns[c];
+            int length = compress(column.bytes, column.length);
+            ensureOut(length);
+            out.put(compressed,  0, length);
+            out.putInt(4 + c *  8, column.length);
+            out.putInt(8 + c *  8, length);
+        }
+        out.flip();
+        int length = out.remaining();
+        long start = position;
+        while (out.hasRemaining())
+            position += channel.write(out, position);
+        Metrics.addBytesWritten(length);
+
+        if (blocks *  2 == index.length)
+            index = Arrays.copyOf(index, index.length *  2);
+        index[2 * blocks] = start;
+        index[2 * blocks +  1] = ((long) length <<  32) | block.steps;
+        blocks++;
+        steps += block.steps;
+    }
+
+    private int compress(byte[] bytes, int length) {
+        deflater.reset();
+        deflater.setInput(bytes,  0, length);
+        deflater.finish();
+        int total =  0;
+        while (!deflater.finished()) {
+            if (total == compressed.length)
+                compressed = Arrays.copyOf(compressed, compressed.length *  2);
+            total += deflater.deflate(compressed, total, compressed.length - total);
+        }
+        return total;
+    }
+
+    private void ensureOut(int length) {
+        if (out.remaining() >= length)
+            return;
+        ByteBuffer bigger = ByteBuffer.allocateDirect(Math.max(out.capacity() *  2, out.position() + length))
+                .order(ByteOrder.LITTLE_ENDIAN);
+        out.flip();
+        bigger.put(out);
+        out = bigger;
+    }
+
+    /**
+     * Vraća broj upisanih poteza; tačan je nakon close().
+     */
+    public long getSteps() {
+        return steps;
+    }
+
+    /**
+     * Čeka da se upišu svi predati blokovi i upisuje indeks; recorder-i moraju prethodno pozvati flush().
+     *
+     * @throws IOException ako upis nekog bloka nije uspio
+     */
+    @Override
+    public void close() throws IOException {
+        if (closing)
+            return;
+        closing = true;
+        LockSupport.unpark(writer);
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Prekinuto čekanje upisa", e);
+        }
+        deflater.end();
+        try {
+            if (failure != null)
+                throw failure;
+            ByteBuffer footer = ByteBuffer.allocate(blocks * INDEX_ENTRY_SIZE + TRAILER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            for (int b =  0; b < blocks; b++)
+                footer.putLong(index[2 * b]).putLong(index[2 * b +  1]);
+            footer.putLong(position).putInt(blocks).putLong(steps).putInt(MAGIC).flip();
+            while (footer.hasRemaining())
+                position += channel.write(footer, position);
+            channel.force(true);
+        } finally {
+            channel.close();
+        }
+    }
+
+    // Kolone jednog bloka
+    private static final class Block {
+        final Column[] columns = new Column[COLUMNS];
+        final int boardBytes;
+        int steps;
+        long lastGame;
+
+        Block(int boardBytes) {
+            this.boardBytes = boardBytes;
+            columns[COLUMN_BOARD] = new Column(BLOCK_STEPS * boardBytes);
+            columns[COLUMN_MOVE] = new Column(BLOCK_STEPS);
+            columns[COLUMN_REWARD] = new Column(BLOCK_STEPS *  3);
+            columns[COLUMN_SPAWN] = new Column(BLOCK_STEPS *  2);
+            columns[COLUMN_GAME] = new Column(BLOCK_STEPS);
+        }
+
+        void add(long[] board, int move, int reward, int spawn, long game) {
+            Column boards = columns[COLUMN_BOARD];
+            boards.ensure(boardBytes);
+            for (int i =  0; i < boardBytes; i++)
+                boards.bytes[boards.length++] = (byte) (board[i >>>  3] >>> ((i &  7) <<  3));
+            Column moves = columns[COLUMN_MOVE];
+            moves.ensure(1);
+            moves.bytes[moves.length++] = (byte) move;
+            columns[COLUMN_REWARD].putVarint(reward);
+            columns[COLUMN_SPAWN].putVarint(spawn);
+            long delta = game - lastGame;
+            columns[COLUMN_GAME].putVarint((delta <<  1) ^ (delta >>  63));
+            lastGame = game;
+            steps++;
+        }
+
+        void clear() {
+            for (Column column : columns)
+                column.length =  0;
+            steps =  0;
+            lastGame =  0;
+        }
+    }
+
+    // Niz bajtova koji raste
+    private static final class Column {
+        byte[] bytes;
+        int length;
+
+        Column(int capacity) {
+            bytes = new byte[capacity];
+        }
+
+        void ensure(int extra) {
+            if (length + extra > bytes.length)
+                bytes = Arrays.copyOf(bytes, Math.max(bytes.length *  2, length + extra));
+        }
+
+        void putVarint(long value) {
+            ensure(10);
+            while ((value & ~0x7FL) !=  0) {
+                bytes[length++] = (byte) ((value &  0x7F) |  0x80);
+                value >>>=  7;
+            }
+            bytes[length++] = (byte) value;
+        }
+    }
+}
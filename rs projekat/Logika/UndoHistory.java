@@ -0,0 +1,112 @@
+package Logika;
+
+/**
+ * Istorija stanja igre za poništavanje i ponavljanje poteza.
+ * Stanja (tablica, skor, zastavica pločice  8 i stanje generatora) se čuvaju u kružnom baferu
+ * fiksne veličine u primitivnim nizovima, pa je svaki korak O(1) i ne alocira memoriju.
+ * Tablica zauzima words long-ova (vidi GridBoard), uzastopno za svako stanje.
+ * Kada se bafer napuni, najstarije stanje se prepisuje.
+ */
+class UndoHistory {
+    private final long[] boards;
+    private final int words;
+    private final int[] scores;
+    private final boolean[] reached8;
+    private final long[] rngStates;
+    // Indeks trenutnog stanja
+    private int cursor;
+    // Broj stanja prije i poslije trenutnog
+    private int undoCount;
+    private int redoCount;
+
+    /**
+     * @param capacity najveći broj sačuvanih stanja (uključujući trenutno)
+     * @param words broj long-ova jedne tablice
+     */
+    UndoHistory(int capacity, int words) {
+        this.words = words;
+        boards = new long[capacity * words];
+        scores = new int[capacity];
+        reached8 = new boolean[capacity];
+        rngStates = new long[capacity];
+    }
+
+    /**
+     * Briše istoriju i pamti dato stanje kao trenutno.
+     */
+    void reset(long[] board, int score, boolean hasReached8, long rngState) {
+        undoCount =  0;
+        redoCount =  0;
+        store(board, score, hasReached8, rngState);
+    }
+
+    /**
+     * Dodaje novo trenutno stanje nakon poteza; stanja za ponavljanje se brišu.
+     */
+    void push(long[] board, int score, boolean hasReached8, long rngState) {
+        cursor = (cursor +  1) % scores.length;
+        undoCount = Math.min(undoCount +  1, scores.length -  1);
+        redoCount =  0;
+        store(board, score, hasReached8, rngState);
+    }
+
+    private void store(long[] board, int score, boolean hasReached8, long rngState) {
+        System.arraycopy(board,  0, boards, cursor * words, words);
+        scores[cursor] = score;
+        reached8[cursor] = hasReached8;
+        rngStates[cursor] = rngState;
+    }
+
+    /**
+     * Vraća se jedno stanje unazad.
+     *
+     * @return false ako nema stanja za poništavanje
+     */
+    boolean undo() {
+        if (undoCount ==  0)
+            return false;
+        cursor = (cursor - 1 + scores.length) % scores.length;
+        undoCount--;
+        redoCount++;
+        return true;
+    }
+
+    /**
+     * Ide jedno stanje unaprijed.
+     *
+     * @return false ako nema stanja za ponavljanje
+     */
+    boolean redo() {
+        if (redoCount ==  0)
+            return false;
+        cursor = (cursor +  1) % scores.length;
+        redoCount--;
+        undoCount++;
+        return true;
+    }
+
+    boolean canUndo() {
+        return undoCount >  0;
+    }
+
+    boolean canRedo() {
+        return redoCount >  0;
+    }
+
+    // Trenutno stanje; tablica se kopira u dst
+    void board(long[] dst) {
+        System.arraycopy(boards, cursor * words, dst,  0, words);
+    }
+
+    int score() {
+        return scores[cursor];
+    }
+
+    boolean hasReached8() {
+        return reached8[cursor];
+    }
+
+    long rngState() {
+        return rngStates[cursor];
+    }
+}
@@ -1,9 +1,174 @@
 import GUI.GUI;
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.Arrays;
+
 import Konzola.CUI;
+import Logika.TrajectoryWriter;
+import Konzola.ScriptedCUI;
+import Metrike.Metrics;
+import Metrike.Startup;
+import Server.GameServer;
+import Server.LoadGenerator;
+import Simulacija.MovePolicy;
+import Simulacija.Simulacija;
+import Solver.TDLearner;
+import Solver.TablebaseGenerator;
 
 public class Main {
-    public static void main(String[] args) {
+    public static void main(String[] args) throws InterruptedException, IOException {
+        Startup.begin();
     	//biramo konzolu(CUI) ili vizuelni korisnicki interfejs(GUI)
-        GUI.startGame();
+    	//sa argumentom --headless se igre simuliraju bez prozora, npr.
+    	//  --headless --games=10000 --policy=corner --threads=8 --seed=42
+    	//(uz --metrics se na kraju ispisuju i mjerenja poteza, vidi Metrics,
+    	//a uz --export=datoteka se svi potezi izvoze za učenje strategija, vidi TrajectoryWriter)
+    	//a sa argumentom --size=N se igra na tablici NxN (od 3 do 16)
+    	//sa argumentom --script=datoteka (ili --script=- za standardni ulaz) se pokreti čitaju iz skripte
+    	//bez interakcije (vidi ScriptedCUI), uz --size, --seed i --print=N (tablica svakih N poteza)
+    	//--tablebase pravi tablicu optimalnih poteza za tablicu 3x3 (vidi TablebaseGenerator)
+    	//--train uči mrežu n-torki za automatsku igru na tablici 4x4 (vidi TDLearner), npr.
+    	//  --train --games=200000 --threads=8 --alpha=0.1
+    	//--watch otvara prozor u kojem automatski igrač igra mnogo igara odjednom (vidi SpectatorGrid), npr.
+    	//  --watch --games=64 --policy=corner --threads=2 (uz --size i --seed; razmak pauzira igre)
+    	//--server pokreće server za igre preko mreže (vidi GameServer), a --load klijent za opterećenje servera
+        if (args.length >  0 && args[0].equals("--headless")) {
+            runHeadless(args);
+            return;
+        }
+        if (args.length >  0 && args[0].startsWith("--script=")) {
+            System.exit(runScript(args));
+        }
+        if (args.length >  0 && args[0].equals("--tablebase")) {
+            TablebaseGenerator.main(Arrays.copyOfRange(args,  1, args.length));
+            return;
+        }
+        if (args.length >  0 && args[0].equals("--train")) {
+            TDLearner.main(Arrays.copyOfRange(args,  1, args.length));
+            return;
+        }
+        if (args.length >  0 && args[0].equals("--watch")) {
+            runSpectator(args);
+            return;
+        }
+        if (args.length >  0 && args[0].equals("--server")) {
+            GameServer.main(Arrays.copyOfRange(args,  1, args.length));
+            return;
+        }
+        if (args.length >  0 && args[0].equals("--load")) {
+            LoadGenerator.main(Arrays.copyOfRange(args,  1, args.length));
+            return;
+        }
+        int size =  4;
+        for (String arg : args) {
+            if (arg.startsWith("--size="))
+                size = Integer.parseInt(arg.substring(arg.indexOf('=') +  1));
+            else
+                throw new IllegalArgumentException("Nepoznat argument: " + arg);
+        }
+        GUI.startGame(size);
+    }
+
+    // Izvršava skriptu pokreta i vraća izlazni kod (vidi ScriptedCUI)
+    private static int runScript(String[] args) {
+        String script = args[0].substring(args[0].indexOf('=') +  1);
+        int size =  4;
+        long seed = System.nanoTime();
+        int print =  0;
+        boolean metrics = false;
+        for (int i =  1; i < args.length; i++) {
+            String arg = args[i];
+            String value = arg.substring(arg.indexOf('=') +  1);
+            if (arg.equals("--metrics"))
+                metrics = true;
+            else if (arg.startsWith("--size="))
+                size = Integer.parseInt(value);
+            else if (arg.startsWith("--seed="))
+                seed = Long.parseLong(value);
+            else if (arg.startsWith("--print="))
+                print = Integer.parseInt(value);
+            else
+                throw new IllegalArgumentException("Nepoznat argument: " + arg);
+        }
+        // Kao kod simulacije, mjerenje svakog poteza je podrazumijevano isključeno
+        Metrics.setEnabled(metrics);
+        int exitCode = ScriptedCUI.run(script, size, seed, print);
+        if (metrics)
+            System.out.print(Metrics.snapshot());
+        return exitCode;
+    }
+
+    // Otvara prozor sa mnogo igara automatskog igrača, sa argumentima oblika --ime=vrijednost
+    private static void runSpectator(String[] args) {
+        int games =  64;
+        int size =  4;
+        String policy = "corner";
+        // Jedna jezgra ostaje za crtanje i tastere
+        int threads = Math.max(1, Runtime.getRuntime().availableProcessors() -  1);
+        long seed = System.nanoTime();
+        for (int i =  1; i < args.length; i++) {
+            String arg = args[i];
+            String value = arg.substring(arg.indexOf('=') +  1);
+            if (arg.startsWith("--games="))
+                games = Integer.parseInt(value);
+            else if (arg.startsWith("--size="))
+                size = Integer.parseInt(value);
+            else if (arg.startsWith("--policy="))
+                policy = value;
+            else if (arg.startsWith("--threads="))
+                threads = Integer.parseInt(value);
+            else if (arg.startsWith("--seed="))
+                seed = Long.parseLong(value);
+            else
+                throw new IllegalArgumentException("Nepoznat argument: " + arg);
+        }
+        // Kao kod simulacije, mjerenje svakog poteza bi usporilo igre
+        Metrics.setEnabled(false);
+        GUI.startSpectator(games, size, MovePolicy.forName(policy), threads, seed);
+    }
+
+    // Pokreće simulaciju sa argumentima oblika --ime=vrijednost
+    private static void runHeadless(String[] args) throws InterruptedException, IOException {
+        int games =  1000;
+        String policy = "random";
+        int threads = Runtime.getRuntime().availableProcessors();
+        long seed = System.nanoTime();
+        boolean metrics = false;
+        String export = null;
+        for (int i =  1; i < args.length; i++) {
+            String arg = args[i];
+            String value = arg.substring(arg.indexOf('=') +  1);
+            if (arg.equals("--metrics"))
+                metrics = true;
+            else if (arg.startsWith("--export="))
+                export = value;
+            else if (arg.startsWith("--games="))
+                games = Integer.parseInt(value);
+            else if (arg.startsWith("--policy="))
+                policy = value;
+            else if (arg.startsWith("--threads="))
+                threads = Integer.parseInt(value);
+            else if (arg.startsWith("--seed="))
+                seed = Long.parseLong(value);
+            else
+                throw new IllegalArgumentException("Nepoznat argument: " + arg);
+        }
+        // Mjerenje svakog poteza usporava simulaciju, pa je podrazumijevano isključeno
+        Metrics.setEnabled(metrics);
+        System.out.println("Strategija: " + policy + ", niti: " + threads + ", seed: " + seed);
+        Simulacija simulacija = new Simulacija(MovePolicy.forName(policy), threads, seed);
+        if (export == null) {
+            simulacija.run(games).print();
+        } else {
+            // Broj poteza je tačan tek nakon zatvaranja izvoza
+            TrajectoryWriter trajectory = new TrajectoryWriter(Paths.get(export),  4);
+            try (trajectory) {
+                simulacija.setTrajectory(trajectory);
+                simulacija.run(games).print();
+            }
+            System.out.println("Potezi izvezeni u " + export + " (" + trajectory.getSteps() + " poteza)");
+        }
+        if (metrics)
+            System.out.print(Metrics.snapshot());
     }
 }
@@ -0,0 +1,22 @@
+package Metrike;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * JFR događaj za crtanje jednog okvira u prozoru igre.
+ */
+@Name("game2048.Frame")
+@Label("Okvir")
+@Category("2048")
+@Description("Crtanje jednog okvira tablice i skora")
+public class FrameEvent extends jdk.jfr.Event {
+    @Label("Cijela tablica")
+    @Description("Da li je okvir crtan ispočetka ili su crtane samo promjene")
+    public boolean full;
+
+    @Label("Animacija")
+    public boolean animating;
+}
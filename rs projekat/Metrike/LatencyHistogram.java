@@ -0,0 +1,120 @@
+package Metrike;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Histogram trajanja u nanosekundama sa fiksnim brojem korpi, bez alokacije pri bilježenju.
+ * Vrijednosti manje od  16 su tačne; iznad toga je svaki stepen broja  2 podijeljen na  16 korpi,
+ * pa je greška percentila najviše 1/16 vrijednosti. Može se bilježiti iz više niti istovremeno.
+ */
+public final class LatencyHistogram {
+    private static final int SUB_BITS =  4;
+    private static final int SUB_BUCKETS =  1 << SUB_BITS;
+    private static final int BUCKETS = (64 - SUB_BITS +  1) * SUB_BUCKETS;
+
+    private final String name;
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder sum = new LongAdder();
+    private final AtomicLong max = new AtomicLong();
+
+    /**
+     * @param name ime histograma u izvještaju (vidi Metrics)
+     */
+    public LatencyHistogram(String name) {
+        this.name = name;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    // Korpa za vrijednost: eksponent najvišeg bita i  4 bita ispod njega
+    static int bucket(long value) {
+        if (value < SUB_BUCKETS)
+            return (int) Math.max(value,  0);
+        int exponent =  63 - Long.numberOfLeadingZeros(value);
+        int sub = (int) (value >>> (exponent - SUB_BITS)) & (SUB_BUCKETS -  1);
+        return (exponent - SUB_BITS +  1) * SUB_BUCKETS + sub;
+    }
+
+    // Najmanja vrijednost u korpi
+    static long lowerBound(int bucket) {
+        if (bucket < SUB_BUCKETS)
+            return bucket;
+        int exponent = bucket / SUB_BUCKETS + SUB_BITS -  1;
+        return (long) (SUB_BUCKETS + bucket % SUB_BUCKETS) << (exponent - SUB_BITS);
+    }
+
+    /**
+     * Bilježi jedno trajanje.
+     *
+     * @param nanos trajanje u nanosekundama
+     */
+    public void record(long nanos) {
+        counts.getAndIncrement(bucket(nanos));
+        count.increment();
+        sum.add(nanos);
+        // Najveća vrijednost se rijetko mijenja, pa se CAS pokušava samo kada je veća
+        long current = max.get();
+        while (nanos > current && !max.compareAndSet(current, nanos))
+            current = max.get();
+    }
+
+    public long getCount() {
+        return count.sum();
+    }
+
+    /**
+     * Vraća zbir svih trajanja u nanosekundama.
+     */
+    public long getTotal() {
+        return sum.sum();
+    }
+
+    public long getMax() {
+        return max.get();
+    }
+
+    /**
+     * Vraća prosječno trajanje u nanosekundama, ili  0 ako nema zapisa.
+     */
+    public double getMean() {
+        long n = count.sum();
+        return n ==  0 ?  0 : (double) sum.sum() / n;
+    }
+
+    /**
+     * Vraća trajanje na datom percentilu (gornju granicu korpe, najviše getMax()), ili  0 ako nema zapisa.
+     *
+     * @param p percentil od  0 do  100
+     */
+    public long getPercentile(double p) {
+        long total =  0;
+        for (int i =  0; i < BUCKETS; i++)
+            total += counts.get(i);
+        if (total ==  0)
+            return  0;
+        long target = Math.max(1, (long) Math.ceil(p /  100 * total));
+        long seen =  0;
+        for (int i =  0; i < BUCKETS; i++) {
+            seen += counts.get(i);
+            if (seen >= target)
+                return i +  1 < BUCKETS ? Math.min(lowerBound(i +  1) -  1, max.get()) : max.get();
+        }
+        return max.get();
+    }
+
+    /**
+     * Briše sve zapise; zapisi iz drugih niti tokom brisanja mogu ostati djelimično.
+     */
+    public void reset() {
+        for (int i =  0; i < BUCKETS; i++)
+            counts.set(i,  0);
+        count.reset();
+        sum.reset();
+        max.set(0);
+    }
+}
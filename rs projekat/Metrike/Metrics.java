@@ -0,0 +1,152 @@
+package Metrike;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+
+import jdk.jfr.FlightRecorder;
+
+/**
+ * Mjerenja igre: histogrami trajanja poteza, novih pločica, rada sa diskom i crtanja okvira,
+ * te broj upisanih bajtova. Kada igrač prijavi da igra "kasni", izvještaj pokazuje da li je uzrok
+ * logika, disk ili crtanje.
+ *
+ * Ista mjerenja se šalju i kao JFR događaji (MoveEvent, SpawnEvent, PersistenceEvent, FrameEvent),
+ * koji se kreiraju samo kada JFR radi (npr. -XX:StartFlightRecording ili jcmd JFR.start).
+ * Histogrami se isključuju sa -Dmetrics=false ili setEnabled(false), npr. za simulacije.
+ */
+public final class Metrics {
+    public static final LatencyHistogram MOVE = new LatencyHistogram("potez");
+    public static final LatencyHistogram SPAWN = new LatencyHistogram("nova pločica");
+    public static final LatencyHistogram SAVE = new LatencyHistogram("čuvanje");
+    public static final LatencyHistogram LOAD = new LatencyHistogram("učitavanje");
+    public static final LatencyHistogram LEADERBOARD = new LatencyHistogram("rang lista");
+    public static final LatencyHistogram JOURNAL = new LatencyHistogram("dnevnik");
+    public static final LatencyHistogram FRAME = new LatencyHistogram("okvir");
+    private static final LatencyHistogram[] HISTOGRAMS = {MOVE, SPAWN, SAVE, LOAD, LEADERBOARD, JOURNAL, FRAME};
+
+    private static final LongAdder bytesWritten = new LongAdder();
+    private static volatile boolean enabled = !"false".equals(System.getProperty("metrics"));
+
+    // Posljednje očitavanje brzine (vidi lines())
+    private static long rateNanos = System.nanoTime();
+    private static long rateMoves;
+    private static long rateFrames;
+
+    private Metrics() {
+    }
+
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Uključuje ili isključuje bilježenje u histograme; JFR događaji ne zavise od ovoga.
+     */
+    public static void setEnabled(boolean enabled) {
+        Metrics.enabled = enabled;
+    }
+
+    /**
+     * Vraća da li JFR radi. Događaji se kreiraju samo tada, jer prvo kreiranje događaja
+     * bez JFR-a učitava njegovu infrastrukturu, što traje stotinama milisekundi.
+     */
+    public static boolean jfrActive() {
+        return FlightRecorder.isInitialized();
+    }
+
+    /**
+     * Vraća početak mjerenja za record, ili  0 ako je mjerenje isključeno.
+     */
+    public static long start() {
+        return enabled ? System.nanoTime() :  0;
+    }
+
+    /**
+     * Bilježi trajanje od start() u histogram; ne radi ništa ako je mjerenje bilo isključeno.
+     */
+    public static void record(LatencyHistogram histogram, long start) {
+        if (start !=  0)
+            histogram.record(System.nanoTime() - start);
+    }
+
+    /**
+     * Dodaje bajtove upisane na disk.
+     */
+    public static void addBytesWritten(long bytes) {
+        if (enabled)
+            bytesWritten.add(bytes);
+    }
+
+    public static long getBytesWritten() {
+        return bytesWritten.sum();
+    }
+
+    /**
+     * Vraća izvještaj u redovima: brzina poteza i okvira od prethodnog poziva, upisani bajtovi,
+     * trajanje pokretanja (vidi Startup) i za svaki histogram broj zapisa i trajanja (p50, p99, max) u mikrosekundama.
+     */
+    public static synchronized List<String> lines() {
+        long now = System.nanoTime();
+        long moves = MOVE.getCount();
+        long frames = FRAME.getCount();
+        double seconds = Math.max(1e-9, (now - rateNanos) /  1e9);
+        List<String> lines = new ArrayList<>();
+        lines.add(String.format("poteza/s %.0f  okvira/s %.1f  upisano %d KB%s", (moves - rateMoves) / seconds,
+                (frames - rateFrames) / seconds, getBytesWritten() /  1024, enabled ? "" : " (isključeno)"));
+        rateNanos = now;
+        rateMoves = moves;
+        rateFrames = frames;
+        String startup = Startup.line();
+        if (startup != null)
+            lines.add(startup);
+        lines.add(String.format("%-13s %9s %9s %9s %9s", "", "broj", "p50 µs", "p99 µs", "max µs"));
+        for (LatencyHistogram histogram : HISTOGRAMS) {
+            lines.add(String.format("%-13s %9d %9.1f %9.1f %9.1f", histogram.getName(), histogram.getCount(),
+                    histogram.getPercentile(50) /  1e3, histogram.getPercentile(99) /  1e3, histogram.getMax() /  1e3));
+        }
+        return lines;
+    }
+
+    /**
+     * Vraća izvještaj kao tekst sa vremenom nastanka (vidi lines()).
+     */
+    public static String snapshot() {
+        StringBuilder text = new StringBuilder();
+        text.append("Mjerenja ").append(LocalDateTime.now().format(DateTimeFormatter.ISO_LOCAL_DATE_TIME))
+                .append(System.lineSeparator());
+        for (String line : lines())
+            text.append(line).append(System.lineSeparator());
+        return text.toString();
+    }
+
+    /**
+     * Upisuje izvještaj u novu datoteku metrics-&lt;datum-vrijeme&gt;.txt u datom direktoriju.
+     *
+     * @return putanja upisane datoteke
+     */
+    public static Path export(Path directory) throws IOException {
+        String name = "metrics-" + LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss")) + ".txt";
+        Path file = directory.resolve(name);
+        Files.write(file, snapshot().getBytes(StandardCharsets.UTF_8));
+        return file;
+    }
+
+    /**
+     * Briše sva mjerenja.
+     */
+    public static synchronized void reset() {
+        for (LatencyHistogram histogram : HISTOGRAMS)
+            histogram.reset();
+        bytesWritten.reset();
+        rateNanos = System.nanoTime();
+        rateMoves =  0;
+        rateFrames =  0;
+    }
+}
@@ -0,0 +1,28 @@
+package Metrike;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * JFR događaj za jedan potez (Logika.processMove); trajanje je trajanje poteza.
+ */
+@Name("game2048.Move")
+@Label("Potez")
+@Category("2048")
+@Description("Jedan potez igre, uključujući novu pločicu i istoriju")
+public class MoveEvent extends jdk.jfr.Event {
+    @Label("Smjer")
+    public char direction;
+
+    @Label("Veličina tablice")
+    public int size;
+
+    @Label("Skor")
+    public int score;
+
+    @Label("Status")
+    @Description("0 igra traje, 1 pobjeda, 2 kraj")
+    public int status;
+}
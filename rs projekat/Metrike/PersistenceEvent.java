@@ -0,0 +1,23 @@
+package Metrike;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * JFR događaj za jedan upis ili čitanje sa diska (snimak, rang lista, dnevnik poteza).
+ */
+@Name("game2048.Persistence")
+@Label("Disk")
+@Category("2048")
+@Description("Čuvanje ili učitavanje snimka, upis na rang listu ili pražnjenje dnevnika poteza")
+public class PersistenceEvent extends jdk.jfr.Event {
+    @Label("Operacija")
+    public String operation;
+
+    @Label("Bajtova")
+    @DataAmount
+    public long bytes;
+}
@@ -0,0 +1,21 @@
+package Metrike;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * JFR događaj za dodavanje nove pločice (Logika.addRandomCell).
+ */
+@Name("game2048.Spawn")
+@Label("Nova pločica")
+@Category("2048")
+@Description("Izbor prazne ćelije i vrijednosti nove pločice")
+public class SpawnEvent extends jdk.jfr.Event {
+    @Label("Praznih ćelija")
+    public int emptyCells;
+
+    @Label("Eksponent")
+    public int exponent;
+}
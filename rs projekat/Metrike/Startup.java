@@ -0,0 +1,78 @@
+package Metrike;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Mjerenje pokretanja programa: vrijeme od ulaska u main (begin()) do prvog iscrtanog okvira
+ * sa tablicom, prvog odigranog poteza i učitavanja rang liste i snimaka u pozadini, te vrijeme
+ * od pokretanja JVM-a do main. Svaki događaj se bilježi samo prvi put.
+ * Rezultat je dio izvještaja Metrics (taster M u prozoru, 's' u konzoli).
+ */
+public final class Startup {
+    public static final int FIRST_FRAME =  0;
+    public static final int FIRST_MOVE =  1;
+    public static final int LEADERBOARD =  2;
+    public static final int SAVES =  3;
+    private static final String[] NAMES = {"prvi okvir", "prvi potez", "rang lista", "snimci"};
+
+    // Početak mjerenja (System.nanoTime) i trajanje od pokretanja JVM-a do begin() u milisekundama
+    private static long origin;
+    private static long jvmMillis = -1;
+    // Vrijeme svakog događaja od početka u nanosekundama, ili  0 ako se nije desio
+    private static final AtomicLongArray marks = new AtomicLongArray(NAMES.length);
+
+    private Startup() {
+    }
+
+    /**
+     * Počinje mjerenje; poziva se kao prva naredba u main.
+     */
+    public static synchronized void begin() {
+        origin = System.nanoTime();
+        // Vrijeme pokretanja procesa je poznato samo na nekim sistemima, i to u milisekundama
+        ProcessHandle.current().info().startInstant().ifPresent(
+                start -> jvmMillis = Math.max(0, Duration.between(start, Instant.now()).toMillis()));
+    }
+
+    /**
+     * Bilježi događaj ako je mjerenje počelo i događaj se nije već desio.
+     *
+     * @param event FIRST_FRAME, FIRST_MOVE, LEADERBOARD ili SAVES
+     */
+    public static void mark(int event) {
+        if (marks.get(event) !=  0)
+            return;
+        long start;
+        synchronized (Startup.class) {
+            start = origin;
+        }
+        if (start !=  0)
+            marks.compareAndSet(event,  0, Math.max(1, System.nanoTime() - start));
+    }
+
+    /**
+     * Vraća vrijeme događaja od početka mjerenja u milisekundama, ili -1 ako se nije desio.
+     */
+    public static double getMillis(int event) {
+        long nanos = marks.get(event);
+        return nanos ==  0 ? -1 : nanos /  1e6;
+    }
+
+    /**
+     * Vraća red izvještaja sa svim događajima koji su se desili, ili null ako mjerenje nije počelo.
+     */
+    public static synchronized String line() {
+        if (origin ==  0)
+            return null;
+        StringBuilder line = new StringBuilder("pokretanje ms:");
+        if (jvmMillis >=  0)
+            line.append(" JVM ").append(jvmMillis);
+        for (int e =  0; e < NAMES.length; e++) {
+            if (marks.get(e) !=  0)
+                line.append(String.format("  %s %.0f", NAMES[e], getMillis(e)));
+        }
+        return line.toString();
+    }
+}
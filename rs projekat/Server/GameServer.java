@@ -0,0 +1,347 @@
+package Server;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import Logika.GameSnapshot;
+import Logika.GridBoard;
+import Logika.Leaderboard;
+import Logika.Logika;
+import Logika.SaveSlots;
+import Metrike.Metrics;
+
+/**
+ * Server za mnogo istovremenih igara bez grafičkog interfejsa.
+ * Svaka veza se obrađuje u svojoj virtuelnoj niti (vidi VirtualThreads), a igre su sesije
+ * (vidi SessionStore) koje se mogu nastaviti i sa druge veze.
+ *
+ * Protokol je tekstualni, jedna komanda i jedan odgovor po redu, sa pokretima kao u CUI:
+ * <pre>
+ * new [veličina]   nova igra;            odgovor: session &lt;id&gt; &lt;stanje&gt;
+ * resume &lt;id&gt;      nastavlja sesiju;     odgovor: session &lt;id&gt; &lt;stanje&gt;
+ * u | d | l | r    pokret;               odgovor: state &lt;stanje&gt;
+ * z | x            poništava / ponavlja; odgovor: state &lt;stanje&gt;
+ * state            trenutno stanje;      odgovor: state &lt;stanje&gt;
+ * save             čuva sesiju odmah;    odgovor: saved
+ * rank             mjesto na rang listi; odgovor: rank &lt;mjesto&gt; &lt;broj igara&gt; (mjesto  0 dok igra traje)
+ * watch &lt;id&gt;       stanje druge sesije;  odgovor: state &lt;stanje&gt; (posmatrač ne zaključava sesiju)
+ * stats            mjerenja servera;     odgovor: stats &lt;redovi izvještaja Metrics odvojeni sa ;&gt;
+ * quit             zatvara vezu;         odgovor: bye (sesija ostaje do isteka neaktivnosti)
+ * </pre>
+ * Stanje je "status skor legalni veličina ćelije": status kao processMove (0, 1 ili  2), legalni je
+ * maska smjerova iz getLegalMoves kao heksadecimalna cifra, a ćelije su eksponenti kao heksadecimalne
+ * cifre redom (x, y) = (0, 0), (1, 0), ... Greška se vraća kao "error poruka".
+ * Pokret koji ne mijenja tablicu se ne izvršava i samo vraća stanje.
+ * Stanje se čita iz posljednjeg stanja koje je igra objavila (vidi GameSnapshot), pa posmatrači
+ * ne čekaju igrača ni kada on igra na drugoj vezi; watch ne mijenja sesiju ove veze.
+ */
+public class GameServer implements Closeable {
+    public static final int DEFAULT_PORT =  2048;
+    // Red veza koje čekaju prihvatanje
+    private static final int BACKLOG =  4096;
+
+    private final ServerSocket serverSocket;
+    final SessionStore store;
+    private final Leaderboard leaderboard;
+    private final ExecutorService connections = VirtualThreads.perTaskExecutor("connection");
+    private final AtomicInteger open = new AtomicInteger();
+
+    /**
+     * Otvara server na datom portu.
+     *
+     * @param port port, ili  0 za bilo koji slobodan port
+     * @param slots datoteka snimaka sesija, ili null ako se sesije ne čuvaju
+     * @param leaderboard rang lista za završene igre, ili null ako se rezultati ne čuvaju
+     * @param idleMillis vrijeme neaktivnosti nakon kojeg se sesija sačuva i ukloni iz memorije
+     */
+    public GameServer(int port, SaveSlots slots, Leaderboard leaderboard, long idleMillis) throws IOException {
+        serverSocket = new ServerSocket(port, BACKLOG);
+        this.leaderboard = leaderboard;
+        store = new SessionStore(slots, leaderboard, idleMillis);
+    }
+
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    /**
+     * Vraća broj otvorenih veza.
+     */
+    public int getConnectionCount() {
+        return open.get();
+    }
+
+    /**
+     * Vraća broj sesija u memoriji.
+     */
+    public int getSessionCount() {
+        return store.size();
+    }
+
+    /**
+     * Prihvata veze dok se server ne zatvori.
+     */
+    public void serve() throws IOException {
+        while (true) {
+            Socket socket;
+            try {
+                socket = serverSocket.accept();
+            } catch (SocketException e) {
+                if (serverSocket.isClosed())
+                    return;
+                throw e;
+            }
+            open.incrementAndGet();
+            connections.execute(() -> handle(socket));
+        }
+    }
+
+    /**
+     * Zatvara server, čuva sve sesije i zatvara rang listu.
+     */
+    @Override
+    public void close() throws IOException {
+        serverSocket.close();
+        connections.shutdownNow();
+        store.close();
+        if (leaderboard != null)
+            leaderboard.close();
+    }
+
+    // Obrađuje komande jedne veze
+    private void handle(Socket socket) {
+        try (Socket s = socket;
+             BufferedReader in = new BufferedReader(new InputStreamReader(s.getInputStream(), StandardCharsets.UTF_8));
+             Writer out = new BufferedWriter(new OutputStreamWriter(s.getOutputStream(), StandardCharsets.UTF_8))) {
+            s.setTcpNoDelay(true);
+            Connection connection = new Connection();
+            StringBuilder reply = new StringBuilder(64);
+            String line;
+            while ((line = in.readLine()) != null) {
+                reply.setLength(0);
+                boolean quit = connection.execute(line.trim(), reply);
+                out.append(reply).append('\n');
+                if (quit)
+                    break;
+                // Odgovori na više komandi poslatih odjednom se šalju zajedno
+                if (!in.ready())
+                    out.flush();
+            }
+            out.flush();
+        } catch (IOException e) {
+            // Klijent je prekinuo vezu
+        } finally {
+            open.decrementAndGet();
+        }
+    }
+
+    // Stanje jedne veze: identifikator sesije na koju se odnose komande
+    private class Connection {
+        private String sessionId;
+
+        // Izvršava komandu i upisuje odgovor; vraća true kada treba zatvoriti vezu
+        boolean execute(String line, StringBuilder reply) {
+            try {
+                int space = line.indexOf(' ');
+                String command = space <  0 ? line : line.substring(0, space);
+                String argument = space <  0 ? null : line.substring(space +  1).trim();
+                switch (command) {
+                    case "new":
+                        newGame(argument, reply);
+                        return false;
+                    case "resume":
+                        resume(argument, reply);
+                        return false;
+                    case "u":
+                    case "d":
+                    case "l":
+                    case "r":
+                    case "z":
+                    case "x":
+                    case "state":
+                    case "save":
+                    case "rank":
+                        sessionCommand(command, reply);
+                        return false;
+                    case "watch":
+                        watch(argument, reply);
+                        return false;
+                    case "stats":
+                        reply.append("stats");
+                        for (String metric : Metrics.lines())
+                            reply.append(' ').append(metric.trim().replaceAll(" +", " ")).append(';');
+                        return false;
+                    case "quit":
+                        reply.append("bye");
+                        return true;
+                    default:
+                        reply.append("error Nepoznata komanda: ").append(command);
+                        return false;
+                }
+            } catch (IOException | RuntimeException e) {
+                reply.setLength(0);
+                reply.append("error ").append(e.getMessage());
+                return false;
+            }
+        }
+
+        private void newGame(String argument, StringBuilder reply) {
+            int size = argument == null ?  4 : Integer.parseInt(argument);
+            GridBoard.checkSize(size);
+            Session session = store.create(size);
+            sessionId = session.id;
+            reply.append("session ").append(session.id).append(' ');
+            // Objavljeno stanje se čita bez zaključavanja, i dok čistač drži sesiju
+            appendState(reply, session.game.getSnapshot(),  0);
+        }
+
+        // Stanje sesije bez zaključavanja; sesija mora biti u memoriji (aktivna)
+        private void watch(String id, StringBuilder reply) {
+            if (id == null || !id.matches("[0-9a-f]{16}")) {
+                reply.append("error Nevažeći identifikator sesije");
+                return;
+            }
+            Session session = store.peek(id);
+            if (session == null) {
+                reply.append("error Sesija nije aktivna: ").append(id);
+                return;
+            }
+            reply.append("state ");
+            appendState(reply, session.game.getSnapshot(),  0);
+        }
+
+        private void resume(String id, StringBuilder reply) throws IOException {
+            if (id == null || !id.matches("[0-9a-f]{16}")) {
+                reply.append("error Nevažeći identifikator sesije");
+                return;
+            }
+            Session session = store.acquire(id);
+            if (session == null) {
+                reply.append("error Sesija ne postoji: ").append(id);
+                return;
+            }
+            try {
+                sessionId = id;
+                reply.append("session ").append(id).append(' ');
+                appendState(reply, session.game.getSnapshot(),  0);
+            } finally {
+                session.lock.unlock();
+            }
+        }
+
+        private void sessionCommand(String command, StringBuilder reply) throws IOException {
+            if (sessionId == null) {
+                reply.append("error Nema sesije; pošaljite new ili resume");
+                return;
+            }
+            Session session = store.acquire(sessionId);
+            if (session == null) {
+                reply.append("error Sesija ne postoji: ").append(sessionId);
+                return;
+            }
+            try {
+                Logika game = session.game;
+                int status =  0;
+                switch (command) {
+                    case "z":
+                        game.undo();
+                        break;
+                    case "x":
+                        game.redo();
+                        break;
+                    case "state":
+                        break;
+                    case "save":
+                        reply.append(store.save(session) ? "saved" : "error Server ne čuva sesije");
+                        return;
+                    case "rank":
+                        if (leaderboard == null)
+                            reply.append("error Server ne čuva rang listu");
+                        else
+                            reply.append("rank ").append(game.getRank()).append(' ').append(leaderboard.size());
+                        return;
+                    default:
+                        char move = command.charAt(0);
+                        if (game.isLegal(move))
+                            status = game.processMove(move);
+                        break;
+                }
+                reply.append("state ");
+                appendState(reply, game.getSnapshot(), status);
+            } finally {
+                session.lock.unlock();
+            }
+        }
+    }
+
+    // Upisuje stanje igre u formatu protokola; igra bez legalnih poteza je završena
+    static void appendState(StringBuilder reply, GameSnapshot game, int status) {
+        int legal = game.getLegalMoves();
+        if (legal ==  0)
+            status =  2;
+        int size = game.getSize();
+        reply.append(status).append(' ').append(game.getScore()).append(' ')
+                .append(Character.forDigit(legal,  16)).append(' ').append(size).append(' ');
+        for (int y =  0; y < size; y++) {
+            for (int x =  0; x < size; x++)
+                reply.append(Character.forDigit(game.getExponent(x, y),  16));
+        }
+    }
+
+    /**
+     * Pokreće server. Argumenti oblika --ime=vrijednost:
+     * --port (podrazumijevano  2048), --idle (sekunde neaktivnosti prije čuvanja sesije,  300),
+     * --saves (datoteka snimaka sesija, sessions.dat; none za rad bez čuvanja),
+     * --slots (broj mjesta u novoj datoteci snimaka,  65536) i
+     * --leaderboard (rang lista završenih igara, server-leaderboard.dat; none za rad bez rang liste).
+     */
+    public static void main(String[] args) throws IOException {
+        int port = DEFAULT_PORT;
+        long idleSeconds =  300;
+        String saves = "sessions.dat";
+        int slots =  1 <<  16;
+        String ranks = "server-leaderboard.dat";
+        for (String arg : args) {
+            String value = arg.substring(arg.indexOf('=') +  1);
+            if (arg.startsWith("--port="))
+                port = Integer.parseInt(value);
+            else if (arg.startsWith("--idle="))
+                idleSeconds = Long.parseLong(value);
+            else if (arg.startsWith("--saves="))
+                saves = value;
+            else if (arg.startsWith("--slots="))
+                slots = Integer.parseInt(value);
+            else if (arg.startsWith("--leaderboard="))
+                ranks = value;
+            else
+                throw new IllegalArgumentException("Nepoznat argument: " + arg);
+        }
+        SaveSlots saveSlots = saves.equals("none") ? null : SaveSlots.open(Paths.get(saves), slots);
+        Leaderboard leaderboard = ranks.equals("none") ? null : Leaderboard.open(Paths.get(ranks));
+        GameServer server = new GameServer(port, saveSlots, leaderboard, TimeUnit.SECONDS.toMillis(idleSeconds));
+        // Sesije se čuvaju i kada se server zaustavi
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            try {
+                server.close();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }));
+        System.out.println("Server sluša na portu " + server.getPort()
+                + (VirtualThreads.available() ? " (virtuelne niti)" : " (obične niti)"));
+        server.serve();
+    }
+}
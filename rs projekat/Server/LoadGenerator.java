@@ -0,0 +1,182 @@
+package Server;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import Logika.SplitMixRandom;
+import Metrike.LatencyHistogram;
+
+/**
+ * Klijent za opterećenje servera (vidi GameServer): otvara zadati broj veza, svaka u svojoj
+ * virtuelnoj niti, i na svakoj igra novu igru slučajnim legalnim potezima.
+ * Igranje počinje tek kada su sve veze otvorene, pa su sve sesije istovremeno aktivne.
+ * Ispisuje broj uspješnih sesija, brzinu i raspodjelu vremena odgovora na potez.
+ */
+public class LoadGenerator {
+    // Potezi u redoslijedu smjerova iz klase BitBoard
+    private static final String[] MOVES = {"u", "d", "l", "r"};
+
+    private final String host;
+    private final int port;
+    private final int sessions;
+    private final int moves;
+    private final int size;
+    private final long thinkMillis;
+    private final long seed;
+
+    /**
+     * @param sessions broj istovremenih veza (sesija)
+     * @param moves broj poteza po sesiji (manje ako igra ranije završi)
+     * @param size veličina tablice
+     * @param thinkMillis pauza između poteza jedne sesije u milisekundama
+     * @param seed seed za izbor poteza; sesija i koristi niz i (vidi SplitMixRandom)
+     */
+    public LoadGenerator(String host, int port, int sessions, int moves, int size, long thinkMillis, long seed) {
+        this.host = host;
+        this.port = port;
+        this.sessions = sessions;
+        this.moves = moves;
+        this.size = size;
+        this.thinkMillis = thinkMillis;
+        this.seed = seed;
+    }
+
+    /**
+     * Igra sve sesije i ispisuje rezultate.
+     */
+    public void run() throws InterruptedException {
+        // Vremena odgovora na potez; memorija ne zavisi od broja sesija i poteza
+        LatencyHistogram latencies = new LatencyHistogram("odgovor");
+        AtomicInteger connected = new AtomicInteger();
+        AtomicInteger errors = new AtomicInteger();
+        CountDownLatch ready = new CountDownLatch(sessions);
+
+        ExecutorService executor = VirtualThreads.perTaskExecutor("load");
+        long start = System.nanoTime();
+        for (int i =  0; i < sessions; i++) {
+            int index = i;
+            executor.execute(() -> {
+                boolean counted = false;
+                try (Socket socket = new Socket(host, port);
+                     BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+                     Writer out = new BufferedWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8))) {
+                    socket.setTcpNoDelay(true);
+                    String reply = request(in, out, "new " + size);
+                    connected.incrementAndGet();
+                    ready.countDown();
+                    counted = true;
+                    // Čeka da se otvore sve veze
+                    ready.await();
+
+                    SplitMixRandom random = new SplitMixRandom(SplitMixRandom.streamState(seed, index));
+                    for (int k =  0; k < moves; k++) {
+                        int legal = legalMoves(reply);
+                        if (legal ==  0)
+                            break;
+                        // Slučajan legalan potez
+                        for (int skip = random.nextInt(Integer.bitCount(legal)); skip >  0; skip--)
+                            legal &= legal -  1;
+                        long sent = System.nanoTime();
+                        reply = request(in, out, MOVES[Integer.numberOfTrailingZeros(legal)]);
+                        latencies.record(System.nanoTime() - sent);
+                        if (thinkMillis >  0)
+                            Thread.sleep(thinkMillis);
+                    }
+                    request(in, out, "quit");
+                } catch (IOException | RuntimeException e) {
+                    if (errors.getAndIncrement() ==  0)
+                        e.printStackTrace();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    if (!counted)
+                        ready.countDown();
+                }
+            });
+        }
+        ready.await();
+        long playStart = System.nanoTime();
+        executor.shutdown();
+        executor.awaitTermination(1, TimeUnit.DAYS);
+        long end = System.nanoTime();
+
+        long played = latencies.getCount();
+        double connectSeconds = (playStart - start) /  1e9;
+        double playSeconds = (end - playStart) /  1e9;
+        System.out.printf("Sesija: %d istovremeno (greške: %d), povezivanje: %.3f s%n",
+                connected.get(), errors.get(), connectSeconds);
+        System.out.printf("Poteza: %d, vrijeme: %.3f s, poteza/s: %.0f%n", played, playSeconds,
+                played / playSeconds);
+        if (played >  0) {
+            System.out.printf("Odgovor (µs): p50 %d, p90 %d, p99 %d, max %d%n", latencies.getPercentile(50) /  1000,
+                    latencies.getPercentile(90) /  1000, latencies.getPercentile(99) /  1000,
+                    latencies.getMax() /  1000);
+        }
+    }
+
+    // Šalje komandu i čeka odgovor
+    private static String request(BufferedReader in, Writer out, String command) throws IOException {
+        out.write(command);
+        out.write('\n');
+        out.flush();
+        String reply = in.readLine();
+        if (reply == null)
+            throw new IOException("Server je zatvorio vezu");
+        if (reply.startsWith("error"))
+            throw new IOException(reply);
+        return reply;
+    }
+
+    // Maska legalnih smjerova iz odgovora: treće polje od kraja ("... legalni veličina ćelije")
+    static int legalMoves(String reply) {
+        int cells = reply.lastIndexOf(' ');
+        int sizeStart = reply.lastIndexOf(' ', cells -  1);
+        return Character.digit(reply.charAt(sizeStart -  1),  16);
+    }
+
+    /**
+     * Argumenti oblika --ime=vrijednost: --host (localhost), --port ( 2048), --sessions ( 10000),
+     * --moves ( 100), --size ( 4), --think (pauza između poteza u ms,  0) i --seed.
+     */
+    public static void main(String[] args) throws InterruptedException {
+        String host = "localhost";
+        int port = GameServer.DEFAULT_PORT;
+        int sessions =  10000;
+        int moves =  100;
+        int size =  4;
+        long think =  0;
+        long seed = System.nanoTime();
+        for (String arg : args) {
+            String value = arg.substring(arg.indexOf('=') +  1);
+            if (arg.startsWith("--host="))
+                host = value;
+            else if (arg.startsWith("--port="))
+                port = Integer.parseInt(value);
+            else if (arg.startsWith("--sessions="))
+                sessions = Integer.parseInt(value);
+            else if (arg.startsWith("--moves="))
+                moves = Integer.parseInt(value);
+            else if (arg.startsWith("--size="))
+                size = Integer.parseInt(value);
+            else if (arg.startsWith("--think="))
+                think = Long.parseLong(value);
+            else if (arg.startsWith("--seed="))
+                seed = Long.parseLong(value);
+            else
+                throw new IllegalArgumentException("Nepoznat argument: " + arg);
+        }
+        System.out.println("Sesija: " + sessions + ", poteza po sesiji: " + moves + ", seed: " + seed
+                + (VirtualThreads.available() ? " (virtuelne niti)" : " (obične niti)"));
+        new LoadGenerator(host, port, sessions, moves, size, think, seed).run();
+    }
+}
@@ -0,0 +1,37 @@
+package Server;
+
+import java.util.concurrent.locks.ReentrantLock;
+
+import Logika.Logika;
+
+/**
+ * Jedna igra na serveru: igra, identifikator i vrijeme posljednje komande.
+ * Istu sesiju mogu koristiti dvije veze i čistač neaktivnih sesija, pa se svaka komanda
+ * izvršava pod lock-om; ReentrantLock (a ne synchronized) ne vezuje virtuelnu nit za nosioca.
+ */
+final class Session {
+    final String id;
+    final Logika game;
+    final ReentrantLock lock = new ReentrantLock();
+    // Vrijeme posljednje komande (System.nanoTime)
+    volatile long lastActive;
+    // Postavlja se pod lock-om kada je sesija sačuvana i uklonjena iz memorije
+    boolean evicted;
+
+    Session(String id, Logika game) {
+        this.id = id;
+        this.game = game;
+        touch();
+    }
+
+    void touch() {
+        lastActive = System.nanoTime();
+    }
+
+    /**
+     * Vraća ime snimka sesije u datoteci snimaka servera.
+     */
+    static String saveKey(String id) {
+        return "s-" + id;
+    }
+}
@@ -0,0 +1,198 @@
+package Server;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.security.SecureRandom;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import Logika.Leaderboard;
+import Logika.Logika;
+import Logika.SaveSlots;
+import Logika.SplitMixRandom;
+
+/**
+ * Sesije servera u memoriji, po identifikatoru.
+ * Čistač u pozadini čuva sesije neaktivne duže od zadatog vremena u datoteku snimaka
+ * (ključ je Session.saveKey) i uklanja ih iz memorije; sljedeća komanda ih ponovo učitava.
+ * Snimak se briše kada se sesija učita, pa mjesta u datoteci drže samo sesije van memorije;
+ * završena igra se pri uklanjanju iz memorije ne čuva (rezultat je već na rang listi).
+ * Igre ne upisuju leaderboard.dat ni podrazumijevani snimak; završene igre se upisuju na rang listu
+ * servera pod identifikatorom sesije kao oznakom igrača.
+ */
+final class SessionStore implements Closeable {
+    private final ConcurrentHashMap<String, Session> sessions = new ConcurrentHashMap<>();
+    // Datoteka snimaka sesija, ili null ako se sesije ne čuvaju
+    private final SaveSlots slots;
+    // Rang lista servera, ili null ako se rezultati ne čuvaju
+    private final Leaderboard leaderboard;
+    private final long idleNanos;
+    private final ScheduledExecutorService sweeper;
+    // Identifikatori sesija i seed-ovi generatora
+    private final SecureRandom random = new SecureRandom();
+
+    /**
+     * @param slots datoteka snimaka sesija, ili null (neaktivne sesije se tada brišu)
+     * @param leaderboard rang lista za završene igre, ili null
+     * @param idleMillis vrijeme neaktivnosti nakon kojeg se sesija uklanja iz memorije
+     */
+    SessionStore(SaveSlots slots, Leaderboard leaderboard, long idleMillis) {
+        this.slots = slots;
+        this.leaderboard = leaderboard;
+        this.idleNanos = TimeUnit.MILLISECONDS.toNanos(idleMillis);
+        this.sweeper = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "session-sweeper");
+            t.setDaemon(true);
+            return t;
+        });
+        long period = Math.max(1, idleMillis /  4);
+        sweeper.scheduleWithFixedDelay(this::sweep, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Kreira sesiju sa novom igrom na tablici date veličine.
+     */
+    Session create(int size) {
+        Logika game = new Logika(size, new SplitMixRandom(random.nextLong()), leaderboard);
+        game.startGame();
+        // Posmatrači čitaju objavljeno stanje bez zaključavanja sesije (vidi peek)
+        game.setSnapshotsEnabled(true);
+        while (true) {
+            Session session = new Session(String.format("%016x", random.nextLong()), game);
+            if (sessions.putIfAbsent(session.id, session) == null) {
+                game.setPlayer(session.id);
+                return session;
+            }
+        }
+    }
+
+    /**
+     * Vraća zaključanu sesiju za jednu komandu; sesija uklonjena iz memorije se učitava iz snimka.
+     * Pozivalac otključava sesiju kada završi komandu.
+     *
+     * @return zaključana sesija ili null ako sesija ne postoji
+     */
+    Session acquire(String id) throws IOException {
+        while (true) {
+            Session session = sessions.get(id);
+            boolean loaded = false;
+            if (session == null) {
+                session = load(id);
+                if (session == null) {
+                    // Druga nit je možda upravo učitala sesiju i obrisala njen snimak
+                    session = sessions.get(id);
+                    if (session == null)
+                        return null;
+                } else {
+                    Session existing = sessions.putIfAbsent(id, session);
+                    if (existing != null)
+                        session = existing;
+                    else
+                        loaded = true;
+                }
+            }
+            session.lock.lock();
+            if (!session.evicted) {
+                // Pod lock-om čistač ne može ponovo sačuvati sesiju prije brisanja snimka
+                if (loaded)
+                    slots.delete(Session.saveKey(id));
+                session.touch();
+                return session;
+            }
+            // Čistač je u međuvremenu sačuvao sesiju, pa se učitava ponovo
+            session.lock.unlock();
+        }
+    }
+
+    /**
+     * Vraća sesiju iz memorije bez zaključavanja i bez učitavanja, npr. za posmatrače
+     * koji čitaju samo objavljeno stanje igre (vidi Logika.getSnapshot).
+     *
+     * @return sesija ili null ako nije u memoriji
+     */
+    Session peek(String id) {
+        return sessions.get(id);
+    }
+
+    private Session load(String id) throws IOException {
+        if (slots == null)
+            return null;
+        Logika game = new Logika(4, new SplitMixRandom(random.nextLong()), leaderboard);
+        if (!game.loadGame(slots, Session.saveKey(id)))
+            return null;
+        game.setPlayer(id);
+        game.setSnapshotsEnabled(true);
+        return new Session(id, game);
+    }
+
+    /**
+     * Čuva sesiju odmah; poziva se sa zaključanom sesijom.
+     *
+     * @return false ako server ne čuva sesije
+     */
+    boolean save(Session session) {
+        if (slots == null)
+            return false;
+        session.game.saveGame(slots, Session.saveKey(session.id));
+        return true;
+    }
+
+    // Čuva sesiju koja se uklanja iz memorije, osim završene igre; poziva se sa zaključanom sesijom
+    private void persist(Session session) {
+        if (slots == null)
+            return;
+        if (session.game.getLegalMoves() ==  0)
+            slots.delete(Session.saveKey(session.id)); // snimak postoji ako je sačuvan komandom save
+        else
+            save(session);
+    }
+
+    /**
+     * Vraća broj sesija u memoriji.
+     */
+    int size() {
+        return sessions.size();
+    }
+
+    // Čuva i uklanja neaktivne sesije; zauzete sesije se preskaču do sljedećeg prolaza
+    void sweep() {
+        long now = System.nanoTime();
+        for (Session session : sessions.values()) {
+            if (now - session.lastActive < idleNanos || !session.lock.tryLock())
+                continue;
+            try {
+                if (now - session.lastActive < idleNanos)
+                    continue;
+                persist(session);
+                session.evicted = true;
+                sessions.remove(session.id, session);
+            } catch (RuntimeException e) {
+                // Npr. datoteka snimaka je puna; sesija ostaje u memoriji, a ostale se i dalje uklanjaju
+                e.printStackTrace();
+            } finally {
+                session.lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Zaustavlja čistač i čuva sve nezavršene sesije.
+     */
+    @Override
+    public void close() {
+        sweeper.shutdownNow();
+        for (Session session : sessions.values()) {
+            session.lock.lock();
+            try {
+                persist(session);
+            } catch (RuntimeException e) {
+                // Sesija se gubi, ali se ostale i dalje čuvaju
+                e.printStackTrace();
+            } finally {
+                session.lock.unlock();
+            }
+        }
+    }
+}
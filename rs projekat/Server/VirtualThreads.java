@@ -0,0 +1,54 @@
+package Server;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Pravi izvršioce sa jednom niti po zadatku: virtuelne niti kada ih Java podržava (21 i novije),
+ * a inače obične niti. Projekat se prevodi za Javu  17, pa se virtuelne niti traže preko refleksije.
+ */
+final class VirtualThreads {
+    // Executors.newVirtualThreadPerTaskExecutor, ili null na starijoj Javi
+    private static final Method VIRTUAL_EXECUTOR = find();
+
+    private VirtualThreads() {
+    }
+
+    private static Method find() {
+        try {
+            return Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+        } catch (NoSuchMethodException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Vraća true ako se koriste virtuelne niti.
+     */
+    static boolean available() {
+        return VIRTUAL_EXECUTOR != null;
+    }
+
+    /**
+     * Vraća izvršilac koji svaki zadatak izvršava u novoj niti.
+     *
+     * @param name prefiks imena niti kada virtuelne niti nisu dostupne
+     */
+    static ExecutorService perTaskExecutor(String name) {
+        if (VIRTUAL_EXECUTOR != null) {
+            try {
+                return (ExecutorService) VIRTUAL_EXECUTOR.invoke(null);
+            } catch (ReflectiveOperationException e) {
+                e.printStackTrace();
+            }
+        }
+        AtomicInteger count = new AtomicInteger();
+        return Executors.newCachedThreadPool(r -> {
+            Thread t = new Thread(r, name + "-" + count.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+    }
+}
@@ -0,0 +1,100 @@
+package Simulacija;
+
+import java.util.Random;
+
+import Logika.BitBoard;
+import Logika.Logika;
+import Solver.NTupleNetwork;
+
+/**
+ * Strategija koja bira sljedeći potez u simulaciji.
+ * Implementacija se poziva samo iz jedne niti, pa smije koristiti dati generator bez sinhronizacije.
+ */
+public interface MovePolicy {
+    // Potezi u redoslijedu smjerova iz klase BitBoard
+    char[] MOVES = {'u', 'd', 'l', 'r'};
+
+    /**
+     * Bira potez za trenutno stanje igre.
+     *
+     * @param game igra za koju se bira potez
+     * @param random generator slučajnih brojeva niti koja igra
+     * @return 'u', 'd', 'l' ili 'r'
+     */
+    char chooseMove(Logika game, Random random);
+
+    /**
+     * Slučajan potez među potezima koji mijenjaju tablicu.
+     */
+    MovePolicy RANDOM = (game, random) -> {
+        int legal = game.getLegalMoves();
+        if (legal ==  0)
+            return MOVES[random.nextInt(4)];
+        // Preskače slučajan broj legalnih poteza i uzima sljedeći
+        for (int k = random.nextInt(Integer.bitCount(legal)); k >  0; k--)
+            legal &= legal -  1;
+        return MOVES[Integer.numberOfTrailingZeros(legal)];
+    };
+
+    /**
+     * Potez sa najvećim skorom; kod jednakog skora potez koji ostavlja više praznih ćelija.
+     */
+    MovePolicy GREEDY = (game, random) -> {
+        long board = game.getPackedBoard();
+        char best = MOVES[random.nextInt(4)];
+        long bestValue = -1;
+        for (int legal = game.getLegalMoves(); legal !=  0; legal &= legal -  1) {
+            int dir = Integer.numberOfTrailingZeros(legal);
+            long moved = BitBoard.move(board, dir);
+            long value = ((long) (BitBoard.moveInfo(board, dir) >>>  2) <<  5) + BitBoard.countEmpty(moved);
+            if (value > bestValue) {
+                bestValue = value;
+                best = MOVES[dir];
+            }
+        }
+        return best;
+    };
+
+    /**
+     * Drži najveće pločice u ćošku (0, 0): prvi potez iz redoslijeda l, u, r, d koji mijenja tablicu.
+     */
+    MovePolicy CORNER = (game, random) -> {
+        int legal = game.getLegalMoves();
+        if ((legal & (1 << BitBoard.LEFT)) !=  0)
+            return 'l';
+        if ((legal & (1 << BitBoard.UP)) !=  0)
+            return 'u';
+        if ((legal & (1 << BitBoard.RIGHT)) !=  0)
+            return 'r';
+        return 'd';
+    };
+
+    /**
+     * Vraća strategiju po imenu: random, greedy, corner ili ntuple (naučena mreža n-torki, vidi TDLearner).
+     *
+     * @throws IllegalArgumentException ako ime nije poznato
+     * @throws IllegalStateException ako težine mreže n-torki nisu naučene
+     */
+    static MovePolicy forName(String name) {
+        switch (name) {
+            case "random":
+                return RANDOM;
+            case "greedy":
+                return GREEDY;
+            case "corner":
+                return CORNER;
+            case "ntuple": {
+                // Mreža se samo čita, pa je dijele sve niti simulacije
+                NTupleNetwork network = NTupleNetwork.loadDefault();
+                if (network == null)
+                    throw new IllegalStateException("Težine mreže n-torki nisu učitane");
+                return (game, random) -> {
+                    int dir = network.bestDirection(game.getPackedBoard());
+                    return dir <  0 ? MOVES[random.nextInt(4)] : MOVES[dir];
+                };
+            }
+            default:
+                throw new IllegalArgumentException("Nepoznata strategija: " + name);
+        }
+    }
+}
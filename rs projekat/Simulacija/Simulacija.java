@@ -0,0 +1,168 @@
+package Simulacija;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import Logika.BitBoard;
+import Logika.Logika;
+import Logika.SplitMixRandom;
+import Logika.TrajectoryWriter;
+
+/**
+ * Igra veliki broj igara bez grafičkog interfejsa, paralelno na svim jezgrama.
+ * Svaka nit ima svoju instancu klase Logika i svoje generatore slučajnih brojeva,
+ * a najviši skor se ne upisuje na disk kako bi se mjerila samo logika igre.
+ * Generatori se za svaku igru postavljaju na niz izveden iz seed-a i rednog broja igre
+ * (vidi SplitMixRandom), pa isti seed daje iste skorove bez obzira na broj niti.
+ * Potezi svih igara se mogu izvesti za učenje strategija (vidi setTrajectory).
+ */
+public class Simulacija {
+    // Najveći broj poteza u jednoj igri, za slučaj da strategija ne završi igru
+    private static final int MAX_MOVES_PER_GAME =  1_000_000;
+
+    private final MovePolicy policy;
+    private final int threads;
+    private final long seed;
+    // Izvoz poteza ili null
+    private TrajectoryWriter trajectory;
+
+    /**
+     * @param policy strategija koja bira poteze
+     * @param threads broj niti koje igraju
+     * @param seed početna vrijednost generatora; svaka igra izvodi svoju iz nje
+     */
+    public Simulacija(MovePolicy policy, int threads, long seed) {
+        this.policy = policy;
+        this.threads = threads;
+        this.seed = seed;
+    }
+
+    /**
+     * Rezultati simulacije: broj poteza, trajanje, skor svake igre i broj igara po najvećoj pločici.
+     */
+    public static class Result {
+        public final int games;
+        public final long moves;
+        public final long nanos;
+        public final int[] scores;
+        // maxTiles[e] je broj igara u kojima je najveća pločica  2^e
+        public final long[] maxTiles;
+
+        Result(int games, long moves, long nanos, int[] scores, long[] maxTiles) {
+            this.games = games;
+            this.moves = moves;
+            this.nanos = nanos;
+            this.scores = scores;
+            this.maxTiles = maxTiles;
+        }
+
+        /**
+         * Ispisuje brzinu, raspodjelu skora i raspodjelu najveće pločice.
+         */
+        public void print() {
+            double seconds = nanos /  1e9;
+            int[] sorted = scores.clone();
+            Arrays.sort(sorted);
+            long sum =  0;
+            for (int s : sorted)
+                sum += s;
+
+            System.out.printf("Igara: %d, poteza: %d, vrijeme: %.3f s%n", games, moves, seconds);
+            System.out.printf("Igara/s: %.1f, poteza/s: %.0f%n", games / seconds, moves / seconds);
+            if (games ==  0)
+                return;
+            System.out.printf("Skor: prosjek %.1f, min %d, p10 %d, p50 %d, p90 %d, p99 %d, max %d%n",
+                    (double) sum / games, sorted[0], percentile(sorted,  10), percentile(sorted,  50),
+                    percentile(sorted,  90), percentile(sorted,  99), sorted[games -  1]);
+            System.out.println("Najveća pločica:");
+            for (int e =  1; e < maxTiles.length; e++) {
+                if (maxTiles[e] ==  0)
+                    continue;
+                System.out.printf("%8d  %d (%.2f%%)%n",  1 << e, maxTiles[e],  100.0 * maxTiles[e] / games);
+            }
+        }
+
+        private static int percentile(int[] sorted, int p) {
+            return sorted[Math.min(sorted.length -  1, sorted.length * p /  100)];
+        }
+    }
+
+    /**
+     * Uključuje izvoz poteza: svaka nit piše kroz svoj recorder, a igra dobija redni broj
+     * svog indeksa u simulaciji. Izvoz zatvara pozivalac nakon run().
+     *
+     * @param trajectory izvoz za tablicu 4x4 ili null za isključivanje
+     */
+    public void setTrajectory(TrajectoryWriter trajectory) {
+        this.trajectory = trajectory;
+    }
+
+    /**
+     * Igra dati broj igara i vraća rezultate.
+     *
+     * @param games broj igara
+     * @return rezultati simulacije
+     */
+    public Result run(int games) throws InterruptedException {
+        int[] scores = new int[games];
+        AtomicInteger next = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        long start = System.nanoTime();
+        try {
+            List<Future<long[]>> workers = new ArrayList<>(threads);
+            for (int t =  0; t < threads; t++)
+                workers.add(executor.submit(() -> play(next, games, scores)));
+
+            // Svaka nit vraća svoj histogram najveće pločice, a na posljednjem mjestu broj poteza
+            long[] maxTiles = new long[BitBoard.MAX_EXPONENT +  1];
+            long moves =  0;
+            for (Future<long[]> worker : workers) {
+                long[] counts = worker.get();
+                for (int e =  0; e < maxTiles.length; e++)
+                    maxTiles[e] += counts[e];
+                moves += counts[maxTiles.length];
+            }
+            return new Result(games, moves, System.nanoTime() - start, scores, maxTiles);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    // Petlja jedne niti: uzima sljedeću igru dok ih ima
+    private long[] play(AtomicInteger next, int games, int[] scores) {
+        SplitMixRandom random = new SplitMixRandom(seed);
+        SplitMixRandom policyRandom = new SplitMixRandom(seed);
+        Logika game = new Logika(random, false);
+        TrajectoryWriter.Recorder recorder = trajectory != null ? trajectory.recorder() : null;
+        game.setTrajectory(recorder);
+        long[] counts = new long[BitBoard.MAX_EXPONENT +  2];
+        int index;
+        while ((index = next.getAndIncrement()) < games) {
+            // Igra index koristi nizove  2 * index (pločice) i  2 * index +  1 (strategija)
+            random.setState(SplitMixRandom.streamState(seed,  2L * index));
+            policyRandom.setState(SplitMixRandom.streamState(seed,  2L * index +  1));
+            game.startGame();
+            if (recorder != null)
+                recorder.startGame(index);
+            for (int k =  0; k < MAX_MOVES_PER_GAME; k++) {
+                int status = game.processMove(policy.chooseMove(game, policyRandom));
+                counts[counts.length -  1]++;
+                if (status !=  0)
+                    break;
+            }
+            scores[index] = game.getScore();
+            counts[BitBoard.maxExponent(game.getPackedBoard())]++;
+        }
+        if (recorder != null)
+            recorder.flush();
+        return counts;
+    }
+}
@@ -0,0 +1,408 @@
+package Solver;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.LongAdder;
+
+import Logika.BitBoard;
+import Logika.Logika;
+
+/**
+ * Automatski igrač koji bira najbolji potez ('u', 'd', 'l' ili 'r') expectimax pretragom.
+ * Čvorovi slučaja prolaze kroz sve prazne ćelije i pločice koje addRandomCell može dodati:
+ * uvijek  2, a nakon dostignute pločice  8 i  4 sa vjerovatnoćom  10%.
+ * Potezi u korijenu i čvorovi slučaja blizu korijena se izvršavaju paralelno u ForkJoinPool-u,
+ * a vrijednosti čvorova slučaja se pamte u transpozicionoj tabeli ograničene veličine.
+ */
+public class Expectimax {
+    // Vraća se kada nijedan potez ne mijenja tablicu
+    public static final char NO_MOVE = '\0';
+
+    // Potezi u redoslijedu smjerova iz klase BitBoard
+    private static final char[] MOVES = {'u', 'd', 'l', 'r'};
+    // Čvorovi slučaja sa ovoliko preostale dubine se dijele na zadatke
+    private static final int PARALLEL_DEPTH =  2;
+    // Podrazumijevani broj unosa transpozicione tabele
+    private static final int DEFAULT_CACHE_ENTRIES =  1 <<  20;
+
+    // Težine heuristike
+    private static final float SCORE_LOST_PENALTY =  200000f;
+    private static final float MONOTONICITY_POWER =  4f;
+    private static final float MONOTONICITY_WEIGHT =  47f;
+    private static final float SUM_POWER =  3.5f;
+    private static final float SUM_WEIGHT =  11f;
+    private static final float MERGES_WEIGHT =  700f;
+    private static final float EMPTY_WEIGHT =  270f;
+
+    // Heuristička vrijednost svakog reda, unaprijed izračunata
+    private static final float[] ROW_HEURISTIC = new float[65536];
+
+    static {
+        int[] line = new int[4];
+        for (int row =  0; row <  65536; row++) {
+            for (int k =  0; k <  4; k++)
+                line[k] = (row >>> (4 * k)) &  0xF;
+
+            float sum =  0;
+            int empty =  0, merges =  0, prev =  0, counter =  0;
+            for (int k =  0; k <  4; k++) {
+                int rank = line[k];
+                sum += (float) Math.pow(rank, SUM_POWER);
+                if (rank ==  0) {
+                    empty++;
+                } else {
+                    if (prev == rank) {
+                        counter++;
+                    } else if (counter >  0) {
+                        merges +=  1 + counter;
+                        counter =  0;
+                    }
+                    prev = rank;
+                }
+            }
+            if (counter >  0)
+                merges +=  1 + counter;
+
+            float monoLeft =  0, monoRight =  0;
+            for (int k =  1; k <  4; k++) {
+                float a = (float) Math.pow(line[k -  1], MONOTONICITY_POWER);
+                float b = (float) Math.pow(line[k], MONOTONICITY_POWER);
+                if (line[k -  1] > line[k])
+                    monoLeft += a - b;
+                else
+                    monoRight += b - a;
+            }
+
+            ROW_HEURISTIC[row] = SCORE_LOST_PENALTY + EMPTY_WEIGHT * empty + MERGES_WEIGHT * merges
+                    - MONOTONICITY_WEIGHT * Math.min(monoLeft, monoRight) - SUM_WEIGHT * sum;
+        }
+    }
+
+    private final ForkJoinPool pool;
+    private final TranspositionTable cache;
+    // Broj posjećenih čvorova od kreiranja
+    private final LongAdder nodes = new LongAdder();
+    // Rok za trenutnu pretragu u nanosekundama; Long.MAX_VALUE znači bez roka
+    private volatile long deadline = Long.MAX_VALUE;
+    private volatile boolean aborted;
+
+    // Statistika posljednje pretrage
+    private long lastNodes;
+    private long lastNanos;
+    private int lastDepth;
+
+    /**
+     * Kreira igrača koji koristi zajednički ForkJoinPool.
+     */
+    public Expectimax() {
+        this(ForkJoinPool.commonPool(), DEFAULT_CACHE_ENTRIES);
+    }
+
+    /**
+     * @param pool pool u kojem se izvršava pretraga
+     * @param cacheEntries najveći broj unosa transpozicione tabele
+     */
+    public Expectimax(ForkJoinPool pool, int cacheEntries) {
+        this.pool = pool;
+        this.cache = new TranspositionTable(cacheEntries);
+    }
+
+    /**
+     * Bira najbolji potez za trenutno stanje igre pretragom do date dubine.
+     *
+     * @param game igra za koju se bira potez
+     * @param depth broj poteza (potez igrača i nova pločica) koji se pretražuje
+     * @return 'u', 'd', 'l', 'r' ili NO_MOVE ako nijedan potez ne mijenja tablicu
+     */
+    public char bestMove(Logika game, int depth) {
+        return bestMove(game.getPackedBoard(), game.hasReached8(), depth);
+    }
+
+    /**
+     * Bira najbolji potez za spakovanu tablicu pretragom do date dubine.
+     */
+    public char bestMove(long board, boolean reached8, int depth) {
+        deadline = Long.MAX_VALUE;
+        long start = System.nanoTime();
+        long startNodes = nodes.sum();
+        char move = search(board, reached8, Math.max(depth,  1));
+        record(start, startNodes, depth);
+        return move;
+    }
+
+    /**
+     * Bira najbolji potez iterativnim produbljivanjem dok ne istekne vremenski budžet.
+     * Vraća potez najdublje pretrage koja je završena na vrijeme (dubina  1 se uvijek završi).
+     *
+     * @param game igra za koju se bira potez
+     * @param millis vremenski budžet u milisekundama
+     * @return 'u', 'd', 'l', 'r' ili NO_MOVE ako nijedan potez ne mijenja tablicu
+     */
+    public char bestMoveTimed(Logika game, long millis) {
+        return bestMoveTimed(game.getPackedBoard(), game.hasReached8(), millis);
+    }
+
+    /**
+     * Bira najbolji potez za spakovanu tablicu iterativnim produbljivanjem u datom vremenu.
+     */
+    public char bestMoveTimed(long board, boolean reached8, long millis) {
+        long start = System.nanoTime();
+        long startNodes = nodes.sum();
+        deadline = Long.MAX_VALUE;
+        char best = search(board, reached8,  1);
+        int depth =  1;
+        if (best != NO_MOVE) {
+            deadline = start + millis *  1_000_000L;
+            // Dubina je ograničena da pretraga ne bi trajala beskonačno kada je tablica skoro puna
+            while (depth <  16 && System.nanoTime() < deadline) {
+                char move = search(board, reached8, depth +  1);
+                if (aborted)
+                    break;
+                best = move;
+                depth++;
+            }
+            deadline = Long.MAX_VALUE;
+        }
+        record(start, startNodes, depth);
+        return best;
+    }
+
+    private void record(long start, long startNodes, int depth) {
+        lastNanos = System.nanoTime() - start;
+        lastNodes = nodes.sum() - startNodes;
+        lastDepth = depth;
+    }
+
+    // Pretražuje sve poteze u korijenu paralelno
+    private char search(long board, boolean reached8, int depth) {
+        aborted = false;
+        List<ChanceTask> tasks = new ArrayList<>(4);
+        List<Character> moves = new ArrayList<>(4);
+        for (int legal = BitBoard.legalMoves(board); legal !=  0; legal &= legal -  1) {
+            int dir = Integer.numberOfTrailingZeros(legal);
+            long moved = BitBoard.move(board, dir);
+            boolean r8 = reached8 || (BitBoard.moveInfo(board, dir) & BitBoard.FLAG_REACHED_8) !=  0;
+            tasks.add(new ChanceTask(moved, depth -  1, r8));
+            moves.add(MOVES[dir]);
+        }
+        if (tasks.isEmpty())
+            return NO_MOVE;
+
+        pool.invoke(new RecursiveTask<Void>() {
+            private static final long serialVersionUID =  1L;
+
+            @Override
+            protected Void compute() {
+                invokeAll(tasks);
+                return null;
+            }
+        });
+
+        char best = moves.get(0);
+        float bestValue = Float.NEGATIVE_INFINITY;
+        for (int i =  0; i < tasks.size(); i++) {
+            float value = tasks.get(i).join();
+            if (value > bestValue) {
+                bestValue = value;
+                best = moves.get(i);
+            }
+        }
+        return best;
+    }
+
+    // Čvor igrača: najbolja vrijednost od svih poteza koji mijenjaju tablicu;
+    // nelegalni smjerovi se preskaču po maski, bez pomjeranja tablice
+    private float maxNode(long board, int depth, boolean reached8) {
+        nodes.increment();
+        float best =  0;
+        for (int legal = BitBoard.legalMoves(board); legal !=  0; legal &= legal -  1) {
+            int dir = Integer.numberOfTrailingZeros(legal);
+            long moved = BitBoard.move(board, dir);
+            boolean r8 = reached8 || (BitBoard.moveInfo(board, dir) & BitBoard.FLAG_REACHED_8) !=  0;
+            best = Math.max(best, chanceNode(moved, depth, r8));
+        }
+        return best;
+    }
+
+    // Čvor slučaja: prosjek po svim praznim ćelijama i mogućim novim pločicama
+    private float chanceNode(long board, int depth, boolean reached8) {
+        nodes.increment();
+        if (depth <=  0 || aborted)
+            return evaluate(board);
+        if (depth >= PARALLEL_DEPTH && System.nanoTime() > deadline) {
+            aborted = true;
+            return  0;
+        }
+        long key = TranspositionTable.key(board, depth, reached8);
+        float cached = cache.get(key);
+        if (!Float.isNaN(cached))
+            return cached;
+
+        long empty = BitBoard.emptyMask(board);
+        int count = Long.bitCount(empty);
+        float sum =  0;
+        if (depth >= PARALLEL_DEPTH && RecursiveTask.inForkJoinPool()) {
+            List<SpawnTask> tasks = new ArrayList<>(count);
+            for (long m = empty; m !=  0; m &= m -  1)
+                tasks.add(new SpawnTask(board, Long.numberOfTrailingZeros(m), depth, reached8));
+            for (SpawnTask task : RecursiveTask.invokeAll(tasks))
+                sum += task.join();
+        } else {
+            for (long m = empty; m !=  0; m &= m -  1)
+                sum += spawnValue(board, Long.numberOfTrailingZeros(m), depth, reached8);
+        }
+        float value = sum / count;
+        if (!aborted)
+            cache.put(key, depth, value);
+        return value;
+    }
+
+    // Vrijednost jedne prazne ćelije: pločica  2, ili  4 sa vjerovatnoćom  10% nakon pločice  8
+    private float spawnValue(long board, int shift, int depth, boolean reached8) {
+        float two = maxNode(board | (1L << shift), depth -  1, reached8);
+        if (!reached8)
+            return two;
+        float four = maxNode(board | (2L << shift), depth -  1, reached8);
+        return  0.9f * two +  0.1f * four;
+    }
+
+    /**
+     * Heuristička procjena tablice: zbir vrijednosti svih redova i svih kolona.
+     */
+    static float evaluate(long board) {
+        return rowsHeuristic(board) + rowsHeuristic(BitBoard.transpose(board));
+    }
+
+    private static float rowsHeuristic(long board) {
+        return ROW_HEURISTIC[(int) board &  0xFFFF]
+                + ROW_HEURISTIC[(int) (board >>>  16) &  0xFFFF]
+                + ROW_HEURISTIC[(int) (board >>>  32) &  0xFFFF]
+                + ROW_HEURISTIC[(int) (board >>>  48) &  0xFFFF];
+    }
+
+    // Zadatak koji računa vrijednost čvora slučaja
+    private class ChanceTask extends RecursiveTask<Float> {
+        private static final long serialVersionUID =  1L;
+        private final long board;
+        private final int depth;
+        private final boolean reached8;
+
+        ChanceTask(long board, int depth, boolean reached8) {
+            this.board = board;
+            this.depth = depth;
+            this.reached8 = reached8;
+        }
+
+        @Override
+        protected Float compute() {
+            return chanceNode(board, depth, reached8);
+        }
+    }
+
+    // Zadatak koji računa vrijednost jedne prazne ćelije u čvoru slučaja
+    private class SpawnTask extends RecursiveTask<Float> {
+        private static final long serialVersionUID =  1L;
+        private final long board;
+        private final int shift;
+        private final int depth;
+        private final boolean reached8;
+
+        SpawnTask(long board, int shift, int depth, boolean reached8) {
+            this.board = board;
+            this.shift = shift;
+            this.depth = depth;
+            this.reached8 = reached8;
+        }
+
+        @Override
+        protected Float compute() {
+            return spawnValue(board, shift, depth, reached8);
+        }
+    }
+
+    /**
+     * Vraća ukupan broj posjećenih čvorova.
+     */
+    public long getNodeCount() {
+        return nodes.sum();
+    }
+
+    /**
+     * Vraća broj čvorova posjećenih u posljednjoj pretrazi.
+     */
+    public long getLastNodeCount() {
+        return lastNodes;
+    }
+
+    /**
+     * Vraća broj čvorova u sekundi za posljednju pretragu.
+     */
+    public double getLastNodesPerSecond() {
+        return lastNanos ==  0 ?  0 : lastNodes *  1e9 / lastNanos;
+    }
+
+    /**
+     * Vraća dubinu posljednje završene pretrage.
+     */
+    public int getLastDepth() {
+        return lastDepth;
+    }
+
+    /**
+     * Briše transpozicionu tabelu, npr. prije mjerenja.
+     */
+    public void clearCache() {
+        cache.clear();
+    }
+
+    /**
+     * Mjeri broj čvorova u sekundi i dostignutu dubinu za različit broj jezgara.
+     * Argumenti: [dubina] [budžet u ms] [broj pozicija]
+     */
+    public static void main(String[] args) {
+        int depth = args.length >  0 ? Integer.parseInt(args[0]) :  4;
+        long millis = args.length >  1 ? Long.parseLong(args[1]) :  100;
+        int positions = args.length >  2 ? Integer.parseInt(args[2]) :  20;
+
+        // Iste pozicije za svaki broj jezgara: jedna igra koju igra sam igrač
+        long[] boards = new long[positions];
+        boolean[] reached = new boolean[positions];
+        // Igra ne upisuje rezultate na rang listu
+        Logika game = new Logika(new Random(), false);
+        game.startGame();
+        Expectimax player = new Expectimax(new ForkJoinPool(1),  1 <<  16);
+        for (int i =  0; i < positions; i++) {
+            boards[i] = game.getPackedBoard();
+            reached[i] = game.hasReached8();
+            for (int k =  0; k <  10; k++) {
+                char move = player.bestMove(game,  1);
+                if (move == NO_MOVE || game.processMove(move) !=  0)
+                    game.startGame();
+            }
+        }
+
+        int cores = Runtime.getRuntime().availableProcessors();
+        System.out.println("jezgra\tčvorova/s (dubina " + depth + ")\tprosječna dubina (" + millis + " ms)");
+        for (int threads =  1; threads <= cores; threads *=  2) {
+            ForkJoinPool pool = new ForkJoinPool(threads);
+            Expectimax solver = new Expectimax(pool, DEFAULT_CACHE_ENTRIES);
+            long totalNodes =  0, totalNanos =  0, totalDepth =  0;
+            for (int i =  0; i < positions; i++) {
+                solver.clearCache();
+                solver.bestMove(boards[i], reached[i], depth);
+                totalNodes += solver.lastNodes;
+                totalNanos += solver.lastNanos;
+                solver.clearCache();
+                solver.bestMoveTimed(boards[i], reached[i], millis);
+                totalDepth += solver.lastDepth;
+            }
+            System.out.printf("%d\t%.0f\t%.2f%n", threads, totalNodes *  1e9 / totalNanos, (double) totalDepth / positions);
+            pool.shutdown();
+            if (threads < cores && threads *  2 > cores)
+                threads = cores /  2;
+        }
+    }
+}
@@ -0,0 +1,220 @@
+package Solver;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+import Logika.BitBoard;
+import Logika.Logika;
+
+/**
+ * Procjena tablice 4x4 n-torkama (n-tuple network): za svaku od  4 n-torke od  6 ćelija,
+ * u svakoj od  8 simetrija tablice, eksponenti ćelija daju indeks u tabelu težina,
+ * a vrijednost tablice je zbir  32 težine. Vrijednost se uči za tablicu nakon poteza,
+ * a prije nove pločice (vidi TDLearner), pa najbolji potez daje najveći zbir skora poteza i vrijednosti.
+ *
+ * Težine su obični float[] nizovi (4 x  64 MB) koje niti za učenje mijenjaju bez zaključavanja;
+ * pokoji izgubljen upis ne smeta učenju. Čuvaju se i učitavaju kroz datoteku mapiranu u memoriju.
+ */
+public class NTupleNetwork {
+    // Podrazumijevana datoteka težina u radnom direktoriju
+    public static final String DEFAULT_FILE = "ntuple.weights";
+
+    static final int MAGIC =  0x4E545550; // "NTUP"
+    static final int VERSION =  1;
+    static final int HEADER_SIZE =  32;
+
+    // Potezi u redoslijedu smjerova iz klase BitBoard
+    private static final char[] MOVES = {'u', 'd', 'l', 'r'};
+    // N-torke kao indeksi ćelija x +  4y: dva puna reda sa dvije ćelije sljedećeg reda i dva pravougaonika 3x2
+    private static final int[][] TUPLES = {
+            {0,  1,  2,  3,  4,  5},
+            {4,  5,  6,  7,  8,  9},
+            {0,  1,  2,  4,  5,  6},
+            {4,  5,  6,  8,  9,  10},
+    };
+    private static final int TUPLE_LENGTH =  6;
+    private static final int TABLE_SIZE =  1 << (4 * TUPLE_LENGTH);
+    private static final int SYMMETRIES =  8;
+    // Broj težina u jednoj procjeni
+    private static final int LOOKUPS = TUPLES.length * SYMMETRIES;
+    // SHIFTS[t * SYMMETRIES + s][k] je pomak ćelije k n-torke t u simetriji s
+    private static final int[][] SHIFTS = new int[LOOKUPS][TUPLE_LENGTH];
+
+    static {
+        for (int t =  0; t < TUPLES.length; t++) {
+            for (int s =  0; s < SYMMETRIES; s++) {
+                for (int k =  0; k < TUPLE_LENGTH; k++) {
+                    int x = TUPLES[t][k] %  4;
+                    int y = TUPLES[t][k] /  4;
+                    // Bit  1 zrcali x, bit  2 zrcali y, a bit  4 zatim zamjenjuje x i y
+                    if ((s &  1) !=  0)
+                        x =  3 - x;
+                    if ((s &  2) !=  0)
+                        y =  3 - y;
+                    if ((s &  4) !=  0) {
+                        int swap = x;
+                        x = y;
+                        y = swap;
+                    }
+                    SHIFTS[t * SYMMETRIES + s][k] =  4 * (x +  4 * y);
+                }
+            }
+        }
+    }
+
+    private final float[][] weights = new float[TUPLES.length][TABLE_SIZE];
+    // Broj odigranih igara učenja
+    private volatile long games;
+
+    /**
+     * Kreira mrežu sa svim težinama  0.
+     */
+    public NTupleNetwork() {
+    }
+
+    /**
+     * Vraća broj igara na kojima je mreža učila.
+     */
+    public long getGames() {
+        return games;
+    }
+
+    void setGames(long games) {
+        this.games = games;
+    }
+
+    // Indeks n-torke i u tabeli težina
+    private static int index(long board, int[] shifts) {
+        int index =  0;
+        for (int k =  0; k < TUPLE_LENGTH; k++)
+            index |= (int) ((board >>> shifts[k]) &  0xF) << (4 * k);
+        return index;
+    }
+
+    /**
+     * Vraća procjenu očekivanog skora do kraja igre iz tablice nakon poteza (prije nove pločice).
+     */
+    public float value(long board) {
+        float sum =  0;
+        for (int i =  0; i < LOOKUPS; i++)
+            sum += weights[i / SYMMETRIES][index(board, SHIFTS[i])];
+        return sum;
+    }
+
+    /**
+     * Pomjera procjenu tablice za delta, ravnomjerno po svim težinama; poziva se iz više niti bez zaključavanja.
+     */
+    void update(long board, float delta) {
+        float step = delta / LOOKUPS;
+        for (int i =  0; i < LOOKUPS; i++)
+            weights[i / SYMMETRIES][index(board, SHIFTS[i])] += step;
+    }
+
+    /**
+     * Vraća smjer (vidi BitBoard) sa najvećim zbirom skora poteza i procjene tablice nakon poteza,
+     * ili -1 ako nijedan potez ne mijenja tablicu.
+     */
+    public int bestDirection(long board) {
+        int best = -1;
+        float bestValue =  0;
+        for (int dir =  0; dir <  4; dir++) {
+            long moved = BitBoard.move(board, dir);
+            if (moved == board)
+                continue;
+            float value = (BitBoard.moveInfo(board, dir) >>>  2) + value(moved);
+            if (best <  0 || value > bestValue) {
+                best = dir;
+                bestValue = value;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Vraća najbolji potez za trenutno stanje igre 4x4.
+     *
+     * @return 'u', 'd', 'l', 'r' ili Expectimax.NO_MOVE ako nijedan potez ne mijenja tablicu
+     * @throws IllegalArgumentException ako tablica igre nije 4x4
+     */
+    public char bestMove(Logika game) {
+        if (game.getSize() !=  4)
+            throw new IllegalArgumentException("Mreža n-torki podržava samo tablicu 4x4");
+        int dir = bestDirection(game.getPackedBoard());
+        return dir <  0 ? Expectimax.NO_MOVE : MOVES[dir];
+    }
+
+    /**
+     * Upisuje težine kroz datoteku mapiranu u memoriju: prvo u privremenu datoteku, koja zatim
+     * zamjenjuje staru, pa prekid upisa ne ostavlja pokvarenu datoteku. Dok se upisuje, druge
+     * niti mogu nastaviti učenje; upisane težine su tada presjek stanja tokom upisa.
+     */
+    public void save(Path file) throws IOException {
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        long tableBytes = (long) TABLE_SIZE *  4;
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            header.putInt(MAGIC).putInt(VERSION).putInt(TUPLES.length).putInt(TUPLE_LENGTH).putLong(games);
+            header.position(HEADER_SIZE).flip();
+            channel.write(header,  0);
+            for (int t =  0; t < TUPLES.length; t++) {
+                MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_WRITE, HEADER_SIZE + t * tableBytes, tableBytes);
+                mapped.order(ByteOrder.LITTLE_ENDIAN).asFloatBuffer().put(weights[t]);
+                mapped.force();
+            }
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Učitava težine iz datoteke koju je upisao save.
+     *
+     * @throws IOException ako datoteka ne postoji ili nije ispravna
+     */
+    public static NTupleNetwork load(Path file) throws IOException {
+        long tableBytes = (long) TABLE_SIZE *  4;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            channel.read(header,  0);
+            header.flip();
+            if (header.remaining() < HEADER_SIZE || header.getInt() != MAGIC || header.getInt() != VERSION
+                    || header.getInt() != TUPLES.length || header.getInt() != TUPLE_LENGTH
+                    || channel.size() != HEADER_SIZE + TUPLES.length * tableBytes)
+                throw new IOException("Nevažeća datoteka težina: " + file);
+            NTupleNetwork network = new NTupleNetwork();
+            network.games = header.getLong();
+            for (int t =  0; t < TUPLES.length; t++) {
+                MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, HEADER_SIZE + t * tableBytes, tableBytes);
+                mapped.order(ByteOrder.LITTLE_ENDIAN).asFloatBuffer().get(network.weights[t]);
+            }
+            return network;
+        }
+    }
+
+    /**
+     * Učitava DEFAULT_FILE iz radnog direktorija, za automatsku igru.
+     *
+     * @return mreža ili null (uz poruku) ako težine nisu naučene ili se ne mogu učitati
+     */
+    public static NTupleNetwork loadDefault() {
+        Path file = Paths.get(DEFAULT_FILE);
+        if (!Files.exists(file)) {
+            System.out.println("Težine mreže n-torki nisu naučene (pokrenite Main --train)");
+            return null;
+        }
+        try {
+            return load(file);
+        } catch (IOException e) {
+            e.printStackTrace();
+            return null;
+        }
+    }
+}
@@ -0,0 +1,205 @@
+package Solver;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import Logika.BitBoard;
+import Logika.Logika;
+import Logika.SplitMixRandom;
+import Metrike.Metrics;
+
+/**
+ * Uči mrežu n-torki (vidi NTupleNetwork) metodom vremenskih razlika TD(0) na igrama protiv sebe.
+ * Svaka nit igra svoje igre kroz Logika (potezi i nove pločice po pravilima igre), bira potez
+ * sa najvećim zbirom skora i procjene tablice nakon poteza, i procjenu prethodne takve tablice
+ * pomjera prema skoru sljedećeg poteza plus procjeni sljedeće tablice.
+ * Niti mijenjaju iste težine bez zaključavanja (Hogwild), a glavna nit ispisuje brzinu
+ * i povremeno čuva težine.
+ */
+public class TDLearner {
+    // Podrazumijevana stopa učenja za zbir svih težina jedne procjene
+    public static final float DEFAULT_ALPHA =  0.1f;
+    // Interval ispisa napretka
+    private static final long REPORT_MILLIS =  10_000;
+
+    private final NTupleNetwork network;
+    private final int threads;
+    private final float alpha;
+    private final long seed;
+
+    // Napredak od posljednjeg ispisa, zbirno za sve niti
+    private final LongAdder games = new LongAdder();
+    private final LongAdder moves = new LongAdder();
+    private final LongAdder scores = new LongAdder();
+    private final LongAdder reached2048 = new LongAdder();
+
+    /**
+     * @param network mreža koja se uči
+     * @param threads broj niti koje igraju
+     * @param alpha stopa učenja
+     * @param seed početna vrijednost generatora; svaka igra izvodi svoju iz nje (vidi SplitMixRandom)
+     */
+    public TDLearner(NTupleNetwork network, int threads, float alpha, long seed) {
+        if (threads <  1)
+            throw new IllegalArgumentException("Broj niti mora biti najmanje 1");
+        this.network = network;
+        this.threads = threads;
+        this.alpha = alpha;
+        this.seed = seed;
+    }
+
+    /**
+     * Igra dati broj igara učenja, ispisuje napredak i čuva težine svakih checkpointGames igara i na kraju.
+     *
+     * @param count broj igara
+     * @param checkpoint datoteka težina ili null ako se ne čuvaju
+     * @param checkpointGames broj igara između dva čuvanja
+     */
+    public void train(long count, Path checkpoint, long checkpointGames) throws IOException, InterruptedException {
+        long first = network.getGames();
+        AtomicLong next = new AtomicLong(first);
+        long end = first + count;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        long start = System.nanoTime();
+        try {
+            List<Future<?>> workers = new ArrayList<>(threads);
+            for (int t =  0; t < threads; t++)
+                workers.add(executor.submit(() -> play(next, end)));
+            executor.shutdown();
+
+            long reportNanos = start;
+            long lastCheckpoint = first;
+            while (!executor.awaitTermination(REPORT_MILLIS, TimeUnit.MILLISECONDS)) {
+                long now = System.nanoTime();
+                long played = Math.min(next.get(), end);
+                report(played - first, now - reportNanos);
+                reportNanos = now;
+                if (checkpoint != null && played - lastCheckpoint >= checkpointGames) {
+                    checkpoint(checkpoint, played);
+                    lastCheckpoint = played;
+                }
+            }
+            for (Future<?> worker : workers)
+                worker.get();
+            report(count, System.nanoTime() - reportNanos);
+            network.setGames(end);
+            if (checkpoint != null)
+                checkpoint(checkpoint, end);
+            double seconds = (System.nanoTime() - start) /  1e9;
+            System.out.printf("Ukupno: %d igara za %.1f s, igara/s: %.1f, po niti: %.1f%n", count, seconds,
+                    count / seconds, count / seconds / threads);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    // Ispisuje brzinu i uspjeh igara od posljednjeg ispisa
+    private void report(long total, long nanos) {
+        long g = games.sumThenReset();
+        long m = moves.sumThenReset();
+        long s = scores.sumThenReset();
+        long won = reached2048.sumThenReset();
+        double seconds = Math.max(1e-9, nanos /  1e9);
+        System.out.printf("Igara: %d, igara/s: %.1f (po niti %.1f), poteza/s: %.0f, prosječan skor: %.0f, 2048: %.1f%%%n",
+                total, g / seconds, g / seconds / threads, m / seconds, g ==  0 ?  0 : (double) s / g,
+                g ==  0 ?  0 :  100.0 * won / g);
+    }
+
+    private void checkpoint(Path file, long played) throws IOException {
+        long start = System.nanoTime();
+        network.setGames(played);
+        network.save(file);
+        System.out.printf("Težine sačuvane u %s (%d igara, %.0f ms)%n", file, played, (System.nanoTime() - start) /  1e6);
+    }
+
+    // Petlja jedne niti: uzima sljedeću igru dok ih ima
+    private void play(AtomicLong next, long end) {
+        SplitMixRandom random = new SplitMixRandom(seed);
+        Logika game = new Logika(random, false);
+        long index;
+        while ((index = next.getAndIncrement()) < end) {
+            random.setState(SplitMixRandom.streamState(seed, index));
+            game.startGame();
+            long board = game.getPackedBoard();
+            long previous = -1; // Tablica nakon prethodnog poteza, -1 prije prvog poteza
+            int count =  0;
+            int status =  0;
+            // Igra se završava kao u simulaciji: bez legalnih poteza ili sa pločicom  2048
+            while (status ==  0) {
+                int dir = network.bestDirection(board);
+                if (dir <  0)
+                    break;
+                long moved = BitBoard.move(board, dir);
+                int reward = BitBoard.moveInfo(board, dir) >>>  2;
+                if (previous != -1)
+                    network.update(previous, alpha * (reward + network.value(moved) - network.value(previous)));
+                previous = moved;
+                status = game.processMove(MOVES[dir]);
+                board = game.getPackedBoard();
+                count++;
+            }
+            // Tablica nakon posljednjeg poteza nema budućeg skora
+            if (previous != -1)
+                network.update(previous, alpha * -network.value(previous));
+            games.increment();
+            moves.add(count);
+            scores.add(game.getScore());
+            if (status ==  1)
+                reached2048.increment();
+        }
+    }
+
+    // Potezi u redoslijedu smjerova iz klase BitBoard
+    private static final char[] MOVES = {'u', 'd', 'l', 'r'};
+
+    /**
+     * Argumenti oblika --ime=vrijednost: --games (broj igara,  100000), --threads (sve jezgre),
+     * --alpha (stopa učenja), --seed, --out (datoteka težina, NTupleNetwork.DEFAULT_FILE) i
+     * --checkpoint (broj igara između dva čuvanja,  10000). Ako datoteka težina postoji,
+     * učenje se nastavlja od nje.
+     */
+    public static void main(String[] args) throws IOException, InterruptedException {
+        long count =  100_000;
+        int threads = Runtime.getRuntime().availableProcessors();
+        float alpha = DEFAULT_ALPHA;
+        long seed = System.nanoTime();
+        Path out = Paths.get(NTupleNetwork.DEFAULT_FILE);
+        long checkpoint =  10_000;
+        for (String arg : args) {
+            String value = arg.substring(arg.indexOf('=') +  1);
+            if (arg.startsWith("--games="))
+                count = Long.parseLong(value);
+            else if (arg.startsWith("--threads="))
+                threads = Integer.parseInt(value);
+            else if (arg.startsWith("--alpha="))
+                alpha = Float.parseFloat(value);
+            else if (arg.startsWith("--seed="))
+                seed = Long.parseLong(value);
+            else if (arg.startsWith("--out="))
+                out = Paths.get(value);
+            else if (arg.startsWith("--checkpoint="))
+                checkpoint = Long.parseLong(value);
+            else
+                throw new IllegalArgumentException("Nepoznat argument: " + arg);
+        }
+        // Mjerenje svakog poteza usporava učenje, kao i simulaciju
+        Metrics.setEnabled(false);
+        NTupleNetwork network = Files.exists(out) ? NTupleNetwork.load(out) : new NTupleNetwork();
+        System.out.println("Niti: " + threads + ", alpha: " + alpha + ", seed: " + seed
+                + (network.getGames() >  0 ? ", nastavlja se od " + network.getGames() + " igara" : ""));
+        new TDLearner(network, threads, alpha, seed).train(count, out, checkpoint);
+    }
+}
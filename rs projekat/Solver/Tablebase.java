@@ -0,0 +1,360 @@
+package Solver;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+import Logika.BitBoard;
+import Logika.GridBoard;
+import Logika.Logika;
+
+/**
+ * Tablica (tablebase) optimalnih vrijednosti svih dostižnih stanja igre 3x3, koju pravi
+ * TablebaseGenerator. Vrijednost stanja je očekivani skor do kraja igre uz optimalnu igru,
+ * pa najbolji potez daje samo nekoliko pogleda u tablicu, bez pretrage.
+ *
+ * Datoteka je hash tabela sa otvorenim adresiranjem koja se mapira u memoriju: svako mjesto je
+ * jedan long sa tablicom (36 bita) i vrijednošću u fiksnom zarezu (28 bita), a prazno mjesto je  0.
+ * Tablica se čuva samo u kanonskom obliku (najmanja od  8 simetrija), pa je tabela oko  8 puta manja.
+ * Mapira se u dijelovima od najviše 1 GB, pa može biti veća od heap-a.
+ */
+public class Tablebase implements Closeable {
+    // Podrazumijevana datoteka u radnom direktoriju
+    public static final String DEFAULT_FILE = "tablebase3.dat";
+    // Jedina podržana veličina tablice
+    public static final int SIZE =  3;
+
+    static final int MAGIC =  0x54423438; // "TB48"
+    static final int VERSION =  1;
+    static final int HEADER_SIZE =  64;
+    // Vrijednost se čuva u 1/256 poena u nižih  28 bita mjesta
+    static final int VALUE_BITS =  28;
+    static final double VALUE_SCALE =  256;
+    private static final long VALUE_MASK = (1L << VALUE_BITS) -  1;
+    // Broj mjesta u jednom mapiranom dijelu
+    private static final int SEGMENT_BITS =  27;
+
+    // Potezi u redoslijedu smjerova iz klase BitBoard
+    private static final char[] MOVES = {'u', 'd', 'l', 'r'};
+    private static final int CELLS = SIZE * SIZE;
+    private static final int ROW_MASK = (1 << (4 * SIZE)) -  1;
+
+    // Red od  3 ćelije (12 bita) nakon pomjeranja prema x =  0 i prema x =  2, i skor tog pomjeranja
+    private static final int[] ROW_LEFT = new int[ROW_MASK +  1];
+    private static final int[] ROW_RIGHT = new int[ROW_MASK +  1];
+    private static final int[] ROW_LEFT_SCORE = new int[ROW_MASK +  1];
+    private static final int[] ROW_RIGHT_SCORE = new int[ROW_MASK +  1];
+    // Simetrije: SYMMETRY[(t * SIZE + y) << 12 | red] je red y prebačen na svoje mjesto u simetriji t;
+    // bit  1 od t zrcali x, bit  2 zrcali y, a bit  4 zatim zamjenjuje x i y (transponovanje)
+    private static final long[] SYMMETRY = new long[8 * SIZE * (ROW_MASK +  1)];
+    private static final int TRANSPOSE =  4;
+
+    static {
+        // Pomjeranja redova se računaju pravilima igre (GridBoard), na tablici sa samo prvim redom
+        long[] grid = new long[1];
+        long[] dst = new long[1];
+        for (int row =  0; row <= ROW_MASK; row++) {
+            grid[0] = row;
+            int info = GridBoard.move(grid, SIZE, BitBoard.LEFT, dst);
+            ROW_LEFT[row] = (int) dst[0];
+            ROW_LEFT_SCORE[row] = info >>>  2;
+            info = GridBoard.move(grid, SIZE, BitBoard.RIGHT, dst);
+            ROW_RIGHT[row] = (int) dst[0];
+            ROW_RIGHT_SCORE[row] = info >>>  2;
+        }
+        for (int t =  0; t <  8; t++) {
+            for (int y =  0; y < SIZE; y++) {
+                for (int row =  0; row <= ROW_MASK; row++) {
+                    long out =  0;
+                    for (int x =  0; x < SIZE; x++) {
+                        int tx = (t &  1) !=  0 ? SIZE -  1 - x : x;
+                        int ty = (t &  2) !=  0 ? SIZE -  1 - y : y;
+                        if ((t & TRANSPOSE) !=  0) {
+                            int swap = tx;
+                            tx = ty;
+                            ty = swap;
+                        }
+                        out |= (long) ((row >>> (4 * x)) &  0xF) << (4 * (tx + SIZE * ty));
+                    }
+                    SYMMETRY[((t * SIZE + y) << (4 * SIZE)) | row] = out;
+                }
+            }
+        }
+    }
+
+    private final FileChannel channel;
+    private final MappedByteBuffer[] segments;
+    private final int bits;
+    private final long mask;
+    private long count;
+
+    private Tablebase(FileChannel channel, FileChannel.MapMode mode, int bits, long count) throws IOException {
+        this.channel = channel;
+        this.bits = bits;
+        this.mask = (1L << bits) -  1;
+        this.count = count;
+        long slots = 1L << bits;
+        int segmentSlots = (int) Math.min(slots,  1L << SEGMENT_BITS);
+        segments = new MappedByteBuffer[(int) (slots / segmentSlots)];
+        for (int s =  0; s < segments.length; s++) {
+            segments[s] = channel.map(mode, HEADER_SIZE + (long) s * segmentSlots *  8, (long) segmentSlots *  8);
+            segments[s].order(ByteOrder.LITTLE_ENDIAN);
+        }
+    }
+
+    /**
+     * Otvara tablicu za čitanje.
+     *
+     * @throws IOException ako datoteka ne postoji ili nije ispravna tablica
+     */
+    public static Tablebase open(Path file) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+        try {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            channel.read(header,  0);
+            header.flip();
+            if (header.remaining() < HEADER_SIZE || header.getInt() != MAGIC || header.getInt() != VERSION
+                    || header.getInt() != SIZE)
+                throw new IOException("Nevažeći format tablice: " + file);
+            int bits = header.getInt();
+            long count = header.getLong();
+            if (bits <  1 || bits >  40 || channel.size() != HEADER_SIZE + (8L << bits))
+                throw new IOException("Nepotpuna tablica: " + file);
+            return new Tablebase(channel, FileChannel.MapMode.READ_ONLY, bits, count);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Otvara DEFAULT_FILE iz radnog direktorija, za automatskog igrača i savjete.
+     *
+     * @return tablica ili null (uz poruku) ako nije generisana ili se ne može otvoriti
+     */
+    public static Tablebase openDefault() {
+        Path file = Paths.get(DEFAULT_FILE);
+        if (!Files.exists(file)) {
+            System.out.println("Tablica optimalnih poteza nije generisana (pokrenite Main --tablebase)");
+            return null;
+        }
+        try {
+            return open(file);
+        } catch (IOException e) {
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    /**
+     * Pravi praznu tablicu za upis (vidi TablebaseGenerator) sa mjestom za dati broj stanja.
+     */
+    static Tablebase create(Path file, long states) throws IOException {
+        // Popunjenost najviše 3/4
+        int bits = Math.max(1,  64 - Long.numberOfLeadingZeros(Math.max(1, states *  4 /  3)));
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            header.putInt(MAGIC).putInt(VERSION).putInt(SIZE).putInt(bits).putLong(0);
+            header.position(HEADER_SIZE).flip();
+            channel.write(header,  0);
+            // Datoteka se proširuje nulama (prazna mjesta) bez upisa
+            channel.write(ByteBuffer.allocate(1), HEADER_SIZE + (8L << bits) -  1);
+            return new Tablebase(channel, FileChannel.MapMode.READ_WRITE, bits,  0);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Vraća broj stanja u tablici.
+     */
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * Vraća očekivani skor do kraja igre uz optimalnu igru, ili NaN ako stanje nije u tablici
+     * (npr. tablica koja se ne može dobiti igrom).
+     *
+     * @param board tablica 3x3 spakovana kao u GridBoard (vidi Logika.getGrid)
+     */
+    public double value(long board) {
+        long key = canonical(board);
+        for (long i = hash(key); ; i = (i +  1) & mask) {
+            long slot = slot(i);
+            if (slot ==  0)
+                return Double.NaN;
+            if (slot >>> VALUE_BITS == key)
+                return (slot & VALUE_MASK) / VALUE_SCALE;
+        }
+    }
+
+    /**
+     * Vraća najbolji potez za trenutno stanje igre 3x3.
+     *
+     * @return 'u', 'd', 'l', 'r' ili Expectimax.NO_MOVE ako nijedan potez ne mijenja tablicu
+     * @throws IllegalArgumentException ako tablica igre nije 3x3
+     */
+    public char bestMove(Logika game) {
+        if (game.getSize() != SIZE)
+            throw new IllegalArgumentException("Tablica optimalnih poteza postoji samo za tablicu " + SIZE + "x" + SIZE);
+        long[] grid = new long[1];
+        game.getGrid(grid);
+        return bestMove(grid[0]);
+    }
+
+    /**
+     * Vraća najbolji potez za tablicu 3x3 spakovanu kao u GridBoard.
+     *
+     * @return 'u', 'd', 'l', 'r' ili Expectimax.NO_MOVE ako nijedan potez ne mijenja tablicu
+     */
+    public char bestMove(long board) {
+        char best = Expectimax.NO_MOVE;
+        double bestValue = -1;
+        for (int dir =  0; dir <  4; dir++) {
+            long after = move(board, dir);
+            if (after == board)
+                continue;
+            double value = moveScore(board, dir) + afterstateValue(after);
+            if (value > bestValue) {
+                bestValue = value;
+                best = MOVES[dir];
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Vraća očekivani skor optimalne igre iz stanja nakon poteza, a prije nove pločice:
+     * prosjek po praznim ćelijama, sa pločicom  4 u  10% slučajeva nakon dostignute pločice  8
+     * (kao Logika.addRandomCell), ili NaN ako neko od stanja nije u tablici.
+     */
+    double afterstateValue(long after) {
+        boolean reached8 = BitBoard.maxExponent(after) >=  3;
+        double sum =  0;
+        int empty =  0;
+        for (int i =  0; i < CELLS; i++) {
+            if (((after >>> (4 * i)) &  0xF) !=  0)
+                continue;
+            empty++;
+            double two = value(after | (1L << (4 * i)));
+            sum += reached8 ?  0.9 * two +  0.1 * value(after | (2L << (4 * i))) : two;
+        }
+        return sum / empty;
+    }
+
+    /**
+     * Upisuje vrijednost stanja; koristi je samo TablebaseGenerator, iz jedne niti.
+     *
+     * @param key tablica u kanonskom obliku
+     */
+    void put(long key, double value) {
+        long fixed = Math.round(value * VALUE_SCALE);
+        if (fixed <  0 || fixed > VALUE_MASK)
+            throw new IllegalStateException("Vrijednost izvan opsega tablice: " + value);
+        for (long i = hash(key); ; i = (i +  1) & mask) {
+            long slot = slot(i);
+            if (slot ==  0)
+                count++;
+            else if (slot >>> VALUE_BITS != key)
+                continue;
+            segments[(int) (i >>> SEGMENT_BITS)].putLong((int) (i & ((1L << SEGMENT_BITS) -  1)) *  8,
+                    (key << VALUE_BITS) | fixed);
+            return;
+        }
+    }
+
+    /**
+     * Upisuje broj stanja u zaglavlje i sve promjene na disk.
+     */
+    void force() throws IOException {
+        for (MappedByteBuffer segment : segments)
+            segment.force();
+        ByteBuffer buffer = ByteBuffer.allocate(8).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putLong(count).flip();
+        channel.write(buffer,  16);
+        channel.force(true);
+    }
+
+    private long hash(long key) {
+        return (key *  0x9E3779B97F4A7C15L) >>> (64 - bits);
+    }
+
+    private long slot(long i) {
+        return segments[(int) (i >>> SEGMENT_BITS)].getLong((int) (i & ((1L << SEGMENT_BITS) -  1)) *  8);
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    // Pravila igre 3x3 nad jednim long-om (ćelija i = x +  3y na bitovima  4i), kao GridBoard
+
+    /**
+     * Vraća tablicu nakon pokreta u datom smjeru (vidi BitBoard), bez nove pločice.
+     */
+    static long move(long board, int dir) {
+        switch (dir) {
+            case BitBoard.LEFT:
+                return rows(board, ROW_LEFT);
+            case BitBoard.RIGHT:
+                return rows(board, ROW_RIGHT);
+            case BitBoard.UP:
+                return transform(rows(transform(board, TRANSPOSE), ROW_LEFT), TRANSPOSE);
+            case BitBoard.DOWN:
+                return transform(rows(transform(board, TRANSPOSE), ROW_RIGHT), TRANSPOSE);
+            default:
+                throw new IllegalArgumentException("Nevažeći pokret");
+        }
+    }
+
+    /**
+     * Vraća skor pokreta u datom smjeru.
+     */
+    static int moveScore(long board, int dir) {
+        if (dir == BitBoard.UP || dir == BitBoard.DOWN)
+            board = transform(board, TRANSPOSE);
+        int[] table = dir == BitBoard.UP || dir == BitBoard.LEFT ? ROW_LEFT_SCORE : ROW_RIGHT_SCORE;
+        int score =  0;
+        for (int y =  0; y < SIZE; y++)
+            score += table[(int) (board >>> (4 * SIZE * y)) & ROW_MASK];
+        return score;
+    }
+
+    private static long rows(long board, int[] table) {
+        long out =  0;
+        for (int y =  0; y < SIZE; y++)
+            out |= (long) table[(int) (board >>> (4 * SIZE * y)) & ROW_MASK] << (4 * SIZE * y);
+        return out;
+    }
+
+    // Tablica u simetriji t
+    private static long transform(long board, int t) {
+        int base = t * SIZE;
+        return SYMMETRY[(base << (4 * SIZE)) | ((int) board & ROW_MASK)]
+                | SYMMETRY[((base +  1) << (4 * SIZE)) | ((int) (board >>> (4 * SIZE)) & ROW_MASK)]
+                | SYMMETRY[((base +  2) << (4 * SIZE)) | ((int) (board >>> (8 * SIZE)) & ROW_MASK)];
+    }
+
+    /**
+     * Vraća kanonski oblik tablice: najmanju od njenih  8 simetrija (rotacije i zrcaljenja).
+     * Simetrične tablice imaju istu vrijednost, pa se u tablici čuva samo kanonski oblik.
+     */
+    static long canonical(long board) {
+        long min = board;
+        for (int t =  1; t <  8; t++)
+            min = Math.min(min, transform(board, t));
+        return min;
+    }
+}
@@ -0,0 +1,410 @@
+package Solver;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.stream.IntStream;
+
+import Logika.BitBoard;
+
+/**
+ * Pravi tablicu optimalnih vrijednosti (vidi Tablebase) za igru 3x3, u dva prolaza po slojevima.
+ * Zbir pločica se nakon svakog poteza poveća za  2 ili  4 (nova pločica), pa su stanja podijeljena
+ * u slojeve po zbiru, a nasljednici stanja su uvijek u sljedeća dva sloja.
+ *
+ * Prvi prolaz od početnih stanja nabraja sve dostižne slojeve: nasljednici se skupljaju u blokove,
+ * blok se sortira i upisuje na disk, a sloj se pred obradu spaja iz svojih blokova u sortiranu
+ * datoteku bez ponavljanja. Drugi prolaz ide od najvećeg zbira prema najmanjem i računa vrijednost
+ * svakog stanja iz već upisanih vrijednosti nasljednika u tablici mapiranoj u memoriju.
+ * U memoriji su samo blokovi slojeva koji se obrađuju, pa tablica može biti veća od heap-a.
+ * Stanja bloka se obrađuju paralelno, u zajedničkom ForkJoinPool-u.
+ */
+public class TablebaseGenerator {
+    private static final int SIZE = Tablebase.SIZE;
+    private static final int CELLS = SIZE * SIZE;
+    // Podrazumijevani broj stanja u bloku (32 MB)
+    private static final int DEFAULT_CHUNK =  1 <<  22;
+    // Broj stanja koja jedan paralelni zadatak obrađuje odjednom
+    private static final int TASK_SIZE =  4096;
+    private static final int IO_BUFFER =  1 <<  16;
+
+    private final Path output;
+    private final Path directory;
+    private final int chunk;
+    // Slojevi u nastajanju, po zbiru pločica
+    private final Map<Integer, Layer> pending = new HashMap<>();
+    // Završeni slojevi po rastućem zbiru
+    private final List<Layer> layers = new ArrayList<>();
+    private long states;
+
+    /**
+     * @param output datoteka tablice
+     * @param directory direktorij za privremene datoteke slojeva
+     * @param chunk broj stanja u bloku koji se drži u memoriji
+     */
+    public TablebaseGenerator(Path output, Path directory, int chunk) {
+        if (chunk < TASK_SIZE)
+            throw new IllegalArgumentException("Blok mora imati najmanje " + TASK_SIZE + " stanja");
+        this.output = output;
+        this.directory = directory;
+        this.chunk = chunk;
+    }
+
+    /**
+     * Pravi tablicu i vraća broj stanja u njoj.
+     */
+    public long generate() throws IOException {
+        long start = System.nanoTime();
+        // Početna stanja: jedna pločica  2 (vidi Logika.startGame)
+        for (int i =  0; i < CELLS; i++)
+            layer(2).add(Tablebase.canonical(1L << (4 * i)));
+
+        while (!pending.isEmpty()) {
+            int sum = pending.keySet().stream().min(Integer::compare).get();
+            Layer layer = pending.remove(sum);
+            layer.finish();
+            layers.add(layer);
+            states += layer.count;
+            expand(layer);
+        }
+        System.out.printf("Stanja: %d u %d slojeva (%.1f s)%n", states, layers.size(), (System.nanoTime() - start) /  1e9);
+
+        try (Tablebase table = Tablebase.create(output, states)) {
+            for (int k = layers.size() -  1; k >=  0; k--)
+                solve(layers.get(k), table);
+            table.force();
+            double initial =  0;
+            for (int i =  0; i < CELLS; i++)
+                initial += table.value(1L << (4 * i));
+            System.out.printf("Očekivani skor optimalne igre: %.2f (%.1f s)%n", initial / CELLS,
+                    (System.nanoTime() - start) /  1e9);
+        }
+        return states;
+    }
+
+    private Layer layer(int sum) {
+        return pending.computeIfAbsent(sum, s -> new Layer(s));
+    }
+
+    // Dodaje nasljednike svih stanja sloja u sljedeće slojeve
+    private void expand(Layer layer) throws IOException {
+        long[] keys = new long[chunk];
+        try (LongReader in = new LongReader(layer.file)) {
+            for (int n; (n = in.read(keys)) >  0; ) {
+                int count = n;
+                IntStream.range(0, (count + TASK_SIZE -  1) / TASK_SIZE).parallel().forEach(task -> {
+                    LongList two = new LongList(TASK_SIZE *  8);
+                    LongList four = new LongList(TASK_SIZE *  8);
+                    for (int i = task * TASK_SIZE; i < Math.min(count, (task +  1) * TASK_SIZE); i++)
+                        successors(keys[i], two, four);
+                    synchronized (this) {
+                        try {
+                            layer(layer.sum +  2).addAll(two);
+                            layer(layer.sum +  4).addAll(four);
+                        } catch (IOException e) {
+                            throw new UncheckedIOException(e);
+                        }
+                    }
+                });
+            }
+        }
+    }
+
+    // Nasljednici stanja nakon svakog legalnog poteza i nove pločice  2 (two) ili  4 (four)
+    private static void successors(long board, LongList two, LongList four) {
+        for (int dir =  0; dir <  4; dir++) {
+            long after = Tablebase.move(board, dir);
+            if (after == board)
+                continue;
+            boolean reached8 = BitBoard.maxExponent(after) >=  3;
+            for (int i =  0; i < CELLS; i++) {
+                if (((after >>> (4 * i)) &  0xF) !=  0)
+                    continue;
+                two.add(Tablebase.canonical(after | (1L << (4 * i))));
+                if (reached8)
+                    four.add(Tablebase.canonical(after | (2L << (4 * i))));
+            }
+        }
+    }
+
+    // Računa i upisuje vrijednosti svih stanja sloja; nasljednici su već u tablici
+    private void solve(Layer layer, Tablebase table) throws IOException {
+        long[] keys = new long[chunk];
+        double[] values = new double[chunk];
+        try (LongReader in = new LongReader(layer.file)) {
+            for (int n; (n = in.read(keys)) >  0; ) {
+                IntStream.range(0, n).parallel().forEach(i -> values[i] = value(keys[i], table));
+                for (int i =  0; i < n; i++)
+                    table.put(keys[i], values[i]);
+            }
+        }
+        Files.delete(layer.file);
+    }
+
+    // Najveći očekivani skor po legalnim potezima;  0 ako igra završava
+    private static double value(long board, Tablebase table) {
+        double best =  0;
+        for (int dir =  0; dir <  4; dir++) {
+            long after = Tablebase.move(board, dir);
+            if (after == board)
+                continue;
+            double value = Tablebase.moveScore(board, dir) + table.afterstateValue(after);
+            if (Double.isNaN(value))
+                throw new IllegalStateException("Nasljednik stanja " + Long.toHexString(board) + " nije u tablici");
+            best = Math.max(best, value);
+        }
+        return best;
+    }
+
+    /**
+     * Sloj stanja sa istim zbirom pločica. Dok nastaje, stanja se skupljaju u blok u memoriji,
+     * a pun blok se sortira bez ponavljanja i dodaje na kraj datoteke blokova.
+     * finish() spaja blokove u sortiranu datoteku sloja.
+     */
+    private final class Layer {
+        final int sum;
+        final Path file;
+        private final Path runs;
+        private final List<Long> runLengths = new ArrayList<>();
+        private LongWriter runWriter;
+        private long[] buffer = new long[1024];
+        private int size;
+        long count;
+
+        Layer(int sum) {
+            this.sum = sum;
+            this.file = directory.resolve("layer-" + sum + ".dat");
+            this.runs = directory.resolve("layer-" + sum + ".runs");
+        }
+
+        void add(long key) throws IOException {
+            if (size == buffer.length) {
+                if (buffer.length < chunk) {
+                    buffer = Arrays.copyOf(buffer, Math.min(chunk, buffer.length *  2));
+                } else {
+                    size = sortUnique(buffer, size);
+                    // Blok se upisuje tek kada ponavljanja ne oslobode bar četvrtinu mjesta
+                    if (size > chunk /  4 *  3)
+                        spill();
+                }
+            }
+            buffer[size++] = key;
+        }
+
+        void addAll(LongList keys) throws IOException {
+            for (int i =  0; i < keys.size; i++)
+                add(keys.values[i]);
+        }
+
+        private void spill() throws IOException {
+            size = sortUnique(buffer, size);
+            if (runWriter == null)
+                runWriter = new LongWriter(runs);
+            for (int i =  0; i < size; i++)
+                runWriter.write(buffer[i]);
+            runLengths.add((long) size);
+            size =  0;
+        }
+
+        // Spaja blokove u datoteku sloja i oslobađa memoriju bloka
+        void finish() throws IOException {
+            if (runWriter == null) {
+                size = sortUnique(buffer, size);
+                try (LongWriter out = new LongWriter(file)) {
+                    for (int i =  0; i < size; i++)
+                        out.write(buffer[i]);
+                }
+                count = size;
+            } else {
+                spill();
+                runWriter.close();
+                merge();
+                Files.delete(runs);
+            }
+            buffer = null;
+        }
+
+        private void merge() throws IOException {
+            List<LongReader> readers = new ArrayList<>();
+            PriorityQueue<LongReader> queue = new PriorityQueue<>((a, b) -> Long.compare(a.head, b.head));
+            try (LongWriter out = new LongWriter(file)) {
+                long offset =  0;
+                for (long length : runLengths) {
+                    LongReader reader = new LongReader(runs, offset, length);
+                    readers.add(reader);
+                    if (reader.next())
+                        queue.add(reader);
+                    offset += length;
+                }
+                long last = -1;
+                while (!queue.isEmpty()) {
+                    LongReader reader = queue.poll();
+                    if (reader.head != last) {
+                        out.write(reader.head);
+                        last = reader.head;
+                        count++;
+                    }
+                    if (reader.next())
+                        queue.add(reader);
+                }
+            } finally {
+                for (LongReader reader : readers)
+                    reader.close();
+            }
+        }
+    }
+
+    // Sortira prvih n elemenata i uklanja ponavljanja; vraća novi broj elemenata
+    private static int sortUnique(long[] values, int n) {
+        Arrays.parallelSort(values,  0, n);
+        int k =  0;
+        for (int i =  0; i < n; i++) {
+            if (k ==  0 || values[k -  1] != values[i])
+                values[k++] = values[i];
+        }
+        return k;
+    }
+
+    // Niz long-ova koji raste, za nasljednike jednog zadatka
+    private static final class LongList {
+        long[] values;
+        int size;
+
+        LongList(int capacity) {
+            values = new long[capacity];
+        }
+
+        void add(long value) {
+            if (size == values.length)
+                values = Arrays.copyOf(values, size *  2);
+            values[size++] = value;
+        }
+    }
+
+    // Upis long-ova u datoteku kroz bafer
+    private static final class LongWriter implements AutoCloseable {
+        private final FileChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocateDirect(IO_BUFFER).order(ByteOrder.LITTLE_ENDIAN);
+
+        LongWriter(Path file) throws IOException {
+            channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                    StandardOpenOption.WRITE);
+        }
+
+        void write(long value) throws IOException {
+            if (!buffer.hasRemaining())
+                flush();
+            buffer.putLong(value);
+        }
+
+        private void flush() throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining())
+                channel.write(buffer);
+            buffer.clear();
+        }
+
+        @Override
+        public void close() throws IOException {
+            flush();
+            channel.close();
+        }
+    }
+
+    // Čitanje long-ova iz dijela datoteke kroz bafer
+    private static final class LongReader implements AutoCloseable {
+        private final FileChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocateDirect(IO_BUFFER).order(ByteOrder.LITTLE_ENDIAN);
+        private long position;
+        private long remaining;
+        long head;
+
+        LongReader(Path file) throws IOException {
+            this(file,  0, Files.size(file) /  8);
+        }
+
+        LongReader(Path file, long offset, long length) throws IOException {
+            channel = FileChannel.open(file, StandardOpenOption.READ);
+            position = offset *  8;
+            remaining = length;
+            buffer.flip();
+        }
+
+        // Čita sljedeći long u head; vraća false na kraju
+        boolean next() throws IOException {
+            if (remaining ==  0)
+                return false;
+            if (!buffer.hasRemaining()) {
+                buffer.clear();
+                buffer.limit((int) Math.min(IO_BUFFER, remaining *  8));
+                while (buffer.hasRemaining()) {
+                    int read = channel.read(buffer, position);
+                    if (read <  0)
+                        throw new IOException("Neočekivan kraj datoteke");
+                    position += read;
+                }
+                buffer.flip();
+            }
+            head = buffer.getLong();
+            remaining--;
+            return true;
+        }
+
+        // Čita do dst.length long-ova; vraća broj pročitanih
+        int read(long[] dst) throws IOException {
+            int n =  0;
+            while (n < dst.length && next())
+                dst[n++] = head;
+            return n;
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+    }
+
+    /**
+     * Argumenti oblika --ime=vrijednost: --out (datoteka tablice, Tablebase.DEFAULT_FILE),
+     * --temp (direktorij za slojeve, privremeni direktorij sistema) i --chunk (broj stanja u bloku).
+     */
+    public static void main(String[] args) throws IOException {
+        Path output = Paths.get(Tablebase.DEFAULT_FILE);
+        Path temp = null;
+        int chunk = DEFAULT_CHUNK;
+        for (String arg : args) {
+            String value = arg.substring(arg.indexOf('=') +  1);
+            if (arg.startsWith("--out="))
+                output = Paths.get(value);
+            else if (arg.startsWith("--temp="))
+                temp = Paths.get(value);
+            else if (arg.startsWith("--chunk="))
+                chunk = Integer.parseInt(value);
+            else
+                throw new IllegalArgumentException("Nepoznat argument: " + arg);
+        }
+        Path directory = temp != null ? Files.createTempDirectory(temp, "tablebase") : Files.createTempDirectory("tablebase");
+        try {
+            long states = new TablebaseGenerator(output, directory, chunk).generate();
+            System.out.println("Tablica upisana u " + output.toAbsolutePath() + " (" + states + " stanja)");
+        } finally {
+            try (var files = Files.list(directory)) {
+                for (Path file : (Iterable<Path>) files::iterator)
+                    Files.delete(file);
+            }
+            Files.delete(directory);
+        }
+    }
+}
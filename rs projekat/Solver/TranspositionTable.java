@@ -0,0 +1,74 @@
+package Solver;
+
+/**
+ * Transpoziciona tabela ograničene veličine za expectimax pretragu.
+ * Čuva vrijednost čvora slučaja za par (tablica, preostala dubina) u dva niza long-ova,
+ * tako da ne alocira memoriju nakon kreiranja.
+ * Svaki ključ ima dva moguća mjesta; kada su oba zauzeta, izbacuje se unos sa manjom dubinom.
+ * Tabelu bez zaključavanja dijeli više niti: ključ se čuva XOR-ovan sa podacima,
+ * pa se pokidan upis prepoznaje kao promašaj umjesto kao pogrešna vrijednost.
+ */
+class TranspositionTable {
+    private final long[] keys;
+    private final long[] data;
+    private final int mask;
+
+    /**
+     * @param entries najveći broj unosa, zaokružuje se na stepen broja  2
+     */
+    TranspositionTable(int entries) {
+        int size = Integer.highestOneBit(Math.max(entries,  2));
+        keys = new long[size];
+        data = new long[size];
+        mask = size -  1;
+    }
+
+    // Miješa tablicu, dubinu i zastavicu pločice  8 u jedan ključ
+    static long key(long board, int depth, boolean reached8) {
+        long h = board *  0x9E3779B97F4A7C15L + depth * 0xC2B2AE3D27D4EB4FL + (reached8 ?  0x165667B19E3779F9L :  0);
+        h ^= h >>>  31;
+        h *=  0xBF58476D1CE4E5B9L;
+        return h ^ (h >>>  29);
+    }
+
+    /**
+     * Vraća sačuvanu vrijednost ili NaN ako ključ nije u tabeli.
+     */
+    float get(long key) {
+        int i = (int) key & mask & ~1;
+        for (int k = i; k <= i +  1; k++) {
+            long d = data[k];
+            if ((keys[k] ^ d) == key && d !=  0)
+                return Float.intBitsToFloat((int) d);
+        }
+        return Float.NaN;
+    }
+
+    /**
+     * Čuva vrijednost; dubina određuje koji unos se izbacuje kada je mjesto zauzeto.
+     */
+    void put(long key, int depth, float value) {
+        int i = (int) key & mask & ~1;
+        long d = ((long) depth <<  32) | (Float.floatToRawIntBits(value) &  0xFFFFFFFFL);
+        int victim = i;
+        for (int k = i; k <= i +  1; k++) {
+            long old = data[k];
+            if (old ==  0 || (keys[k] ^ old) == key) {
+                victim = k;
+                break;
+            }
+            if ((old >>>  32) < (data[victim] >>>  32))
+                victim = k;
+        }
+        data[victim] = d;
+        keys[victim] = key ^ d;
+    }
+
+    /**
+     * Briše sve unose.
+     */
+    void clear() {
+        java.util.Arrays.fill(keys,  0);
+        java.util.Arrays.fill(data,  0);
+    }
+}
@@ -0,0 +1,49 @@
+package GUI;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+import java.awt.Graphics;
+import java.awt.image.BufferedImage;
+
+import org.junit.jupiter.api.Test;
+
+import Logika.Leaderboard;
+import Logika.Logika;
+import Logika.SplitMixRandom;
+
+/**
+ * Crta okvire BoardRenderer-a u sliku, bez prozora, kao nit za crtanje (vidi BoardRenderer.run).
+ */
+class BoardRendererTest {
+    // Sredina  ćelije (0, 0) na platnu
+    private static final int CELL_X =  100;
+    private static final int CELL_Y =  100;
+
+    private static BufferedImage frame(BoardRenderer renderer) {
+        BufferedImage image = new BufferedImage(BoardRenderer.WIDTH, BoardRenderer.HEIGHT, BufferedImage.TYPE_INT_ARGB);
+        boolean full = renderer.nextFrame();
+        Graphics g = image.createGraphics();
+        try {
+            renderer.draw(g,  0, full, false);
+        } finally {
+            g.dispose();
+        }
+        return image;
+    }
+
+    @Test
+    void frameBeforeFirstPublishIsEmptyCanvas() {
+        BoardRenderer renderer = new BoardRenderer();
+        // Nit za crtanje odmah crta prvi okvir, prije nego što GUI objavi igru
+        BufferedImage empty = frame(renderer);
+        assertEquals(renderer.getBackground().getRGB(), empty.getRGB(CELL_X, CELL_Y));
+
+        Logika game = new Logika(4, new SplitMixRandom(23), (Leaderboard) null);
+        game.startGame();
+        game.setSnapshotsEnabled(true);
+        renderer.publish(game.getSnapshot(), null,  0);
+        BufferedImage board = frame(renderer);
+        assertNotEquals(renderer.getBackground().getRGB(), board.getRGB(CELL_X, CELL_Y));
+    }
+}
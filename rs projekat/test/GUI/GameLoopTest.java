@@ -0,0 +1,33 @@
+package GUI;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Redoslijed komandi na niti logike, kao pri pokretanju igre (vidi GUI.startGame).
+ */
+class GameLoopTest {
+    @Test
+    void commandQueuedBeforeStartRunsBeforeContinuations() throws InterruptedException {
+        List<String> order = new CopyOnWriteArrayList<>();
+        CountDownLatch idle = new CountDownLatch(1);
+        GameLoop loop = new GameLoop(() -> {
+            order.add("idle");
+            idle.countDown();
+        });
+        loop.execute(() -> order.add("newGame"));
+        // Datoteka otvorena prije pokretanja niti: nastavak čeka u redu iza nove igre
+        CompletableFuture.completedFuture(null).whenCompleteAsync((result, error) -> order.add("leaderboard"), loop);
+        loop.start();
+        assertTrue(idle.await(10, TimeUnit.SECONDS));
+        assertEquals(List.of("newGame", "leaderboard", "idle"), order.subList(0,  3));
+    }
+}
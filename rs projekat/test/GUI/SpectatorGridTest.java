@@ -0,0 +1,68 @@
+package GUI;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.awt.Dimension;
+import java.awt.Graphics;
+import java.awt.image.BufferedImage;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import Logika.Logika;
+
+/**
+ * Crta okvire SpectatorGrid-a u sliku, bez prozora i bez pozadinskih niti: okvir koji crta samo
+ * promijenjene  ćelije mora dati istu sliku kao okvir koji crta sve.
+ */
+class SpectatorGridTest {
+    // Red sa brojačima zavisi od vremena, pa se porede samo tablice ispod njega
+    private static final int HEADER =  24;
+
+    private static void draw(SpectatorGrid grid, BufferedImage image, boolean full) {
+        Graphics g = image.createGraphics();
+        try {
+            grid.draw(g, full);
+        } finally {
+            g.dispose();
+        }
+    }
+
+    @Test
+    void incrementalFramesMatchFullRedraw() {
+        SpectatorGrid grid = new SpectatorGrid(5,  3,  24);
+        Dimension size = grid.getPreferredSize();
+        grid.setSize(size);
+        BufferedImage incremental = new BufferedImage(size.width, size.height, BufferedImage.TYPE_INT_RGB);
+        draw(grid, incremental, true);
+
+        Random random = new Random(25);
+        int finished =  0;
+        for (int frame =  0; frame <  400; frame++) {
+            // Svaka igra odigra slučajan legalan potez; završena igra ostaje jedan okvir, pa počinje nova
+            for (int i =  0; i < grid.games.length; i++) {
+                Logika game = grid.games[i];
+                int legal = game.getLegalMoves();
+                if (legal ==  0) {
+                    grid.newGame(i);
+                    finished++;
+                    continue;
+                }
+                for (int skip = random.nextInt(Integer.bitCount(legal)); skip >  0; skip--)
+                    legal &= legal -  1;
+                game.processMove("udlr".charAt(Integer.numberOfTrailingZeros(legal)));
+            }
+            draw(grid, incremental, false);
+
+            BufferedImage full = new BufferedImage(size.width, size.height, BufferedImage.TYPE_INT_RGB);
+            draw(grid, full, true);
+            for (int y = HEADER; y < size.height; y++) {
+                for (int x =  0; x < size.width; x++)
+                    assertEquals(full.getRGB(x, y), incremental.getRGB(x, y), "okvir " + frame + ", piksel " + x + ", " + y);
+            }
+        }
+        // Prelaz iz završene u novu igru briše preklapanje kraja
+        assertTrue(finished >  0);
+    }
+}
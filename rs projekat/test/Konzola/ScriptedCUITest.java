@@ -0,0 +1,147 @@
+package Konzola;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import Logika.Leaderboard;
+import Logika.Logika;
+import Logika.SplitMixRandom;
+
+/**
+ * Izvršavanje skripti kroz ScriptedCUI sa ulazom i izlazom u memoriji.
+ */
+class ScriptedCUITest {
+    private static final String MOVES = "udlr";
+
+    // Izlaz skripte i izlazni kod
+    private static final class Result {
+        final int exitCode;
+        final List<String> lines;
+
+        Result(int exitCode, String output) {
+            this.exitCode = exitCode;
+            this.lines = List.of(output.split("\n"));
+        }
+
+        // Polja reda "summary ..." oblika ime=vrijednost
+        Map<String, String> summary() {
+            String last = lines.get(lines.size() -  1);
+            assertTrue(last.startsWith("summary "), last);
+            Map<String, String> fields = new HashMap<>();
+            for (String field : last.substring("summary ".length()).split(" ")) {
+                int equals = field.indexOf('=');
+                fields.put(field.substring(0, equals), field.substring(equals +  1));
+            }
+            return fields;
+        }
+    }
+
+    private static Result run(String script, int size, long seed, int printEvery) throws IOException {
+        StringWriter out = new StringWriter();
+        int exitCode = new ScriptedCUI(size, seed, printEvery, out)
+                .run(new ByteArrayInputStream(script.getBytes(StandardCharsets.UTF_8)));
+        return new Result(exitCode, out.toString());
+    }
+
+    // Slučajni pokreti u redovima sa komentarima, razmacima i zarezima
+    private static String randomScript(long seed, int moves) {
+        Random random = new Random(seed);
+        StringBuilder script = new StringBuilder("# slučajni pokreti\n");
+        for (int i =  1; i <= moves; i++) {
+            script.append(MOVES.charAt(random.nextInt(4)));
+            script.append(i %  40 ==  0 ? "\n" : i %  5 ==  0 ? ", " : "");
+        }
+        return script.toString();
+    }
+
+    @Test
+    void sameSeedGivesSameSummary() throws IOException {
+        String script = randomScript(1,  3000);
+        Map<String, String> first = run(script,  4,  7,  0).summary();
+        Map<String, String> second = run(script,  4,  7,  0).summary();
+        // Trajanje je jedino polje koje zavisi od mašine
+        first.remove("seconds");
+        second.remove("seconds");
+        assertEquals(first, second);
+        assertEquals("3000", first.get("moves"));
+        assertTrue(Integer.parseInt(first.get("games")) >  0);
+
+        Map<String, String> other = run(script,  4,  8,  0).summary();
+        other.remove("seconds");
+        assertNotEquals(first, other);
+    }
+
+    @Test
+    void invalidCharacterStopsWithLineAndColumn() throws IOException {
+        Result result = run("ul # komentar q\n  d q r\n",  4,  1,  0);
+        assertEquals(ScriptedCUI.EXIT_INVALID_SCRIPT, result.exitCode);
+        assertEquals("error line=2 column=5 char=q", result.lines.get(0));
+        // Pokreti prije greške su izvršeni, a poslije nje nisu
+        assertEquals("3", result.summary().get("moves"));
+
+        result = run("u\n\u0001",  4,  1,  0);
+        assertEquals(ScriptedCUI.EXIT_INVALID_SCRIPT, result.exitCode);
+        assertEquals("error line=2 column=1 char=0x01", result.lines.get(0));
+
+        assertEquals(ScriptedCUI.EXIT_OK, run("u d\n# kraj",  4,  1,  0).exitCode);
+    }
+
+    @Test
+    void ignoredCountsMovesThatDoNotChangeBoard() throws IOException {
+        // Ponovljen pokret u istom smjeru često ne mijenja tablicu
+        String script = "l".repeat(20) + "u".repeat(20) + "r".repeat(20) + "d".repeat(20);
+        Map<String, String> summary = run(script,  4,  3,  0).summary();
+
+        // Ista igra odigrana direktno: pokret koji ne mijenja tablicu se ne procesira
+        Logika game = new Logika(4, new SplitMixRandom(3), (Leaderboard) null);
+        game.startGame();
+        int ignored =  0;
+        for (char move : script.toCharArray()) {
+            if (game.isLegal(move))
+                game.processMove(move);
+            else
+                ignored++;
+        }
+        assertTrue(ignored >  0);
+        assertEquals(String.valueOf(ignored), summary.get("ignored"));
+        assertEquals(String.valueOf(script.length() - ignored), summary.get("played"));
+        assertEquals(String.valueOf(game.getScore()), summary.get("score"));
+    }
+
+    @Test
+    void printWritesBoardEveryNPlayedMoves() throws IOException {
+        Result result = run(randomScript(2,  100),  3,  5,  4);
+        long played = Long.parseLong(result.summary().get("played"));
+        int boards =  0;
+        for (int i =  0; i < result.lines.size(); i++) {
+            String line = result.lines.get(i);
+            if (!line.startsWith("board "))
+                continue;
+            boards++;
+            assertEquals("board " +  4 * boards, line);
+            // Tablica red po red: tri vrijednosti pločica i razmak iza svake
+            for (int row =  1; row <=  3; row++)
+                assertTrue(result.lines.get(i + row).matches("(\\d+ ){3}"), result.lines.get(i + row));
+        }
+        assertEquals(played /  4, boards);
+
+        // Bez --print se ispisuje samo rezultat
+        result = run(randomScript(2,  100),  3,  5,  0);
+        for (String line : result.lines)
+            assertTrue(line.startsWith("summary ") || line.startsWith("game "), line);
+        assertThrows(IllegalArgumentException.class, () -> new ScriptedCUI(4,  1, -1, new StringWriter()));
+    }
+}
@@ -0,0 +1,83 @@
+package Logika;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import java.lang.management.ManagementFactory;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Provjerava da potez i čitanje tablice ne alociraju memoriju: broji bajte koje je nit alocirala
+ * (com.sun.management.ThreadMXBean) tokom mnogo poteza, nakon zagrijavanja, kao SessionBenchmark.
+ * Dnevnik, izvoz i objavljivanje stanja su isključeni, kao u simulaciji i pretrazi.
+ */
+class AllocationTest {
+    private static final int WARMUP =  200_000;
+    private static final int MOVES =  100_000;
+    private static final int ROUNDS =  3;
+    private static final char[] MOVES_BY_DIRECTION = {'u', 'd', 'l', 'r'};
+
+    private static com.sun.management.ThreadMXBean threads;
+
+    @BeforeAll
+    static void setUp() {
+        assumeTrue(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean,
+                "JVM ne mjeri alokaciju po niti");
+        threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        assumeTrue(threads.isThreadAllocatedMemorySupported(), "JVM ne mjeri alokaciju po niti");
+        threads.setThreadAllocatedMemoryEnabled(true);
+    }
+
+    private static long allocated() {
+        return threads.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    // Igra count poteza i čita tablicu nakon svakog; završena igra počinje ponovo
+    private static long play(Logika game, int[][] cells, long[] grid, int count) {
+        long sum =  0;
+        for (int i =  0; i < count; i++) {
+            int legal = game.getLegalMoves();
+            int status = game.processMove(MOVES_BY_DIRECTION[legal ==  0 ?  0 : Integer.numberOfTrailingZeros(legal)]);
+            game.getBoard(cells);
+            game.getGrid(grid);
+            sum += game.getCell(0,  0) + game.getExponent(1,  1) + game.getScore();
+            if (status !=  0)
+                game.startGame();
+        }
+        return sum;
+    }
+
+    private static void assertNoAllocation(int size) {
+        Logika game = new Logika(size, new SplitMixRandom(size), (Leaderboard) null);
+        int[][] cells = new int[size][size];
+        long[] grid = new long[GridBoard.words(size)];
+        game.startGame();
+        play(game, cells, grid, WARMUP);
+
+        // Samo mjerenje može alocirati nekoliko bajta, pa se oduzima prazno mjerenje; JVM takođe
+        // ponekad alocira u niti (npr. pri prevođenju metoda), pa se uzima najbolje od ROUNDS mjerenja
+        long empty = -allocated() + allocated();
+        long best = Long.MAX_VALUE;
+        long sum =  0;
+        for (int round =  0; round < ROUNDS && best >  0; round++) {
+            long before = allocated();
+            sum += play(game, cells, grid, MOVES);
+            best = Math.min(best, Math.max(0, allocated() - before - empty));
+        }
+        assertEquals(0, best, "bajta za " + MOVES + " poteza na tablici " + size + "x" + size + " (" + sum + ")");
+    }
+
+    @Test
+    void packedBoardMoveDoesNotAllocate() {
+        assertNoAllocation(4);
+    }
+
+    @Test
+    void gridBoardMoveDoesNotAllocate() {
+        assertNoAllocation(3);
+        assertNoAllocation(5);
+        assertNoAllocation(8);
+    }
+}
@@ -0,0 +1,72 @@
+package Logika;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Poredi potez na spakovanoj tablici sa pravilima prvobitne klase Logika (vidi ReferenceBoard).
+ */
+class BitBoardTest {
+    private static final int BOARDS =  200_000;
+
+    @Test
+    void movesMatchReferenceOnRandomBoards() {
+        Random random = new Random(1);
+        for (int n =  0; n < BOARDS; n++) {
+            int[][] cells = ReferenceBoard.random(random,  4);
+            long board = ReferenceBoard.pack(cells);
+            int legal =  0;
+            for (int dir = BitBoard.UP; dir <= BitBoard.RIGHT; dir++) {
+                int[][] expected = ReferenceBoard.copy(cells);
+                int info = ReferenceBoard.move(expected, dir);
+                long moved = BitBoard.move(board, dir);
+                assertEquals(ReferenceBoard.pack(expected), moved, "tablica " + Long.toHexString(board) + ", smjer " + dir);
+                assertEquals(info, BitBoard.moveInfo(board, dir), "tablica " + Long.toHexString(board) + ", smjer " + dir);
+                if (moved != board)
+                    legal |=  1 << dir;
+            }
+            assertEquals(legal, BitBoard.legalMoves(board), "tablica " + Long.toHexString(board));
+            assertEquals(legal !=  0, BitBoard.hasMoves(board), "tablica " + Long.toHexString(board));
+        }
+    }
+
+    @Test
+    void mergedTileDoesNotMergeAgain() {
+        // 2 2 4 . ulijevo daje 4 4 . . (skor 4), a ne 8
+        long board = ReferenceBoard.rows(new int[][] {{1,  1,  2,  0}, {0,  0,  0,  0}, {0,  0,  0,  0}, {0,  0,  0,  0}});
+        assertEquals(ReferenceBoard.rows(new int[][] {{2,  2,  0,  0}, {0,  0,  0,  0}, {0,  0,  0,  0}, {0,  0,  0,  0}}),
+                BitBoard.move(board, BitBoard.LEFT));
+        assertEquals(4 <<  2, BitBoard.moveInfo(board, BitBoard.LEFT));
+
+        // 2 2 2 2 udesno daje . . 4 4
+        board = ReferenceBoard.rows(new int[][] {{1,  1,  1,  1}, {0,  0,  0,  0}, {0,  0,  0,  0}, {0,  0,  0,  0}});
+        assertEquals(ReferenceBoard.rows(new int[][] {{0,  0,  2,  2}, {0,  0,  0,  0}, {0,  0,  0,  0}, {0,  0,  0,  0}}),
+                BitBoard.move(board, BitBoard.RIGHT));
+        assertEquals(8 <<  2, BitBoard.moveInfo(board, BitBoard.RIGHT));
+    }
+
+    @Test
+    void flagsReportReached8And2048() {
+        // Dvije pločice 4 u koloni daju 8, a dvije pločice 1024 daju 2048
+        long board = ReferenceBoard.rows(new int[][] {{2,  10,  0,  0}, {2,  10,  0,  0}, {0,  0,  0,  0}, {0,  0,  0,  0}});
+        int info = BitBoard.moveInfo(board, BitBoard.UP);
+        assertEquals(BitBoard.FLAG_REACHED_8 | BitBoard.FLAG_REACHED_2048, info &  3);
+        assertEquals(8 +  2048, info >>>  2);
+        // Pomjeranje bez spajanja ne postavlja zastavice
+        assertEquals(0, BitBoard.moveInfo(board, BitBoard.RIGHT));
+    }
+
+    @Test
+    void maxExponentDoesNotMerge() {
+        long board = ReferenceBoard.rows(new int[][] {{15,  15,  0,  0}, {14,  14,  0,  0}, {0,  0,  0,  0}, {0,  0,  0,  0}});
+        long moved = BitBoard.move(board, BitBoard.LEFT);
+        assertEquals(ReferenceBoard.rows(new int[][] {{15,  15,  0,  0}, {15,  0,  0,  0}, {0,  0,  0,  0}, {0,  0,  0,  0}}), moved);
+        // Tablica puna pločica  32768 nema legalnih poteza
+        assertEquals(0, BitBoard.legalMoves(0xFFFF_FFFF_FFFF_FFFFL));
+        assertTrue(BitBoard.hasMoves(board));
+    }
+}
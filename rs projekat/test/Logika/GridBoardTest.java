@@ -0,0 +1,50 @@
+package Logika;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Provjerava tablice svih veličina prema pravilima prvobitne klase (vidi ReferenceBoard):
+ * pomjeranje, skor i zastavice, i masku legalnih smjerova.
+ */
+class GridBoardTest {
+    private static final int BOARDS =  5_000;
+
+    @Test
+    void movesAndLegalMovesMatchReference() {
+        Random random = new Random(17);
+        for (int size = GridBoard.MIN_SIZE; size <= GridBoard.MAX_SIZE; size++) {
+            long[] dst = new long[GridBoard.words(size)];
+            for (int n =  0; n < BOARDS; n++) {
+                int[][] cells = ReferenceBoard.random(random, size);
+                // Polovina tablica je puna, pa se provjerava i kraj igre
+                if (n %  2 ==  1) {
+                    for (int x =  0; x < size; x++) {
+                        for (int y =  0; y < size; y++) {
+                            if (cells[x][y] ==  0)
+                                cells[x][y] =  1 + random.nextInt(3);
+                        }
+                    }
+                }
+                long[] grid = ReferenceBoard.grid(cells);
+                int legal =  0;
+                for (int dir =  0; dir <  4; dir++) {
+                    int[][] expected = ReferenceBoard.copy(cells);
+                    int info = ReferenceBoard.move(expected, dir);
+                    long[] expectedGrid = ReferenceBoard.grid(expected);
+                    if (!Arrays.equals(expectedGrid, grid))
+                        legal |=  1 << dir;
+                    assertEquals(info, GridBoard.move(grid, size, dir, dst), "veličina " + size + ", smjer " + dir);
+                    assertArrayEquals(expectedGrid, dst, "veličina " + size + ", smjer " + dir);
+                }
+                assertEquals(legal, GridBoard.legalMoves(grid, size), "veličina " + size);
+                assertEquals(legal !=  0, GridBoard.hasMoves(grid, size), "veličina " + size);
+            }
+        }
+    }
+}
@@ -0,0 +1,169 @@
+package Logika;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Provjerava upite rang liste prema sortiranom spisku svih igara, prije i poslije ponovnog otvaranja.
+ */
+class LeaderboardTest {
+    private static final String[] PLAYERS = {"ana", "boris", "čedo", "dina", "edo"};
+
+    @TempDir
+    Path directory;
+
+    // Igre redom upisa; redni broj zapisa je indeks u spisku
+    private final List<Leaderboard.Entry> games = new ArrayList<>();
+
+    private void add(Leaderboard leaderboard, Random random, int count) {
+        for (int i =  0; i < count; i++) {
+            Leaderboard.Entry entry = new Leaderboard.Entry(PLAYERS[random.nextInt(PLAYERS.length)],
+                    random.nextInt(5000) *  4, 1 + random.nextInt(11), random.nextInt(2000), random.nextInt(600_000),  4);
+            assertEquals(games.size(), leaderboard.add(entry));
+            games.add(entry);
+        }
+    }
+
+    // Igre od najboljeg skora; među jednakim skorovima ranija igra je bolja
+    private List<Leaderboard.Entry> sorted() {
+        List<Leaderboard.Entry> sorted = new ArrayList<>(games);
+        sorted.sort(Comparator.comparingInt(Leaderboard.Entry::getScore).reversed());
+        return sorted;
+    }
+
+    private static void assertEntry(Leaderboard.Entry expected, Leaderboard.Entry actual) {
+        assertEquals(expected.toString(), actual.toString());
+    }
+
+    private void assertQueries(Leaderboard leaderboard, Random random) {
+        assertEquals(games.size(), leaderboard.size());
+        List<Leaderboard.Entry> sorted = sorted();
+        assertEquals(sorted.isEmpty() ?  0 : sorted.get(0).getScore(), leaderboard.getHighScore());
+        for (int i =  0; i <  50; i++) {
+            int score = random.nextInt(5000) *  4 + random.nextInt(2) *  2;
+            long better =  0, worse =  0;
+            for (Leaderboard.Entry game : games) {
+                if (game.getScore() > score)
+                    better++;
+                if (game.getScore() < score)
+                    worse++;
+            }
+            assertEquals(better +  1, leaderboard.rank(score), "skor " + score);
+            assertEquals(games.isEmpty() ?  0 :  100.0 * worse / games.size(), leaderboard.percentile(score),  1e-9);
+        }
+        List<Leaderboard.Entry> top = leaderboard.top(25);
+        assertEquals(Math.min(25, sorted.size()), top.size());
+        for (int i =  0; i < top.size(); i++)
+            assertEntry(sorted.get(i), top.get(i));
+        for (String player : PLAYERS) {
+            Leaderboard.Entry expected = null;
+            for (Leaderboard.Entry game : sorted) {
+                if (game.getPlayer().equals(player)) {
+                    expected = game;
+                    break;
+                }
+            }
+            if (expected == null)
+                assertNull(leaderboard.best(player));
+            else
+                assertEntry(expected, leaderboard.best(player));
+        }
+    }
+
+    @Test
+    void queriesMatchSortedGamesAcrossReopen() throws IOException {
+        Path file = directory.resolve("leaderboard.dat");
+        Random random = new Random(18);
+        try (Leaderboard leaderboard = Leaderboard.open(file)) {
+            assertQueries(leaderboard, random);
+            // Dovoljno igara da se dio indeksira u pozadini, a dio ostane u neindeksiranom nizu
+            for (int round =  0; round <  5; round++) {
+                add(leaderboard, random,  1500);
+                assertQueries(leaderboard, random);
+            }
+        }
+        // Indeks pokriva sve igre i čuva najbolju igru svakog igrača, pa se dnevnik pri otvaranju ne čita
+        ByteBuffer header = ByteBuffer.wrap(Files.readAllBytes(directory.resolve("leaderboard.dat.idx")))
+                .order(ByteOrder.LITTLE_ENDIAN);
+        assertEquals(games.size(), header.getLong(8));
+        assertEquals(games.size(), header.getLong(16));
+        assertEquals(PLAYERS.length, header.getLong(24));
+        try (Leaderboard leaderboard = Leaderboard.open(file)) {
+            assertQueries(leaderboard, random);
+            add(leaderboard, random,  700);
+            assertQueries(leaderboard, random);
+        }
+        try (Leaderboard leaderboard = Leaderboard.open(file)) {
+            assertQueries(leaderboard, random);
+        }
+    }
+
+    @Test
+    void invalidIndexIsRebuiltFromLog() throws IOException {
+        Path file = directory.resolve("leaderboard.dat");
+        Random random = new Random(19);
+        try (Leaderboard leaderboard = Leaderboard.open(file)) {
+            add(leaderboard, random,  3000);
+        }
+        Path index = directory.resolve("leaderboard.dat.idx");
+        Files.write(index, new byte[] {1,  2,  3});
+        try (Leaderboard leaderboard = Leaderboard.open(file)) {
+            assertQueries(leaderboard, random);
+        }
+        // Indeks bez datoteke: sve igre se čitaju iz dnevnika
+        Files.delete(index);
+        try (Leaderboard leaderboard = Leaderboard.open(file)) {
+            assertQueries(leaderboard, random);
+        }
+    }
+
+    @Test
+    void concurrentGamesAreAllRanked() throws Exception {
+        Path file = directory.resolve("leaderboard.dat");
+        int threads =  4, count =  3000;
+        try (Leaderboard leaderboard = Leaderboard.open(file)) {
+            ExecutorService executor = Executors.newFixedThreadPool(threads);
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t =  0; t < threads; t++) {
+                int thread = t;
+                futures.add(executor.submit(() -> {
+                    for (int i =  0; i < count; i++) {
+                        leaderboard.add(new Leaderboard.Entry(PLAYERS[thread],  4 * (thread * count + i),  3,  10,  0,  4));
+                        // Upiti čitaju neindeksirane zapise iz dnevnika, pa je igra vidljiva čim add vrati
+                        if (i %  100 ==  0)
+                            assertTrue(leaderboard.size() >= i +  1);
+                    }
+                }));
+            }
+            for (Future<?> future : futures)
+                future.get();
+            executor.shutdown();
+            assertEquals(threads * count, leaderboard.size());
+            // Skorovi su različiti, pa je mjesto svakog skora jedan više od broja većih skorova
+            for (int score =  0; score < threads * count; score +=  97)
+                assertEquals(threads * count - score, leaderboard.rank(4 * score));
+        }
+        try (Leaderboard leaderboard = Leaderboard.open(file)) {
+            assertEquals(threads * count, leaderboard.size());
+            assertEquals(4 * (threads * count -  1), leaderboard.getHighScore());
+            assertEquals(4 * (count -  1), leaderboard.best(PLAYERS[0]).getScore());
+        }
+    }
+}
@@ -0,0 +1,175 @@
+package Logika;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Provjerava potez klase Logika prema pravilima prvobitne klase (vidi ReferenceBoard):
+ * tablicu i skor nakon poteza, novu pločicu, zastavicu pločice  8 i status igre.
+ */
+class LogikaTest {
+    private static final char[] MOVES = {'u', 'd', 'l', 'r'};
+
+    private static Logika newGame(long seed) {
+        return new Logika(4, new SplitMixRandom(seed), (Leaderboard) null);
+    }
+
+    private static int[][] cells(Logika game) {
+        int[][] cells = new int[4][4];
+        for (int x =  0; x <  4; x++) {
+            for (int y =  0; y <  4; y++)
+                cells[x][y] = game.getExponent(x, y);
+        }
+        return cells;
+    }
+
+    @Test
+    void gamesMatchReference() {
+        Random random = new Random(3);
+        for (int n =  0; n <  200; n++) {
+            Logika game = newGame(n);
+            game.startGame();
+            int status =  0;
+            while (status ==  0) {
+                int[][] expected = cells(game);
+                int dir = random.nextInt(4);
+                int info = ReferenceBoard.move(expected, dir);
+                boolean changed = ReferenceBoard.pack(expected) != game.getPackedBoard();
+                boolean reached8 = game.hasReached8() || (info & BitBoard.FLAG_REACHED_8) !=  0;
+                int score = game.getScore() + (info >>>  2);
+
+                status = game.processMove(MOVES[dir]);
+                assertEquals(score, game.getScore());
+                assertEquals(reached8, game.hasReached8());
+                // Tablica je ista kao kod prvobitnih pravila, osim jedne nove pločice 2 ili 4 na praznoj ćeliji
+                int spawned =  0;
+                int[][] actual = cells(game);
+                for (int x =  0; x <  4; x++) {
+                    for (int y =  0; y <  4; y++) {
+                        if (actual[x][y] == expected[x][y])
+                            continue;
+                        assertEquals(0, expected[x][y]);
+                        assertTrue(actual[x][y] ==  1 || (reached8 && actual[x][y] ==  2));
+                        spawned++;
+                    }
+                }
+                boolean won = (info & BitBoard.FLAG_REACHED_2048) !=  0;
+                assertEquals(changed && !won ?  1 :  0, spawned);
+                if (won)
+                    assertEquals(1, status);
+                else
+                    assertEquals(BitBoard.hasMoves(game.getPackedBoard()) ?  0 :  2, status);
+            }
+        }
+    }
+
+    @Test
+    void reaching2048EndsMoveWithoutSpawn() {
+        Logika game = newGame(1);
+        game.startGame();
+        game.setState(ReferenceBoard.rows(new int[][] {{10,  10,  0,  0}, {1,  0,  0,  0}, {0,  0,  0,  0}, {0,  0,  0,  0}}),  100, true);
+        assertEquals(1, game.processMove('l'));
+        assertEquals(ReferenceBoard.rows(new int[][] {{11,  0,  0,  0}, {1,  0,  0,  0}, {0,  0,  0,  0}, {0,  0,  0,  0}}),
+                game.getPackedBoard());
+        assertEquals(100 +  2048, game.getScore());
+    }
+
+    @Test
+    void winIsRecordedOnce(@TempDir Path directory) throws IOException {
+        Path file = directory.resolve("leaderboard.dat");
+        try (Leaderboard leaderboard = Leaderboard.open(file)) {
+            Logika game = new Logika(4, new SplitMixRandom(17), leaderboard);
+            game.setSnapshotsEnabled(true);
+            game.startGame();
+            game.setState(ReferenceBoard.rows(new int[][] {{10,  10,  0,  0}, {1,  0,  0,  0}, {0,  0,  0,  0}, {0,  0,  0,  0}}),  100, true);
+            // Igra ima legalne poteze, ali se pobjeda upisuje odmah
+            assertEquals(1, game.processMove('l'));
+            assertTrue(game.getLegalMoves() !=  0);
+            assertEquals(1, leaderboard.size());
+            assertEquals(1, game.getRank());
+            assertEquals(1, game.getSnapshot().getRank());
+
+            // Nastavak igre se ne upisuje ponovo
+            game.processMove(MOVES[Integer.numberOfTrailingZeros(game.getLegalMoves())]);
+            assertEquals(1, leaderboard.size());
+        }
+        try (Leaderboard reopened = Leaderboard.open(file)) {
+            assertEquals(100 +  2048, reopened.getHighScore());
+            assertEquals(100 +  2048, new Logika(4, new SplitMixRandom(18), reopened).getHighScore());
+        }
+    }
+
+    @Test
+    void onlyTwosSpawnBeforeReaching8() {
+        Logika game = newGame(2);
+        game.startGame();
+        for (int n =  0; n <  1000; n++) {
+            game.setState(ReferenceBoard.rows(new int[][] {{1,  0,  0,  0}, {0,  0,  0,  0}, {0,  0,  0,  0}, {0,  0,  0,  0}}),  0, false);
+            game.processMove('r');
+            // Pločica 2 je u ćošku (3, 0), a nova pločica je takođe 2
+            long board = game.getPackedBoard();
+            assertEquals(1, BitBoard.getExponent(board,  3,  0));
+            assertEquals(1, BitBoard.maxExponent(board));
+            assertEquals(14, BitBoard.countEmpty(board));
+            assertFalse(game.hasReached8());
+        }
+    }
+
+    @Test
+    void gameEndsAtMaxExponent(@TempDir Path directory) throws IOException {
+        Logika game = newGame(24);
+        game.startGame();
+        int max = BitBoard.MAX_EXPONENT;
+        game.setState(ReferenceBoard.rows(new int[][] {{max -  1, max -  1,  0,  0}, {1,  0,  0,  0}, {0,  0,  0,  0}, {0,  0,  0,  0}}),  0, true);
+        assertTrue(game.getLegalMoves() !=  0);
+        // Pločica 32768 se ne može dalje spajati, pa igra završava iako ima praznih ćelija
+        assertEquals(2, game.processMove('l'));
+        assertEquals(max, BitBoard.getExponent(game.getPackedBoard(),  0,  0));
+        assertEquals(0, game.getLegalMoves());
+        assertFalse(game.isLegal('r'));
+
+        // Isto pravilo važi za veće tablice, i za tablicu učitanu sa tom pločicom
+        SaveSlots slots = SaveSlots.open(directory.resolve("saves.dat"),  4);
+        long[] grid = new long[GridBoard.words(5)];
+        GridBoard.setExponent(grid,  5,  2,  2, max);
+        GridBoard.setExponent(grid,  5,  0,  0,  1);
+        slots.write("velika", new SaveSlots.Record(5, grid,  0,  0, true, false,  0));
+        assertTrue(game.loadGame(slots, "velika"));
+        assertEquals(5, game.getSize());
+        assertEquals(0, game.getLegalMoves());
+    }
+
+    @Test
+    void undoOutOfFinishedGameClearsRank(@TempDir Path directory) throws IOException {
+        try (Leaderboard leaderboard = Leaderboard.open(directory.resolve("leaderboard.dat"))) {
+            Logika game = new Logika(4, new SplitMixRandom(16), leaderboard);
+            game.setSnapshotsEnabled(true);
+            game.startGame();
+            // Igra prvi legalni potez dok igra ne završi
+            while (game.getLegalMoves() !=  0)
+                game.processMove(MOVES[Integer.numberOfTrailingZeros(game.getLegalMoves())]);
+            long rank = game.getRank();
+            assertTrue(rank >  0);
+            assertEquals(rank, game.getSnapshot().getRank());
+            assertEquals(1, leaderboard.size());
+
+            assertTrue(game.undo());
+            assertEquals(0, game.getRank());
+            assertEquals(0, game.getSnapshot().getRank());
+
+            // Ponovljeni kraj iste igre dobija mjesto, ali se ne upisuje ponovo
+            assertTrue(game.redo());
+            assertEquals(rank, game.getRank());
+            assertEquals(rank, game.getSnapshot().getRank());
+            assertEquals(1, leaderboard.size());
+        }
+    }
+}
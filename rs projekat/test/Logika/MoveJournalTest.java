@@ -0,0 +1,163 @@
+package Logika;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Upisuje igre u dnevnik poteza i ponavlja ih kroz JournalReplay.
+ */
+class MoveJournalTest {
+    private static final char[] MOVES = {'u', 'd', 'l', 'r'};
+    private static final int KEYFRAME_INTERVAL =  16;
+
+    @TempDir
+    Path directory;
+
+    // Stanje igre nakon svakog poteza: tablica i skor
+    private static final class Game {
+        final List<Long> boards = new ArrayList<>();
+        final List<Integer> scores = new ArrayList<>();
+
+        void add(Logika game) {
+            boards.add(game.getPackedBoard());
+            scores.add(game.getScore());
+        }
+    }
+
+    // Igra slučajne poteze dok igra ne završi ili dok ne odigra limit poteza
+    private static Game play(Logika game, Random random, int limit) {
+        Game states = new Game();
+        states.add(game);
+        for (int i =  0; i < limit; i++) {
+            int status = game.processMove(MOVES[random.nextInt(4)]);
+            states.add(game);
+            if (status !=  0)
+                break;
+        }
+        return states;
+    }
+
+    @Test
+    void replayReachesEveryRecordedState() throws IOException {
+        Path file = directory.resolve("test.journal");
+        Random random = new Random(10);
+        List<Game> games = new ArrayList<>();
+        try (MoveJournal journal = new MoveJournal(file, KEYFRAME_INTERVAL)) {
+            Logika game = new Logika(4, new GameRandom(11), (Leaderboard) null);
+            game.setJournal(journal);
+            for (int g =  0; g <  3; g++) {
+                game.startGame();
+                games.add(play(game, random,  1000));
+            }
+            // Igra nastavljena iz datog stanja počinje novu igru u dnevniku
+            game.setState(games.get(0).boards.get(5), games.get(0).scores.get(5), false);
+            games.add(play(game, random,  100));
+        }
+
+        try (JournalReplay replay = new JournalReplay(file)) {
+            assertEquals(games.size(), replay.getGameCount());
+            for (int g =  0; g < games.size(); g++) {
+                Game expected = games.get(g);
+                // Svaki potez, i prije i poslije ključnih kadrova
+                for (int k =  0; k < expected.boards.size(); k++) {
+                    Logika state = replay.stateAt(g, k);
+                    assertEquals((long) expected.boards.get(k), state.getPackedBoard(), "igra " + g + ", potez " + k);
+                    assertEquals((int) expected.scores.get(k), state.getScore(), "igra " + g + ", potez " + k);
+                }
+                // Potez iza kraja igre daje posljednje stanje
+                Logika last = replay.stateAt(g, expected.boards.size() +  10);
+                assertEquals((long) expected.boards.get(expected.boards.size() -  1), last.getPackedBoard());
+            }
+            long[] result = replay.replayAll();
+            long moves =  0;
+            for (Game game : games)
+                moves += game.boards.size() -  1;
+            assertArrayEquals(new long[] {moves,  0}, result);
+        }
+    }
+
+    @Test
+    void undoAndRedoStayInTheSameGame() throws IOException {
+        Path file = directory.resolve("undo.journal");
+        Random random = new Random(14);
+        Game expected = new Game();
+        int moves =  0;
+        try (MoveJournal journal = new MoveJournal(file, KEYFRAME_INTERVAL)) {
+            Logika game = new Logika(4, new GameRandom(15), (Leaderboard) null);
+            game.setJournal(journal);
+            game.startGame();
+            expected.add(game);
+            for (int round =  0; round <  10; round++) {
+                for (int i =  0; i <  20 && game.getLegalMoves() !=  0; i++) {
+                    game.processMove(MOVES[random.nextInt(4)]);
+                    expected.add(game);
+                    moves++;
+                }
+                // Poništeni potezi se ne broje; sljedeći potez ima sljedeći broj
+                game.undo();
+                game.undo();
+                game.redo();
+                game.undo();
+            }
+        }
+
+        try (JournalReplay replay = new JournalReplay(file)) {
+            assertEquals(1, replay.getGameCount());
+            for (int k =  0; k < expected.boards.size(); k++) {
+                Logika state = replay.stateAt(0, k);
+                assertEquals((long) expected.boards.get(k), state.getPackedBoard(), "potez " + k);
+                assertEquals((int) expected.scores.get(k), state.getScore(), "potez " + k);
+            }
+            assertArrayEquals(new long[] {moves,  0}, replay.replayAll());
+        }
+    }
+
+    @Test
+    void groupIsFlushedAfterRecordCount() throws IOException {
+        Path file = directory.resolve("count.journal");
+        try (MoveJournal journal = new MoveJournal(file, KEYFRAME_INTERVAL)) {
+            journal.startGame(0);
+            for (int i =  0; i < MoveJournal.FLUSH_RECORDS -  2; i++)
+                journal.recordMove(BitBoard.LEFT,  0,  0, false,  0);
+            assertEquals(0, Files.size(file));
+            // Posljednji zapis grupe upisuje cijelu grupu
+            journal.recordMove(BitBoard.LEFT,  0,  0, false,  0);
+            assertEquals(MoveJournal.HEADER_SIZE + MoveJournal.GAME_SIZE + MoveJournal.FLUSH_RECORDS -  1
+                    + (MoveJournal.FLUSH_RECORDS -  1) / KEYFRAME_INTERVAL * MoveJournal.KEYFRAME_SIZE, Files.size(file));
+        }
+    }
+
+    @Test
+    void groupIsFlushedAfterTimeWithoutClose() throws IOException, InterruptedException {
+        Path file = directory.resolve("time.journal");
+        MoveJournal journal = new MoveJournal(file, KEYFRAME_INTERVAL);
+        try {
+            Logika game = new Logika(4, new GameRandom(12), (Leaderboard) null);
+            game.setJournal(journal);
+            game.startGame();
+            Game expected = play(game, new Random(13),  10);
+            // Pozadinska nit upisuje grupu bez close, kao prije pada programa
+            long deadline = System.nanoTime() +  10 * MoveJournal.FLUSH_MILLIS *  1_000_000;
+            while (Files.size(file) ==  0 && System.nanoTime() < deadline)
+                Thread.sleep(50);
+            assertTrue(Files.size(file) >  0, "dnevnik nije upisan");
+            try (JournalReplay replay = new JournalReplay(file)) {
+                int last = expected.boards.size() -  1;
+                assertEquals((long) expected.boards.get(last), replay.stateAt(0, last).getPackedBoard());
+            }
+        } finally {
+            journal.close();
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package Logika;
+
+import java.util.Random;
+
+/**
+ * Pravila poteza iz prvobitne klase Logika (tablica int[x][y]), za poređenje sa klasama BitBoard i GridBoard.
+ * Ćelije čuvaju eksponente; jedina razlika u odnosu na prvobitni kod je granica eksponenta
+ * BitBoard.MAX_EXPONENT, jer veći eksponent ne stane u 4 bita.
+ */
+final class ReferenceBoard {
+    private ReferenceBoard() {
+    }
+
+    /**
+     * Pomjera tablicu na mjestu kao prvobitni processMove i vraća (skor << 2) | zastavice, kao BitBoard.moveInfo.
+     *
+     * @param cells eksponenti, cells[x][y]
+     * @param dir smjer pokreta (vidi BitBoard)
+     */
+    static int move(int[][] cells, int dir) {
+        int size = cells.length;
+        int step, mx, my;
+        switch (dir) {
+            case BitBoard.UP:
+                step =  1; mx =  0; my = -1;
+                break;
+            case BitBoard.DOWN:
+                step = -1; mx =  0; my =  1;
+                break;
+            case BitBoard.LEFT:
+                step =  1; mx = -1; my =  0;
+                break;
+            case BitBoard.RIGHT:
+                step = -1; mx =  1; my =  0;
+                break;
+            default:
+                throw new IllegalArgumentException("Nevažeći pokret");
+        }
+        int moveScore =  0, flags =  0;
+        boolean[][] hasMerged = new boolean[size][size];
+        for (int i = step ==  1 ?  0 : size * size -  1; i >=  0 && i < size * size; i += step) {
+            int x = i % size, y = i / size;
+            int e = cells[x][y];
+            if (e ==  0)
+                continue;
+            int nx = x + mx, ny = y + my;
+            while (inBounds(size, nx, ny) && cells[nx][ny] ==  0) {
+                nx += mx;
+                ny += my;
+            }
+            // Spajanje ćelija; ćelija spojena u ovom potezu se ne spaja ponovo
+            if (inBounds(size, nx, ny) && cells[nx][ny] == e && !hasMerged[nx][ny] && e < BitBoard.MAX_EXPONENT) {
+                cells[nx][ny] = e +  1;
+                cells[x][y] =  0;
+                moveScore +=  1 << (e +  1);
+                if (e +  1 ==  3)
+                    flags |= BitBoard.FLAG_REACHED_8;
+                if (e +  1 ==  11)
+                    flags |= BitBoard.FLAG_REACHED_2048;
+                hasMerged[nx][ny] = true;
+            } else {
+                nx -= mx;
+                ny -= my;
+                if (nx != x || ny != y) {
+                    cells[nx][ny] = e;
+                    cells[x][y] =  0;
+                }
+            }
+        }
+        return (moveScore <<  2) | flags;
+    }
+
+    private static boolean inBounds(int size, int x, int y) {
+        return x >=  0 && x < size && y >=  0 && y < size;
+    }
+
+    /**
+     * Vraća slučajnu tablicu: oko trećine praznih ćelija, a ostale sa malim eksponentima,
+     * da bi bilo dovoljno spajanja, i povremeno velikim, do BitBoard.MAX_EXPONENT.
+     */
+    static int[][] random(Random random, int size) {
+        int[][] cells = new int[size][size];
+        int high = random.nextInt(4) ==  0 ? BitBoard.MAX_EXPONENT :  4;
+        for (int x =  0; x < size; x++) {
+            for (int y =  0; y < size; y++)
+                cells[x][y] = random.nextInt(3) ==  0 ?  0 :  1 + random.nextInt(high);
+        }
+        return cells;
+    }
+
+    static long pack(int[][] cells) {
+        long board =  0;
+        for (int x =  0; x <  4; x++) {
+            for (int y =  0; y <  4; y++)
+                board = BitBoard.setExponent(board, x, y, cells[x][y]);
+        }
+        return board;
+    }
+
+    static long[] grid(int[][] cells) {
+        int size = cells.length;
+        long[] grid = new long[GridBoard.words(size)];
+        for (int x =  0; x < size; x++) {
+            for (int y =  0; y < size; y++)
+                GridBoard.setExponent(grid, size, x, y, cells[x][y]);
+        }
+        return grid;
+    }
+
+    static int[][] copy(int[][] cells) {
+        int[][] copy = new int[cells.length][];
+        for (int x =  0; x < cells.length; x++)
+            copy[x] = cells[x].clone();
+        return copy;
+    }
+
+    /**
+     * Tablica 4x4 iz redova zapisanih kao na ekranu: rows[y][x] je eksponent ćelije (x, y).
+     */
+    static long rows(int[][] rows) {
+        long board =  0;
+        for (int y =  0; y <  4; y++) {
+            for (int x =  0; x <  4; x++)
+                board = BitBoard.setExponent(board, x, y, rows[y][x]);
+        }
+        return board;
+    }
+}
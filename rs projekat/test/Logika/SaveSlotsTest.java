@@ -0,0 +1,233 @@
+package Logika;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.zip.CRC32;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Čuvanje i učitavanje snimaka kroz SaveSlots, uključujući ponovno otvaranje datoteke.
+ */
+class SaveSlotsTest {
+    @TempDir
+    Path directory;
+
+    private static void assertRecord(SaveSlots.Record expected, SaveSlots.Record actual) {
+        assertEquals(expected.size, actual.size);
+        assertArrayEquals(expected.board, actual.board);
+        assertEquals(expected.score, actual.score);
+        assertEquals(expected.highScore, actual.highScore);
+        assertEquals(expected.hasReached8, actual.hasReached8);
+        assertEquals(expected.hasRngState, actual.hasRngState);
+        assertEquals(expected.rngState, actual.rngState);
+    }
+
+    private static SaveSlots.Record randomRecord(Random random, int size) {
+        long[] board = new long[GridBoard.words(size)];
+        for (int x =  0; x < size; x++) {
+            for (int y =  0; y < size; y++)
+                GridBoard.setExponent(board, size, x, y, random.nextInt(16));
+        }
+        boolean hasRngState = random.nextBoolean();
+        return new SaveSlots.Record(size, board, random.nextInt(1_000_000), random.nextInt(1_000_000),
+                random.nextBoolean(), hasRngState, hasRngState ? random.nextLong() :  0);
+    }
+
+    @Test
+    void recordsSurviveReopen() throws IOException {
+        Path file = directory.resolve("saves.dat");
+        Random random = new Random(4);
+        SaveSlots.Record[] records = new SaveSlots.Record[GridBoard.MAX_SIZE +  1];
+        SaveSlots slots = SaveSlots.open(file,  64);
+        for (int size = GridBoard.MIN_SIZE; size <= GridBoard.MAX_SIZE; size++) {
+            records[size] = randomRecord(random, size);
+            slots.write("igra " + size, records[size]);
+        }
+        // Ime sa znakovima van ASCII-ja zauzima više bajta
+        SaveSlots.Record named = randomRecord(random,  4);
+        slots.write("čćžšđ", named);
+
+        SaveSlots reopened = SaveSlots.open(file,  64);
+        for (int size = GridBoard.MIN_SIZE; size <= GridBoard.MAX_SIZE; size++)
+            assertRecord(records[size], reopened.read("igra " + size));
+        assertRecord(named, reopened.read("čćžšđ"));
+        assertNull(reopened.read("nema"));
+    }
+
+    @Test
+    void writeReplacesRecordWithSameName() throws IOException {
+        SaveSlots slots = SaveSlots.open(directory.resolve("saves.dat"),  4);
+        Random random = new Random(5);
+        slots.write("default", randomRecord(random,  4));
+        SaveSlots.Record second = randomRecord(random,  7);
+        slots.write("default", second);
+        assertRecord(second, slots.read("default"));
+        // Ostala mjesta su i dalje slobodna
+        for (int i =  0; i <  3; i++)
+            slots.write("ime " + i, second);
+    }
+
+    @Test
+    void capacityIsRoundedUpToPowerOfTwo() throws IOException {
+        Path file = directory.resolve("saves.dat");
+        SaveSlots slots = SaveSlots.open(file,  5);
+        assertEquals(SaveSlots.HEADER_SIZE +  8L * SaveSlots.RECORD_SIZE, Files.size(file));
+        SaveSlots.Record record = randomRecord(new Random(6),  4);
+        for (int i =  0; i <  8; i++)
+            slots.write("ime " + i, record);
+        assertThrows(IllegalStateException.class, () -> slots.write("ime 8", record));
+        for (int i =  0; i <  8; i++)
+            assertRecord(record, slots.read("ime " + i));
+
+        SaveSlots.open(directory.resolve("one.dat"),  1);
+        assertEquals(SaveSlots.HEADER_SIZE + SaveSlots.RECORD_SIZE, Files.size(directory.resolve("one.dat")));
+        SaveSlots.open(directory.resolve("exact.dat"),  16);
+        assertEquals(SaveSlots.HEADER_SIZE +  16L * SaveSlots.RECORD_SIZE, Files.size(directory.resolve("exact.dat")));
+    }
+
+    @Test
+    void deleteFreesSlotAndKeepsOtherRecords() throws IOException {
+        Path file = directory.resolve("saves.dat");
+        SaveSlots slots = SaveSlots.open(file,  16);
+        Random random = new Random(9);
+        Map<String, SaveSlots.Record> expected = new HashMap<>();
+        // Puna datoteka: svaki niz probanja je dug, pa brisanje pomjera zapise iz raznih početnih mjesta
+        for (int i =  0; i <  16; i++) {
+            SaveSlots.Record record = randomRecord(random,  4);
+            slots.write("ime " + i, record);
+            expected.put("ime " + i, record);
+        }
+        assertThrows(IllegalStateException.class, () -> slots.write("novo", randomRecord(random,  4)));
+        for (int round =  0; round <  200; round++) {
+            String name = "ime " + random.nextInt(24);
+            if (random.nextBoolean()) {
+                assertEquals(expected.remove(name) != null, slots.delete(name));
+            } else if (expected.size() <  16 || expected.containsKey(name)) {
+                SaveSlots.Record record = randomRecord(random,  4);
+                slots.write(name, record);
+                expected.put(name, record);
+            }
+            for (int i =  0; i <  24; i++) {
+                SaveSlots.Record record = expected.get("ime " + i);
+                if (record == null)
+                    assertNull(slots.read("ime " + i));
+                else
+                    assertRecord(record, slots.read("ime " + i));
+            }
+        }
+
+        SaveSlots reopened = SaveSlots.open(file,  16);
+        for (String name : expected.keySet())
+            assertRecord(expected.get(name), reopened.read(name));
+        assertFalse(reopened.delete("nema"));
+    }
+
+    @Test
+    void corruptedRecordIsRejected() throws IOException {
+        Path file = directory.resolve("saves.dat");
+        SaveSlots.open(file,  1).write("default", randomRecord(new Random(7),  4));
+        // Mijenja jedan bajt skora u jedinom zapisu
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(new byte[] {(byte) 0xFF}), SaveSlots.HEADER_SIZE +  36);
+        }
+        SaveSlots reopened = SaveSlots.open(file,  1);
+        assertThrows(IOException.class, () -> reopened.read("default"));
+    }
+
+    @Test
+    void invalidFileIsRejected() throws IOException {
+        Path file = directory.resolve("saves.dat");
+        Files.write(file, new byte[SaveSlots.HEADER_SIZE]);
+        assertThrows(IOException.class, () -> SaveSlots.open(file,  4));
+    }
+
+    // Zapis datoteke verzije  1: tablica 4x4, skor, najviši skor i stanje generatora, sa CRC32 bajtova  0..59
+    private static void putV1Record(ByteBuffer file, int slot, String name, long board, int score, int flags, long rngState) {
+        int base = SaveSlots.HEADER_SIZE + slot *  64;
+        byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+        file.putShort(base, (short)  1);
+        file.put(base +  2, (byte) (SaveSlots.FLAG_USED | flags));
+        file.put(base +  3, (byte) bytes.length);
+        for (int i =  0; i < bytes.length; i++)
+            file.put(base +  4 + i, bytes[i]);
+        file.putLong(base +  36, board);
+        file.putInt(base +  44, score);
+        file.putInt(base +  48, score +  100);
+        file.putLong(base +  52, rngState);
+        CRC32 crc = new CRC32();
+        crc.update(file.array(), base,  60);
+        file.putInt(base +  60, (int) crc.getValue());
+    }
+
+    @Test
+    void version1FileIsUpgraded() throws IOException {
+        Path file = directory.resolve("saves.dat");
+        int slots =  4;
+        ByteBuffer content = ByteBuffer.allocate(SaveSlots.HEADER_SIZE + slots *  64).order(ByteOrder.LITTLE_ENDIAN);
+        content.putInt(SaveSlots.MAGIC).putInt(1).putInt(slots);
+        putV1Record(content,  2, "default",  0x0123456789ABCDEFL,  1000, SaveSlots.FLAG_REACHED_8 | SaveSlots.FLAG_RNG,  42);
+        putV1Record(content,  0, "druga",  0x1111L,  8,  0,  0);
+        putV1Record(content,  3, "oštećena",  0x2222L,  16,  0,  0);
+        // Oštećen zapis se ne prenosi u novu datoteku
+        content.put(SaveSlots.HEADER_SIZE +  3 *  64 +  40, (byte)  0x55);
+        Files.write(file, content.array());
+
+        SaveSlots upgraded = SaveSlots.open(file,  64);
+        assertRecord(new SaveSlots.Record(4, new long[] {0x0123456789ABCDEFL},  1000,  1100, true, true,  42),
+                upgraded.read("default"));
+        assertRecord(new SaveSlots.Record(4, new long[] {0x1111L},  8,  108, false, false,  0), upgraded.read("druga"));
+        assertNull(upgraded.read("oštećena"));
+        // Broj mjesta stare datoteke se zadržava, a privremena datoteka ne ostaje
+        assertEquals(SaveSlots.HEADER_SIZE + slots * SaveSlots.RECORD_SIZE, Files.size(file));
+        assertFalse(Files.exists(directory.resolve("saves.dat.tmp")));
+
+        // Nova datoteka je verzije  2 i mapirana: upisi se vide nakon ponovnog otvaranja
+        upgraded.write("treća", randomRecord(new Random(10),  6));
+        SaveSlots reopened = SaveSlots.open(file,  64);
+        assertRecord(upgraded.read("treća"), reopened.read("treća"));
+        assertRecord(upgraded.read("default"), reopened.read("default"));
+        ByteBuffer header = ByteBuffer.wrap(Files.readAllBytes(file),  0, SaveSlots.HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        assertEquals(SaveSlots.VERSION, header.getInt(4));
+    }
+
+    @Test
+    void gameRoundTrip() throws IOException {
+        SaveSlots slots = SaveSlots.open(directory.resolve("saves.dat"),  4);
+        Logika game = new Logika(5, new SplitMixRandom(8), (Leaderboard) null);
+        game.startGame();
+        for (int i =  0; i <  30; i++)
+            game.processMove("udlr".charAt(i %  4));
+        game.saveGame(slots, "sesija");
+
+        Logika loaded = new Logika(4, new SplitMixRandom(9), (Leaderboard) null);
+        assertEquals(true, loaded.loadGame(slots, "sesija"));
+        assertEquals(5, loaded.getSize());
+        assertEquals(game.getScore(), loaded.getScore());
+        assertArrayEquals(game.getBoard(), loaded.getBoard());
+        // Maska legalnih smjerova se ne čuva, nego računa iz učitane tablice
+        assertEquals(game.getLegalMoves(), loaded.getLegalMoves());
+        // Stanje generatora je sačuvano, pa obje igre nastavljaju istim pločicama
+        for (int i =  0; i <  30; i++) {
+            char move = "ldru".charAt(i %  4);
+            assertEquals(game.processMove(move), loaded.processMove(move));
+        }
+        assertArrayEquals(game.getBoard(), loaded.getBoard());
+    }
+}
@@ -0,0 +1,174 @@
+package Logika;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Upisuje poteze kroz TrajectoryWriter i čita ih nazad kroz TrajectoryReader.
+ */
+class TrajectoryWriterTest {
+    private static final char[] MOVES = {'u', 'd', 'l', 'r'};
+
+    @TempDir
+    Path directory;
+
+    // Jedan upisan potez
+    private static final class Step {
+        final long[] board;
+        final int dir, reward, spawnCell, spawnExponent, status;
+        final boolean gameStart;
+
+        Step(long[] board, int dir, int reward, int spawnCell, int spawnExponent, int status, boolean gameStart) {
+            this.board = board;
+            this.dir = dir;
+            this.reward = reward;
+            this.spawnCell = spawnCell;
+            this.spawnExponent = spawnExponent;
+            this.status = status;
+            this.gameStart = gameStart;
+        }
+    }
+
+    private static void roundTrip(Path file, int size, int steps) throws IOException {
+        Random random = new Random(20 + size);
+        // Potezi svake igre redom; igre dva recorder-a se miješaju u datoteci
+        Map<Long, ArrayDeque<Step>> games = new HashMap<>();
+        try (TrajectoryWriter writer = new TrajectoryWriter(file, size)) {
+            TrajectoryWriter.Recorder[] recorders = {writer.recorder(), writer.recorder()};
+            long[] game = {-1, -1};
+            for (int i =  0; i < steps; i++) {
+                int r = random.nextInt(2);
+                boolean gameStart = game[r] <  0 || random.nextInt(200) ==  0;
+                if (gameStart) {
+                    recorders[r].startGame();
+                    // Redni broj igre iz startGame() je sljedeći broj po redu, kao u Logika.startGame
+                    game[r] = games.size();
+                    games.put(game[r], new ArrayDeque<>());
+                }
+                long[] board = new long[GridBoard.words(size)];
+                for (int x =  0; x < size; x++) {
+                    for (int y =  0; y < size; y++)
+                        GridBoard.setExponent(board, size, x, y, random.nextInt(16));
+                }
+                boolean spawn = random.nextInt(10) !=  0;
+                Step step = new Step(board, random.nextInt(4), random.nextInt(3) ==  0 ?  0 : random.nextInt(1 <<  17),
+                        spawn ? random.nextInt(size * size) : -1, spawn ?  1 + random.nextInt(2) :  0,
+                        random.nextInt(3), gameStart);
+                recorders[r].record(step.board, step.dir, step.reward, step.spawnCell, step.spawnExponent, step.status);
+                games.get(game[r]).add(step);
+            }
+            for (TrajectoryWriter.Recorder recorder : recorders)
+                recorder.flush();
+        }
+
+        try (TrajectoryReader reader = new TrajectoryReader(file)) {
+            assertEquals(size, reader.getSize());
+            assertEquals(steps, reader.getStepCount());
+            assertTrue(reader.getBlockCount() >= (steps + TrajectoryWriter.BLOCK_STEPS -  1) / TrajectoryWriter.BLOCK_STEPS);
+            TrajectoryReader.Cursor cursor = reader.cursor();
+            long[] board = new long[GridBoard.words(size)];
+            for (int i =  0; i < steps; i++) {
+                assertTrue(cursor.next());
+                Step expected = games.get(cursor.getGame()).poll();
+                assertArrayEquals(expected.board, board(cursor, board), "potez " + i);
+                if (size ==  4)
+                    assertEquals(expected.board[0], cursor.getPackedBoard());
+                assertEquals(expected.dir, cursor.getDirection());
+                assertEquals(MOVES[expected.dir], cursor.getMove());
+                assertEquals(expected.reward, cursor.getReward());
+                assertEquals(expected.spawnCell, cursor.getSpawnCell());
+                assertEquals(expected.spawnExponent, cursor.getSpawnExponent());
+                assertEquals(expected.status, cursor.getStatus());
+                assertEquals(expected.gameStart, cursor.isGameStart());
+            }
+            assertFalse(cursor.next());
+        }
+        for (ArrayDeque<Step> game : games.values())
+            assertTrue(game.isEmpty());
+    }
+
+    private static long[] board(TrajectoryReader.Cursor cursor, long[] dst) {
+        cursor.getBoard(dst);
+        return dst;
+    }
+
+    @Test
+    void stepsSurviveRoundTrip() throws IOException {
+        // Više blokova, pa igre prelaze granice blokova
+        roundTrip(directory.resolve("4x4.trj"),  4,  2 * TrajectoryWriter.BLOCK_STEPS +  1000);
+        roundTrip(directory.resolve("5x5.trj"),  5,  20_000);
+        roundTrip(directory.resolve("16x16.trj"),  16,  3000);
+    }
+
+    @Test
+    void exportedGamesReplay() throws IOException {
+        Path file = directory.resolve("games.trj");
+        int games =  20;
+        try (TrajectoryWriter writer = new TrajectoryWriter(file,  4)) {
+            TrajectoryWriter.Recorder recorder = writer.recorder();
+            Logika game = new Logika(4, new SplitMixRandom(21), (Leaderboard) null);
+            game.setTrajectory(recorder);
+            Random random = new Random(22);
+            for (int g =  0; g < games; g++) {
+                game.startGame();
+                while (game.processMove(MOVES[random.nextInt(4)]) ==  0)
+                    ;
+            }
+            recorder.flush();
+        }
+
+        // Potez primijenjen na tablicu, sa novom pločicom, daje tablicu sljedećeg poteza iste igre
+        try (TrajectoryReader reader = new TrajectoryReader(file)) {
+            TrajectoryReader.Cursor cursor = reader.cursor();
+            long expected =  0;
+            long lastGame = -1;
+            int starts =  0;
+            while (cursor.next()) {
+                if (cursor.isGameStart()) {
+                    starts++;
+                    assertEquals(lastGame +  1, cursor.getGame());
+                    lastGame = cursor.getGame();
+                } else {
+                    assertEquals(expected, cursor.getPackedBoard());
+                }
+                long board = cursor.getPackedBoard();
+                long moved = BitBoard.move(board, cursor.getDirection());
+                assertTrue(moved != board);
+                assertEquals(BitBoard.moveInfo(board, cursor.getDirection()) >>>  2, cursor.getReward());
+                int cell = cursor.getSpawnCell();
+                expected = cell <  0 ? moved : BitBoard.setExponent(moved, cell %  4, cell /  4, cursor.getSpawnExponent());
+            }
+            assertEquals(games, starts);
+        }
+    }
+
+    @Test
+    void unclosedFileIsRejected() throws IOException {
+        Path file = directory.resolve("open.trj");
+        TrajectoryWriter writer = new TrajectoryWriter(file,  4);
+        try {
+            assertThrows(IOException.class, () -> new TrajectoryReader(file));
+        } finally {
+            writer.close();
+        }
+        assertEquals(TrajectoryWriter.HEADER_SIZE + TrajectoryWriter.TRAILER_SIZE, Files.size(file));
+        try (TrajectoryReader reader = new TrajectoryReader(file)) {
+            assertEquals(0, reader.getStepCount());
+            assertFalse(reader.cursor().next());
+        }
+    }
+}
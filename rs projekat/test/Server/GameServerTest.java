@@ -0,0 +1,152 @@
+package Server;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import Logika.SaveSlots;
+
+/**
+ * Protokol servera preko prave veze: server sluša na slobodnom portu, a sesije se čuvaju
+ * u privremenoj datoteci snimaka.
+ */
+class GameServerTest {
+    // "session <id> " ili "state " pa "status skor legalni veličina ćelije"
+    private static final String STATE = "[012] \\d+ [0-9a-f] (\\d+) [0-9a-f]+";
+
+    @TempDir
+    Path directory;
+
+    private GameServer server;
+
+    private GameServer start(long idleMillis) throws IOException {
+        server = new GameServer(0, SaveSlots.open(directory.resolve("sessions.dat"),  64), null, idleMillis);
+        Thread thread = new Thread(() -> {
+            try {
+                server.serve();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }, "server");
+        thread.setDaemon(true);
+        thread.start();
+        return server;
+    }
+
+    @AfterEach
+    void close() throws IOException {
+        if (server != null)
+            server.close();
+    }
+
+    // Jedna veza sa serverom; komanda i odgovor su po jedan red
+    private static final class Client implements Closeable {
+        private final Socket socket;
+        private final BufferedReader in;
+        private final Writer out;
+
+        Client(GameServer server) throws IOException {
+            socket = new Socket("localhost", server.getPort());
+            in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+            out = new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8);
+        }
+
+        String request(String command) throws IOException {
+            out.write(command + "\n");
+            out.flush();
+            String reply = in.readLine();
+            assertNotNull(reply, "Server je zatvorio vezu");
+            return reply;
+        }
+
+        @Override
+        public void close() throws IOException {
+            socket.close();
+        }
+    }
+
+    private static String state(String reply) {
+        return reply.substring(reply.indexOf(' ', reply.startsWith("session") ?  8 :  0) +  1);
+    }
+
+    @Test
+    void replyFormatMatchesLoadGenerator() throws IOException {
+        start(60_000);
+        try (Client client = new Client(server)) {
+            String reply = client.request("new 5");
+            assertTrue(reply.matches("session [0-9a-f]{16} " + STATE), reply);
+            String[] fields = state(reply).split(" ");
+            assertEquals("0", fields[0]);
+            assertEquals("5", fields[3]);
+            assertEquals(25, fields[4].length());
+            // LoadGenerator čita masku legalnih smjerova iz istog odgovora
+            assertEquals(Character.digit(fields[2].charAt(0),  16), LoadGenerator.legalMoves(reply));
+
+            int legal = LoadGenerator.legalMoves(reply);
+            String move = "udlr".substring(Integer.numberOfTrailingZeros(legal), Integer.numberOfTrailingZeros(legal) +  1);
+            reply = client.request(move);
+            assertTrue(reply.matches("state " + STATE), reply);
+            assertEquals(Character.digit(state(reply).split(" ")[2].charAt(0),  16), LoadGenerator.legalMoves(reply));
+            assertEquals(reply, client.request("state"));
+
+            assertTrue(client.request("nepoznato").startsWith("error "));
+            assertEquals("bye", client.request("quit"));
+        }
+    }
+
+    @Test
+    void evictedSessionIsResumedFromAnotherConnection() throws Exception {
+        start(50);
+        String id;
+        String last;
+        try (Client client = new Client(server)) {
+            String reply = client.request("new");
+            id = reply.split(" ")[1];
+            int legal = LoadGenerator.legalMoves(reply);
+            last = client.request("udlr".substring(Integer.numberOfTrailingZeros(legal),
+                    Integer.numberOfTrailingZeros(legal) +  1));
+        }
+        // Čistač čuva i uklanja sesiju nakon vremena neaktivnosti
+        long deadline = System.nanoTime() +  10_000_000_000L;
+        while (server.getSessionCount() >  0 && System.nanoTime() < deadline)
+            Thread.sleep(10);
+        assertEquals(0, server.getSessionCount());
+
+        try (Client client = new Client(server)) {
+            assertTrue(client.request("watch " + id).startsWith("error "));
+            assertEquals("session " + id + " " + state(last), client.request("resume " + id));
+            assertEquals(last, client.request("state"));
+        }
+    }
+
+    @Test
+    void watchDoesNotWaitForSessionLock() throws IOException {
+        start(60_000);
+        try (Client player = new Client(server); Client watcher = new Client(server)) {
+            String reply = player.request("new");
+            String id = reply.split(" ")[1];
+            Session session = server.store.peek(id);
+            // Komanda igrača drži sesiju; posmatrač čita objavljeno stanje bez čekanja
+            session.lock.lock();
+            try {
+                assertEquals("state " + state(reply), watcher.request("watch " + id));
+            } finally {
+                session.lock.unlock();
+            }
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package Server;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import Logika.Logika;
+import Logika.SaveSlots;
+
+/**
+ * Uklanjanje neaktivnih sesija iz memorije i njihovo ponovno učitavanje.
+ * Čistač se poziva direktno (sweep), a vrijeme neaktivnosti je dugo, pa se sesije ne uklanjaju same.
+ */
+class SessionStoreTest {
+    private static final long IDLE_MILLIS =  60_000;
+
+    @TempDir
+    Path directory;
+
+    // Sesija postaje neaktivna za sljedeći prolaz čistača
+    private static void makeIdle(Session session) {
+        session.lastActive = System.nanoTime() - TimeUnit.MILLISECONDS.toNanos(2 * IDLE_MILLIS);
+    }
+
+    private static boolean hasSave(SaveSlots slots, Session session) throws IOException {
+        return new Logika(4, new Random(), false).loadGame(slots, Session.saveKey(session.id));
+    }
+
+    @Test
+    void acquireReloadsSessionEvictedWhileWaiting() throws Exception {
+        SaveSlots slots = SaveSlots.open(directory.resolve("sessions.dat"),  16);
+        SessionStore store = new SessionStore(slots, null, IDLE_MILLIS);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Session session = store.create(4);
+            char move = session.game.isLegal('l') ? 'l' : 'r';
+            session.game.processMove(move);
+
+            // Komanda je već našla sesiju u memoriji i čeka njen lock dok je čistač uklanja
+            session.lock.lock();
+            // Lock pripada niti komande, pa ga ona i otpušta
+            Future<Session> acquired = executor.submit(() -> {
+                Session result = store.acquire(session.id);
+                result.lock.unlock();
+                return result;
+            });
+            while (!session.lock.hasQueuedThreads())
+                Thread.onSpinWait();
+            makeIdle(session);
+            store.sweep(); // lock je reentrant, pa čistač uklanja sesiju iz ove niti
+            assertTrue(session.evicted);
+            assertEquals(0, store.size());
+            session.lock.unlock();
+
+            Session resumed = acquired.get(10, TimeUnit.SECONDS);
+            assertNotSame(session, resumed);
+            assertFalse(resumed.evicted);
+            assertEquals(session.id, resumed.id);
+            assertEquals(session.game.getPackedBoard(), resumed.game.getPackedBoard());
+            assertEquals(session.game.getScore(), resumed.game.getScore());
+            assertEquals(session.id, resumed.game.getPlayer());
+            assertEquals(1, store.size());
+            // Učitana sesija ne drži mjesto u datoteci dok je u memoriji
+            assertFalse(hasSave(slots, resumed));
+        } finally {
+            executor.shutdownNow();
+            store.close();
+        }
+    }
+
+    @Test
+    void sweepContinuesAfterFailedSave() throws IOException {
+        // Jedino mjesto je zauzeto, pa čuvanje nezavršene igre ne uspijeva
+        SaveSlots slots = SaveSlots.open(directory.resolve("sessions.dat"),  1);
+        new Logika(4, new Random(), false).saveGame(slots, "zauzeto");
+        SessionStore store = new SessionStore(slots, null, IDLE_MILLIS);
+        try {
+            Session playing = store.create(4);
+            Session finished = store.create(4);
+            // Šahovska tablica pločica  2 i  4 nema legalnih poteza
+            long board =  0;
+            for (int i =  0; i <  16; i++)
+                board |= (long) (1 + ((i + i /  4) &  1)) << (4 * i);
+            finished.game.setState(board,  0, false);
+            assertEquals(0, finished.game.getLegalMoves());
+
+            makeIdle(playing);
+            makeIdle(finished);
+            store.sweep();
+            // Završena igra se uklanja bez snimka, bez obzira na redoslijed sesija
+            assertTrue(finished.evicted);
+            assertFalse(hasSave(slots, finished));
+            assertFalse(playing.evicted);
+            assertNotNull(store.peek(playing.id));
+            assertNull(store.peek(finished.id));
+            assertNull(store.acquire(finished.id));
+        } finally {
+            store.close();
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package Solver;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import Logika.BitBoard;
+import Logika.GridBoard;
+
+/**
+ * Provjerava pravila igre 3x3 iz klase Tablebase prema GridBoard na slučajnim tablicama,
+ * bez pravljenja tablice.
+ */
+class TablebaseTest {
+    private static final int SIZE = Tablebase.SIZE;
+
+    private static long randomBoard(Random random) {
+        long[] grid = new long[GridBoard.words(SIZE)];
+        for (int x =  0; x < SIZE; x++) {
+            for (int y =  0; y < SIZE; y++) {
+                // Otprilike trećina ćelija je prazna, a jednake susjedne pločice su česte
+                int exponent = random.nextInt(3) ==  0 ?  0 :  1 + random.nextInt(random.nextBoolean() ?  3 :  15);
+                GridBoard.setExponent(grid, SIZE, x, y, exponent);
+            }
+        }
+        return grid[0];
+    }
+
+    private static int exponent(long board, int x, int y) {
+        return (int) (board >>> (4 * (x + SIZE * y))) &  0xf;
+    }
+
+    // Tablica okrenuta za  90 stepeni: ćelija (x, y) prelazi na (SIZE - 1 - y, x)
+    private static long rotate(long board) {
+        long out =  0;
+        for (int x =  0; x < SIZE; x++) {
+            for (int y =  0; y < SIZE; y++)
+                out |= (long) exponent(board, x, y) << (4 * (SIZE -  1 - y + SIZE * x));
+        }
+        return out;
+    }
+
+    // Tablica zrcaljena po x
+    private static long mirror(long board) {
+        long out =  0;
+        for (int x =  0; x < SIZE; x++) {
+            for (int y =  0; y < SIZE; y++)
+                out |= (long) exponent(board, x, y) << (4 * (SIZE -  1 - x + SIZE * y));
+        }
+        return out;
+    }
+
+    @Test
+    void moveMatchesGridBoard() {
+        Random random = new Random(20);
+        long[] grid = new long[1];
+        long[] dst = new long[1];
+        for (int n =  0; n <  20_000; n++) {
+            grid[0] = randomBoard(random);
+            for (int dir =  0; dir <  4; dir++) {
+                int info = GridBoard.move(grid, SIZE, dir, dst);
+                assertEquals(dst[0], Tablebase.move(grid[0], dir), "smjer " + dir);
+                assertEquals(info >>>  2, Tablebase.moveScore(grid[0], dir), "smjer " + dir);
+            }
+        }
+    }
+
+    @Test
+    void canonicalIsSameForAllSymmetries() {
+        Random random = new Random(21);
+        for (int n =  0; n <  20_000; n++) {
+            long board = randomBoard(random);
+            long canonical = Tablebase.canonical(board);
+            long min = Long.MAX_VALUE;
+            long symmetric = board;
+            // Četiri rotacije tablice i četiri rotacije zrcaljene tablice
+            for (int t =  0; t <  8; t++) {
+                if (t ==  4)
+                    symmetric = mirror(symmetric);
+                assertEquals(canonical, Tablebase.canonical(symmetric));
+                min = Math.min(min, symmetric);
+                symmetric = rotate(symmetric);
+            }
+            assertEquals(min, canonical);
+        }
+        // Pokret simetrične tablice je simetričan pokret: lijevo na zrcaljenoj tablici je desno
+        long board = randomBoard(random);
+        assertEquals(mirror(Tablebase.move(board, BitBoard.LEFT)), Tablebase.move(mirror(board), BitBoard.RIGHT));
+        assertTrue(Tablebase.canonical(board) <= board);
+    }
+}